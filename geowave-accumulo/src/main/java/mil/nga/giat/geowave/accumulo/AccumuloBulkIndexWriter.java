@@ -0,0 +1,315 @@
+package mil.nga.giat.geowave.accumulo;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import mil.nga.giat.geowave.accumulo.metadata.AccumuloDataStatisticsStore;
+import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.index.PersistenceUtils;
+import mil.nga.giat.geowave.store.adapter.statistics.DataStatistics;
+import mil.nga.giat.geowave.store.adapter.statistics.DataStatisticsStore;
+import mil.nga.giat.geowave.store.index.Index;
+
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Logger;
+
+/**
+ * This index writer writes entries to sorted files within a work directory, to
+ * be bulk imported into their tables, rather than writing them through batch
+ * writers that compete with queries for tablet server memory and go through the
+ * write ahead log. Entries are encoded exactly as they are for batch writes.
+ * The statistics of the entries are written to the work directory when this
+ * writer is closed and are only incorporated into the statistics store once the
+ * files of the index table have been imported by
+ * {@link #importDirectory(AccumuloOperations, Configuration, Path)}.
+ * 
+ * The work directory holds a directory of files for each table and a directory
+ * of statistics for each index table, so several writers, such as the tasks of
+ * a map-reduce job, can share a work directory that is imported once they have
+ * all been closed.
+ */
+public class AccumuloBulkIndexWriter extends
+		AccumuloIndexWriter
+{
+	private final static Logger LOGGER = Logger.getLogger(AccumuloBulkIndexWriter.class);
+	protected static final String TABLES_DIRECTORY = "tables";
+	protected static final String STATISTICS_DIRECTORY = "statistics";
+	protected static final String FAILURES_DIRECTORY = "failures";
+
+	protected final Configuration conf;
+	protected final Path workDirectory;
+	protected final long bufferSize;
+
+	public AccumuloBulkIndexWriter(
+			final Index index,
+			final AccumuloOperations accumuloOperations,
+			final AccumuloOptions accumuloOptions,
+			final AccumuloDataStore dataStore,
+			final Configuration conf,
+			final Path workDirectory ) {
+		this(
+				index,
+				accumuloOperations,
+				accumuloOptions,
+				dataStore,
+				conf,
+				workDirectory,
+				RFileWriter.DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param bufferSize
+	 *            the approximate number of bytes to sort in memory for each
+	 *            table before writing them to files
+	 */
+	public AccumuloBulkIndexWriter(
+			final Index index,
+			final AccumuloOperations accumuloOperations,
+			final AccumuloOptions accumuloOptions,
+			final AccumuloDataStore dataStore,
+			final Configuration conf,
+			final Path workDirectory,
+			final long bufferSize ) {
+		super(
+				index,
+				accumuloOperations,
+				accumuloOptions,
+				dataStore);
+		this.conf = conf;
+		this.workDirectory = workDirectory;
+		this.bufferSize = bufferSize;
+	}
+
+	@Override
+	protected Writer createWriter(
+			final String tableName )
+			throws TableNotFoundException,
+			IOException {
+		if (!accumuloOperations.tableExists(tableName)) {
+			if (!accumuloOptions.isCreateTable()) {
+				throw new TableNotFoundException(
+						null,
+						tableName,
+						"Cannot bulk import into a table that does not exist");
+			}
+			// create the table just as a batch writer would, so the table is
+			// configured the same way, and so that its adapters can be set up
+			// on it before it is imported into
+			accumuloOperations.createWriter(
+					tableName,
+					true).close();
+		}
+		return new RFileWriter(
+				workDirectory.getFileSystem(conf),
+				conf,
+				new Path(
+						new Path(
+								workDirectory,
+								TABLES_DIRECTORY),
+						tableName),
+				accumuloOperations.getTableSplits(tableName),
+				bufferSize);
+	}
+
+	@Override
+	protected void incorporateStatistics(
+			final List<DataStatistics> accumulatedStats ) {
+		// the statistics are kept with the index table so that they are only
+		// incorporated once its files have been imported
+		final Path file = new Path(
+				new Path(
+						new Path(
+								workDirectory,
+								STATISTICS_DIRECTORY),
+						indexName),
+				UUID.randomUUID().toString());
+		try (DataOutputStream out = workDirectory.getFileSystem(
+				conf).create(
+				file,
+				false)) {
+			out.writeInt(accumulatedStats.size());
+			for (final DataStatistics stats : accumulatedStats) {
+				// the adapter ID and visibility are not part of the binary
+				writeBytes(
+						out,
+						stats.getDataAdapterId().getBytes());
+				writeBytes(
+						out,
+						stats.getVisibility());
+				writeBytes(
+						out,
+						PersistenceUtils.toBinary(stats));
+			}
+		}
+		catch (final IOException e) {
+			// the entries would be imported without their statistics
+			throw new RuntimeException(
+					"Unable to write statistics to '" + file + "'",
+					e);
+		}
+	}
+
+	/**
+	 * Import the files that bulk index writers have written to a work directory
+	 * into their tables, and then incorporate the statistics of the entries of
+	 * each index table that was imported. Every writer must be closed first.
+	 * Each table is imported independently. If any file fails to import it is
+	 * moved to the failures directory of the work directory, and the statistics
+	 * of that table are left in the work directory rather than being
+	 * incorporated. A table with files in the failures directory is not
+	 * imported again, so to retry the files must be moved back into the table's
+	 * directory. The work directory is deleted once every table has been
+	 * imported.
+	 * 
+	 * @param accumuloOperations
+	 *            the operations of the tables to import into
+	 * @param conf
+	 *            the configuration of the file system of the work directory,
+	 *            which should be the one the writers were given
+	 * @param workDirectory
+	 *            the work directory
+	 * @return whether every file was imported
+	 * @throws IOException
+	 */
+	public static boolean importDirectory(
+			final AccumuloOperations accumuloOperations,
+			final Configuration conf,
+			final Path workDirectory )
+			throws IOException {
+		final FileSystem fs = workDirectory.getFileSystem(conf);
+		boolean success = true;
+		final Path tablesDirectory = new Path(
+				workDirectory,
+				TABLES_DIRECTORY);
+		final Path statisticsDirectory = new Path(
+				workDirectory,
+				STATISTICS_DIRECTORY);
+		final List<DataStatistics> accumulatedStats = new ArrayList<DataStatistics>();
+		final List<Path> importedDirectories = new ArrayList<Path>();
+		if (fs.exists(tablesDirectory)) {
+			for (final FileStatus tableDirectory : fs.listStatus(tablesDirectory)) {
+				if (!tableDirectory.isDirectory()) {
+					continue;
+				}
+				final String tableName = tableDirectory.getPath().getName();
+				final Path failureDirectory = new Path(
+						new Path(
+								workDirectory,
+								FAILURES_DIRECTORY),
+						tableName);
+				if (fs.exists(failureDirectory) && (fs.listStatus(failureDirectory).length > 0)) {
+					// the statistics of this table include the failed files
+					LOGGER.error("Files previously failed to import into table '" + tableName + "', they must be moved from '" + failureDirectory + "' to '" + tableDirectory.getPath() + "' to be imported");
+					success = false;
+					continue;
+				}
+				fs.mkdirs(failureDirectory);
+				if (!accumuloOperations.importDirectory(
+						tableName,
+						tableDirectory.getPath().toString(),
+						failureDirectory.toString())) {
+					success = false;
+				}
+				else if (fs.listStatus(failureDirectory).length > 0) {
+					LOGGER.error("Some files failed to import into table '" + tableName + "', they have been moved to '" + failureDirectory + "'");
+					success = false;
+				}
+				else {
+					final Path tableStatisticsDirectory = new Path(
+							statisticsDirectory,
+							tableName);
+					accumulatedStats.addAll(readStatistics(
+							fs,
+							tableStatisticsDirectory));
+					importedDirectories.add(tableDirectory.getPath());
+					importedDirectories.add(tableStatisticsDirectory);
+					importedDirectories.add(failureDirectory);
+				}
+			}
+		}
+		mergeStatistics(accumulatedStats);
+		final DataStatisticsStore statsStore = new AccumuloDataStatisticsStore(
+				accumuloOperations);
+		for (final DataStatistics stats : accumulatedStats) {
+			statsStore.incorporateStatistics(stats);
+		}
+		// an imported table must not be imported or have its statistics
+		// incorporated again
+		for (final Path directory : importedDirectories) {
+			fs.delete(
+					directory,
+					true);
+		}
+		if (!success) {
+			LOGGER.error("The statistics of the tables that failed to import have not been incorporated, they remain in '" + statisticsDirectory + "'");
+			return false;
+		}
+		fs.delete(
+				workDirectory,
+				true);
+		return true;
+	}
+
+	private static List<DataStatistics> readStatistics(
+			final FileSystem fs,
+			final Path statisticsDirectory )
+			throws IOException {
+		final List<DataStatistics> accumulatedStats = new ArrayList<DataStatistics>();
+		if (!fs.exists(statisticsDirectory)) {
+			return accumulatedStats;
+		}
+		for (final FileStatus file : fs.listStatus(statisticsDirectory)) {
+			if (!file.isFile()) {
+				continue;
+			}
+			try (DataInputStream in = fs.open(file.getPath())) {
+				final int count = in.readInt();
+				for (int i = 0; i < count; i++) {
+					final byte[] adapterId = readBytes(in);
+					final byte[] visibility = readBytes(in);
+					final DataStatistics stats = PersistenceUtils.fromBinary(
+							readBytes(in),
+							DataStatistics.class);
+					stats.setDataAdapterId(new ByteArrayId(
+							adapterId));
+					stats.setVisibility(visibility);
+					accumulatedStats.add(stats);
+				}
+			}
+		}
+		return accumulatedStats;
+	}
+
+	private static void writeBytes(
+			final DataOutputStream out,
+			final byte[] bytes )
+			throws IOException {
+		if (bytes == null) {
+			out.writeInt(-1);
+		}
+		else {
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static byte[] readBytes(
+			final DataInputStream in )
+			throws IOException {
+		final int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return bytes;
+	}
+}
@@ -6,9 +6,13 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import mil.nga.giat.geowave.accumulo.metadata.AccumuloAdapterStore;
@@ -18,7 +22,10 @@ import mil.nga.giat.geowave.accumulo.query.AccumuloConstraintsQuery;
 import mil.nga.giat.geowave.accumulo.query.AccumuloFilteredIndexQuery;
 import mil.nga.giat.geowave.accumulo.query.AccumuloRowIdQuery;
 import mil.nga.giat.geowave.accumulo.query.AccumuloRowPrefixQuery;
+import mil.nga.giat.geowave.accumulo.query.IndexQueryPlan;
+import mil.nga.giat.geowave.accumulo.query.IndexQueryPlanner;
 import mil.nga.giat.geowave.accumulo.query.QueryFilterIterator;
+import mil.nga.giat.geowave.accumulo.query.RangePlanner;
 import mil.nga.giat.geowave.accumulo.query.SingleEntryFilterIterator;
 import mil.nga.giat.geowave.accumulo.util.AccumuloUtils;
 import mil.nga.giat.geowave.accumulo.util.AltIndexIngestCallback;
@@ -27,11 +34,14 @@ import mil.nga.giat.geowave.accumulo.util.DataAdapterAndIndexCache;
 import mil.nga.giat.geowave.accumulo.util.IteratorWrapper;
 import mil.nga.giat.geowave.accumulo.util.IteratorWrapper.Callback;
 import mil.nga.giat.geowave.accumulo.util.IteratorWrapper.Converter;
+import mil.nga.giat.geowave.accumulo.util.LimitedCloseableIterator;
+import mil.nga.giat.geowave.accumulo.util.ParallelCloseableIterator;
 import mil.nga.giat.geowave.store.adapter.statistics.StatsCompositionTool;
 import mil.nga.giat.geowave.index.ByteArrayId;
 import mil.nga.giat.geowave.index.ByteArrayRange;
 import mil.nga.giat.geowave.index.ByteArrayUtils;
 import mil.nga.giat.geowave.index.StringUtils;
+import mil.nga.giat.geowave.index.sfc.data.MultiDimensionalNumericData;
 import mil.nga.giat.geowave.store.CloseableIterator;
 import mil.nga.giat.geowave.store.DataStore;
 import mil.nga.giat.geowave.store.DataStoreEntryInfo;
@@ -46,9 +56,11 @@ import mil.nga.giat.geowave.store.adapter.MemoryAdapterStore;
 import mil.nga.giat.geowave.store.adapter.WritableDataAdapter;
 import mil.nga.giat.geowave.store.adapter.statistics.DataStatistics;
 import mil.nga.giat.geowave.store.adapter.statistics.DataStatisticsStore;
+import mil.nga.giat.geowave.store.adapter.statistics.RowRangeHistogramStatistics;
 import mil.nga.giat.geowave.store.data.VisibilityWriter;
 import mil.nga.giat.geowave.store.data.visibility.UnconstrainedVisibilityHandler;
 import mil.nga.giat.geowave.store.data.visibility.UniformVisibilityWriter;
+import mil.nga.giat.geowave.store.filter.DedupeFilter;
 import mil.nga.giat.geowave.store.filter.MultiIndexDedupeFilter;
 import mil.nga.giat.geowave.store.index.Index;
 import mil.nga.giat.geowave.store.index.IndexStore;
@@ -68,6 +80,8 @@ import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.user.WholeRowIterator;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
 
@@ -94,6 +108,8 @@ public class AccumuloDataStore implements
 	protected final DataStatisticsStore statisticsStore;
 	protected final AccumuloOperations accumuloOperations;
 	protected final AccumuloOptions accumuloOptions;
+	private ExecutorService queryExecutor;
+	private Configuration bulkIngestConfiguration;
 
 	public AccumuloDataStore(
 			final AccumuloOperations accumuloOperations ) {
@@ -116,7 +132,8 @@ public class AccumuloDataStore implements
 				new AccumuloAdapterStore(
 						accumuloOperations),
 				new AccumuloDataStatisticsStore(
-						accumuloOperations),
+						accumuloOperations,
+						accumuloOptions),
 				accumuloOperations,
 				accumuloOptions);
 	}
@@ -147,9 +164,33 @@ public class AccumuloDataStore implements
 		this.accumuloOptions = accumuloOptions;
 	}
 
+	/**
+	 * Get the executor that every query of this data store reads its sources
+	 * concurrently on, which is created the first time it is needed with as
+	 * many threads as the Accumulo options allow queries to use
+	 * 
+	 * @return the executor
+	 */
+	public synchronized ExecutorService getQueryExecutor() {
+		if (queryExecutor == null) {
+			queryExecutor = ParallelCloseableIterator.createExecutor(accumuloOptions.getQueryThreads());
+		}
+		return queryExecutor;
+	}
+
 	@Override
 	public <T> IndexWriter createIndexWriter(
 			final Index index ) {
+		if (accumuloOptions.getBulkIngestDirectory() != null) {
+			return new AccumuloBulkIndexWriter(
+					index,
+					accumuloOperations,
+					accumuloOptions,
+					this,
+					getBulkIngestConfiguration(),
+					new Path(
+							accumuloOptions.getBulkIngestDirectory()));
+		}
 		return new AccumuloIndexWriter(
 				index,
 				accumuloOperations,
@@ -157,6 +198,42 @@ public class AccumuloDataStore implements
 				this);
 	}
 
+	/**
+	 * Get the configuration that the index writers of this data store write to
+	 * the bulk ingest directory with, which is created the first time it is
+	 * needed
+	 * 
+	 * @return the configuration
+	 */
+	protected synchronized Configuration getBulkIngestConfiguration() {
+		if (bulkIngestConfiguration == null) {
+			bulkIngestConfiguration = new Configuration();
+		}
+		return bulkIngestConfiguration;
+	}
+
+	/**
+	 * Import the files that the index writers of this data store have written
+	 * to the bulk ingest directory of the Accumulo options, with the same
+	 * configuration that they were written with. Every index writer must be
+	 * closed first.
+	 * 
+	 * @return whether every file was imported, which is trivially true if there
+	 *         is no bulk ingest directory
+	 * @throws IOException
+	 */
+	public boolean importBulkIngestDirectory()
+			throws IOException {
+		if (accumuloOptions.getBulkIngestDirectory() == null) {
+			return true;
+		}
+		return AccumuloBulkIndexWriter.importDirectory(
+				accumuloOperations,
+				getBulkIngestConfiguration(),
+				new Path(
+						accumuloOptions.getBulkIngestDirectory()));
+	}
+
 	@Override
 	public <T> List<ByteArrayId> ingest(
 			final WritableDataAdapter<T> writableAdapter,
@@ -232,7 +309,9 @@ public class AccumuloDataStore implements
 				}
 			}
 
-			statisticsTool = getStatsCompositionTool(writableAdapter);
+			statisticsTool = getStatsCompositionTool(
+					writableAdapter,
+					index);
 
 			writer = accumuloOperations.createWriter(
 					indexName,
@@ -458,7 +537,9 @@ public class AccumuloDataStore implements
 						altIdxWriter,
 						dataWriter));
 			}
-			final StatsCompositionTool<T> statsCompositionTool = this.getStatsCompositionTool(dataWriter);
+			final StatsCompositionTool<T> statsCompositionTool = getStatsCompositionTool(
+					dataWriter,
+					index);
 			callbacks.add(statsCompositionTool);
 
 			if (ingestCallback != null) {
@@ -654,14 +735,17 @@ public class AccumuloDataStore implements
 				Integer.MAX_VALUE,
 				authorizations);
 
-		final StatsCompositionTool<Object> statsCompositionTool = getStatsCompositionTool(adapter);
+		final StatsCompositionTool<Object> statsCompositionTool = getStatsCompositionTool(
+				adapter,
+				index);
 		final boolean success = (rows.size() > 0) && deleteRowsForSingleEntry(
 				tableName,
 				rows,
 				createDecodingDeleteObserver(
 						statsCompositionTool,
 						adapter,
-						index),
+						index,
+						rows),
 				authorizations);
 
 		synchronizeStatsWithStore(
@@ -992,9 +1076,16 @@ public class AccumuloDataStore implements
 			final String... authorizations ) {
 		try (final CloseableIterator<Index> indices = indexStore.getIndices()) {
 			return query(
-					adapterIds,
+					new IndexQueryPlanner(
+							adapterStore,
+							statisticsStore,
+							AccumuloConstraintsQuery.getRangePlanner(),
+							accumuloOptions.isCostBasedIndexSelection()).plan(
+							adapterIds,
+							query,
+							indices,
+							authorizations),
 					query,
-					indices,
 					adapterStore,
 					limit,
 					scanCallback,
@@ -1014,6 +1105,41 @@ public class AccumuloDataStore implements
 				new ArrayList<Object>().iterator());
 	}
 
+	/**
+	 * Explain which indices a query that does not name an index would read, and
+	 * why
+	 * 
+	 * @param adapterIds
+	 *            the adapter IDs to query, null implies all adapters
+	 * @param query
+	 *            the query, null implies all entries
+	 * @param authorizations
+	 *            the authorizations for reading the statistics
+	 * @return the plan, including the estimated cost of each candidate index
+	 */
+	public IndexQueryPlan explain(
+			final List<ByteArrayId> adapterIds,
+			final Query query,
+			final String... authorizations ) {
+		try (final CloseableIterator<Index> indices = indexStore.getIndices()) {
+			return new IndexQueryPlanner(
+					adapterStore,
+					statisticsStore,
+					AccumuloConstraintsQuery.getRangePlanner(),
+					true).plan(
+					adapterIds,
+					query,
+					indices,
+					authorizations);
+		}
+		catch (final IOException e) {
+			LOGGER.warn(
+					"unable to close index iterator for query",
+					e);
+		}
+		return null;
+	}
+
 	private CloseableIterator<?> query(
 			final List<ByteArrayId> adapterIds,
 			final Query query,
@@ -1022,62 +1148,205 @@ public class AccumuloDataStore implements
 			final Integer limit,
 			final ScanCallback<?> scanCallback,
 			final String... authorizations ) {
-		// query the indices that are supported for this query object, and these
-		// data adapter Ids
-		final List<CloseableIterator<?>> results = new ArrayList<CloseableIterator<?>>();
-		int indexCount = 0;
+		// the index was named by the caller, so it is read regardless of cost
+		return query(
+				new IndexQueryPlanner(
+						adapterStore,
+						statisticsStore,
+						AccumuloConstraintsQuery.getRangePlanner(),
+						false).plan(
+						adapterIds,
+						query,
+						indices,
+						authorizations),
+				query,
+				adapterStore,
+				limit,
+				scanCallback,
+				authorizations);
+	}
+
+	private CloseableIterator<?> query(
+			final IndexQueryPlan plan,
+			final Query query,
+			final AdapterStore adapterStore,
+			final Integer limit,
+			final ScanCallback<?> scanCallback,
+			final String... authorizations ) {
 		// all queries will use the same instance of the dedupe filter for
 		// client side filtering because the filter needs to be applied across
-		// indices
-		final MultiIndexDedupeFilter clientDedupeFilter = new MultiIndexDedupeFilter();
-		while (indices.hasNext()) {
-			final Index index = indices.next();
-			final AccumuloConstraintsQuery accumuloQuery;
-			if (query == null) {
-				accumuloQuery = new AccumuloConstraintsQuery(
-						adapterIds,
-						index,
-						clientDedupeFilter,
-						scanCallback,
-						authorizations);
+		// indices, and it can spill to disk because client-side results are
+		// expected to be complete
+		final MultiIndexDedupeFilter clientDedupeFilter = new MultiIndexDedupeFilter(
+				DedupeFilter.DEFAULT_MAX_SIZE_IN_BYTES,
+				true);
+		// if no adapter is read from multiple indices, the client-side dedupe
+		// filter can just cache rows that are duplicated within the index and
+		// not everything
+		clientDedupeFilter.setMultiIndexSupportEnabled(plan.isMultiIndex());
+		// scan callbacks are not expected to be thread safe, so they are only
+		// called from one scan at a time
+		final boolean parallel = (accumuloOptions.getQueryThreads() > 1) && (scanCallback == null);
+		// query the indices that the plan chose for this query object, and
+		// these data adapter Ids
+		final List<AccumuloConstraintsQuery> accumuloQueries = new ArrayList<AccumuloConstraintsQuery>();
+		for (final Index index : plan.getIndices()) {
+			final List<ByteArrayId> adapterIds = plan.getAdapterIds(index.getId());
+			if (parallel && (adapterIds != null) && (adapterIds.size() > 1)) {
+				// scan each adapter separately so that they can be read
+				// concurrently
+				for (final ByteArrayId adapterId : adapterIds) {
+					accumuloQueries.add(createConstraintsQuery(
+							Arrays.asList(adapterId),
+							index,
+							query,
+							clientDedupeFilter,
+							scanCallback,
+							authorizations));
+				}
 			}
-			else if (query.isSupported(index)) {
-				// construct the query
-				accumuloQuery = new AccumuloConstraintsQuery(
+			else {
+				accumuloQueries.add(createConstraintsQuery(
 						adapterIds,
 						index,
-						query.getIndexConstraints(index.getIndexStrategy()),
-						query.createFilters(index.getIndexModel()),
+						query,
 						clientDedupeFilter,
 						scanCallback,
-						authorizations);
+						authorizations));
 			}
-			else {
-				continue;
+		}
+		if (parallel && (accumuloQueries.size() > 1)) {
+			final List<Callable<CloseableIterator<Object>>> sources = new ArrayList<Callable<CloseableIterator<Object>>>();
+			for (final AccumuloConstraintsQuery accumuloQuery : accumuloQueries) {
+				sources.add(new Callable<CloseableIterator<Object>>() {
+					@SuppressWarnings("unchecked")
+					@Override
+					public CloseableIterator<Object> call() {
+						return (CloseableIterator<Object>) accumuloQuery.query(
+								accumuloOperations,
+								adapterStore,
+								limit,
+								true);
+					}
+				});
 			}
-			results.add(accumuloQuery.query(
-					accumuloOperations,
-					adapterStore,
-					limit,
-					true));
-			indexCount++;
+			final ParallelCloseableIterator<Object> results = new ParallelCloseableIterator<Object>(
+					sources,
+					getQueryExecutor(),
+					ParallelCloseableIterator.DEFAULT_QUEUE_CAPACITY,
+					limit);
+			return new CloseableIteratorWrapper<Object>(
+					new Closeable() {
+						@Override
+						public void close()
+								throws IOException {
+							try {
+								results.close();
+							}
+							finally {
+								// delete any visited IDs spilled to disk
+								clientDedupeFilter.close();
+							}
+						}
+					},
+					results);
 		}
-		// if there aren't multiple indices, the client-side dedupe filter can
-		// just cache rows that are duplicated within the index and not
-		// everything
-		clientDedupeFilter.setMultiIndexSupportEnabled(indexCount > 1);
-		// concatenate iterators
-		return new CloseableIteratorWrapper<Object>(
+		final List<CloseableIterator<?>> results = new ArrayList<CloseableIterator<?>>();
+		boolean queried = false;
+		try {
+			for (final AccumuloConstraintsQuery accumuloQuery : accumuloQueries) {
+				results.add(accumuloQuery.query(
+						accumuloOperations,
+						adapterStore,
+						limit,
+						true));
+			}
+			queried = true;
+		}
+		finally {
+			if (!queried) {
+				try {
+					closeResults(
+							results,
+							clientDedupeFilter);
+				}
+				catch (final IOException e) {
+					LOGGER.warn(
+							"Unable to close query results",
+							e);
+				}
+			}
+		}
+		// concatenate iterators, applying the limit across all of them so
+		// that every scanner is closed once it is reached
+		final CloseableIterator<Object> it = new CloseableIteratorWrapper<Object>(
 				new Closeable() {
 					@Override
 					public void close()
 							throws IOException {
-						for (final CloseableIterator<?> result : results) {
-							result.close();
-						}
+						closeResults(
+								results,
+								clientDedupeFilter);
 					}
 				},
 				Iterators.concat(results.iterator()));
+		if ((limit != null) && (limit > 0) && (results.size() > 1)) {
+			return new LimitedCloseableIterator<Object>(
+					it,
+					limit);
+		}
+		return it;
+	}
+
+	/**
+	 * Close the results of a query and then the dedupe filter shared by them,
+	 * which deletes any visited IDs spilled to disk even if closing a result
+	 * fails
+	 */
+	private static void closeResults(
+			final List<CloseableIterator<?>> results,
+			final DedupeFilter clientDedupeFilter )
+			throws IOException {
+		try {
+			for (final CloseableIterator<?> result : results) {
+				result.close();
+			}
+		}
+		finally {
+			clientDedupeFilter.close();
+		}
+	}
+
+	private AccumuloConstraintsQuery createConstraintsQuery(
+			final List<ByteArrayId> adapterIds,
+			final Index index,
+			final Query query,
+			final MultiIndexDedupeFilter clientDedupeFilter,
+			final ScanCallback<?> scanCallback,
+			final String... authorizations ) {
+		final AccumuloConstraintsQuery accumuloQuery;
+		if (query == null) {
+			accumuloQuery = new AccumuloConstraintsQuery(
+					adapterIds,
+					index,
+					clientDedupeFilter,
+					scanCallback,
+					authorizations);
+		}
+		else {
+			// construct the query
+			accumuloQuery = new AccumuloConstraintsQuery(
+					adapterIds,
+					index,
+					query.getIndexConstraints(index.getIndexStrategy()),
+					query.createFilters(index.getIndexModel()),
+					clientDedupeFilter,
+					scanCallback,
+					authorizations);
+		}
+		// plan the ranges with the row range histograms of the adapters
+		accumuloQuery.setStatisticsStore(statisticsStore);
+		return accumuloQuery;
 	}
 
 	@Override
@@ -1202,6 +1471,51 @@ public class AccumuloDataStore implements
 				authorizations);
 	}
 
+	/**
+	 * Aggregate the entries of an adapter that match a query into statistics,
+	 * such as a count, bounding box or range, rather than returning the
+	 * entries. As far as possible the entries are aggregated by the tablet
+	 * servers, so that each only returns its partial statistics, which are
+	 * merged by the client.
+	 * 
+	 * @param adapter
+	 *            the adapter of the entries
+	 * @param index
+	 *            the index to be queried
+	 * @param query
+	 *            the query, null implies all entries
+	 * @param statistics
+	 *            the empty statistics to aggregate the entries into
+	 * @param authorizations
+	 *            the authorizations for reading the entries
+	 * @return the statistics, or null if the aggregation could not be completed
+	 */
+	public <T> List<DataStatistics<T>> aggregate(
+			final DataAdapter<T> adapter,
+			final Index index,
+			final Query query,
+			final List<DataStatistics<T>> statistics,
+			final String... authorizations ) {
+		if ((query != null) && !query.isSupported(index)) {
+			throw new IllegalArgumentException(
+					"Index does not support the query");
+		}
+		store(adapter);
+
+		return createConstraintsQuery(
+				Arrays.asList(new ByteArrayId[] {
+					adapter.getAdapterId()
+				}),
+				index,
+				query,
+				null,
+				null,
+				authorizations).aggregate(
+				accumuloOperations,
+				adapter,
+				statistics);
+	}
+
 	public <T> void deleteEntries(
 			final DataAdapter<T> adapter,
 			final Index index,
@@ -1211,6 +1525,8 @@ public class AccumuloDataStore implements
 		final String altIdxTableName = tableName + AccumuloUtils.ALT_INDEX_TABLE;
 		final String adapterId = StringUtils.stringFromBinary(adapter.getAdapterId().getBytes());
 
+		// every row of the adapter is deleted, so its statistics, including
+		// the row range histograms, are removed rather than updated
 		final CloseableIterator<DataStatistics<?>> it = statisticsStore.getDataStatistics(adapter.getAdapterId());
 
 		while (it.hasNext()) {
@@ -1231,11 +1547,106 @@ public class AccumuloDataStore implements
 				additionalAuthorizations);
 	}
 
+	/**
+	 * Estimate the number of rows within an index that a query with the given
+	 * constraints would read, using the row range histograms of the index. The
+	 * estimate is cheap relative to the query so it can be used to choose
+	 * between indices, to size a scan, or to reject a query that would read too
+	 * much.
+	 * 
+	 * @param index
+	 *            the index to be queried
+	 * @param constraints
+	 *            the query constraints, null or empty implies the whole index
+	 * @param authorizations
+	 *            the authorizations for reading the statistics
+	 * @return the estimated number of rows, which is an upper bound if rows
+	 *         have been removed other than through this data store, or -1 if
+	 *         there are no row range histograms for the index
+	 */
+	public long estimateCardinality(
+			final Index index,
+			final MultiDimensionalNumericData constraints,
+			final String... authorizations ) {
+		final List<ByteArrayId> adapterIds = new ArrayList<ByteArrayId>();
+		try (final CloseableIterator<DataAdapter<?>> adapters = adapterStore.getAdapters()) {
+			while (adapters.hasNext()) {
+				adapterIds.add(adapters.next().getAdapterId());
+			}
+		}
+		catch (final IOException e) {
+			LOGGER.warn(
+					"Unable to close adapter iterator",
+					e);
+		}
+		return estimateCardinality(
+				index,
+				adapterIds,
+				constraints,
+				authorizations);
+	}
+
+	/**
+	 * Estimate the number of rows of the given adapters within an index that a
+	 * query with the given constraints would read, using the row range
+	 * histograms of the index
+	 * 
+	 * @param index
+	 *            the index to be queried
+	 * @param adapterIds
+	 *            the adapters to be queried
+	 * @param constraints
+	 *            the query constraints, null or empty implies the whole index
+	 * @param authorizations
+	 *            the authorizations for reading the statistics
+	 * @return the estimated number of rows, which is an upper bound if rows
+	 *         have been removed other than through this data store, or -1 if
+	 *         there are no row range histograms for the index
+	 */
+	public long estimateCardinality(
+			final Index index,
+			final List<ByteArrayId> adapterIds,
+			final MultiDimensionalNumericData constraints,
+			final String... authorizations ) {
+		final ByteArrayId statisticsId = RowRangeHistogramStatistics.composeId(index.getId());
+		RowRangeHistogramStatistics<?> histogram = null;
+		for (final ByteArrayId adapterId : adapterIds) {
+			final DataStatistics<?> stats = statisticsStore.getDataStatistics(
+					adapterId,
+					statisticsId,
+					authorizations);
+			if (stats instanceof RowRangeHistogramStatistics) {
+				if (histogram == null) {
+					histogram = (RowRangeHistogramStatistics<?>) stats;
+				}
+				else {
+					histogram.merge(stats);
+				}
+			}
+		}
+		if (histogram == null) {
+			return -1;
+		}
+		return Math.round(histogram.estimateCount(AccumuloUtils.constraintsToByteArrayRanges(
+				constraints,
+				index.getIndexStrategy(),
+				RangePlanner.DEFAULT_MAX_RANGE_DECOMPOSITION)));
+	}
+
 	private <T> StatsCompositionTool<T> getStatsCompositionTool(
 			final DataAdapter<T> adapter ) {
+		return getStatsCompositionTool(
+				adapter,
+				null);
+	}
+
+	private <T> StatsCompositionTool<T> getStatsCompositionTool(
+			final DataAdapter<T> adapter,
+			final Index index ) {
 		return new StatsCompositionTool<T>(
 				adapter,
-				accumuloOptions.isPersistDataStatistics() ? statisticsStore : null);
+				accumuloOptions.isPersistDataStatistics() ? statisticsStore : null,
+				index);
 	}
 
 	private <T> void synchronizeStatsWithStore(
@@ -1333,7 +1744,16 @@ public class AccumuloDataStore implements
 	private DeleteRowObserver createDecodingDeleteObserver(
 			final StatsCompositionTool<Object> stats,
 			final DataAdapter<Object> adapter,
-			final Index index ) {
+			final Index index,
+			final List<Entry<Key, Value>> rows ) {
+		// the decoded entry only knows the row it was decoded from, but
+		// statistics such as the row range histogram need every row of the
+		// entry that is deleted
+		final Set<ByteArrayId> rowIds = new LinkedHashSet<ByteArrayId>();
+		for (final Entry<Key, Value> row : rows) {
+			rowIds.add(new ByteArrayId(
+					row.getKey().getRow().copyBytes()));
+		}
 
 		return stats.isPersisting() ? new DeleteRowObserver() {
 			// many rows can be associated with one entry.
@@ -1362,7 +1782,10 @@ public class AccumuloDataStore implements
 										final DataStoreEntryInfo entryInfo,
 										final Object entry ) {
 									stats.entryDeleted(
-											entryInfo,
+											new DataStoreEntryInfo(
+													new ArrayList<ByteArrayId>(
+															rowIds),
+													entryInfo.getFieldInfo()),
 											entry);
 								}
 
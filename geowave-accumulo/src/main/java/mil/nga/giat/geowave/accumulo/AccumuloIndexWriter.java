@@ -1,11 +1,17 @@
 package mil.nga.giat.geowave.accumulo;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import mil.nga.giat.geowave.accumulo.metadata.AccumuloDataStatisticsStore;
 import mil.nga.giat.geowave.accumulo.util.AccumuloUtils;
@@ -20,11 +26,13 @@ import mil.nga.giat.geowave.store.adapter.statistics.DataStatistics;
 import mil.nga.giat.geowave.store.adapter.statistics.DataStatisticsBuilder;
 import mil.nga.giat.geowave.store.adapter.statistics.DataStatisticsStore;
 import mil.nga.giat.geowave.store.adapter.statistics.StatisticalDataAdapter;
+import mil.nga.giat.geowave.store.adapter.statistics.StatsCompositionTool;
 import mil.nga.giat.geowave.store.index.Index;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
 import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Mutation;
 import org.apache.log4j.Logger;
 
 /**
@@ -32,6 +40,12 @@ import org.apache.log4j.Logger;
  * open writer. The first entry that is written will open a writer and it is the
  * responsibility of the caller to close this writer when complete.
  * 
+ * By default every write is serialized. If concurrent writes are enabled in the
+ * Accumulo options, entries are encoded and their statistics are accumulated on
+ * the calling threads, each thread with its own statistics builders, and only
+ * handing the mutations to the underlying writer is serialized. The statistics
+ * of all threads are merged when this writer is closed, so every write must
+ * complete before it is closed.
  */
 public class AccumuloIndexWriter implements
 		IndexWriter
@@ -49,7 +63,16 @@ public class AccumuloIndexWriter implements
 	protected String altIdxTableName;
 
 	protected boolean persistStats;
-	protected final Map<ByteArrayId, List<DataStatisticsBuilder>> statsMap = new HashMap<ByteArrayId, List<DataStatisticsBuilder>>();
+	protected final Map<ByteArrayId, List<DataStatisticsBuilder<?>>> statsMap = new HashMap<ByteArrayId, List<DataStatisticsBuilder<?>>>();
+
+	protected boolean concurrentWrites;
+	// the adapters that have been stored and set up on the index table, so
+	// that is only done once per adapter
+	private final Set<ByteArrayId> setupAdapterIds = Collections.newSetFromMap(new ConcurrentHashMap<ByteArrayId, Boolean>());
+	// the statistics builders of each thread writing concurrently, which are
+	// merged and released when this writer is closed
+	private final ThreadLocal<ThreadStatistics> threadStatistics = new ThreadLocal<ThreadStatistics>();
+	private final List<ThreadStatistics> unmergedThreadStatistics = new ArrayList<ThreadStatistics>();
 
 	public AccumuloIndexWriter(
 			final Index index,
@@ -80,6 +103,7 @@ public class AccumuloIndexWriter implements
 
 		useAltIndex = accumuloOptions.isUseAltIndex();
 		persistStats = accumuloOptions.isPersistDataStatistics();
+		concurrentWrites = accumuloOptions.isConcurrentWrites();
 		if (useAltIndex) {
 			if (accumuloOperations.tableExists(indexName)) {
 				if (!accumuloOperations.tableExists(altIdxTableName)) {
@@ -99,11 +123,9 @@ public class AccumuloIndexWriter implements
 	private synchronized void ensureOpen() {
 		if (writer == null) {
 			try {
-				writer = accumuloOperations.createWriter(
-						StringUtils.stringFromBinary(index.getId().getBytes()),
-						accumuloOptions.isCreateTable());
+				writer = createWriter(StringUtils.stringFromBinary(index.getId().getBytes()));
 			}
-			catch (final TableNotFoundException e) {
+			catch (TableNotFoundException | IOException e) {
 				LOGGER.error(
 						"Unable to open writer",
 						e);
@@ -111,11 +133,9 @@ public class AccumuloIndexWriter implements
 		}
 		if (useAltIndex && (altIdxWriter == null)) {
 			try {
-				altIdxWriter = accumuloOperations.createWriter(
-						altIdxTableName,
-						accumuloOptions.isCreateTable());
+				altIdxWriter = createWriter(altIdxTableName);
 			}
-			catch (final TableNotFoundException e) {
+			catch (TableNotFoundException | IOException e) {
 				LOGGER.error(
 						"Unable to open writer",
 						e);
@@ -123,14 +143,34 @@ public class AccumuloIndexWriter implements
 		}
 	}
 
+	/**
+	 * Open a writer for a table, this writes through a batch writer
+	 */
+	protected Writer createWriter(
+			final String tableName )
+			throws TableNotFoundException,
+			IOException {
+		return accumuloOperations.createWriter(
+				tableName,
+				accumuloOptions.isCreateTable());
+	}
+
 	private synchronized void closeInternal() {
-		if (writer != null) {
-			writer.close();
-			writer = null;
+		// a writer that fails to close is not retried, and does not stop the
+		// alternate index writer from being closed
+		try {
+			if (writer != null) {
+				final Writer closingWriter = writer;
+				writer = null;
+				closingWriter.close();
+			}
 		}
-		if (useAltIndex && (altIdxWriter != null)) {
-			altIdxWriter.close();
-			altIdxWriter = null;
+		finally {
+			if (useAltIndex && (altIdxWriter != null)) {
+				final Writer closingWriter = altIdxWriter;
+				altIdxWriter = null;
+				closingWriter.close();
+			}
 		}
 	}
 
@@ -166,40 +206,20 @@ public class AccumuloIndexWriter implements
 	public <T> List<ByteArrayId> writeInternal(
 			final WritableDataAdapter<T> writableAdapter,
 			final T entry ) {
-		final ByteArrayId adapterIdObj = writableAdapter.getAdapterId();
-
-		final byte[] adapterId = writableAdapter.getAdapterId().getBytes();
-
-		try {
-			if (writableAdapter instanceof AttachedIteratorDataAdapter) {
-				if (!DataAdapterAndIndexCache.getInstance(
-						AttachedIteratorDataAdapter.ATTACHED_ITERATOR_CACHE_ID).add(
-						adapterIdObj,
-						indexName)) {
-					accumuloOperations.attachIterators(
-							indexName,
-							accumuloOptions.isCreateTable(),
-							((AttachedIteratorDataAdapter) writableAdapter).getAttachedIteratorConfig(index));
-				}
-			}
-			if (accumuloOptions.isUseLocalityGroups() && !accumuloOperations.localityGroupExists(
-					indexName,
-					adapterId)) {
-				accumuloOperations.addLocalityGroup(
-						indexName,
-						adapterId);
-			}
-		}
-		catch (AccumuloException | TableNotFoundException | AccumuloSecurityException e) {
-			LOGGER.error(
-					"Unable to determine existence of locality group [" + writableAdapter.getAdapterId().getString() + "]",
-					e);
+		ensureAdapterSetUp(writableAdapter);
+		if (concurrentWrites) {
+			final DataStoreEntryInfo entryInfo = AccumuloUtils.getIngestInfo(
+					writableAdapter,
+					index,
+					entry);
+			writeConcurrently(
+					writableAdapter,
+					Collections.singletonList(entry),
+					Collections.singletonList(entryInfo));
+			return entryInfo.getRowIds();
 		}
 		DataStoreEntryInfo entryInfo;
 		synchronized (this) {
-			dataStore.store(writableAdapter);
-			dataStore.store(index);
-
 			ensureOpen();
 			entryInfo = AccumuloUtils.write(
 					writableAdapter,
@@ -215,43 +235,219 @@ public class AccumuloIndexWriter implements
 						altIdxWriter);
 			}
 			if (persistStats) {
-				List<DataStatisticsBuilder> stats;
-				if (statsMap.containsKey(adapterIdObj)) {
-					stats = statsMap.get(adapterIdObj);
+				updateStats(
+						writableAdapter,
+						entryInfo,
+						entry);
+			}
+		}
+		return entryInfo.getRowIds();
+	}
+
+	@Override
+	public <T> List<ByteArrayId> writeBatch(
+			final WritableDataAdapter<T> writableAdapter,
+			final List<T> entries ) {
+		final List<T> indexedEntries;
+		if (writableAdapter instanceof IndexDependentDataAdapter) {
+			final IndexDependentDataAdapter<T> adapter = ((IndexDependentDataAdapter<T>) writableAdapter);
+			indexedEntries = new ArrayList<T>(
+					entries.size());
+			for (final T entry : entries) {
+				final Iterator<T> it = adapter.convertToIndex(
+						index,
+						entry);
+				while (it.hasNext()) {
+					indexedEntries.add(it.next());
 				}
-				else {
-					if (writableAdapter instanceof StatisticalDataAdapter) {
-						final ByteArrayId[] statisticsIds = ((StatisticalDataAdapter<T>) writableAdapter).getSupportedStatisticsIds();
-						stats = new ArrayList<DataStatisticsBuilder>(
-								statisticsIds.length);
-						for (final ByteArrayId id : statisticsIds) {
-							stats.add(new DataStatisticsBuilder<T>(
-									(StatisticalDataAdapter) writableAdapter,
-									id));
-						}
-						if ((stats != null) && stats.isEmpty()) {
-							// if its an empty list, for simplicity just set it
-							// to null
-							stats = null;
-						}
-					}
-					else {
-						stats = null;
-					}
-					statsMap.put(
-							adapterIdObj,
-							stats);
+			}
+		}
+		else {
+			indexedEntries = entries;
+		}
+		if (indexedEntries.isEmpty()) {
+			return new ArrayList<ByteArrayId>();
+		}
+		ensureAdapterSetUp(writableAdapter);
+		if (concurrentWrites) {
+			final List<DataStoreEntryInfo> entryInfos = AccumuloUtils.getIngestInfo(
+					writableAdapter,
+					index,
+					indexedEntries);
+			writeConcurrently(
+					writableAdapter,
+					indexedEntries,
+					entryInfos);
+			final List<ByteArrayId> rowIds = new ArrayList<ByteArrayId>(
+					indexedEntries.size());
+			for (final DataStoreEntryInfo entryInfo : entryInfos) {
+				rowIds.addAll(entryInfo.getRowIds());
+			}
+			return rowIds;
+		}
+		final List<ByteArrayId> rowIds = new ArrayList<ByteArrayId>(
+				indexedEntries.size());
+		synchronized (this) {
+			ensureOpen();
+			final List<DataStoreEntryInfo> entryInfos = AccumuloUtils.write(
+					writableAdapter,
+					index,
+					indexedEntries,
+					writer);
+			for (int i = 0; i < indexedEntries.size(); i++) {
+				final DataStoreEntryInfo entryInfo = entryInfos.get(i);
+				final T entry = indexedEntries.get(i);
+				if (useAltIndex) {
+					AccumuloUtils.writeAltIndex(
+							writableAdapter,
+							entryInfo,
+							entry,
+							altIdxWriter);
 				}
-				if (stats != null) {
-					for (final DataStatisticsBuilder<T> s : stats) {
-						s.entryIngested(
-								entryInfo,
-								entry);
-					}
+				if (persistStats) {
+					updateStats(
+							writableAdapter,
+							entryInfo,
+							entry);
 				}
+				rowIds.addAll(entryInfo.getRowIds());
+			}
+		}
+		return rowIds;
+	}
+
+	/**
+	 * Store the adapter and index and set up the adapter on the index table the
+	 * first time the adapter is written
+	 */
+	private <T> void ensureAdapterSetUp(
+			final WritableDataAdapter<T> writableAdapter ) {
+		final ByteArrayId adapterId = writableAdapter.getAdapterId();
+		if (setupAdapterIds.contains(adapterId)) {
+			return;
+		}
+		synchronized (this) {
+			if (setupAdapterIds.contains(adapterId)) {
+				return;
+			}
+			setupAdapter(writableAdapter);
+			dataStore.store(writableAdapter);
+			dataStore.store(index);
+			setupAdapterIds.add(adapterId);
+		}
+	}
+
+	private <T> void writeConcurrently(
+			final WritableDataAdapter<T> writableAdapter,
+			final List<T> entries,
+			final List<DataStoreEntryInfo> entryInfos ) {
+		// build every mutation and accumulate the statistics on this thread
+		final byte[] adapterId = writableAdapter.getAdapterId().getBytes();
+		final List<Mutation> mutations = new ArrayList<Mutation>();
+		final List<Mutation> altIdxMutations = useAltIndex ? new ArrayList<Mutation>() : null;
+		final Map<ByteArrayId, List<DataStatisticsBuilder<?>>> stats = persistStats ? getThreadStatsMap() : null;
+		for (int i = 0; i < entries.size(); i++) {
+			final DataStoreEntryInfo entryInfo = entryInfos.get(i);
+			final T entry = entries.get(i);
+			mutations.addAll(AccumuloUtils.buildMutations(
+					adapterId,
+					entryInfo));
+			if (useAltIndex) {
+				altIdxMutations.addAll(AccumuloUtils.buildAltIndexMutations(
+						writableAdapter,
+						entryInfo,
+						entry));
+			}
+			if (persistStats) {
+				updateStats(
+						stats,
+						index,
+						writableAdapter,
+						entryInfo,
+						entry);
+			}
+		}
+		// only the hand off to the writers is shared
+		synchronized (this) {
+			ensureOpen();
+			writer.write(mutations);
+			if (useAltIndex && !altIdxMutations.isEmpty()) {
+				altIdxWriter.write(altIdxMutations);
+			}
+		}
+	}
+
+	private Map<ByteArrayId, List<DataStatisticsBuilder<?>>> getThreadStatsMap() {
+		ThreadStatistics stats = threadStatistics.get();
+		if ((stats == null) || stats.merged) {
+			// only this thread adds its own statistics
+			stats = new ThreadStatistics();
+			threadStatistics.set(stats);
+			synchronized (unmergedThreadStatistics) {
+				unmergedThreadStatistics.add(stats);
+			}
+		}
+		return stats.statsMap;
+	}
+
+	private <T> void updateStats(
+			final WritableDataAdapter<T> writableAdapter,
+			final DataStoreEntryInfo entryInfo,
+			final T entry ) {
+		updateStats(
+				statsMap,
+				index,
+				writableAdapter,
+				entryInfo,
+				entry);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> void updateStats(
+			final Map<ByteArrayId, List<DataStatisticsBuilder<?>>> statsMap,
+			final Index index,
+			final WritableDataAdapter<T> writableAdapter,
+			final DataStoreEntryInfo entryInfo,
+			final T entry ) {
+		final ByteArrayId adapterIdObj = writableAdapter.getAdapterId();
+		List<DataStatisticsBuilder<?>> stats;
+		if (statsMap.containsKey(adapterIdObj)) {
+			stats = statsMap.get(adapterIdObj);
+		}
+		else {
+			if (writableAdapter instanceof StatisticalDataAdapter) {
+				final StatisticalDataAdapter<T> statisticalAdapter = (StatisticalDataAdapter<T>) writableAdapter;
+				final ByteArrayId[] statisticsIds = statisticalAdapter.getSupportedStatisticsIds();
+				stats = new ArrayList<DataStatisticsBuilder<?>>(
+						statisticsIds.length);
+				for (final ByteArrayId id : statisticsIds) {
+					stats.add(new DataStatisticsBuilder<T>(
+							statisticalAdapter,
+							id));
+				}
+				stats.addAll(StatsCompositionTool.createIndexStatisticsBuilders(
+						writableAdapter,
+						index));
+				if ((stats != null) && stats.isEmpty()) {
+					// if its an empty list, for simplicity just set it
+					// to null
+					stats = null;
+				}
+			}
+			else {
+				stats = null;
+			}
+			statsMap.put(
+					adapterIdObj,
+					stats);
+		}
+		if (stats != null) {
+			for (final DataStatisticsBuilder<?> s : stats) {
+				((DataStatisticsBuilder<T>) s).entryIngested(
+						entryInfo,
+						entry);
 			}
 		}
-		return entryInfo.getRowIds();
 	}
 
 	@Override
@@ -263,27 +459,91 @@ public class AccumuloIndexWriter implements
 		if (persistStats) {
 			final List<DataStatistics> accumulatedStats = new ArrayList<DataStatistics>();
 			synchronized (this) {
-				for (final List<DataStatisticsBuilder> builders : statsMap.values()) {
-					if ((builders != null) && !builders.isEmpty()) {
-						for (final DataStatisticsBuilder builder : builders) {
-							final Collection<DataStatistics> s = builder.getStatistics();
-							if ((s != null) && !s.isEmpty()) {
-								accumulatedStats.addAll(s);
-							}
-						}
+				addStatistics(
+						statsMap,
+						accumulatedStats);
+				statsMap.clear();
+			}
+			if (concurrentWrites) {
+				synchronized (unmergedThreadStatistics) {
+					for (final ThreadStatistics stats : unmergedThreadStatistics) {
+						addStatistics(
+								stats.statsMap,
+								accumulatedStats);
 					}
 				}
+				mergeStatistics(accumulatedStats);
 			}
 			if (!accumulatedStats.isEmpty()) {
-				final DataStatisticsStore statsStore = new AccumuloDataStatisticsStore(
-						accumuloOperations);
-				for (final DataStatistics s : accumulatedStats) {
-					statsStore.incorporateStatistics(s);
+				incorporateStatistics(accumulatedStats);
+			}
+		}
+		// the threads may outlive this writer, so only empty statistics are
+		// left referenced by them, and a thread that writes again starts anew
+		synchronized (unmergedThreadStatistics) {
+			for (final ThreadStatistics stats : unmergedThreadStatistics) {
+				stats.statsMap.clear();
+				stats.merged = true;
+			}
+			unmergedThreadStatistics.clear();
+		}
+		threadStatistics.remove();
+	}
+
+	/**
+	 * Incorporate the statistics of the entries written by this writer into the
+	 * statistics store
+	 */
+	protected void incorporateStatistics(
+			final List<DataStatistics> accumulatedStats ) {
+		final DataStatisticsStore statsStore = new AccumuloDataStatisticsStore(
+				accumuloOperations);
+		for (final DataStatistics s : accumulatedStats) {
+			statsStore.incorporateStatistics(s);
+		}
+	}
+
+	private static void addStatistics(
+			final Map<ByteArrayId, List<DataStatisticsBuilder<?>>> statsMap,
+			final List<DataStatistics> accumulatedStats ) {
+		for (final List<DataStatisticsBuilder<?>> builders : statsMap.values()) {
+			if ((builders != null) && !builders.isEmpty()) {
+				for (final DataStatisticsBuilder<?> builder : builders) {
+					final Collection<? extends DataStatistics<?>> s = builder.getStatistics();
+					if ((s != null) && !s.isEmpty()) {
+						accumulatedStats.addAll(s);
+					}
 				}
 			}
 		}
 	}
 
+	/**
+	 * Merge statistics that were accumulated separately, such as by each
+	 * thread, so that each statistic is only incorporated once per visibility
+	 */
+	protected static void mergeStatistics(
+			final List<DataStatistics> accumulatedStats ) {
+		final Map<StatisticsKey, DataStatistics> mergedStats = new LinkedHashMap<StatisticsKey, DataStatistics>();
+		for (final DataStatistics stats : accumulatedStats) {
+			final StatisticsKey key = new StatisticsKey(
+					stats.getDataAdapterId(),
+					stats.getStatisticsId(),
+					stats.getVisibility());
+			final DataStatistics existingStats = mergedStats.get(key);
+			if (existingStats == null) {
+				mergedStats.put(
+						key,
+						stats);
+			}
+			else {
+				existingStats.merge(stats);
+			}
+		}
+		accumulatedStats.clear();
+		accumulatedStats.addAll(mergedStats.values());
+	}
+
 	@Override
 	public <T> void setupAdapter(
 			final WritableDataAdapter<T> writableAdapter ) {
@@ -316,4 +576,73 @@ public class AccumuloIndexWriter implements
 					e);
 		}
 	}
+
+	/**
+	 * The statistics builders of a single thread writing concurrently
+	 */
+	private static class ThreadStatistics
+	{
+		private final Map<ByteArrayId, List<DataStatisticsBuilder<?>>> statsMap = new HashMap<ByteArrayId, List<DataStatisticsBuilder<?>>>();
+		private volatile boolean merged = false;
+	}
+
+	/**
+	 * Identifies the statistics that are merged together
+	 */
+	private static class StatisticsKey
+	{
+		private final ByteArrayId adapterId;
+		private final ByteArrayId statisticsId;
+		private final byte[] visibility;
+
+		public StatisticsKey(
+				final ByteArrayId adapterId,
+				final ByteArrayId statisticsId,
+				final byte[] visibility ) {
+			this.adapterId = adapterId;
+			this.statisticsId = statisticsId;
+			this.visibility = visibility == null ? new byte[0] : visibility;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = (prime * result) + ((adapterId == null) ? 0 : adapterId.hashCode());
+			result = (prime * result) + ((statisticsId == null) ? 0 : statisticsId.hashCode());
+			result = (prime * result) + Arrays.hashCode(visibility);
+			return result;
+		}
+
+		@Override
+		public boolean equals(
+				final Object obj ) {
+			if (this == obj) {
+				return true;
+			}
+			if ((obj == null) || (getClass() != obj.getClass())) {
+				return false;
+			}
+			final StatisticsKey other = (StatisticsKey) obj;
+			if (adapterId == null) {
+				if (other.adapterId != null) {
+					return false;
+				}
+			}
+			else if (!adapterId.equals(other.adapterId)) {
+				return false;
+			}
+			if (statisticsId == null) {
+				if (other.statisticsId != null) {
+					return false;
+				}
+			}
+			else if (!statisticsId.equals(other.statisticsId)) {
+				return false;
+			}
+			return Arrays.equals(
+					visibility,
+					other.visibility);
+		}
+	}
 }
@@ -308,6 +308,41 @@ public interface AccumuloOperations
 			final String tableName,
 			String... additionalAuthorizations );
 
+	/**
+	 * Get the split points of a table, which separate its tablets. Tablet i
+	 * holds the rows after split i - 1, up to and including split i.
+	 * 
+	 * @param tableName
+	 *            The basic name of the table. Note that that basic
+	 *            implementation of the factory will allow for a table namespace
+	 *            to prefix this name
+	 * @return the sorted split points, empty if the table has a single tablet
+	 *         or the splits could not be retrieved
+	 */
+	public List<ByteArrayId> getTableSplits(
+			final String tableName );
+
+	/**
+	 * Bulk import a directory of sorted files into a table. The files are moved
+	 * into the table, except for any that fail to import, which are moved to
+	 * the failure directory.
+	 * 
+	 * @param tableName
+	 *            The basic name of the table. Note that that basic
+	 *            implementation of the factory will allow for a table namespace
+	 *            to prefix this name
+	 * @param directory
+	 *            the directory of files to import
+	 * @param failureDirectory
+	 *            an empty directory to hold any files that fail to import
+	 * @return whether the import was performed, the failure directory must
+	 *         still be checked for files that failed to import
+	 */
+	public boolean importDirectory(
+			final String tableName,
+			final String directory,
+			final String failureDirectory );
+
 	/**
 	 * 
 	 * Insure user has the given operations.
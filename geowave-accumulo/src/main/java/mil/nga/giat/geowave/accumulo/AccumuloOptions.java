@@ -1,5 +1,8 @@
 package mil.nga.giat.geowave.accumulo;
 
+import mil.nga.giat.geowave.accumulo.metadata.AccumuloDataStatisticsStore;
+import mil.nga.giat.geowave.accumulo.metadata.MetadataCache;
+
 /**
  * This class can be used to modify the behavior of the Accumulo Data Store.
  * 
@@ -12,6 +15,13 @@ public class AccumuloOptions
 	protected boolean createTable = true;
 	protected boolean useLocalityGroups = true;
 	protected boolean useAltIndex = true;
+	protected boolean concurrentWrites = false;
+	protected boolean costBasedIndexSelection = false;
+	protected boolean cacheStatistics = false;
+	protected int statisticsCacheSize = MetadataCache.DEFAULT_MAX_ENTRIES;
+	protected long statisticsCacheTimeToLiveMillis = AccumuloDataStatisticsStore.DEFAULT_STATISTICS_TIME_TO_LIVE_MILLIS;
+	protected int queryThreads = 1;
+	protected String bulkIngestDirectory = null;
 
 	public boolean isPersistDataStatistics() {
 		return persistDataStatistics;
@@ -66,4 +76,110 @@ public class AccumuloOptions
 			final boolean useAltIndex ) {
 		this.useAltIndex = useAltIndex;
 	}
+
+	public boolean isConcurrentWrites() {
+		return concurrentWrites;
+	}
+
+	/**
+	 * @param concurrentWrites
+	 *            whether index writers shared by several threads encode entries
+	 *            and accumulate statistics on the calling threads rather than
+	 *            serializing every write
+	 */
+	public void setConcurrentWrites(
+			final boolean concurrentWrites ) {
+		this.concurrentWrites = concurrentWrites;
+	}
+
+	public boolean isCostBasedIndexSelection() {
+		return costBasedIndexSelection;
+	}
+
+	/**
+	 * @param costBasedIndexSelection
+	 *            whether queries that do not name an index read each adapter
+	 *            only from the index with the lowest estimated cost rather than
+	 *            from every index that supports the query, which is only safe
+	 *            if every entry of an adapter is written to each of its indices
+	 */
+	public void setCostBasedIndexSelection(
+			final boolean costBasedIndexSelection ) {
+		this.costBasedIndexSelection = costBasedIndexSelection;
+	}
+
+	public boolean isCacheStatistics() {
+		return cacheStatistics;
+	}
+
+	/**
+	 * @param cacheStatistics
+	 *            whether statistics lookups are cached for a few seconds, in
+	 *            which case statistics incorporated by other processes may not
+	 *            be seen until the cached lookups expire
+	 */
+	public void setCacheStatistics(
+			final boolean cacheStatistics ) {
+		this.cacheStatistics = cacheStatistics;
+	}
+
+	public int getStatisticsCacheSize() {
+		return statisticsCacheSize;
+	}
+
+	/**
+	 * @param statisticsCacheSize
+	 *            the most statistics lookups to cache when statistics are
+	 *            cached, each lookup is cached separately for the
+	 *            authorizations it was made with
+	 */
+	public void setStatisticsCacheSize(
+			final int statisticsCacheSize ) {
+		this.statisticsCacheSize = statisticsCacheSize;
+	}
+
+	public long getStatisticsCacheTimeToLiveMillis() {
+		return statisticsCacheTimeToLiveMillis;
+	}
+
+	/**
+	 * @param statisticsCacheTimeToLiveMillis
+	 *            how long a statistics lookup stays cached when statistics are
+	 *            cached, which bounds how stale the statistics incorporated by
+	 *            other processes can be, a value less than 1 keeps lookups
+	 *            until they are evicted
+	 */
+	public void setStatisticsCacheTimeToLiveMillis(
+			final long statisticsCacheTimeToLiveMillis ) {
+		this.statisticsCacheTimeToLiveMillis = statisticsCacheTimeToLiveMillis;
+	}
+
+	public int getQueryThreads() {
+		return queryThreads;
+	}
+
+	/**
+	 * @param queryThreads
+	 *            the most scans to run at once for a query that reads several
+	 *            indices or adapters, with 1 reading them one after another
+	 */
+	public void setQueryThreads(
+			final int queryThreads ) {
+		this.queryThreads = queryThreads;
+	}
+
+	public String getBulkIngestDirectory() {
+		return bulkIngestDirectory;
+	}
+
+	/**
+	 * @param bulkIngestDirectory
+	 *            a work directory for index writers to write sorted files to,
+	 *            which must then be bulk imported, or null for index writers to
+	 *            write through batch writers
+	 */
+	public void setBulkIngestDirectory(
+			final String bulkIngestDirectory ) {
+		this.bulkIngestDirectory = bulkIngestDirectory;
+	}
 }
@@ -1,7 +1,9 @@
 package mil.nga.giat.geowave.accumulo;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -12,6 +14,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import mil.nga.giat.geowave.accumulo.util.AccumuloUtils;
@@ -62,6 +65,9 @@ public class BasicAccumuloOperations implements
 	protected Connector connector;
 	private final Map<String, Long> locGrpCache;
 	private long cacheTimeoutMillis;
+	// splits change as tablets grow, so they are only cached briefly
+	private static final long SPLITS_CACHE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+	private final Map<String, CachedSplits> splitsCache = new ConcurrentHashMap<String, CachedSplits>();
 
 	/**
 	 * This is will create an Accumulo connector based on passed in connection
@@ -590,6 +596,76 @@ public class BasicAccumuloOperations implements
 						TimeUnit.MILLISECONDS));
 	}
 
+	@Override
+	public List<ByteArrayId> getTableSplits(
+			final String tableName ) {
+		final String qName = getQualifiedTableName(tableName);
+		final CachedSplits cachedSplits = splitsCache.get(qName);
+		final long now = System.currentTimeMillis();
+		if ((cachedSplits != null) && ((now - cachedSplits.timestamp) < SPLITS_CACHE_TIMEOUT_MILLIS)) {
+			return cachedSplits.splits;
+		}
+		final List<ByteArrayId> splits = new ArrayList<ByteArrayId>();
+		try {
+			for (final Text split : connector.tableOperations().listSplits(
+					qName)) {
+				splits.add(new ByteArrayId(
+						split.copyBytes()));
+			}
+		}
+		catch (TableNotFoundException | AccumuloSecurityException | AccumuloException e) {
+			LOGGER.warn(
+					"Unable to get splits for table '" + qName + "'",
+					e);
+			return Collections.emptyList();
+		}
+		final List<ByteArrayId> unmodifiableSplits = Collections.unmodifiableList(splits);
+		splitsCache.put(
+				qName,
+				new CachedSplits(
+						unmodifiableSplits,
+						now));
+		return unmodifiableSplits;
+	}
+
+	@Override
+	public boolean importDirectory(
+			final String tableName,
+			final String directory,
+			final String failureDirectory ) {
+		final String qName = getQualifiedTableName(tableName);
+		try {
+			// the entries are given the time of the import, just as entries
+			// written through a batch writer are given the time they are
+			// written
+			connector.tableOperations().importDirectory(
+					qName,
+					directory,
+					failureDirectory,
+					true);
+			return true;
+		}
+		catch (TableNotFoundException | IOException | AccumuloException | AccumuloSecurityException e) {
+			LOGGER.error(
+					"Unable to import directory '" + directory + "' into table '" + qName + "'",
+					e);
+		}
+		return false;
+	}
+
+	private static class CachedSplits
+	{
+		private final List<ByteArrayId> splits;
+		private final long timestamp;
+
+		public CachedSplits(
+				final List<ByteArrayId> splits,
+				final long timestamp ) {
+			this.splits = splits;
+			this.timestamp = timestamp;
+		}
+	}
+
 	public long getCacheTimeoutMillis() {
 		return cacheTimeoutMillis;
 	}
@@ -0,0 +1,200 @@
+package mil.nga.giat.geowave.accumulo;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import mil.nga.giat.geowave.index.ByteArrayId;
+
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.data.ColumnUpdate;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileOperations;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+
+/**
+ * This writer sorts mutations in memory and writes them to Accumulo RFiles
+ * within a directory so that they can be bulk imported into a table, rather
+ * than sending them to tablet servers through a batch writer. Whenever the
+ * buffered entries exceed the buffer size they are written out as one file per
+ * tablet of the table, using the split points of the table when this writer was
+ * created, so that each file is assigned to a single tablet when it is
+ * imported.
+ */
+public class RFileWriter implements
+		Writer
+{
+	private final static Logger LOGGER = Logger.getLogger(RFileWriter.class);
+	public static final long DEFAULT_BUFFER_SIZE = 134217728L; // 128 MB
+	public static final String FILE_EXTENSION = "rf";
+	// an estimate of the memory used to hold an entry beyond its bytes
+	private static final long ENTRY_OVERHEAD = 128;
+
+	private final FileSystem fs;
+	private final Configuration conf;
+	private final Path directory;
+	private final Text[] splits;
+	private final long bufferSize;
+	private final long timestamp = System.currentTimeMillis();
+	// several writers may share a directory
+	private final String filePrefix = UUID.randomUUID().toString();
+	private final TreeMap<Key, Value> buffer = new TreeMap<Key, Value>();
+	private long bufferedBytes = 0;
+	private int fileCount = 0;
+
+	/**
+	 * @param fs
+	 *            the file system of the directory
+	 * @param conf
+	 *            the configuration of the file system
+	 * @param directory
+	 *            the directory to write files to
+	 * @param splits
+	 *            the sorted split points of the table
+	 * @param bufferSize
+	 *            the approximate number of bytes to sort in memory before
+	 *            writing them to files
+	 */
+	public RFileWriter(
+			final FileSystem fs,
+			final Configuration conf,
+			final Path directory,
+			final List<ByteArrayId> splits,
+			final long bufferSize ) {
+		this.fs = fs;
+		this.conf = conf;
+		this.directory = directory;
+		this.splits = new Text[splits.size()];
+		for (int i = 0; i < this.splits.length; i++) {
+			this.splits[i] = new Text(
+					splits.get(
+							i).getBytes());
+		}
+		this.bufferSize = bufferSize;
+	}
+
+	@Override
+	public void write(
+			final Iterable<Mutation> mutations ) {
+		for (final Mutation mutation : mutations) {
+			write(mutation);
+		}
+	}
+
+	@Override
+	public synchronized void write(
+			final Mutation mutation ) {
+		final byte[] row = mutation.getRow();
+		for (final ColumnUpdate update : mutation.getUpdates()) {
+			final Key key = new Key(
+					row,
+					update.getColumnFamily(),
+					update.getColumnQualifier(),
+					update.getColumnVisibility(),
+					update.hasTimestamp() ? update.getTimestamp() : timestamp,
+					update.isDeleted());
+			final Value value = new Value(
+					update.getValue());
+			buffer.put(
+					key,
+					value);
+			bufferedBytes += key.getSize() + value.getSize() + ENTRY_OVERHEAD;
+		}
+		if (bufferedBytes >= bufferSize) {
+			flush();
+		}
+	}
+
+	/**
+	 * Write the buffered entries to files, one for each tablet that the entries
+	 * belong to. The buffer is cleared even if the entries cannot be written,
+	 * and the failure is thrown so that the entries are not silently lost.
+	 */
+	public synchronized void flush() {
+		if (buffer.isEmpty()) {
+			return;
+		}
+		FileSKVWriter fileWriter = null;
+		int fileTablet = -1;
+		int tablet = 0;
+		final Text row = new Text();
+		IOException failure = null;
+		try {
+			for (final Entry<Key, Value> entry : buffer.entrySet()) {
+				entry.getKey().getRow(
+						row);
+				// tablet i holds the rows after split i - 1, up to and
+				// including split i, and the rows are sorted so the tablet
+				// only moves forward
+				while ((tablet < splits.length) && (row.compareTo(splits[tablet]) > 0)) {
+					tablet++;
+				}
+				if ((fileWriter == null) || (tablet != fileTablet)) {
+					if (fileWriter != null) {
+						fileWriter.close();
+					}
+					fileWriter = openFile();
+					fileTablet = tablet;
+				}
+				fileWriter.append(
+						entry.getKey(),
+						entry.getValue());
+			}
+		}
+		catch (final IOException e) {
+			failure = e;
+		}
+		finally {
+			if (fileWriter != null) {
+				try {
+					fileWriter.close();
+				}
+				catch (final IOException e) {
+					if (failure == null) {
+						failure = e;
+					}
+					else {
+						LOGGER.warn(
+								"Unable to close file in directory '" + directory + "'",
+								e);
+					}
+				}
+			}
+			buffer.clear();
+			bufferedBytes = 0;
+		}
+		if (failure != null) {
+			throw new RuntimeException(
+					"Unable to write entries to directory '" + directory + "'",
+					failure);
+		}
+	}
+
+	private FileSKVWriter openFile()
+			throws IOException {
+		final Path file = new Path(
+				directory,
+				filePrefix + "_" + fileCount++ + "." + FILE_EXTENSION);
+		final FileSKVWriter fileWriter = FileOperations.getInstance().openWriter(
+				file.toString(),
+				fs,
+				conf,
+				DefaultConfiguration.getInstance());
+		fileWriter.startDefaultLocalityGroup();
+		return fileWriter;
+	}
+
+	@Override
+	public void close() {
+		flush();
+	}
+}
@@ -30,6 +30,7 @@ public class GeoWaveInputConfigurator extends
 		AUTHORIZATION,
 		MIN_SPLITS,
 		MAX_SPLITS,
+		TARGET_ROWS_PER_SPLIT,
 		OUTPUT_WRITABLE // used to inform the input format to output a Writable
 						// from the HadoopDataAdapter
 	}
@@ -163,6 +164,39 @@ public class GeoWaveInputConfigurator extends
 		}
 	}
 
+	public static Long getTargetRowsPerSplit(
+			final Class<?> implementingClass,
+			final JobContext context ) {
+		final String str = getConfiguration(
+				context).get(
+				enumToConfKey(
+						implementingClass,
+						InputConfig.TARGET_ROWS_PER_SPLIT),
+				"");
+		if ((str != null) && !str.isEmpty()) {
+			return Long.parseLong(str);
+		}
+		return null;
+	}
+
+	public static void setTargetRowsPerSplit(
+			final Class<?> implementingClass,
+			final Configuration config,
+			final Long targetRowsPerSplit ) {
+		if (targetRowsPerSplit != null) {
+			config.set(
+					enumToConfKey(
+							implementingClass,
+							InputConfig.TARGET_ROWS_PER_SPLIT),
+					targetRowsPerSplit.toString());
+		}
+		else {
+			config.unset(enumToConfKey(
+					implementingClass,
+					InputConfig.TARGET_ROWS_PER_SPLIT));
+		}
+	}
+
 	public static void addAuthorization(
 			final Class<?> implementingClass,
 			final Configuration config,
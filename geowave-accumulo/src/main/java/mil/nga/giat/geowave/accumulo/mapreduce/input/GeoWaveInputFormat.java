@@ -20,12 +20,16 @@ import mil.nga.giat.geowave.accumulo.mapreduce.JobContextAdapterStore;
 import mil.nga.giat.geowave.accumulo.mapreduce.JobContextIndexStore;
 import mil.nga.giat.geowave.accumulo.mapreduce.input.GeoWaveInputConfigurator.InputConfig;
 import mil.nga.giat.geowave.accumulo.mapreduce.input.GeoWaveInputFormat.IntermediateSplitInfo.RangeLocationPair;
+import mil.nga.giat.geowave.accumulo.metadata.AccumuloDataStatisticsStore;
 import mil.nga.giat.geowave.accumulo.util.AccumuloUtils;
 import mil.nga.giat.geowave.index.ByteArrayId;
 import mil.nga.giat.geowave.index.NumericIndexStrategy;
 import mil.nga.giat.geowave.index.sfc.data.MultiDimensionalNumericData;
 import mil.nga.giat.geowave.store.adapter.AdapterStore;
 import mil.nga.giat.geowave.store.adapter.DataAdapter;
+import mil.nga.giat.geowave.store.adapter.statistics.DataStatistics;
+import mil.nga.giat.geowave.store.adapter.statistics.DataStatisticsStore;
+import mil.nga.giat.geowave.store.adapter.statistics.RowRangeHistogramStatistics;
 import mil.nga.giat.geowave.store.index.Index;
 import mil.nga.giat.geowave.store.query.DistributableQuery;
 
@@ -201,6 +205,25 @@ public class GeoWaveInputFormat<T extends Writable> extends
 				maxSplits);
 	}
 
+	/**
+	 * Set the number of rows each split should read. This is only used when row
+	 * range histograms are available for the indices being read, and the
+	 * minimum and maximum split counts still apply.
+	 * 
+	 * @param config
+	 *            the Hadoop configuration instance
+	 * @param targetRowsPerSplit
+	 *            the number of rows per split
+	 */
+	public static void setTargetRowsPerSplit(
+			final Configuration config,
+			final Long targetRowsPerSplit ) {
+		GeoWaveInputConfigurator.setTargetRowsPerSplit(
+				CLASS,
+				config,
+				targetRowsPerSplit);
+	}
+
 	public static void setIsOutputWritable(
 			final Configuration config,
 			final Boolean isOutputWritable ) {
@@ -364,6 +387,13 @@ public class GeoWaveInputFormat<T extends Writable> extends
 				context);
 	}
 
+	protected static Long getTargetRowsPerSplit(
+			final JobContext context ) {
+		return GeoWaveInputConfigurator.getTargetRowsPerSplit(
+				CLASS,
+				context);
+	}
+
 	protected static Instance getInstance(
 			final JobContext context ) {
 		return GeoWaveInputConfigurator.getInstance(
@@ -386,6 +416,37 @@ public class GeoWaveInputFormat<T extends Writable> extends
 		final TreeSet<IntermediateSplitInfo> splits = getIntermediateSplits(
 				context,
 				maxSplits);
+		final Map<ByteArrayId, RowRangeHistogramStatistics<?>> histograms = getRowRangeHistograms(
+				context,
+				splits);
+		if (histograms != null) {
+			// balance the splits by the number of rows they are estimated to
+			// read rather than by the width of their ranges
+			final RowCountSplitPlanner planner = new RowCountSplitPlanner(
+					histograms,
+					getTargetRowsPerSplit(context));
+			for (final IntermediateSplitInfo split : splits) {
+				// at this point each split is the ranges of a single tablet
+				for (final Entry<Index, List<RangeLocationPair>> entry : split.splitInfo.entrySet()) {
+					if (entry.getValue().isEmpty()) {
+						continue;
+					}
+					final List<Range> ranges = new ArrayList<Range>(
+							entry.getValue().size());
+					for (final RangeLocationPair pair : entry.getValue()) {
+						ranges.add(pair.range);
+					}
+					planner.addTabletRanges(
+							entry.getKey(),
+							ranges,
+							entry.getValue().get(
+									0).location);
+				}
+			}
+			return planner.plan(
+					minSplits,
+					maxSplits);
+		}
 		// this is an incremental algorithm, it may be better use the target
 		// split count to drive it (ie. to get 3 splits this will split 1 large
 		// range into two down the middle and then split one of those ranges
@@ -427,6 +488,67 @@ public class GeoWaveInputFormat<T extends Writable> extends
 		return retVal;
 	}
 
+	/**
+	 * @return the row range histogram of each index that is read, merged across
+	 *         the adapters that are read, or null if any of the indices does
+	 *         not have one
+	 */
+	private static Map<ByteArrayId, RowRangeHistogramStatistics<?>> getRowRangeHistograms(
+			final JobContext context,
+			final Set<IntermediateSplitInfo> splits ) {
+		final Set<Index> indices = new HashSet<Index>();
+		for (final IntermediateSplitInfo split : splits) {
+			indices.addAll(split.splitInfo.keySet());
+		}
+		if (indices.isEmpty()) {
+			return null;
+		}
+		try {
+			final AccumuloOperations accumuloOperations = getAccumuloOperations(context);
+			final DataStatisticsStore statisticsStore = new AccumuloDataStatisticsStore(
+					accumuloOperations);
+			final List<ByteArrayId> adapterIds = getAdapterIds(
+					context,
+					getDataAdapterStore(
+							context,
+							accumuloOperations));
+			final String[] authorizations = getAuthorizations(context);
+			final Map<ByteArrayId, RowRangeHistogramStatistics<?>> histograms = new HashMap<ByteArrayId, RowRangeHistogramStatistics<?>>();
+			for (final Index index : indices) {
+				final ByteArrayId statisticsId = RowRangeHistogramStatistics.composeId(index.getId());
+				RowRangeHistogramStatistics<?> histogram = null;
+				for (final ByteArrayId adapterId : adapterIds) {
+					final DataStatistics<?> stats = statisticsStore.getDataStatistics(
+							adapterId,
+							statisticsId,
+							authorizations);
+					if (stats instanceof RowRangeHistogramStatistics) {
+						if (histogram == null) {
+							histogram = (RowRangeHistogramStatistics<?>) stats;
+						}
+						else {
+							histogram.merge(stats);
+						}
+					}
+				}
+				if ((histogram == null) || !histogram.isSet()) {
+					LOGGER.info("No row range histogram for index '" + index.getId().getString() + "', splitting by the width of the ranges");
+					return null;
+				}
+				histograms.put(
+						index.getId(),
+						histogram);
+			}
+			return histograms;
+		}
+		catch (AccumuloException | AccumuloSecurityException e) {
+			LOGGER.warn(
+					"Unable to read row range histograms, splitting by the width of the ranges",
+					e);
+			return null;
+		}
+	}
+
 	private TreeSet<IntermediateSplitInfo> getIntermediateSplits(
 			final JobContext context,
 			final Integer maxSplits )
@@ -0,0 +1,405 @@
+package mil.nga.giat.geowave.accumulo.mapreduce.input;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.store.adapter.statistics.RowRangeHistogramStatistics;
+import mil.nga.giat.geowave.store.index.Index;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.log4j.Logger;
+
+/**
+ * This plans input splits by the estimated number of rows they will read rather
+ * than by the width of their ranges in the key space. The number of rows in
+ * each range is estimated from the row range histogram of its index. Ranges
+ * holding more than the target number of rows per split are cut at the
+ * histogram's quantiles, and then the ranges of each tablet server are packed
+ * into splits of roughly the target number of rows, so that each split only
+ * reads from one tablet server whenever possible.
+ * 
+ * If a minimum or maximum number of splits is given, the largest splits are
+ * divided or the smallest splits are merged (preferring splits on the same
+ * tablet server) until the number of splits is within bounds.
+ */
+public class RowCountSplitPlanner
+{
+	private final static Logger LOGGER = Logger.getLogger(RowCountSplitPlanner.class);
+
+	private final Map<ByteArrayId, RowRangeHistogramStatistics<?>> histograms;
+	private final Long targetRowsPerSplit;
+	private final List<RangePiece> pieces = new ArrayList<RangePiece>();
+	private int tabletCount = 0;
+
+	/**
+	 * @param histograms
+	 *            the row range histogram of each index, merged across the
+	 *            adapters being read
+	 * @param targetRowsPerSplit
+	 *            the number of rows each split should read, or null to keep one
+	 *            split per tablet on average
+	 */
+	public RowCountSplitPlanner(
+			final Map<ByteArrayId, RowRangeHistogramStatistics<?>> histograms,
+			final Long targetRowsPerSplit ) {
+		this.histograms = histograms;
+		this.targetRowsPerSplit = targetRowsPerSplit;
+	}
+
+	/**
+	 * Add the ranges to read from a tablet
+	 * 
+	 * @param index
+	 *            the index of the table
+	 * @param ranges
+	 *            the ranges, clipped to the tablet
+	 * @param location
+	 *            the tablet server hosting the tablet
+	 */
+	public void addTabletRanges(
+			final Index index,
+			final List<Range> ranges,
+			final String location ) {
+		final RowRangeHistogramStatistics<?> histogram = histograms.get(index.getId());
+		if (histogram == null) {
+			throw new IllegalArgumentException(
+					"No row range histogram for index " + index.getId().getString());
+		}
+		for (final Range range : ranges) {
+			pieces.add(new RangePiece(
+					index,
+					range,
+					location,
+					histogram));
+		}
+		tabletCount++;
+	}
+
+	public List<InputSplit> plan(
+			final Integer minSplits,
+			final Integer maxSplits ) {
+		if (pieces.isEmpty()) {
+			return new ArrayList<InputSplit>();
+		}
+		double totalRows = 0;
+		for (final RangePiece piece : pieces) {
+			totalRows += piece.rows;
+		}
+		int splitCount;
+		if ((targetRowsPerSplit != null) && (targetRowsPerSplit > 0)) {
+			splitCount = (int) Math.min(
+					Integer.MAX_VALUE,
+					Math.ceil(totalRows / targetRowsPerSplit));
+		}
+		else {
+			splitCount = tabletCount;
+		}
+		if ((maxSplits != null) && (maxSplits > 0)) {
+			splitCount = Math.min(
+					splitCount,
+					maxSplits);
+		}
+		if (minSplits != null) {
+			splitCount = Math.max(
+					splitCount,
+					minSplits);
+		}
+		splitCount = Math.max(
+				1,
+				splitCount);
+		final double targetRows = totalRows / splitCount;
+
+		final List<PlannedSplit> splits = pack(
+				cut(targetRows),
+				targetRows);
+		if ((maxSplits != null) && (maxSplits > 0)) {
+			while (splits.size() > maxSplits) {
+				mergeSmallest(splits);
+			}
+		}
+		if (minSplits != null) {
+			while (splits.size() < minSplits) {
+				if (!divideLargest(splits)) {
+					break;
+				}
+			}
+		}
+
+		final List<InputSplit> inputSplits = new ArrayList<InputSplit>(
+				splits.size());
+		double minRows = Double.MAX_VALUE;
+		double maxRows = 0;
+		for (final PlannedSplit split : splits) {
+			minRows = Math.min(
+					minRows,
+					split.rows);
+			maxRows = Math.max(
+					maxRows,
+					split.rows);
+			inputSplits.add(split.toInputSplit());
+		}
+		LOGGER.info("Planned " + inputSplits.size() + " splits for an estimated " + (long) totalRows + " rows, with between " + (long) minRows + " and " + (long) maxRows + " estimated rows per split");
+		return inputSplits;
+	}
+
+	/**
+	 * Cut each range with more than the target number of rows into ranges of
+	 * about the target number of rows
+	 */
+	private List<RangePiece> cut(
+			final double targetRows ) {
+		final List<RangePiece> cutPieces = new ArrayList<RangePiece>();
+		for (final RangePiece piece : pieces) {
+			if ((targetRows <= 0) || (piece.rows <= targetRows)) {
+				cutPieces.add(piece);
+			}
+			else {
+				cutPieces.addAll(piece.cut((int) Math.ceil(piece.rows / targetRows)));
+			}
+		}
+		return cutPieces;
+	}
+
+	/**
+	 * Pack the ranges of each tablet server, in row order, into splits of about
+	 * the target number of rows
+	 */
+	private static List<PlannedSplit> pack(
+			final List<RangePiece> pieces,
+			final double targetRows ) {
+		final Map<String, List<RangePiece>> piecesPerLocation = new TreeMap<String, List<RangePiece>>();
+		for (final RangePiece piece : pieces) {
+			List<RangePiece> locationPieces = piecesPerLocation.get(piece.location);
+			if (locationPieces == null) {
+				locationPieces = new ArrayList<RangePiece>();
+				piecesPerLocation.put(
+						piece.location,
+						locationPieces);
+			}
+			locationPieces.add(piece);
+		}
+		final List<PlannedSplit> splits = new ArrayList<PlannedSplit>();
+		for (final List<RangePiece> locationPieces : piecesPerLocation.values()) {
+			Collections.sort(
+					locationPieces,
+					new Comparator<RangePiece>() {
+						@Override
+						public int compare(
+								final RangePiece o1,
+								final RangePiece o2 ) {
+							final int indexCompare = o1.index.getId().getString().compareTo(
+									o2.index.getId().getString());
+							if (indexCompare != 0) {
+								return indexCompare;
+							}
+							return o1.range.compareTo(o2.range);
+						}
+					});
+			PlannedSplit split = new PlannedSplit();
+			for (final RangePiece piece : locationPieces) {
+				if (!split.pieces.isEmpty() && ((split.rows + piece.rows) > targetRows)) {
+					splits.add(split);
+					split = new PlannedSplit();
+				}
+				split.add(piece);
+			}
+			splits.add(split);
+		}
+		return splits;
+	}
+
+	private static void mergeSmallest(
+			final List<PlannedSplit> splits ) {
+		int smallest = 0;
+		for (int i = 1; i < splits.size(); i++) {
+			if (splits.get(i).rows < splits.get(smallest).rows) {
+				smallest = i;
+			}
+		}
+		final PlannedSplit smallestSplit = splits.remove(smallest);
+		// merge into the smallest split on the same tablet server, or the
+		// smallest split if no other split shares a tablet server
+		int partner = -1;
+		int sameLocationPartner = -1;
+		for (int i = 0; i < splits.size(); i++) {
+			final PlannedSplit split = splits.get(i);
+			if ((partner < 0) || (split.rows < splits.get(partner).rows)) {
+				partner = i;
+			}
+			if (split.sharesLocation(smallestSplit) && ((sameLocationPartner < 0) || (split.rows < splits.get(sameLocationPartner).rows))) {
+				sameLocationPartner = i;
+			}
+		}
+		final PlannedSplit partnerSplit = splits.get(sameLocationPartner >= 0 ? sameLocationPartner : partner);
+		for (final RangePiece piece : smallestSplit.pieces) {
+			partnerSplit.add(piece);
+		}
+	}
+
+	/**
+	 * @return false if the largest split could not be divided
+	 */
+	private static boolean divideLargest(
+			final List<PlannedSplit> splits ) {
+		PlannedSplit largest = splits.get(0);
+		for (final PlannedSplit split : splits) {
+			if (split.rows > largest.rows) {
+				largest = split;
+			}
+		}
+		final List<RangePiece> largestPieces = new ArrayList<RangePiece>(
+				largest.pieces);
+		if (largestPieces.size() == 1) {
+			final List<RangePiece> halves = largestPieces.get(
+					0).cut(
+					2);
+			if (halves.size() < 2) {
+				return false;
+			}
+			largestPieces.clear();
+			largestPieces.addAll(halves);
+		}
+		final PlannedSplit first = new PlannedSplit();
+		final PlannedSplit second = new PlannedSplit();
+		final double half = largest.rows / 2;
+		for (final RangePiece piece : largestPieces) {
+			if (first.pieces.isEmpty() || ((first.rows + (piece.rows / 2)) <= half)) {
+				first.add(piece);
+			}
+			else {
+				second.add(piece);
+			}
+		}
+		if (second.pieces.isEmpty()) {
+			return false;
+		}
+		splits.remove(largest);
+		splits.add(first);
+		splits.add(second);
+		return true;
+	}
+
+	private static class RangePiece
+	{
+		private final Index index;
+		private final Range range;
+		private final String location;
+		private final RowRangeHistogramStatistics<?> histogram;
+		private final double startPosition;
+		private final double endPosition;
+		private final double rows;
+
+		private RangePiece(
+				final Index index,
+				final Range range,
+				final String location,
+				final RowRangeHistogramStatistics<?> histogram ) {
+			this.index = index;
+			this.range = range;
+			this.location = location;
+			this.histogram = histogram;
+			startPosition = range.isInfiniteStartKey() ? 0 : RowRangeHistogramStatistics.getStartPosition(range.getStartKey().getRowData().toArray());
+			endPosition = range.isInfiniteStopKey() ? 1 : RowRangeHistogramStatistics.getStartPosition(range.getEndKey().getRowData().toArray());
+			rows = histogram.estimateCount(
+					startPosition,
+					endPosition);
+		}
+
+		/**
+		 * Cut the range at the quantiles of its estimated rows
+		 * 
+		 * @param pieceCount
+		 *            the number of pieces to cut the range into
+		 * @return the pieces, which is just this range if it can't be cut
+		 */
+		private List<RangePiece> cut(
+				final int pieceCount ) {
+			final List<RangePiece> cutPieces = new ArrayList<RangePiece>();
+			Range remainder = range;
+			for (int i = 1; i < pieceCount; i++) {
+				final Key cutKey = new Key(
+						new Text(
+								RowRangeHistogramStatistics.getRow(histogram.getQuantile(
+										(double) i / pieceCount,
+										startPosition,
+										endPosition))));
+				// the cut must leave a non-empty range on both sides
+				if (!remainder.contains(cutKey) || cutKey.equals(remainder.getStartKey())) {
+					continue;
+				}
+				cutPieces.add(new RangePiece(
+						index,
+						new Range(
+								remainder.getStartKey(),
+								remainder.isStartKeyInclusive(),
+								cutKey,
+								false),
+						location,
+						histogram));
+				remainder = new Range(
+						cutKey,
+						true,
+						remainder.getEndKey(),
+						remainder.isEndKeyInclusive());
+			}
+			cutPieces.add(new RangePiece(
+					index,
+					remainder,
+					location,
+					histogram));
+			return cutPieces;
+		}
+	}
+
+	private static class PlannedSplit
+	{
+		private final List<RangePiece> pieces = new ArrayList<RangePiece>();
+		private final Set<String> locations = new LinkedHashSet<String>();
+		private double rows = 0;
+
+		private void add(
+				final RangePiece piece ) {
+			pieces.add(piece);
+			locations.add(piece.location);
+			rows += piece.rows;
+		}
+
+		private boolean sharesLocation(
+				final PlannedSplit other ) {
+			for (final String location : other.locations) {
+				if (locations.contains(location)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private GeoWaveInputSplit toInputSplit() {
+			final Map<Index, List<Range>> rangesPerIndex = new HashMap<Index, List<Range>>();
+			for (final RangePiece piece : pieces) {
+				List<Range> ranges = rangesPerIndex.get(piece.index);
+				if (ranges == null) {
+					ranges = new ArrayList<Range>();
+					rangesPerIndex.put(
+							piece.index,
+							ranges);
+				}
+				ranges.add(piece.range);
+			}
+			return new GeoWaveInputSplit(
+					rangesPerIndex,
+					locations.toArray(new String[locations.size()]));
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package mil.nga.giat.geowave.accumulo.mapreduce.output;
+
+import java.io.IOException;
+
+import mil.nga.giat.geowave.accumulo.AccumuloBulkIndexWriter;
+import mil.nga.giat.geowave.accumulo.AccumuloOperations;
+import mil.nga.giat.geowave.store.IndexWriter;
+import mil.nga.giat.geowave.store.adapter.AdapterStore;
+import mil.nga.giat.geowave.store.adapter.statistics.DataStatisticsStore;
+import mil.nga.giat.geowave.store.index.Index;
+import mil.nga.giat.geowave.store.index.IndexStore;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+
+/**
+ * This output format writes data to GeoWave within a map-reduce job as sorted
+ * files to be bulk imported, rather than through batch writers. Each task
+ * attempt writes its files, and the statistics of its entries, to its own work
+ * directory which is only moved into the job's bulk ingest directory when the
+ * task succeeds, so the entries of failed or killed attempts are never
+ * imported. Once the job has completed, the bulk ingest directory must be
+ * imported with {@link #importBulkIngestDirectory(Job)}.
+ */
+public class GeoWaveBulkOutputFormat extends
+		GeoWaveOutputFormat
+{
+	private FileOutputCommitter committer;
+
+	/**
+	 * Sets the directory that the files are written to, it must not exist yet.
+	 * 
+	 * @param job
+	 *            the Hadoop job instance to be configured
+	 * @param bulkIngestDirectory
+	 *            the bulk ingest directory
+	 */
+	public static void setBulkIngestDirectory(
+			final Job job,
+			final Path bulkIngestDirectory ) {
+		FileOutputFormat.setOutputPath(
+				job,
+				bulkIngestDirectory);
+	}
+
+	public static Path getBulkIngestDirectory(
+			final JobContext context ) {
+		return FileOutputFormat.getOutputPath(context);
+	}
+
+	/**
+	 * Import the files that a completed job has written into their tables and
+	 * incorporate the statistics of their entries.
+	 * 
+	 * @param job
+	 *            the completed job
+	 * @return whether every file was imported
+	 * @throws IOException
+	 */
+	public static boolean importBulkIngestDirectory(
+			final Job job )
+			throws IOException {
+		try {
+			return AccumuloBulkIndexWriter.importDirectory(
+					getAccumuloOperations(job),
+					job.getConfiguration(),
+					getBulkIngestDirectory(job));
+		}
+		catch (AccumuloException | AccumuloSecurityException e) {
+			throw new IOException(
+					e);
+		}
+	}
+
+	@Override
+	protected GeoWaveRecordWriter createRecordWriter(
+			final TaskAttemptContext context,
+			final AccumuloOperations accumuloOperations,
+			final IndexStore indexStore,
+			final AdapterStore adapterStore,
+			final DataStatisticsStore statisticsStore )
+			throws AccumuloException,
+			AccumuloSecurityException,
+			IOException {
+		return new GeoWaveBulkRecordWriter(
+				context,
+				accumuloOperations,
+				indexStore,
+				adapterStore,
+				statisticsStore,
+				((FileOutputCommitter) getOutputCommitter(context)).getWorkPath());
+	}
+
+	@Override
+	public void checkOutputSpecs(
+			final JobContext context )
+			throws IOException,
+			InterruptedException {
+		super.checkOutputSpecs(context);
+		final Path bulkIngestDirectory = getBulkIngestDirectory(context);
+		if (bulkIngestDirectory == null) {
+			throw new IOException(
+					"Bulk ingest directory is not set");
+		}
+		if (bulkIngestDirectory.getFileSystem(
+				context.getConfiguration()).exists(
+				bulkIngestDirectory)) {
+			throw new IOException(
+					"Bulk ingest directory '" + bulkIngestDirectory + "' already exists");
+		}
+	}
+
+	@Override
+	public synchronized OutputCommitter getOutputCommitter(
+			final TaskAttemptContext context )
+			throws IOException {
+		if (committer == null) {
+			committer = new FileOutputCommitter(
+					getBulkIngestDirectory(context),
+					context);
+		}
+		return committer;
+	}
+
+	protected class GeoWaveBulkRecordWriter extends
+			GeoWaveRecordWriter
+	{
+		private final Configuration conf;
+		private final Path workDirectory;
+
+		protected GeoWaveBulkRecordWriter(
+				final TaskAttemptContext context,
+				final AccumuloOperations accumuloOperations,
+				final IndexStore indexStore,
+				final AdapterStore adapterStore,
+				final DataStatisticsStore statisticsStore,
+				final Path workDirectory )
+				throws AccumuloException,
+				AccumuloSecurityException,
+				IOException {
+			super(
+					context,
+					accumuloOperations,
+					indexStore,
+					adapterStore,
+					statisticsStore);
+			conf = context.getConfiguration();
+			this.workDirectory = workDirectory;
+		}
+
+		@Override
+		protected IndexWriter createIndexWriter(
+				final Index index ) {
+			return new AccumuloBulkIndexWriter(
+					index,
+					accumuloOperations,
+					accumuloOptions,
+					dataStore,
+					conf,
+					workDirectory);
+		}
+	}
+}
@@ -6,6 +6,7 @@ import java.util.Map;
 
 import mil.nga.giat.geowave.accumulo.AccumuloDataStore;
 import mil.nga.giat.geowave.accumulo.AccumuloOperations;
+import mil.nga.giat.geowave.accumulo.AccumuloOptions;
 import mil.nga.giat.geowave.accumulo.mapreduce.GeoWaveConfiguratorBase;
 import mil.nga.giat.geowave.accumulo.mapreduce.JobContextAdapterStore;
 import mil.nga.giat.geowave.accumulo.mapreduce.JobContextIndexStore;
@@ -14,7 +15,6 @@ import mil.nga.giat.geowave.accumulo.metadata.AccumuloDataStatisticsStore;
 import mil.nga.giat.geowave.accumulo.metadata.AccumuloIndexStore;
 import mil.nga.giat.geowave.index.ByteArrayId;
 import mil.nga.giat.geowave.index.StringUtils;
-import mil.nga.giat.geowave.store.DataStore;
 import mil.nga.giat.geowave.store.IndexWriter;
 import mil.nga.giat.geowave.store.adapter.AdapterStore;
 import mil.nga.giat.geowave.store.adapter.DataAdapter;
@@ -54,7 +54,6 @@ public class GeoWaveOutputFormat extends
 			throws IOException,
 			InterruptedException {
 		try {
-			// TODO expose GeoWave's AccumuloOptions
 			final AccumuloOperations accumuloOperations = getAccumuloOperations(context);
 			final AdapterStore accumuloAdapterStore = new AccumuloAdapterStore(
 					accumuloOperations);
@@ -79,8 +78,9 @@ public class GeoWaveOutputFormat extends
 					context,
 					accumuloOperations);
 			final DataStatisticsStore statisticsStore = new AccumuloDataStatisticsStore(
-					accumuloOperations);
-			return new GeoWaveRecordWriter(
+					accumuloOperations,
+					getAccumuloOptions(context));
+			return createRecordWriter(
 					context,
 					accumuloOperations,
 					jobContextIndexStore,
@@ -93,6 +93,23 @@ public class GeoWaveOutputFormat extends
 		}
 	}
 
+	protected GeoWaveRecordWriter createRecordWriter(
+			final TaskAttemptContext context,
+			final AccumuloOperations accumuloOperations,
+			final IndexStore indexStore,
+			final AdapterStore adapterStore,
+			final DataStatisticsStore statisticsStore )
+			throws AccumuloException,
+			AccumuloSecurityException,
+			IOException {
+		return new GeoWaveRecordWriter(
+				context,
+				accumuloOperations,
+				indexStore,
+				adapterStore,
+				statisticsStore);
+	}
+
 	public static void addIndex(
 			final Configuration config,
 			final Index index ) {
@@ -175,7 +192,9 @@ public class GeoWaveOutputFormat extends
 		private final Map<ByteArrayId, IndexWriter> indexWriterCache = new HashMap<ByteArrayId, IndexWriter>();
 		private final AdapterStore adapterStore;
 		private final IndexStore indexStore;
-		private final DataStore dataStore;
+		protected final AccumuloOperations accumuloOperations;
+		protected final AccumuloOptions accumuloOptions;
+		protected final AccumuloDataStore dataStore;
 
 		protected GeoWaveRecordWriter(
 				final TaskAttemptContext context,
@@ -190,13 +209,16 @@ public class GeoWaveOutputFormat extends
 			if (l != null) {
 				LOGGER.setLevel(getLogLevel(context));
 			}
+			accumuloOptions = getAccumuloOptions(context);
 			dataStore = new AccumuloDataStore(
 					indexStore,
 					adapterStore,
 					statisticsStore,
-					accumuloOperations);
+					accumuloOperations,
+					accumuloOptions);
 			this.adapterStore = adapterStore;
 			this.indexStore = indexStore;
+			this.accumuloOperations = accumuloOperations;
 		}
 
 		/**
@@ -237,7 +259,7 @@ public class GeoWaveOutputFormat extends
 				final Index index = indexStore.getIndex(indexId);
 				IndexWriter writer = null;
 				if (index != null) {
-					writer = dataStore.createIndexWriter(index);
+					writer = createIndexWriter(index);
 				}
 				else {
 					LOGGER.warn("Index '" + StringUtils.stringFromBinary(indexId.getBytes()) + "' does not exist");
@@ -250,6 +272,11 @@ public class GeoWaveOutputFormat extends
 			return indexWriterCache.get(indexId);
 		}
 
+		protected IndexWriter createIndexWriter(
+				final Index index ) {
+			return dataStore.createIndexWriter(index);
+		}
+
 		@Override
 		public synchronized void close(
 				final TaskAttemptContext attempt )
@@ -372,8 +399,8 @@ public class GeoWaveOutputFormat extends
 				GeoWaveConfiguratorBase.getConfiguration(context));
 	}
 
-	// TODO add enabling/disabling features such as automatic table, data
-	// adapter, and index creation; for now that is not an option exposed in
+	// TODO add enabling/disabling features such as automatic data adapter and
+	// index creation; for now that is not an option exposed in
 	// GeoWaveDataStore so it will automatically create anything that doesn't
 	// exist
 	/**
@@ -381,36 +408,51 @@ public class GeoWaveOutputFormat extends
 	 * only be alpha-numeric and underscores.
 	 * 
 	 * <p>
-	 * By default, this feature is <b>disabled</b>.
+	 * By default, this feature is <b>enabled</b>.
 	 * 
 	 * @param job
 	 *            the Hadoop job instance to be configured
 	 * @param enableFeature
 	 *            the feature is enabled if true, disabled otherwise
 	 */
-	// public static void setCreateTables(
-	// final Job job,
-	// final boolean enableFeature ) {
-	// GeoWaveOutputConfigurator.setCreateTables(
-	// CLASS,
-	// job,
-	// enableFeature);
-	// }
+	public static void setCreateTables(
+			final Job job,
+			final boolean enableFeature ) {
+		GeoWaveOutputConfigurator.setCreateTables(
+				CLASS,
+				job,
+				enableFeature);
+	}
 
 	/**
 	 * Determines whether tables are permitted to be created as needed.
 	 * 
 	 * @param context
 	 *            the Hadoop context for the configured job
-	 * @return true if the feature is disabled, false otherwise
+	 * @return true if the feature is enabled, false otherwise
 	 * @see #setCreateTables(Job, boolean)
 	 */
-	// protected static Boolean canCreateTables(
-	// final JobContext context ) {
-	// return GeoWaveOutputConfigurator.canCreateTables(
-	// CLASS,
-	// context);
-	// }
+	protected static Boolean canCreateTables(
+			final JobContext context ) {
+		return GeoWaveOutputConfigurator.canCreateTables(
+				CLASS,
+				context);
+	}
+
+	/**
+	 * Get the options that the index writers of a task write with, as the job
+	 * has configured them
+	 * 
+	 * @param context
+	 *            the Hadoop context for the configured job
+	 * @return the Accumulo options
+	 */
+	protected static AccumuloOptions getAccumuloOptions(
+			final JobContext context ) {
+		final AccumuloOptions accumuloOptions = new AccumuloOptions();
+		accumuloOptions.setCreateTable(canCreateTables(context));
+		return accumuloOptions;
+	}
 
 	public static AccumuloOperations getAccumuloOperations(
 			final JobContext context )
@@ -4,9 +4,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -38,7 +36,8 @@ import org.apache.log4j.Logger;
  * 
  * There is an LRU cache associated with it so staying in sync with external
  * updates is not practical - it assumes the objects are not updated often or at
- * all. The objects are stored in their own table.
+ * all. Lookups of objects that are not found are also cached briefly. The
+ * objects are stored in their own table.
  * 
  * @param <T>
  *            The type of persistable object that this stores
@@ -53,30 +52,31 @@ abstract public class AbstractAccumuloPersistence<T extends Persistable>
 	// updating and looking up objects simultaneously that would require some
 	// locking/synchronization mechanism, and even possibly update
 	// notifications?
-	private static final int MAX_ENTRIES = 100;
-	protected final Map<ByteArrayId, T> cache = Collections.synchronizedMap(new LinkedHashMap<ByteArrayId, T>(
-			MAX_ENTRIES + 1,
-			.75F,
-			true) {
-		/**
-				 *
-				 */
-		private static final long serialVersionUID = 1L;
-
-		// This method is called just after a new entry has been added
-		@Override
-		public boolean removeEldestEntry(
-				final Map.Entry<ByteArrayId, T> eldest ) {
-			return size() > MAX_ENTRIES;
-		}
-	});
+	protected final MetadataCache<T> cache;
 
 	// just attach iterators once per instance
 	private boolean iteratorsAttached = false;
 
 	public AbstractAccumuloPersistence(
 			final AccumuloOperations accumuloOperations ) {
+		this(
+				accumuloOperations,
+				new MetadataCache<T>());
+	}
+
+	public AbstractAccumuloPersistence(
+			final AccumuloOperations accumuloOperations,
+			final MetadataCache<T> cache ) {
 		this.accumuloOperations = accumuloOperations;
+		this.cache = cache;
+	}
+
+	/**
+	 * @return the cache of persisted objects, which exposes its hit, miss and
+	 *         eviction counts
+	 */
+	public MetadataCache<T> getCache() {
+		return cache;
 	}
 
 	protected String getAccumuloTablename() {
@@ -245,7 +245,27 @@ abstract public class AbstractAccumuloPersistence<T extends Persistable>
 		final ByteArrayId combinedId = getCombinedId(
 				primaryId,
 				secondaryId);
-		return (cache.remove(combinedId) != null);
+		return cache.remove(combinedId);
+	}
+
+	/**
+	 * Remember that an object was not found so that looking it up again doesn't
+	 * scan the table until the cached miss expires
+	 */
+	protected void addMissingObjectToCache(
+			final ByteArrayId primaryId,
+			final ByteArrayId secondaryId ) {
+		cache.putMissing(getCombinedId(
+				primaryId,
+				secondaryId));
+	}
+
+	protected boolean isObjectCachedAsMissing(
+			final ByteArrayId primaryId,
+			final ByteArrayId secondaryId ) {
+		return cache.isCachedAsMissing(getCombinedId(
+				primaryId,
+				secondaryId));
 	}
 
 	protected IteratorConfig[] getIteratorConfig() {
@@ -290,6 +310,11 @@ abstract public class AbstractAccumuloPersistence<T extends Persistable>
 		if (cacheResult != null) {
 			return (T) cacheResult;
 		}
+		if (isObjectCachedAsMissing(
+				primaryId,
+				secondaryId)) {
+			return null;
+		}
 		try {
 			final BatchScanner scanner = getScanner(
 					primaryId,
@@ -301,6 +326,9 @@ abstract public class AbstractAccumuloPersistence<T extends Persistable>
 					LOGGER.warn("Object '" + getCombinedId(
 							primaryId,
 							secondaryId).getString() + "' not found");
+					addMissingObjectToCache(
+							primaryId,
+							secondaryId);
 					return null;
 				}
 				final Entry<Key, Value> entry = it.next();
@@ -460,6 +488,11 @@ abstract public class AbstractAccumuloPersistence<T extends Persistable>
 				secondaryId) != null) {
 			return true;
 		}
+		if (isObjectCachedAsMissing(
+				primaryId,
+				secondaryId)) {
+			return false;
+		}
 		try {
 			final BatchScanner scanner = getScanner(
 					primaryId,
@@ -472,6 +505,9 @@ abstract public class AbstractAccumuloPersistence<T extends Persistable>
 					return (entryToValue(it.next()) != null);
 				}
 				else {
+					addMissingObjectToCache(
+							primaryId,
+							secondaryId);
 					return false;
 				}
 
@@ -12,7 +12,8 @@ import mil.nga.giat.geowave.store.adapter.DataAdapter;
  * 
  * There is an LRU cache associated with it so staying in sync with external
  * updates is not practical - it assumes the objects are not updated often or at
- * all. The objects are stored in their own table.
+ * all. Lookups of objects that are not found are also cached briefly. The
+ * objects are stored in their own table.
  */
 public class AccumuloAdapterStore extends
 		AbstractAccumuloPersistence<DataAdapter<?>> implements
@@ -26,6 +27,14 @@ public class AccumuloAdapterStore extends
 				accumuloOperations);
 	}
 
+	public AccumuloAdapterStore(
+			final AccumuloOperations accumuloOperations,
+			final MetadataCache<DataAdapter<?>> cache ) {
+		super(
+				accumuloOperations,
+				cache);
+	}
+
 	@Override
 	public void addAdapter(
 			final DataAdapter<?> adapter ) {
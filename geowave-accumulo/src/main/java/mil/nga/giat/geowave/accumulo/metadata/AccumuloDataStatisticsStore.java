@@ -1,15 +1,19 @@
 package mil.nga.giat.geowave.accumulo.metadata;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
 
 import mil.nga.giat.geowave.accumulo.AccumuloOperations;
+import mil.nga.giat.geowave.accumulo.AccumuloOptions;
 import mil.nga.giat.geowave.accumulo.IteratorConfig;
 import mil.nga.giat.geowave.accumulo.MergingCombiner;
 import mil.nga.giat.geowave.accumulo.MergingVisibilityCombiner;
 import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.index.PersistenceUtils;
 import mil.nga.giat.geowave.store.CloseableIterator;
 import mil.nga.giat.geowave.store.adapter.statistics.DataStatistics;
 import mil.nga.giat.geowave.store.adapter.statistics.DataStatisticsStore;
@@ -26,9 +30,13 @@ import org.apache.hadoop.io.Text;
  * This class will persist Index objects within an Accumulo table for GeoWave
  * metadata. The adapters will be persisted in an "INDEX" column family.
  * 
- * There is an LRU cache associated with it so staying in sync with external
- * updates is not practical - it assumes the objects are not updated often or at
- * all. The objects are stored in their own table.
+ * Statistics are not cached by default because other processes may be
+ * incorporating statistics into the same table. Caching can be enabled, in
+ * which case statistics are merged across visibilities when they are read, so
+ * lookups are cached by the authorizations they were made with and only for a
+ * few seconds. Statistics that are not found are never cached, and any change
+ * made through a statistics store in this process invalidates the cache. The
+ * objects are stored in their own table.
  * 
  **/
 public class AccumuloDataStatisticsStore extends
@@ -40,11 +48,69 @@ public class AccumuloDataStatisticsStore extends
 	private static final int STATS_COMBINER_PRIORITY = 10;
 	private static final int STATS_MULTI_VISIBILITY_COMBINER_PRIORITY = 15;
 	private static final String STATISTICS_CF = "STATS";
+	public static final long DEFAULT_STATISTICS_TIME_TO_LIVE_MILLIS = 5000;
+
+	// every statistics store in this process must stop serving what it cached
+	// once statistics are changed through any of them
+	private static final AtomicLong STATISTICS_VERSION = new AtomicLong();
+
+	private final MetadataCache<CachedStatistics> statisticsCache;
+	private volatile long cachedVersion;
 
 	public AccumuloDataStatisticsStore(
 			final AccumuloOperations accumuloOperations ) {
+		this(
+				accumuloOperations,
+				new MetadataCache<CachedStatistics>(
+						0,
+						0,
+						0));
+	}
+
+	/**
+	 * @param accumuloOperations
+	 *            the operations to access the metadata table with
+	 * @param accumuloOptions
+	 *            the options that determine whether statistics lookups are
+	 *            cached, how many and for how long
+	 */
+	public AccumuloDataStatisticsStore(
+			final AccumuloOperations accumuloOperations,
+			final AccumuloOptions accumuloOptions ) {
+		this(
+				accumuloOperations,
+				new MetadataCache<CachedStatistics>(
+						accumuloOptions.isCacheStatistics() ? accumuloOptions.getStatisticsCacheSize() : 0,
+						accumuloOptions.getStatisticsCacheTimeToLiveMillis(),
+						0));
+	}
+
+	/**
+	 * @param accumuloOperations
+	 *            the operations to access the metadata table with
+	 * @param statisticsCache
+	 *            the cache for merged statistics lookups, which should have a
+	 *            short time to live because other processes may be
+	 *            incorporating statistics into the same table
+	 */
+	public AccumuloDataStatisticsStore(
+			final AccumuloOperations accumuloOperations,
+			final MetadataCache<CachedStatistics> statisticsCache ) {
 		super(
-				accumuloOperations);
+				accumuloOperations,
+				new MetadataCache<DataStatistics<?>>(
+						0,
+						0,
+						0));
+		this.statisticsCache = statisticsCache;
+	}
+
+	/**
+	 * @return the cache for statistics lookups, which exposes its hit, miss and
+	 *         eviction counts
+	 */
+	public MetadataCache<CachedStatistics> getStatisticsCache() {
+		return statisticsCache;
 	}
 
 	@Override
@@ -54,33 +120,22 @@ public class AccumuloDataStatisticsStore extends
 		// object
 		addObject(statistics);
 
-		// TODO if we do allow caching after we add a statistic to Accumulo we
-		// do need to make sure we update our cache, but for now we aren't using
-		// the cache at all
-
+		// the merged value of every cached lookup for these statistics is now
+		// out of date, regardless of the authorizations it was looked up with
+		invalidateCache();
 	}
 
 	@Override
 	protected void addObjectToCache(
 			final DataStatistics<?> object ) {
-		// don't use the cache at all for now
-
-		// TODO consider adding a setting to use the cache for statistics, but
-		// because it could change with each new entry, it seems that there
-		// could be too much potential for invalid caching if multiple instances
-		// of GeoWave are able to connect to the same Accumulo tables
+		// statistics are cached by lookup in getDataStatistics() rather than by
+		// object because the merged value depends on the authorizations
 	}
 
 	@Override
 	protected Object getObjectFromCache(
 			final ByteArrayId primaryId,
 			final ByteArrayId secondaryId ) {
-		// don't use the cache at all
-
-		// TODO consider adding a setting to use the cache for statistics, but
-		// because it could change with each new entry, it seems that there
-		// could be too much potential for invalid caching if multiple instances
-		// of GeoWave are able to connect to the same Accumulo tables
 		return null;
 	}
 
@@ -88,15 +143,22 @@ public class AccumuloDataStatisticsStore extends
 	protected boolean deleteObjectFromCache(
 			final ByteArrayId primaryId,
 			final ByteArrayId secondaryId ) {
-		// don't use the cache at all
-
-		// TODO consider adding a setting to use the cache for statistics, but
-		// because it could change with each new entry, it seems that there
-		// could be too much potential for invalid caching if multiple instances
-		// of GeoWave are able to connect to the same Accumulo tables
+		invalidateCache();
 		return true;
 	}
 
+	@Override
+	protected void addMissingObjectToCache(
+			final ByteArrayId primaryId,
+			final ByteArrayId secondaryId ) {}
+
+	@Override
+	protected boolean isObjectCachedAsMissing(
+			final ByteArrayId primaryId,
+			final ByteArrayId secondaryId ) {
+		return false;
+	}
+
 	@Override
 	protected IteratorConfig[] getIteratorConfig() {
 		final IteratorConfig statsCombiner = new IteratorConfig(
@@ -130,10 +192,69 @@ public class AccumuloDataStatisticsStore extends
 			final ByteArrayId adapterId,
 			final ByteArrayId statisticsId,
 			String... authorizations ) {
-		return getObject(
+		final ByteArrayId lookupId = getLookupId(
+				adapterId,
+				statisticsId,
+				authorizations);
+		final long version = STATISTICS_VERSION.get();
+		if (version != cachedVersion) {
+			statisticsCache.clear();
+			cachedVersion = version;
+		}
+		final CachedStatistics cachedStats = statisticsCache.get(lookupId);
+		if (cachedStats != null) {
+			// callers are free to merge into the statistics they get, so each
+			// is given its own instance
+			final DataStatistics<?> stats = PersistenceUtils.fromBinary(
+					cachedStats.binary,
+					DataStatistics.class);
+			stats.setDataAdapterId(adapterId);
+			stats.setVisibility(cachedStats.visibility);
+			return stats;
+		}
+		final DataStatistics<?> stats = getObject(
 				statisticsId,
 				adapterId,
 				authorizations);
+		// don't cache what was read if the statistics changed in the meantime
+		if ((stats != null) && (statisticsCache.getMaxEntries() > 0) && (version == STATISTICS_VERSION.get())) {
+			statisticsCache.put(
+					lookupId,
+					new CachedStatistics(
+							PersistenceUtils.toBinary(stats),
+							stats.getVisibility()));
+		}
+		return stats;
+	}
+
+	private void invalidateCache() {
+		STATISTICS_VERSION.incrementAndGet();
+		statisticsCache.clear();
+	}
+
+	private ByteArrayId getLookupId(
+			final ByteArrayId adapterId,
+			final ByteArrayId statisticsId,
+			final String... authorizations ) {
+		final StringBuilder str = new StringBuilder(
+				getCombinedId(
+						statisticsId,
+						adapterId).getString());
+		if (authorizations != null) {
+			// the same authorizations in a different order see the same
+			// statistics
+			final String[] sortedAuthorizations = Arrays.copyOf(
+					authorizations,
+					authorizations.length);
+			Arrays.sort(sortedAuthorizations);
+			for (final String authorization : sortedAuthorizations) {
+				str.append(
+						'|').append(
+						authorization);
+			}
+		}
+		return new ByteArrayId(
+				str.toString());
 	}
 
 	@Override
@@ -169,6 +290,7 @@ public class AccumuloDataStatisticsStore extends
 				statistics.getDataAdapterId(),
 				statistics.getStatisticsId());
 		addObject(statistics);
+		invalidateCache();
 	}
 
 	@Override
@@ -207,4 +329,21 @@ public class AccumuloDataStatisticsStore extends
 			final DataStatistics<?> entry ) {
 		return entry.getVisibility();
 	}
+
+	/**
+	 * The serialized form of cached statistics, from which a new instance is
+	 * created for each lookup
+	 */
+	public static class CachedStatistics
+	{
+		private final byte[] binary;
+		private final byte[] visibility;
+
+		private CachedStatistics(
+				final byte[] binary,
+				final byte[] visibility ) {
+			this.binary = binary;
+			this.visibility = visibility;
+		}
+	}
 }
@@ -12,7 +12,8 @@ import mil.nga.giat.geowave.store.index.IndexStore;
  * 
  * There is an LRU cache associated with it so staying in sync with external
  * updates is not practical - it assumes the objects are not updated often or at
- * all. The objects are stored in their own table.
+ * all. Lookups of objects that are not found are also cached briefly. The
+ * objects are stored in their own table.
  * 
  **/
 public class AccumuloIndexStore extends
@@ -27,6 +28,14 @@ public class AccumuloIndexStore extends
 				accumuloOperations);
 	}
 
+	public AccumuloIndexStore(
+			final AccumuloOperations accumuloOperations,
+			final MetadataCache<Index> cache ) {
+		super(
+				accumuloOperations,
+				cache);
+	}
+
 	@Override
 	public void addIndex(
 			final Index index ) {
@@ -0,0 +1,265 @@
+package mil.nga.giat.geowave.accumulo.metadata;
+
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import mil.nga.giat.geowave.index.ByteArrayId;
+
+/**
+ * This is a size-bounded least recently used cache for GeoWave metadata
+ * objects. The entries are held in an access ordered LinkedHashMap, so when the
+ * cache is full adding an entry evicts the eldest one in constant time. Every
+ * access is synchronized on the map, which is held only briefly because
+ * metadata objects are deserialized outside of the cache.
+ * 
+ * Entries can expire after a time to live, and misses can be cached as well so
+ * that repeatedly looking up an object that does not exist doesn't scan the
+ * metadata table each time. Negative entries should have a short time to live
+ * because an object may be added by another process.
+ * 
+ * @param <T>
+ *            The type of the cached objects
+ */
+public class MetadataCache<T>
+{
+	public static final int DEFAULT_MAX_ENTRIES = 100;
+	public static final long DEFAULT_TIME_TO_LIVE_MILLIS = -1;
+	public static final long DEFAULT_NEGATIVE_TIME_TO_LIVE_MILLIS = 10000;
+
+	private final int maxEntries;
+	private final long timeToLiveMillis;
+	private final long negativeTimeToLiveMillis;
+	private final LruMap<T> entries;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong negativeHitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong expirationCount = new AtomicLong();
+
+	public MetadataCache() {
+		this(
+				DEFAULT_MAX_ENTRIES,
+				DEFAULT_TIME_TO_LIVE_MILLIS,
+				DEFAULT_NEGATIVE_TIME_TO_LIVE_MILLIS);
+	}
+
+	/**
+	 * @param maxEntries
+	 *            the maximum number of cached objects and misses, a value less
+	 *            than 1 disables the cache
+	 * @param timeToLiveMillis
+	 *            how long an object stays cached after it is added, a value
+	 *            less than 1 keeps it until it is evicted
+	 * @param negativeTimeToLiveMillis
+	 *            how long a miss stays cached, a value less than 1 disables
+	 *            caching misses
+	 */
+	public MetadataCache(
+			final int maxEntries,
+			final long timeToLiveMillis,
+			final long negativeTimeToLiveMillis ) {
+		this.maxEntries = maxEntries;
+		this.timeToLiveMillis = timeToLiveMillis;
+		this.negativeTimeToLiveMillis = negativeTimeToLiveMillis;
+		entries = new LruMap<T>(
+				maxEntries,
+				evictionCount);
+	}
+
+	/**
+	 * @param id
+	 *            the ID of the object
+	 * @return the cached object, or null if it is not cached or is cached as
+	 *         missing
+	 */
+	public T get(
+			final ByteArrayId id ) {
+		final CacheEntry<T> entry = getEntry(id);
+		if ((entry == null) || (entry.value == null)) {
+			missCount.incrementAndGet();
+			return null;
+		}
+		hitCount.incrementAndGet();
+		return entry.value;
+	}
+
+	/**
+	 * @param id
+	 *            the ID of the object
+	 * @return true if a lookup of the object recently found that it does not
+	 *         exist
+	 */
+	public boolean isCachedAsMissing(
+			final ByteArrayId id ) {
+		final CacheEntry<T> entry = getEntry(id);
+		if ((entry != null) && (entry.value == null)) {
+			negativeHitCount.incrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	public void put(
+			final ByteArrayId id,
+			final T value ) {
+		if (value == null) {
+			putMissing(id);
+			return;
+		}
+		put(
+				id,
+				value,
+				timeToLiveMillis);
+	}
+
+	/**
+	 * Remember that the object does not exist
+	 * 
+	 * @param id
+	 *            the ID of the object
+	 */
+	public void putMissing(
+			final ByteArrayId id ) {
+		if (negativeTimeToLiveMillis > 0) {
+			put(
+					id,
+					null,
+					negativeTimeToLiveMillis);
+		}
+	}
+
+	public boolean remove(
+			final ByteArrayId id ) {
+		final CacheEntry<T> entry;
+		synchronized (entries) {
+			entry = entries.remove(id);
+		}
+		return (entry != null) && (entry.value != null);
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of lookups that found a cached miss
+	 */
+	public long getNegativeHitCount() {
+		return negativeHitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	public long getExpirationCount() {
+		return expirationCount.get();
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public long getTimeToLiveMillis() {
+		return timeToLiveMillis;
+	}
+
+	public long getNegativeTimeToLiveMillis() {
+		return negativeTimeToLiveMillis;
+	}
+
+	private CacheEntry<T> getEntry(
+			final ByteArrayId id ) {
+		synchronized (entries) {
+			// getting the entry makes it the most recently used
+			final CacheEntry<T> entry = entries.get(id);
+			if (entry == null) {
+				return null;
+			}
+			if ((entry.expiration > 0) && (System.currentTimeMillis() >= entry.expiration)) {
+				entries.remove(id);
+				expirationCount.incrementAndGet();
+				return null;
+			}
+			return entry;
+		}
+	}
+
+	private void put(
+			final ByteArrayId id,
+			final T value,
+			final long timeToLive ) {
+		if (maxEntries < 1) {
+			return;
+		}
+		final CacheEntry<T> entry = new CacheEntry<T>(
+				value,
+				timeToLive > 0 ? System.currentTimeMillis() + timeToLive : -1);
+		synchronized (entries) {
+			// the map evicts the least recently used entry once it is full
+			entries.put(
+					id,
+					entry);
+		}
+	}
+
+	private static class LruMap<T> extends
+			LinkedHashMap<ByteArrayId, CacheEntry<T>>
+	{
+		private static final long serialVersionUID = 1L;
+		private final int maxEntries;
+		private final AtomicLong evictionCount;
+
+		public LruMap(
+				final int maxEntries,
+				final AtomicLong evictionCount ) {
+			super(
+					16,
+					.75F,
+					true);
+			this.maxEntries = maxEntries;
+			this.evictionCount = evictionCount;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(
+				final Entry<ByteArrayId, CacheEntry<T>> eldest ) {
+			if (size() > maxEntries) {
+				evictionCount.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	private static class CacheEntry<T>
+	{
+		private final T value;
+		private final long expiration;
+
+		public CacheEntry(
+				final T value,
+				final long expiration ) {
+			this.value = value;
+			this.expiration = expiration;
+		}
+	}
+}
@@ -1,25 +1,48 @@
 package mil.nga.giat.geowave.accumulo.query;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
+import mil.nga.giat.geowave.accumulo.AccumuloOperations;
+import mil.nga.giat.geowave.accumulo.AccumuloRowId;
 import mil.nga.giat.geowave.accumulo.util.AccumuloUtils;
 import mil.nga.giat.geowave.index.ByteArrayId;
 import mil.nga.giat.geowave.index.ByteArrayRange;
 import mil.nga.giat.geowave.index.ByteArrayUtils;
+import mil.nga.giat.geowave.index.Mergeable;
+import mil.nga.giat.geowave.index.Persistable;
 import mil.nga.giat.geowave.index.PersistenceUtils;
+import mil.nga.giat.geowave.index.StringUtils;
 import mil.nga.giat.geowave.index.sfc.data.MultiDimensionalNumericData;
+import mil.nga.giat.geowave.store.CloseableIterator;
+import mil.nga.giat.geowave.store.DataStoreEntryInfo;
 import mil.nga.giat.geowave.store.ScanCallback;
+import mil.nga.giat.geowave.store.adapter.DataAdapter;
+import mil.nga.giat.geowave.store.adapter.statistics.DataStatistics;
+import mil.nga.giat.geowave.store.adapter.statistics.DataStatisticsStore;
+import mil.nga.giat.geowave.store.adapter.statistics.RowRangeHistogramStatistics;
 import mil.nga.giat.geowave.store.filter.DedupeFilter;
 import mil.nga.giat.geowave.store.filter.DistributableFilterList;
 import mil.nga.giat.geowave.store.filter.DistributableQueryFilter;
+import mil.nga.giat.geowave.store.filter.FilterList;
+import mil.nga.giat.geowave.store.filter.MultiIndexDedupeFilter;
 import mil.nga.giat.geowave.store.filter.QueryFilter;
 import mil.nga.giat.geowave.store.index.Index;
 import mil.nga.giat.geowave.store.query.Query;
 
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.ScannerBase;
+import org.apache.accumulo.core.client.impl.AccumuloServerException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.user.WholeRowIterator;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.log4j.Logger;
 
 /**
  * This class represents basic numeric contraints applied to an Accumulo Query
@@ -28,10 +51,12 @@ import org.apache.accumulo.core.iterators.user.WholeRowIterator;
 public class AccumuloConstraintsQuery extends
 		AccumuloFilteredIndexQuery
 {
-	private static final int MAX_RANGE_DECOMPOSITION = 5000;
+	private final static Logger LOGGER = Logger.getLogger(AccumuloConstraintsQuery.class);
+	private static volatile RangePlanner rangePlanner = new RangePlanner();
 	protected final MultiDimensionalNumericData constraints;
 	protected final List<DistributableQueryFilter> distributableFilters;
 	protected boolean queryFiltersEnabled;
+	protected DataStatisticsStore statisticsStore;
 
 	public AccumuloConstraintsQuery(
 			final Index index,
@@ -187,12 +212,279 @@ public class AccumuloConstraintsQuery extends
 		}
 	}
 
+	@Override
+	protected ScannerBase getScanner(
+			final AccumuloOperations accumuloOperations,
+			final Integer limit ) {
+		final ScannerBase scanner = super.getScanner(
+				accumuloOperations,
+				limit);
+		if ((scanner != null) && (limit != null) && (limit > 0) && isServerSideLimitSupported()) {
+			final IteratorSetting iteratorSettings = new IteratorSetting(
+					RowLimitIterator.LIMIT_ITERATOR_PRIORITY,
+					RowLimitIterator.LIMIT_ITERATOR_NAME,
+					RowLimitIterator.class);
+			iteratorSettings.addOption(
+					RowLimitIterator.LIMIT,
+					Integer.toString(limit));
+			scanner.addScanIterator(iteratorSettings);
+		}
+		return scanner;
+	}
+
+	/**
+	 * The limit can only be applied by the tablet servers if the client will
+	 * not discard rows that they count, which is the case if the client only
+	 * removes duplicates of entries within this index
+	 * 
+	 * @return whether the limit can be applied by the tablet servers
+	 */
+	protected boolean isServerSideLimitSupported() {
+		for (final QueryFilter filter : getClientFilters()) {
+			if (!(filter instanceof DedupeFilter) || ((filter instanceof MultiIndexDedupeFilter) && ((MultiIndexDedupeFilter) filter).isMultiIndexSupportEnabled())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Aggregate the entries that match this query into statistics, rather than
+	 * returning them. If the tablet servers can aggregate the entries each
+	 * returns its partial statistics to be merged, along with the rows that it
+	 * could not aggregate, otherwise every entry is aggregated by the client.
+	 * 
+	 * @param accumuloOperations
+	 *            the accumulo operations
+	 * @param adapter
+	 *            the adapter of the entries
+	 * @param statistics
+	 *            the empty statistics to aggregate the entries into
+	 * @return the statistics, or null if the tablet servers failed to aggregate
+	 *         the entries
+	 */
+	public <T> List<DataStatistics<T>> aggregate(
+			final AccumuloOperations accumuloOperations,
+			final DataAdapter<T> adapter,
+			final List<DataStatistics<T>> statistics ) {
+		final String tableName = StringUtils.stringFromBinary(index.getId().getBytes());
+		if (!accumuloOperations.tableExists(tableName)) {
+			LOGGER.warn("Table does not exist " + tableName);
+			return statistics;
+		}
+		final ScannerBase scanner = getScanner(
+				accumuloOperations,
+				null);
+		if (scanner == null) {
+			LOGGER.error("Could not get scanner instance, getScanner returned null");
+			return null;
+		}
+		addScanIteratorSettings(scanner);
+		final boolean serverSideAggregation = isServerSideAggregationSupported();
+		if (serverSideAggregation) {
+			final IteratorSetting iteratorSettings = new IteratorSetting(
+					AggregationIterator.AGGREGATION_ITERATOR_PRIORITY,
+					AggregationIterator.AGGREGATION_ITERATOR_NAME,
+					AggregationIterator.class);
+			iteratorSettings.addOption(
+					AggregationIterator.ADAPTER,
+					ByteArrayUtils.byteArrayToString(PersistenceUtils.toBinary(adapter)));
+			iteratorSettings.addOption(
+					AggregationIterator.INDEX,
+					ByteArrayUtils.byteArrayToString(PersistenceUtils.toBinary(index)));
+			iteratorSettings.addOption(
+					AggregationIterator.STATISTICS,
+					ByteArrayUtils.byteArrayToString(PersistenceUtils.toBinary(new ArrayList<Persistable>(
+							statistics))));
+			scanner.addScanIterator(iteratorSettings);
+		}
+		final Map<ByteArrayId, DataStatistics<T>> statisticsById = new HashMap<ByteArrayId, DataStatistics<T>>();
+		for (final DataStatistics<T> stats : statistics) {
+			statisticsById.put(
+					stats.getStatisticsId(),
+					stats);
+		}
+		try {
+			final QueryFilter clientFilter = new FilterList<QueryFilter>(
+					getClientFilters());
+			final Iterator<Entry<Key, Value>> it = scanner.iterator();
+			while (it.hasNext()) {
+				final Entry<Key, Value> entry = it.next();
+				if (AggregationIterator.AGGREGATION_COLUMN_FAMILY.equals(entry.getKey().getColumnFamily())) {
+					for (final Persistable partialStatistics : PersistenceUtils.fromBinary(entry.getValue().get())) {
+						final ByteArrayId statisticsId = ((DataStatistics<?>) partialStatistics).getStatisticsId();
+						final DataStatistics<T> stats = statisticsById.get(statisticsId);
+						if (stats == null) {
+							throw new IllegalStateException(
+									"Partial aggregation returned unexpected statistics '" + statisticsId.getString() + "'");
+						}
+						stats.merge((Mergeable) partialStatistics);
+					}
+				}
+				else {
+					final Pair<T, DataStoreEntryInfo> decodedEntry = AccumuloUtils.decodeRow(
+							entry.getKey(),
+							entry.getValue(),
+							new AccumuloRowId(
+									entry.getKey().getRow().copyBytes()),
+							adapter,
+							null,
+							clientFilter,
+							index,
+							null);
+					if (decodedEntry != null) {
+						for (final DataStatistics<T> stats : statistics) {
+							stats.entryIngested(
+									decodedEntry.getRight(),
+									decodedEntry.getLeft());
+						}
+					}
+				}
+			}
+		}
+		catch (final RuntimeException e) {
+			// a tablet server that cannot run the aggregation iterator, for
+			// example because it is not on its classpath, fails the scan and
+			// the caller can read the entries instead
+			if (serverSideAggregation && isServerFailure(e)) {
+				LOGGER.warn(
+						"Unable to aggregate entries within the tablet servers",
+						e);
+				return null;
+			}
+			throw e;
+		}
+		finally {
+			scanner.close();
+		}
+		return statistics;
+	}
+
+	private static boolean isServerFailure(
+			final Throwable e ) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof AccumuloServerException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The entries can only be aggregated by the tablet servers if the client
+	 * would not discard any of them, for the same reason as the limit
+	 * 
+	 * @return whether the entries can be aggregated by the tablet servers
+	 */
+	protected boolean isServerSideAggregationSupported() {
+		return isServerSideLimitSupported();
+	}
+
+	/**
+	 * Set the planner used by all constraints queries to choose the ranges to
+	 * scan
+	 * 
+	 * @param planner
+	 *            the range planner
+	 */
+	public static void setRangePlanner(
+			final RangePlanner planner ) {
+		rangePlanner = planner;
+	}
+
+	public static RangePlanner getRangePlanner() {
+		return rangePlanner;
+	}
+
 	@Override
 	protected List<ByteArrayRange> getRanges() {
 		return AccumuloUtils.constraintsToByteArrayRanges(
 				constraints,
 				index.getIndexStrategy(),
-				MAX_RANGE_DECOMPOSITION);
+				rangePlanner.getMaxRangeDecomposition());
+	}
+
+	@Override
+	protected List<ByteArrayRange> getRanges(
+			final AccumuloOperations accumuloOperations ) {
+		return rangePlanner.plan(
+				constraints,
+				index.getIndexStrategy(),
+				accumuloOperations.getTableSplits(StringUtils.stringFromBinary(index.getId().getBytes())),
+				getRowRangeHistogram());
+	}
+
+	/**
+	 * @return the row range histogram of every adapter that will be scanned, or
+	 *         null if there is no statistics store or an adapter has no
+	 *         histogram for the index
+	 */
+	protected RowRangeHistogramStatistics<?> getRowRangeHistogram() {
+		if (statisticsStore == null) {
+			return null;
+		}
+		final ByteArrayId statisticsId = RowRangeHistogramStatistics.composeId(index.getId());
+		final List<RowRangeHistogramStatistics<?>> histograms = new ArrayList<RowRangeHistogramStatistics<?>>();
+		if ((adapterIds != null) && !adapterIds.isEmpty()) {
+			for (final ByteArrayId adapterId : adapterIds) {
+				final DataStatistics<?> stats = statisticsStore.getDataStatistics(
+						adapterId,
+						statisticsId,
+						getAdditionalAuthorizations());
+				if (!(stats instanceof RowRangeHistogramStatistics)) {
+					return null;
+				}
+				histograms.add((RowRangeHistogramStatistics<?>) stats);
+			}
+		}
+		else {
+			final CloseableIterator<DataStatistics<?>> it = statisticsStore.getAllDataStatistics(getAdditionalAuthorizations());
+			try {
+				while (it.hasNext()) {
+					final DataStatistics<?> stats = it.next();
+					if ((stats instanceof RowRangeHistogramStatistics) && statisticsId.equals(stats.getStatisticsId())) {
+						histograms.add((RowRangeHistogramStatistics<?>) stats);
+					}
+				}
+			}
+			finally {
+				try {
+					it.close();
+				}
+				catch (final IOException e) {
+					LOGGER.warn(
+							"Unable to close statistics iterator",
+							e);
+				}
+			}
+		}
+		if (histograms.isEmpty()) {
+			return null;
+		}
+		if (histograms.size() == 1) {
+			return histograms.get(0);
+		}
+		// merge into a new histogram so that the stored ones are left as is
+		final RowRangeHistogramStatistics<?> histogram = new RowRangeHistogramStatistics<Object>(
+				histograms.get(
+						0).getDataAdapterId(),
+				index.getId());
+		for (final RowRangeHistogramStatistics<?> stats : histograms) {
+			histogram.merge(stats);
+		}
+		return histogram;
+	}
+
+	/**
+	 * Set the statistics store to read the row range histograms that the ranges
+	 * are planned with from
+	 * 
+	 * @param statisticsStore
+	 *            the statistics store, or null to plan without statistics
+	 */
+	public void setStatisticsStore(
+			final DataStatisticsStore statisticsStore ) {
+		this.statisticsStore = statisticsStore;
 	}
 
 	public boolean isQueryFiltersEnabled() {
@@ -7,6 +7,7 @@ import mil.nga.giat.geowave.accumulo.AccumuloOperations;
 import mil.nga.giat.geowave.accumulo.util.CloseableIteratorWrapper;
 import mil.nga.giat.geowave.accumulo.util.CloseableIteratorWrapper.ScannerClosableWrapper;
 import mil.nga.giat.geowave.accumulo.util.EntryIteratorWrapper;
+import mil.nga.giat.geowave.accumulo.util.LimitedCloseableIterator;
 import mil.nga.giat.geowave.index.ByteArrayId;
 import mil.nga.giat.geowave.index.StringUtils;
 import mil.nga.giat.geowave.store.CloseableIterator;
@@ -19,8 +20,6 @@ import mil.nga.giat.geowave.store.index.Index;
 import org.apache.accumulo.core.client.ScannerBase;
 import org.apache.log4j.Logger;
 
-import com.google.common.collect.Iterators;
-
 public abstract class AccumuloFilteredIndexQuery extends
 		AccumuloQuery
 {
@@ -92,18 +91,18 @@ public abstract class AccumuloFilteredIndexQuery extends
 			return new CloseableIterator.Empty();
 		}
 		addScanIteratorSettings(scanner);
-		Iterator it = initIterator(
-				adapterStore,
-				scanner);
+		final CloseableIterator<?> it = new CloseableIteratorWrapper(
+				new ScannerClosableWrapper(
+						scanner),
+				initIterator(
+						adapterStore,
+						scanner));
 		if ((limit != null) && (limit > 0)) {
-			it = Iterators.limit(
+			return new LimitedCloseableIterator(
 					it,
 					limit);
 		}
-		return new CloseableIteratorWrapper(
-				new ScannerClosableWrapper(
-						scanner),
-				it);
+		return it;
 	}
 
 	protected Iterator initIterator(
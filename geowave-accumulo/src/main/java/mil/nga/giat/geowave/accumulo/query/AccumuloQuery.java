@@ -1,5 +1,6 @@
 package mil.nga.giat.geowave.accumulo.query;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import mil.nga.giat.geowave.accumulo.AccumuloOperations;
@@ -7,6 +8,8 @@ import mil.nga.giat.geowave.accumulo.util.AccumuloUtils;
 import mil.nga.giat.geowave.index.ByteArrayId;
 import mil.nga.giat.geowave.index.ByteArrayRange;
 import mil.nga.giat.geowave.index.StringUtils;
+import mil.nga.giat.geowave.store.dimension.DimensionField;
+import mil.nga.giat.geowave.store.index.CommonIndexValue;
 import mil.nga.giat.geowave.store.index.Index;
 
 import org.apache.accumulo.core.client.BatchScanner;
@@ -29,6 +32,7 @@ abstract public class AccumuloQuery
 	protected final Index index;
 
 	private final String[] authorizations;
+	private List<ByteArrayId> fieldIds;
 
 	public AccumuloQuery(
 			final Index index,
@@ -50,10 +54,23 @@ abstract public class AccumuloQuery
 
 	abstract protected List<ByteArrayRange> getRanges();
 
+	/**
+	 * Get the ranges to scan, subclasses can override this to take the state of
+	 * the table into account
+	 * 
+	 * @param accumuloOperations
+	 *            the operations for the table that will be scanned
+	 * @return the ranges to scan
+	 */
+	protected List<ByteArrayRange> getRanges(
+			final AccumuloOperations accumuloOperations ) {
+		return getRanges();
+	}
+
 	protected ScannerBase getScanner(
 			final AccumuloOperations accumuloOperations,
 			final Integer limit ) {
-		final List<ByteArrayRange> ranges = getRanges();
+		final List<ByteArrayRange> ranges = getRanges(accumuloOperations);
 		final String tableName = StringUtils.stringFromBinary(index.getId().getBytes());
 		ScannerBase scanner;
 		try {
@@ -87,14 +104,63 @@ abstract public class AccumuloQuery
 			return null;
 		}
 		if ((adapterIds != null) && !adapterIds.isEmpty()) {
+			final List<ByteArrayId> fetchedFieldIds = getFetchedFieldIds();
 			for (final ByteArrayId adapterId : adapterIds) {
-				scanner.fetchColumnFamily(new Text(
-						adapterId.getBytes()));
+				final Text family = new Text(
+						adapterId.getBytes());
+				if (fetchedFieldIds == null) {
+					scanner.fetchColumnFamily(family);
+				}
+				else {
+					for (final ByteArrayId fieldId : fetchedFieldIds) {
+						scanner.fetchColumn(
+								family,
+								new Text(
+										fieldId.getBytes()));
+					}
+				}
 			}
 		}
 		return scanner;
 	}
 
+	/**
+	 * Restrict the fields that are read from the table to the given field IDs,
+	 * so that the tablet servers do not send fields that will never be looked
+	 * at. The fields of the common index model are always read. This only takes
+	 * effect when the query is constrained to a set of adapters, because the
+	 * columns to fetch are identified by both the adapter ID and the field ID.
+	 * 
+	 * @param fieldIds
+	 *            the IDs of the fields to read, or null to read every field
+	 */
+	public void setFieldIds(
+			final List<ByteArrayId> fieldIds ) {
+		this.fieldIds = fieldIds;
+	}
+
+	public List<ByteArrayId> getFieldIds() {
+		return fieldIds;
+	}
+
+	private List<ByteArrayId> getFetchedFieldIds() {
+		if (fieldIds == null) {
+			return null;
+		}
+		final List<ByteArrayId> fetchedFieldIds = new ArrayList<ByteArrayId>();
+		for (final DimensionField<? extends CommonIndexValue> dimension : index.getIndexModel().getDimensions()) {
+			if (!fetchedFieldIds.contains(dimension.getFieldId())) {
+				fetchedFieldIds.add(dimension.getFieldId());
+			}
+		}
+		for (final ByteArrayId fieldId : fieldIds) {
+			if (!fetchedFieldIds.contains(fieldId)) {
+				fetchedFieldIds.add(fieldId);
+			}
+		}
+		return fetchedFieldIds;
+	}
+
 	public String[] getAdditionalAuthorizations() {
 		return authorizations;
 	}
@@ -0,0 +1,229 @@
+package mil.nga.giat.geowave.accumulo.query;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import mil.nga.giat.geowave.accumulo.AccumuloRowId;
+import mil.nga.giat.geowave.accumulo.util.AccumuloUtils;
+import mil.nga.giat.geowave.index.ByteArrayUtils;
+import mil.nga.giat.geowave.index.Persistable;
+import mil.nga.giat.geowave.index.PersistenceUtils;
+import mil.nga.giat.geowave.store.DataStoreEntryInfo;
+import mil.nga.giat.geowave.store.adapter.DataAdapter;
+import mil.nga.giat.geowave.store.adapter.statistics.DataStatistics;
+import mil.nga.giat.geowave.store.index.Index;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.WrappingIterator;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+
+/**
+ * This iterator aggregates the entries of a query into statistics within the
+ * tablet server, rather than returning them. It is applied after the query
+ * filter so that only rows that match the query are aggregated, and it expects
+ * whole rows. The adapter, the index and a list of statistics are passed as
+ * serialized options, each row is decoded by the adapter and each entry is
+ * incorporated into every one of the statistics. Rather than the entries, keys
+ * within the aggregation column family are returned whose values are the
+ * serialized list of partially aggregated statistics, for the client to merge.
+ * 
+ * Rows of entries that are duplicated across several rows are returned without
+ * being aggregated, because they may also be read by another scan session, so
+ * the client has to de-duplicate and aggregate them. The partial aggregation is
+ * returned before each of these rows and once the scan is exhausted, so that
+ * every aggregated row precedes the last key that has been returned and the
+ * scan can be resumed from that key.
+ */
+public class AggregationIterator extends
+		WrappingIterator
+{
+	private final static Logger LOGGER = Logger.getLogger(AggregationIterator.class);
+	public static final String AGGREGATION_ITERATOR_NAME = "GEOWAVE_AGGREGATION_ITERATOR";
+	public static final int AGGREGATION_ITERATOR_PRIORITY = 25;
+	public static final String ADAPTER = "adapter";
+	public static final String INDEX = "index";
+	public static final String STATISTICS = "statistics";
+	public static final Text AGGREGATION_COLUMN_FAMILY = new Text(
+			"__geowave_aggregation");
+
+	private DataAdapter<Object> adapter;
+	private Index index;
+	private byte[] statisticsBinary;
+	private List<DataStatistics<Object>> statistics;
+	private Text lastAggregatedRow = null;
+	private Key aggregationKey = null;
+	private Value aggregationValue = null;
+
+	public AggregationIterator() {
+		super();
+	}
+
+	private AggregationIterator(
+			final AggregationIterator other,
+			final IteratorEnvironment env ) {
+		setSource(other.getSource().deepCopy(
+				env));
+		adapter = other.adapter;
+		index = other.index;
+		statisticsBinary = other.statisticsBinary;
+		statistics = getStatistics(statisticsBinary);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void init(
+			final SortedKeyValueIterator<Key, Value> source,
+			final Map<String, String> options,
+			final IteratorEnvironment env )
+			throws IOException {
+		super.init(
+				source,
+				options,
+				env);
+		if ((options == null) || !options.containsKey(ADAPTER) || !options.containsKey(INDEX) || !options.containsKey(STATISTICS)) {
+			throw new IllegalArgumentException(
+					"Options '" + ADAPTER + "', '" + INDEX + "' and '" + STATISTICS + "' must be set for " + AggregationIterator.class.getName());
+		}
+		try {
+			adapter = PersistenceUtils.fromBinary(
+					ByteArrayUtils.byteArrayFromString(options.get(ADAPTER)),
+					DataAdapter.class);
+			index = PersistenceUtils.fromBinary(
+					ByteArrayUtils.byteArrayFromString(options.get(INDEX)),
+					Index.class);
+			statisticsBinary = ByteArrayUtils.byteArrayFromString(options.get(STATISTICS));
+			statistics = getStatistics(statisticsBinary);
+		}
+		catch (final Exception e) {
+			LOGGER.error(
+					"Unable to read the aggregation options",
+					e);
+			throw new IllegalArgumentException(
+					e);
+		}
+	}
+
+	@Override
+	public boolean hasTop() {
+		return (aggregationKey != null) || super.hasTop();
+	}
+
+	@Override
+	public Key getTopKey() {
+		if (aggregationKey != null) {
+			return aggregationKey;
+		}
+		return super.getTopKey();
+	}
+
+	@Override
+	public Value getTopValue() {
+		if (aggregationKey != null) {
+			return aggregationValue;
+		}
+		return super.getTopValue();
+	}
+
+	@Override
+	public void next()
+			throws IOException {
+		if (aggregationKey != null) {
+			// the row that could not be aggregated, if any, follows
+			aggregationKey = null;
+			aggregationValue = null;
+		}
+		else {
+			super.next();
+			aggregate();
+		}
+	}
+
+	@Override
+	public void seek(
+			final Range range,
+			final Collection<ByteSequence> columnFamilies,
+			final boolean inclusive )
+			throws IOException {
+		aggregationKey = null;
+		aggregationValue = null;
+		lastAggregatedRow = null;
+		statistics = getStatistics(statisticsBinary);
+		super.seek(
+				range,
+				columnFamilies,
+				inclusive);
+		aggregate();
+	}
+
+	@Override
+	public SortedKeyValueIterator<Key, Value> deepCopy(
+			final IteratorEnvironment env ) {
+		return new AggregationIterator(
+				this,
+				env);
+	}
+
+	/**
+	 * Aggregate rows until reaching one that must be returned or the end of the
+	 * scan, and then prepare the partial aggregation to be returned if anything
+	 * was aggregated
+	 */
+	private void aggregate()
+			throws IOException {
+		while (super.hasTop()) {
+			final Key key = super.getTopKey();
+			if (RowLimitIterator.isDuplicated(key.getRowData())) {
+				break;
+			}
+			final Pair<Object, DataStoreEntryInfo> entry = AccumuloUtils.decodeRow(
+					key,
+					super.getTopValue(),
+					new AccumuloRowId(
+							key.getRow().copyBytes()),
+					adapter,
+					null,
+					null,
+					index,
+					null);
+			if (entry != null) {
+				for (final DataStatistics<Object> stats : statistics) {
+					stats.entryIngested(
+							entry.getRight(),
+							entry.getLeft());
+				}
+				lastAggregatedRow = key.getRow();
+			}
+			super.next();
+		}
+		if (lastAggregatedRow != null) {
+			aggregationKey = new Key(
+					lastAggregatedRow,
+					AGGREGATION_COLUMN_FAMILY);
+			aggregationValue = new Value(
+					PersistenceUtils.toBinary(new ArrayList<Persistable>(
+							statistics)));
+			lastAggregatedRow = null;
+			statistics = getStatistics(statisticsBinary);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<DataStatistics<Object>> getStatistics(
+			final byte[] statisticsBinary ) {
+		final List<DataStatistics<Object>> statistics = new ArrayList<DataStatistics<Object>>();
+		for (final Persistable persistable : PersistenceUtils.fromBinary(statisticsBinary)) {
+			statistics.add((DataStatistics<Object>) persistable);
+		}
+		return statistics;
+	}
+}
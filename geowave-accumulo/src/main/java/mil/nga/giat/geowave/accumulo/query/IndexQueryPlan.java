@@ -0,0 +1,252 @@
+package mil.nga.giat.geowave.accumulo.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.store.index.Index;
+
+/**
+ * This describes which indices a query will read and which data adapters will
+ * be read from each of them, along with the estimated cost of every candidate
+ * index that was considered. The string representation of the plan explains the
+ * decision.
+ */
+public class IndexQueryPlan
+{
+	private final boolean costBased;
+	private final Map<ByteArrayId, Index> indices = new LinkedHashMap<ByteArrayId, Index>();
+	private final Map<ByteArrayId, List<ByteArrayId>> adapterIdsPerIndex = new LinkedHashMap<ByteArrayId, List<ByteArrayId>>();
+	private final List<IndexCost> indexCosts = new ArrayList<IndexCost>();
+
+	protected IndexQueryPlan(
+			final boolean costBased ) {
+		this.costBased = costBased;
+	}
+
+	/**
+	 * Read the adapters from the index
+	 * 
+	 * @param index
+	 *            the index
+	 * @param adapterIds
+	 *            the adapter IDs, null implies all adapters
+	 */
+	protected void addIndex(
+			final Index index,
+			final List<ByteArrayId> adapterIds ) {
+		indices.put(
+				index.getId(),
+				index);
+		adapterIdsPerIndex.put(
+				index.getId(),
+				adapterIds == null ? null : new ArrayList<ByteArrayId>(
+						adapterIds));
+	}
+
+	protected void addAdapter(
+			final Index index,
+			final ByteArrayId adapterId ) {
+		List<ByteArrayId> adapterIds = adapterIdsPerIndex.get(index.getId());
+		if (adapterIds == null) {
+			adapterIds = new ArrayList<ByteArrayId>();
+			indices.put(
+					index.getId(),
+					index);
+			adapterIdsPerIndex.put(
+					index.getId(),
+					adapterIds);
+		}
+		adapterIds.add(adapterId);
+	}
+
+	protected void addIndexCost(
+			final IndexCost indexCost ) {
+		indexCosts.add(indexCost);
+	}
+
+	/**
+	 * @return whether the indices were chosen by their estimated cost rather
+	 *         than reading every index that supports the query
+	 */
+	public boolean isCostBased() {
+		return costBased;
+	}
+
+	/**
+	 * @return the indices to read, in the order they will be read
+	 */
+	public List<Index> getIndices() {
+		return new ArrayList<Index>(
+				indices.values());
+	}
+
+	/**
+	 * @param indexId
+	 *            the index ID
+	 * @return the adapter IDs to read from the index, null implies all adapters
+	 */
+	public List<ByteArrayId> getAdapterIds(
+			final ByteArrayId indexId ) {
+		return adapterIdsPerIndex.get(indexId);
+	}
+
+	/**
+	 * @return the estimated cost of each index that was considered for each
+	 *         adapter, empty if the plan is not cost based
+	 */
+	public List<IndexCost> getIndexCosts() {
+		return Collections.unmodifiableList(indexCosts);
+	}
+
+	/**
+	 * @return whether any adapter is read from more than one index, in which
+	 *         case results must be deduplicated across indices
+	 */
+	public boolean isMultiIndex() {
+		if (indices.size() < 2) {
+			return false;
+		}
+		final Set<ByteArrayId> adapterIds = new HashSet<ByteArrayId>();
+		for (final List<ByteArrayId> indexAdapterIds : adapterIdsPerIndex.values()) {
+			if (indexAdapterIds == null) {
+				return true;
+			}
+			for (final ByteArrayId adapterId : indexAdapterIds) {
+				if (!adapterIds.add(adapterId)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder str = new StringBuilder();
+		str.append(
+				costBased ? "Cost based plan" : "Plan reading every supported index").append(
+				'\n');
+		for (final Map.Entry<ByteArrayId, List<ByteArrayId>> entry : adapterIdsPerIndex.entrySet()) {
+			str.append(
+					"  read index '").append(
+					entry.getKey().getString()).append(
+					"' for ");
+			if (entry.getValue() == null) {
+				str.append("all adapters");
+			}
+			else {
+				str.append("adapters ");
+				appendIds(
+						str,
+						entry.getValue());
+			}
+			str.append('\n');
+		}
+		for (final IndexCost indexCost : indexCosts) {
+			str.append(
+					"  ").append(
+					indexCost.toString()).append(
+					'\n');
+		}
+		return str.toString();
+	}
+
+	private static void appendIds(
+			final StringBuilder str,
+			final List<ByteArrayId> ids ) {
+		str.append('[');
+		for (int i = 0; i < ids.size(); i++) {
+			if (i > 0) {
+				str.append(", ");
+			}
+			str.append(ids.get(
+					i).getString());
+		}
+		str.append(']');
+	}
+
+	/**
+	 * The estimated cost of reading an adapter's rows that match a query from
+	 * an index, in rows. Every range costs a seek, expressed as rows, and every
+	 * row within the ranges costs a read.
+	 */
+	public static class IndexCost
+	{
+		private final ByteArrayId adapterId;
+		private final ByteArrayId indexId;
+		private final int rangeCount;
+		private final double keySpaceFraction;
+		private final long estimatedRows;
+		private final double cost;
+		private final boolean chosen;
+
+		public IndexCost(
+				final ByteArrayId adapterId,
+				final ByteArrayId indexId,
+				final int rangeCount,
+				final double keySpaceFraction,
+				final long estimatedRows,
+				final double cost,
+				final boolean chosen ) {
+			this.adapterId = adapterId;
+			this.indexId = indexId;
+			this.rangeCount = rangeCount;
+			this.keySpaceFraction = keySpaceFraction;
+			this.estimatedRows = estimatedRows;
+			this.cost = cost;
+			this.chosen = chosen;
+		}
+
+		public ByteArrayId getAdapterId() {
+			return adapterId;
+		}
+
+		public ByteArrayId getIndexId() {
+			return indexId;
+		}
+
+		/**
+		 * @return the number of ranges the query is decomposed into
+		 */
+		public int getRangeCount() {
+			return rangeCount;
+		}
+
+		/**
+		 * @return the total width of the ranges as a fraction of the index's
+		 *         key space
+		 */
+		public double getKeySpaceFraction() {
+			return keySpaceFraction;
+		}
+
+		/**
+		 * @return the estimated number of the adapter's rows within the ranges
+		 */
+		public long getEstimatedRows() {
+			return estimatedRows;
+		}
+
+		public double getCost() {
+			return cost;
+		}
+
+		/**
+		 * @return whether this index was chosen for the adapter
+		 */
+		public boolean isChosen() {
+			return chosen;
+		}
+
+		@Override
+		public String toString() {
+			return "adapter '" + adapterId.getString() + "' on index '" + indexId.getString() + "': " + rangeCount + " ranges covering " + keySpaceFraction + " of the key space, an estimated " + estimatedRows + " rows, cost " + (long) cost + (chosen ? " (chosen)" : "");
+		}
+	}
+}
@@ -0,0 +1,384 @@
+package mil.nga.giat.geowave.accumulo.query;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import mil.nga.giat.geowave.accumulo.util.AccumuloUtils;
+import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.index.ByteArrayRange;
+import mil.nga.giat.geowave.store.CloseableIterator;
+import mil.nga.giat.geowave.store.adapter.AdapterStore;
+import mil.nga.giat.geowave.store.adapter.DataAdapter;
+import mil.nga.giat.geowave.store.adapter.statistics.DataStatistics;
+import mil.nga.giat.geowave.store.adapter.statistics.DataStatisticsStore;
+import mil.nga.giat.geowave.store.adapter.statistics.RowRangeHistogramStatistics;
+import mil.nga.giat.geowave.store.index.Index;
+import mil.nga.giat.geowave.store.query.Query;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This chooses the indices to read for a query that does not name an index.
+ * Without cost based selection every index that supports the query is read and
+ * the results are deduplicated across indices. With cost based selection each
+ * adapter is read only from the index with the lowest estimated cost, which is
+ * the number of ranges the query decomposes into, each costing a seek, plus the
+ * adapter's rows estimated to lie within those ranges by the row range
+ * histogram of the index.
+ * 
+ * An adapter is only considered to be within an index if it has a row range
+ * histogram for that index, and an adapter is assumed to have all of its
+ * entries within every index it is in. Entries that were only written to some
+ * of the indices would be missed, so cost based selection is disabled unless it
+ * is enabled in the Accumulo options. An adapter without any histograms is read
+ * from every index that supports the query, as it would be without cost based
+ * selection.
+ */
+public class IndexQueryPlanner
+{
+	private final static Logger LOGGER = Logger.getLogger(IndexQueryPlanner.class);
+
+	private final AdapterStore adapterStore;
+	private final DataStatisticsStore statisticsStore;
+	private final RangePlanner rangePlanner;
+	private final boolean costBased;
+
+	public IndexQueryPlanner(
+			final AdapterStore adapterStore,
+			final DataStatisticsStore statisticsStore,
+			final RangePlanner rangePlanner,
+			final boolean costBased ) {
+		this.adapterStore = adapterStore;
+		this.statisticsStore = statisticsStore;
+		this.rangePlanner = rangePlanner;
+		this.costBased = costBased;
+	}
+
+	/**
+	 * Plan the indices to read
+	 * 
+	 * @param adapterIds
+	 *            the adapter IDs to query, null implies all adapters
+	 * @param query
+	 *            the query, null implies all entries
+	 * @param indices
+	 *            the candidate indices
+	 * @param authorizations
+	 *            the authorizations for reading the statistics
+	 * @return the plan
+	 */
+	public IndexQueryPlan plan(
+			final List<ByteArrayId> adapterIds,
+			final Query query,
+			final Iterator<Index> indices,
+			final String... authorizations ) {
+		final List<Index> supportedIndices = new ArrayList<Index>();
+		while (indices.hasNext()) {
+			final Index index = indices.next();
+			if ((query == null) || query.isSupported(index)) {
+				supportedIndices.add(index);
+			}
+		}
+		if (!costBased || (supportedIndices.size() < 2)) {
+			return planAllIndices(
+					adapterIds,
+					supportedIndices);
+		}
+
+		final List<List<ByteArrayRange>> rangesPerIndex = new ArrayList<List<ByteArrayRange>>();
+		for (final Index index : supportedIndices) {
+			rangesPerIndex.add(AccumuloUtils.constraintsToByteArrayRanges(
+					query == null ? null : query.getIndexConstraints(index.getIndexStrategy()),
+					index.getIndexStrategy(),
+					rangePlanner.getMaxRangeDecomposition()));
+		}
+		final List<ByteArrayId> candidateAdapterIds = adapterIds == null ? getAllAdapterIds() : adapterIds;
+		final IndexQueryPlan plan = new IndexQueryPlan(
+				true);
+		final List<ByteArrayId> unknownAdapterIds = new ArrayList<ByteArrayId>();
+		for (final ByteArrayId adapterId : candidateAdapterIds) {
+			final List<IndexQueryPlan.IndexCost> adapterCosts = new ArrayList<IndexQueryPlan.IndexCost>();
+			int cheapest = -1;
+			double cheapestCost = Double.MAX_VALUE;
+			for (int i = 0; i < supportedIndices.size(); i++) {
+				final IndexQueryPlan.IndexCost indexCost = estimateCost(
+						adapterId,
+						supportedIndices.get(i),
+						rangesPerIndex.get(i),
+						authorizations);
+				if (indexCost == null) {
+					continue;
+				}
+				if (indexCost.getCost() < cheapestCost) {
+					cheapestCost = indexCost.getCost();
+					cheapest = adapterCosts.size();
+				}
+				adapterCosts.add(indexCost);
+			}
+			if (cheapest < 0) {
+				unknownAdapterIds.add(adapterId);
+				continue;
+			}
+			for (int i = 0; i < adapterCosts.size(); i++) {
+				final IndexQueryPlan.IndexCost indexCost = adapterCosts.get(i);
+				if (i == cheapest) {
+					plan.addIndexCost(new IndexQueryPlan.IndexCost(
+							indexCost.getAdapterId(),
+							indexCost.getIndexId(),
+							indexCost.getRangeCount(),
+							indexCost.getKeySpaceFraction(),
+							indexCost.getEstimatedRows(),
+							indexCost.getCost(),
+							true));
+					for (final Index index : supportedIndices) {
+						if (index.getId().equals(
+								indexCost.getIndexId())) {
+							plan.addAdapter(
+									index,
+									adapterId);
+						}
+					}
+				}
+				else {
+					plan.addIndexCost(indexCost);
+				}
+			}
+		}
+		if (unknownAdapterIds.size() == candidateAdapterIds.size()) {
+			// nothing is known about any of the adapters
+			return planAllIndices(
+					adapterIds,
+					supportedIndices);
+		}
+		for (final ByteArrayId adapterId : unknownAdapterIds) {
+			for (final Index index : supportedIndices) {
+				plan.addAdapter(
+						index,
+						adapterId);
+			}
+		}
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug(plan.toString());
+		}
+		return plan;
+	}
+
+	/**
+	 * Choose the cheapest index to read an adapter from, where each candidate
+	 * index is read with its own query. This is for callers that tailor the
+	 * query to each index, rather than reading every index with the same query.
+	 * 
+	 * @param adapterId
+	 *            the adapter ID
+	 * @param queriesPerIndex
+	 *            the query to read each candidate index with, a null query
+	 *            implies all entries
+	 * @param authorizations
+	 *            the authorizations for reading the statistics
+	 * @return the cheapest index, or null if the adapter does not have a
+	 *         histogram for every candidate index, in which case the adapter
+	 *         may not be in all of them and they must all be read
+	 */
+	public Index chooseIndex(
+			final ByteArrayId adapterId,
+			final Map<Index, Query> queriesPerIndex,
+			final String... authorizations ) {
+		Index cheapest = null;
+		double cheapestCost = Double.MAX_VALUE;
+		for (final Entry<Index, Query> entry : queriesPerIndex.entrySet()) {
+			final Index index = entry.getKey();
+			final Query query = entry.getValue();
+			final IndexQueryPlan.IndexCost indexCost = estimateCost(
+					adapterId,
+					index,
+					AccumuloUtils.constraintsToByteArrayRanges(
+							query == null ? null : query.getIndexConstraints(index.getIndexStrategy()),
+							index.getIndexStrategy(),
+							rangePlanner.getMaxRangeDecomposition()),
+					authorizations);
+			if (indexCost == null) {
+				return null;
+			}
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug(indexCost.toString());
+			}
+			if (indexCost.getCost() < cheapestCost) {
+				cheapestCost = indexCost.getCost();
+				cheapest = index;
+			}
+		}
+		return cheapest;
+	}
+
+	/**
+	 * Choose the only index that holds an adapter, which can be read alone
+	 * whether or not cost based selection is enabled, as no other candidate
+	 * index has any of the adapter's entries. An index is taken to hold the
+	 * adapter if the adapter has a row range histogram for it, so this relies
+	 * on statistics having been persisted for every index the adapter was
+	 * written to.
+	 * 
+	 * @param adapterId
+	 *            the adapter ID
+	 * @param indices
+	 *            the candidate indices
+	 * @param authorizations
+	 *            the authorizations for reading the statistics
+	 * @return the only candidate index that holds the adapter, or null if more
+	 *         than one of them holds it or none is known to
+	 */
+	public Index chooseOnlyIndex(
+			final ByteArrayId adapterId,
+			final Collection<Index> indices,
+			final String... authorizations ) {
+		Index onlyIndex = null;
+		for (final Index index : indices) {
+			if (getHistogram(
+					adapterId,
+					index,
+					authorizations) != null) {
+				if (onlyIndex != null) {
+					return null;
+				}
+				onlyIndex = index;
+			}
+		}
+		return onlyIndex;
+	}
+
+	/**
+	 * Estimate the number of rows of an adapter that a query reads from an
+	 * index, using the row range histogram of the index. This is an estimate of
+	 * the rows within the ranges the query decomposes into, so it includes rows
+	 * that the query's filters would reject and duplicated rows of entries that
+	 * span multiple ranges.
+	 * 
+	 * @param adapterId
+	 *            the adapter ID
+	 * @param index
+	 *            the index
+	 * @param query
+	 *            the query, null implies all entries
+	 * @param authorizations
+	 *            the authorizations for reading the statistics
+	 * @return the estimated number of rows, or null if the adapter has no
+	 *         histogram for the index
+	 */
+	public Long estimateRowCount(
+			final ByteArrayId adapterId,
+			final Index index,
+			final Query query,
+			final String... authorizations ) {
+		final IndexQueryPlan.IndexCost indexCost = estimateCost(
+				adapterId,
+				index,
+				AccumuloUtils.constraintsToByteArrayRanges(
+						query == null ? null : query.getIndexConstraints(index.getIndexStrategy()),
+						index.getIndexStrategy(),
+						rangePlanner.getMaxRangeDecomposition()),
+				authorizations);
+		if (indexCost == null) {
+			return null;
+		}
+		return indexCost.getEstimatedRows();
+	}
+
+	/**
+	 * @return the adapter's row range histogram for the index, or null if it
+	 *         has none or it has no rows
+	 */
+	private RowRangeHistogramStatistics<?> getHistogram(
+			final ByteArrayId adapterId,
+			final Index index,
+			final String... authorizations ) {
+		final DataStatistics<?> stats = statisticsStore.getDataStatistics(
+				adapterId,
+				RowRangeHistogramStatistics.composeId(index.getId()),
+				authorizations);
+		if (!(stats instanceof RowRangeHistogramStatistics) || !((RowRangeHistogramStatistics<?>) stats).isSet()) {
+			return null;
+		}
+		return (RowRangeHistogramStatistics<?>) stats;
+	}
+
+	/**
+	 * @return the estimated cost of reading the adapter's rows within the
+	 *         ranges of the index, or null if the adapter has no histogram for
+	 *         the index
+	 */
+	private IndexQueryPlan.IndexCost estimateCost(
+			final ByteArrayId adapterId,
+			final Index index,
+			final List<ByteArrayRange> ranges,
+			final String... authorizations ) {
+		final RowRangeHistogramStatistics<?> histogram = getHistogram(
+				adapterId,
+				index,
+				authorizations);
+		if (histogram == null) {
+			return null;
+		}
+		// no ranges implies a full table scan, which is one seek
+		final int rangeCount = Math.max(
+				1,
+				ranges.size());
+		final double estimatedRows = histogram.estimateCount(ranges);
+		return new IndexQueryPlan.IndexCost(
+				adapterId,
+				index.getId(),
+				rangeCount,
+				getKeySpaceFraction(ranges),
+				Math.round(estimatedRows),
+				estimatedRows + (rangeCount * rangePlanner.getSeekCostInRows()),
+				false);
+	}
+
+	private static IndexQueryPlan planAllIndices(
+			final List<ByteArrayId> adapterIds,
+			final List<Index> supportedIndices ) {
+		final IndexQueryPlan plan = new IndexQueryPlan(
+				false);
+		for (final Index index : supportedIndices) {
+			plan.addIndex(
+					index,
+					adapterIds);
+		}
+		return plan;
+	}
+
+	private List<ByteArrayId> getAllAdapterIds() {
+		final List<ByteArrayId> adapterIds = new ArrayList<ByteArrayId>();
+		try (final CloseableIterator<DataAdapter<?>> adapters = adapterStore.getAdapters()) {
+			while (adapters.hasNext()) {
+				adapterIds.add(adapters.next().getAdapterId());
+			}
+		}
+		catch (final IOException e) {
+			LOGGER.warn(
+					"Unable to close adapter iterator",
+					e);
+		}
+		return adapterIds;
+	}
+
+	private static double getKeySpaceFraction(
+			final List<ByteArrayRange> ranges ) {
+		if (ranges.isEmpty()) {
+			return 1;
+		}
+		double fraction = 0;
+		for (final ByteArrayRange range : ranges) {
+			fraction += Math.max(
+					0,
+					RowRangeHistogramStatistics.getEndPosition(range.getEnd().getBytes()) - RowRangeHistogramStatistics.getStartPosition(range.getStart().getBytes()));
+		}
+		return Math.min(
+				1,
+				fraction);
+	}
+}
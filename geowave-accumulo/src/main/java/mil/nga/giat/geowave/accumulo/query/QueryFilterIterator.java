@@ -4,17 +4,10 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
-import mil.nga.giat.geowave.accumulo.AccumuloRowId;
-import mil.nga.giat.geowave.index.ByteArrayId;
 import mil.nga.giat.geowave.index.ByteArrayUtils;
 import mil.nga.giat.geowave.index.PersistenceUtils;
-import mil.nga.giat.geowave.store.data.IndexedPersistenceEncoding;
-import mil.nga.giat.geowave.store.data.PersistentDataset;
-import mil.nga.giat.geowave.store.data.PersistentValue;
-import mil.nga.giat.geowave.store.data.field.FieldReader;
 import mil.nga.giat.geowave.store.filter.DistributableQueryFilter;
 import mil.nga.giat.geowave.store.index.CommonIndexModel;
-import mil.nga.giat.geowave.store.index.CommonIndexValue;
 
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
@@ -42,41 +35,18 @@ public class QueryFilterIterator extends
 	protected static final String MODEL = "model";
 	private DistributableQueryFilter filter;
 	private CommonIndexModel model;
+	private WholeRowDecoder decoder;
 
 	@Override
 	protected boolean filter(
 			final Text currentRow,
 			final List<Key> keys,
 			final List<Value> values ) {
-		if ((filter != null) && (model != null)) {
-			final AccumuloRowId rowId = new AccumuloRowId(
-					currentRow.getBytes());
-			final PersistentDataset<CommonIndexValue> commonData = new PersistentDataset<CommonIndexValue>();
-			for (int i = 0; (i < keys.size()) && (i < values.size()); i++) {
-				final Key key = keys.get(i);
-				final ByteArrayId fieldId = new ByteArrayId(
-						key.getColumnQualifierData().getBackingArray());
-				final FieldReader<? extends CommonIndexValue> reader = model.getReader(fieldId);
-				if (reader == null) {
-					continue;
-				}
-				final CommonIndexValue fieldValue = reader.readField(values.get(
-						i).get());
-				fieldValue.setVisibility(key.getColumnVisibilityData().getBackingArray());
-				commonData.addValue(new PersistentValue<CommonIndexValue>(
-						fieldId,
-						fieldValue));
-			}
-			final IndexedPersistenceEncoding encoding = new IndexedPersistenceEncoding(
-					new ByteArrayId(
-							rowId.getAdapterId()),
-					new ByteArrayId(
-							rowId.getDataId()),
-					new ByteArrayId(
-							rowId.getInsertionId()),
-					rowId.getNumberOfDuplicates(),
-					commonData);
-			return filter.accept(encoding);
+		if (decoder != null) {
+			return filter.accept(decoder.decodeRow(
+					currentRow,
+					keys,
+					values));
 		}
 		// if the query filter or index model did not get sent to this iterator,
 		// it'll just have to accept everything
@@ -111,6 +81,11 @@ public class QueryFilterIterator extends
 			model = PersistenceUtils.fromBinary(
 					modelBytes,
 					CommonIndexModel.class);
+			if ((filter != null) && (model != null)) {
+				decoder = new WholeRowDecoder(
+						model,
+						null);
+			}
 		}
 		catch (final Exception e) {
 			throw new IllegalArgumentException(
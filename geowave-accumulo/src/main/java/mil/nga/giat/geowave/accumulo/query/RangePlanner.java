@@ -0,0 +1,435 @@
+package mil.nga.giat.geowave.accumulo.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import mil.nga.giat.geowave.accumulo.util.AccumuloUtils;
+import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.index.ByteArrayRange;
+import mil.nga.giat.geowave.index.NumericIndexStrategy;
+import mil.nga.giat.geowave.index.sfc.data.MultiDimensionalNumericData;
+import mil.nga.giat.geowave.store.adapter.statistics.RowRangeHistogramStatistics;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * This plans the ranges to scan for a query using a simple cost model. Every
+ * range costs a seek, expressed as the number of rows that could be read in the
+ * same time, and every row within a range costs a read whether or not it
+ * matches the query. The number of rows and where they lie in the key space are
+ * taken from the row range histogram statistics of the table when they are
+ * available. Otherwise Accumulo splits tablets by size, so each tablet is
+ * assumed to hold roughly the same number of rows spread evenly across the part
+ * of the tablet's key space that the query touches.
+ * 
+ * The decomposition is capped at the number of ranges for which the seeks alone
+ * would cost more than reading the whole table, but is never less than one
+ * range per tablet. The decomposed ranges are then coalesced: adjacent ranges
+ * within the same tablet are merged whenever the rows estimated to lie in the
+ * gap between them are cheaper to read than another seek. Ranges are never
+ * merged across a split point because each tablet needs its own seek anyway.
+ */
+public class RangePlanner
+{
+	private final static Logger LOGGER = Logger.getLogger(RangePlanner.class);
+	public static final int DEFAULT_MAX_RANGE_DECOMPOSITION = 5000;
+	public static final double DEFAULT_SEEK_COST_IN_ROWS = 100;
+	public static final long DEFAULT_ROWS_PER_TABLET = 1000000;
+	// bounds the time and memory spent decomposing a query into ranges
+	private static final int RANGE_DECOMPOSITION_LIMIT = 65536;
+	// the key space width below which the density estimate is meaningless
+	private static final double MIN_KEY_SPACE_WIDTH = 1E-15;
+	private static final Comparator<byte[]> COMPARATOR = UnsignedBytes.lexicographicalComparator();
+
+	private final int maxRangeDecomposition;
+	private final double seekCostInRows;
+	private final long rowsPerTablet;
+
+	private final AtomicLong queryCount = new AtomicLong();
+	private final AtomicLong plannedRangeCount = new AtomicLong();
+	private final AtomicLong scannedRangeCount = new AtomicLong();
+	private final AtomicLong estimatedGapRowCount = new AtomicLong();
+
+	public RangePlanner() {
+		this(
+				DEFAULT_MAX_RANGE_DECOMPOSITION,
+				DEFAULT_SEEK_COST_IN_ROWS,
+				DEFAULT_ROWS_PER_TABLET);
+	}
+
+	/**
+	 * @param maxRangeDecomposition
+	 *            the number of ranges to decompose a query into when the table
+	 *            it will be run against is not known
+	 * @param seekCostInRows
+	 *            the cost of seeking to the start of a range, as the number of
+	 *            rows that can be read in the same time
+	 * @param rowsPerTablet
+	 *            the estimated number of rows in a tablet, used when there are
+	 *            no row range histogram statistics for the table
+	 */
+	public RangePlanner(
+			final int maxRangeDecomposition,
+			final double seekCostInRows,
+			final long rowsPerTablet ) {
+		this.maxRangeDecomposition = maxRangeDecomposition;
+		this.seekCostInRows = seekCostInRows;
+		this.rowsPerTablet = rowsPerTablet;
+	}
+
+	/**
+	 * Plan the ranges to scan
+	 * 
+	 * @param constraints
+	 *            the query constraints
+	 * @param indexStrategy
+	 *            the index strategy to decompose the constraints with
+	 * @param splits
+	 *            the sorted split points of the table
+	 * @return the ranges to scan, an empty list implies a full table scan
+	 */
+	public List<ByteArrayRange> plan(
+			final MultiDimensionalNumericData constraints,
+			final NumericIndexStrategy indexStrategy,
+			final List<ByteArrayId> splits ) {
+		return plan(
+				constraints,
+				indexStrategy,
+				splits,
+				null);
+	}
+
+	/**
+	 * Plan the ranges to scan
+	 * 
+	 * @param constraints
+	 *            the query constraints
+	 * @param indexStrategy
+	 *            the index strategy to decompose the constraints with
+	 * @param splits
+	 *            the sorted split points of the table
+	 * @param histogram
+	 *            the row range histogram of the rows that will be scanned, or
+	 *            null if it is not known
+	 * @return the ranges to scan, an empty list implies a full table scan
+	 */
+	public List<ByteArrayRange> plan(
+			final MultiDimensionalNumericData constraints,
+			final NumericIndexStrategy indexStrategy,
+			final List<ByteArrayId> splits,
+			final RowRangeHistogramStatistics<?> histogram ) {
+		final RowRangeHistogramStatistics<?> rowHistogram = (histogram != null) && histogram.isSet() ? histogram : null;
+		final List<ByteArrayRange> ranges = AccumuloUtils.constraintsToByteArrayRanges(
+				constraints,
+				indexStrategy,
+				getMaxRanges(
+						splits.size() + 1,
+						rowHistogram == null ? -1 : rowHistogram.getTotalCount()));
+		return coalesce(
+				ranges,
+				splits,
+				rowHistogram);
+	}
+
+	/**
+	 * @param tabletCount
+	 *            the number of tablets in the table
+	 * @param rowCount
+	 *            the number of rows in the table, or a negative number if it is
+	 *            not known in which case the estimated rows per tablet are used
+	 * @return the most ranges worth decomposing a query into
+	 */
+	public int getMaxRanges(
+			final int tabletCount,
+			final long rowCount ) {
+		final double fullScanCost = rowCount < 0 ? (double) rowsPerTablet * tabletCount : rowCount;
+		return (int) Math.max(
+				1,
+				Math.min(
+						RANGE_DECOMPOSITION_LIMIT,
+						Math.max(
+								tabletCount,
+								fullScanCost / seekCostInRows)));
+	}
+
+	/**
+	 * Merge adjacent ranges within a tablet when the gap between them is
+	 * cheaper to read than a seek
+	 * 
+	 * @param ranges
+	 *            the decomposed ranges
+	 * @param splits
+	 *            the sorted split points of the table
+	 * @return the ranges to scan
+	 */
+	public List<ByteArrayRange> coalesce(
+			final List<ByteArrayRange> ranges,
+			final List<ByteArrayId> splits ) {
+		return coalesce(
+				ranges,
+				splits,
+				null);
+	}
+
+	/**
+	 * Merge adjacent ranges within a tablet when the gap between them is
+	 * cheaper to read than a seek
+	 * 
+	 * @param ranges
+	 *            the decomposed ranges
+	 * @param splits
+	 *            the sorted split points of the table
+	 * @param histogram
+	 *            the row range histogram to estimate the rows in a gap with, or
+	 *            null to assume the rows are spread evenly
+	 * @return the ranges to scan
+	 */
+	public List<ByteArrayRange> coalesce(
+			final List<ByteArrayRange> ranges,
+			final List<ByteArrayId> splits,
+			final RowRangeHistogramStatistics<?> histogram ) {
+		queryCount.incrementAndGet();
+		plannedRangeCount.addAndGet(ranges.size());
+		if (ranges.size() < 2) {
+			scannedRangeCount.addAndGet(ranges.size());
+			return ranges;
+		}
+		final List<ByteArrayRange> sortedRanges = new ArrayList<ByteArrayRange>(
+				ranges);
+		Collections.sort(
+				sortedRanges,
+				new Comparator<ByteArrayRange>() {
+					@Override
+					public int compare(
+							final ByteArrayRange o1,
+							final ByteArrayRange o2 ) {
+						return COMPARATOR.compare(
+								o1.getStart().getBytes(),
+								o2.getStart().getBytes());
+					}
+				});
+		final byte[][] splitBytes = new byte[splits.size()][];
+		for (int i = 0; i < splitBytes.length; i++) {
+			splitBytes[i] = splits.get(
+					i).getBytes();
+		}
+
+		final List<ByteArrayRange> result = new ArrayList<ByteArrayRange>();
+		double gapRows = 0;
+		int groupStart = 0;
+		while (groupStart < sortedRanges.size()) {
+			// gather the following ranges that lie in the same tablet
+			final ByteArrayRange first = sortedRanges.get(groupStart);
+			final int tablet = getTabletOfStart(
+					splitBytes,
+					first.getStart().getBytes());
+			int groupEnd = groupStart + 1;
+			byte[] groupMaxEnd = first.getEnd().getBytes();
+			if (tablet == getTabletOfEnd(
+					splitBytes,
+					groupMaxEnd)) {
+				while (groupEnd < sortedRanges.size()) {
+					final ByteArrayRange next = sortedRanges.get(groupEnd);
+					if (getTabletOfEnd(
+							splitBytes,
+							next.getEnd().getBytes()) != tablet) {
+						break;
+					}
+					groupMaxEnd = maxEnd(
+							groupMaxEnd,
+							next.getEnd().getBytes());
+					groupEnd++;
+				}
+			}
+			// without a histogram the rows of the tablet are assumed to be
+			// spread over the part of the tablet that the query covers, which
+			// overestimates the
+			// density and keeps merging conservative
+			final double width = Math.max(
+					MIN_KEY_SPACE_WIDTH,
+					Math.min(
+							RowRangeHistogramStatistics.getEndPosition(groupMaxEnd) - RowRangeHistogramStatistics.getStartPosition(first.getStart().getBytes()),
+							getTabletWidth(
+									splitBytes,
+									tablet)));
+			final double rowsPerUnit = rowsPerTablet / width;
+
+			byte[] start = first.getStart().getBytes();
+			byte[] end = first.getEnd().getBytes();
+			for (int i = groupStart + 1; i < groupEnd; i++) {
+				final ByteArrayRange next = sortedRanges.get(i);
+				final double gapStart = RowRangeHistogramStatistics.getEndPosition(end);
+				final double gapEnd = RowRangeHistogramStatistics.getStartPosition(next.getStart().getBytes());
+				final double gap = gapEnd - gapStart;
+				final double rowsInGap = histogram != null ? histogram.estimateCount(
+						gapStart,
+						gapEnd) : Math.max(
+						0,
+						gap * rowsPerUnit);
+				if ((gap <= 0) || (rowsInGap <= seekCostInRows)) {
+					gapRows += rowsInGap;
+					end = maxEnd(
+							end,
+							next.getEnd().getBytes());
+				}
+				else {
+					result.add(new ByteArrayRange(
+							new ByteArrayId(
+									start),
+							new ByteArrayId(
+									end)));
+					start = next.getStart().getBytes();
+					end = next.getEnd().getBytes();
+				}
+			}
+			result.add(new ByteArrayRange(
+					new ByteArrayId(
+							start),
+					new ByteArrayId(
+							end)));
+			groupStart = groupEnd;
+		}
+		scannedRangeCount.addAndGet(result.size());
+		estimatedGapRowCount.addAndGet((long) gapRows);
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("Planned " + ranges.size() + " ranges, scanning " + result.size() + " ranges with an estimated " + (long) gapRows + " additional rows");
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of queries planned
+	 */
+	public long getQueryCount() {
+		return queryCount.get();
+	}
+
+	/**
+	 * @return the total number of ranges that queries were decomposed into
+	 */
+	public long getPlannedRangeCount() {
+		return plannedRangeCount.get();
+	}
+
+	/**
+	 * @return the total number of ranges that were scanned after coalescing
+	 */
+	public long getScannedRangeCount() {
+		return scannedRangeCount.get();
+	}
+
+	/**
+	 * @return the total estimated number of rows outside of the decomposed
+	 *         ranges that were scanned because ranges were coalesced
+	 */
+	public long getEstimatedGapRowCount() {
+		return estimatedGapRowCount.get();
+	}
+
+	public int getMaxRangeDecomposition() {
+		return maxRangeDecomposition;
+	}
+
+	public double getSeekCostInRows() {
+		return seekCostInRows;
+	}
+
+	public long getRowsPerTablet() {
+		return rowsPerTablet;
+	}
+
+	/**
+	 * @return the index of the tablet that contains the row
+	 */
+	private static int getTabletOfStart(
+			final byte[][] splits,
+			final byte[] row ) {
+		// the first split that is not less than the row
+		int low = 0;
+		int high = splits.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (COMPARATOR.compare(
+					splits[mid],
+					row) < 0) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return the index of the tablet that contains the last row with the
+	 *         prefix
+	 */
+	private static int getTabletOfEnd(
+			final byte[][] splits,
+			final byte[] prefix ) {
+		// the first split that is not less than every row with the prefix
+		int low = 0;
+		int high = splits.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (isBeforePrefixEnd(
+					splits[mid],
+					prefix)) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static boolean isBeforePrefixEnd(
+			final byte[] row,
+			final byte[] prefix ) {
+		final int length = Math.min(
+				row.length,
+				prefix.length);
+		for (int i = 0; i < length; i++) {
+			final int diff = (row[i] & 0xff) - (prefix[i] & 0xff);
+			if (diff != 0) {
+				return diff < 0;
+			}
+		}
+		// a row that starts with the prefix is before the rows that extend it
+		return true;
+	}
+
+	/**
+	 * @return the end prefix that covers the most rows
+	 */
+	private static byte[] maxEnd(
+			final byte[] end1,
+			final byte[] end2 ) {
+		final int length = Math.min(
+				end1.length,
+				end2.length);
+		for (int i = 0; i < length; i++) {
+			final int diff = (end1[i] & 0xff) - (end2[i] & 0xff);
+			if (diff != 0) {
+				return diff > 0 ? end1 : end2;
+			}
+		}
+		// the shorter prefix covers all of the rows of the longer one
+		return end1.length <= end2.length ? end1 : end2;
+	}
+
+	private static double getTabletWidth(
+			final byte[][] splits,
+			final int tablet ) {
+		final double start = tablet == 0 ? 0 : RowRangeHistogramStatistics.getStartPosition(splits[tablet - 1]);
+		final double end = tablet == splits.length ? 1 : RowRangeHistogramStatistics.getStartPosition(splits[tablet]);
+		return end - start;
+	}
+}
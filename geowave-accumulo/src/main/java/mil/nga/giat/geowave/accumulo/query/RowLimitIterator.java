@@ -0,0 +1,101 @@
+package mil.nga.giat.geowave.accumulo.query;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.WrappingIterator;
+
+/**
+ * This iterator stops a scan session once it has returned the query's limit of
+ * rows, so that a tablet server does not keep reading, filtering and sending
+ * rows that the client will discard. It is applied after the query filter so
+ * that only rows that match the query are counted, and it expects whole rows.
+ * 
+ * Rows of entries that are duplicated across several rows are returned without
+ * being counted, because the client may discard them as duplicates of rows it
+ * has already received from another scan session. Every session therefore
+ * returns at least the limit of distinct entries, if there are that many, and
+ * the client applies the limit across sessions.
+ */
+public class RowLimitIterator extends
+		WrappingIterator
+{
+	public static final String LIMIT_ITERATOR_NAME = "GEOWAVE_LIMIT_ITERATOR";
+	public static final int LIMIT_ITERATOR_PRIORITY = 20;
+	public static final String LIMIT = "limit";
+	// the number of duplicates is the last 4 bytes of the row ID
+	private static final int DUPLICATE_COUNT_LENGTH = 4;
+
+	private long limit;
+	private long count = 0;
+
+	public RowLimitIterator() {
+		super();
+	}
+
+	private RowLimitIterator(
+			final RowLimitIterator other,
+			final IteratorEnvironment env ) {
+		setSource(other.getSource().deepCopy(
+				env));
+		limit = other.limit;
+		count = other.count;
+	}
+
+	@Override
+	public void init(
+			final SortedKeyValueIterator<Key, Value> source,
+			final Map<String, String> options,
+			final IteratorEnvironment env )
+			throws IOException {
+		super.init(
+				source,
+				options,
+				env);
+		if ((options == null) || !options.containsKey(LIMIT)) {
+			throw new IllegalArgumentException(
+					"Option '" + LIMIT + "' must be set for " + RowLimitIterator.class.getName());
+		}
+		limit = Long.parseLong(options.get(LIMIT));
+	}
+
+	@Override
+	public boolean hasTop() {
+		return (count < limit) && super.hasTop();
+	}
+
+	@Override
+	public void next()
+			throws IOException {
+		if (!isDuplicated(getTopKey().getRowData())) {
+			count++;
+		}
+		super.next();
+	}
+
+	@Override
+	public SortedKeyValueIterator<Key, Value> deepCopy(
+			final IteratorEnvironment env ) {
+		return new RowLimitIterator(
+				this,
+				env);
+	}
+
+	protected static boolean isDuplicated(
+			final ByteSequence row ) {
+		final int length = row.length();
+		if (length < DUPLICATE_COUNT_LENGTH) {
+			return false;
+		}
+		int duplicateCount = 0;
+		for (int i = length - DUPLICATE_COUNT_LENGTH; i < length; i++) {
+			duplicateCount = (duplicateCount << 8) | (row.byteAt(i) & 0xff);
+		}
+		return duplicateCount > 0;
+	}
+}
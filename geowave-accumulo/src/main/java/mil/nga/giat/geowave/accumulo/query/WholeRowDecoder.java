@@ -0,0 +1,313 @@
+package mil.nga.giat.geowave.accumulo.query;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.store.adapter.IndexedAdapterPersistenceEncoding;
+import mil.nga.giat.geowave.store.data.DataReader;
+import mil.nga.giat.geowave.store.data.LazyPersistentDataset;
+import mil.nga.giat.geowave.store.data.field.FieldReader;
+import mil.nga.giat.geowave.store.index.CommonIndexValue;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.Text;
+
+/**
+ * This decodes the rows that a WholeRowIterator gathers into a persistence
+ * encoding for filtering on the tablet server. A single encoding is reused for
+ * every row: the row ID elements are read in place from the row's backing bytes
+ * and only copied when they are requested, and the field values are decoded
+ * when a filter first asks for them. Field readers are resolved once per
+ * distinct column qualifier rather than once per row.
+ * 
+ * The encoding returned by {@link #decodeRow(Text, List, List)} is only valid
+ * until the next row is decoded, so filters must not hold on to it.
+ */
+public class WholeRowDecoder
+{
+	// beyond this many distinct column qualifiers the readers of any new
+	// qualifier are looked up for every row rather than cached
+	private static final int MAX_CACHED_FIELDS = 256;
+	private static final int ROW_ID_METADATA_LENGTH = 12;
+
+	private final DataReader<CommonIndexValue> model;
+	private final DataReader<Object> adapter;
+	private final Map<QualifierKey, CachedField> cachedFields = new HashMap<QualifierKey, CachedField>();
+	// reused to look up the qualifier of each key without copying it
+	private final QualifierKey lookupKey = new QualifierKey();
+	private final LazyPersistentDataset<CommonIndexValue> commonData = new LazyPersistentDataset<CommonIndexValue>();
+	private final LazyPersistentDataset<Object> extendedData = new LazyPersistentDataset<Object>();
+	private final RowEncoding encoding;
+
+	/**
+	 * @param model
+	 *            the reader for the common index fields
+	 * @param adapter
+	 *            the reader for the extended fields, or null if only common
+	 *            index fields are of interest
+	 */
+	public WholeRowDecoder(
+			final DataReader<CommonIndexValue> model,
+			final DataReader<Object> adapter ) {
+		this.model = model;
+		this.adapter = adapter;
+		encoding = new RowEncoding(
+				commonData,
+				extendedData);
+	}
+
+	/**
+	 * Decode a whole row
+	 * 
+	 * @param currentRow
+	 *            the row, its backing bytes are read but not copied
+	 * @param keys
+	 *            the keys of the row
+	 * @param values
+	 *            the values of the row
+	 * @return the encoding of the row, which is reused for the next row
+	 */
+	public IndexedAdapterPersistenceEncoding decodeRow(
+			final Text currentRow,
+			final List<Key> keys,
+			final List<Value> values ) {
+		commonData.clear();
+		extendedData.clear();
+		for (int i = 0; (i < keys.size()) && (i < values.size()); i++) {
+			final Key key = keys.get(i);
+			final CachedField field = getField(key.getColumnQualifierData());
+			if (field.commonReader != null) {
+				commonData.addEncodedValue(
+						field.fieldId,
+						field.commonReader,
+						values.get(
+								i).get(),
+						key.getColumnVisibilityData().getBackingArray());
+			}
+			else if (field.extendedReader != null) {
+				extendedData.addEncodedValue(
+						field.fieldId,
+						field.extendedReader,
+						values.get(
+								i).get(),
+						null);
+			}
+		}
+		encoding.setRow(
+				currentRow.getBytes(),
+				currentRow.getLength());
+		return encoding;
+	}
+
+	private CachedField getField(
+			final ByteSequence columnQualifier ) {
+		lookupKey.set(
+				columnQualifier.getBackingArray(),
+				columnQualifier.offset(),
+				columnQualifier.length());
+		final CachedField cachedField = cachedFields.get(lookupKey);
+		if (cachedField != null) {
+			return cachedField;
+		}
+		final byte[] qualifier = columnQualifier.toArray();
+		final ByteArrayId fieldId = new ByteArrayId(
+				qualifier);
+		final FieldReader<CommonIndexValue> commonReader = model.getReader(fieldId);
+		final CachedField field = new CachedField(
+				fieldId,
+				commonReader,
+				((commonReader == null) && (adapter != null)) ? adapter.getReader(fieldId) : null);
+		if (cachedFields.size() < MAX_CACHED_FIELDS) {
+			final QualifierKey key = new QualifierKey();
+			key.set(
+					qualifier,
+					0,
+					qualifier.length);
+			cachedFields.put(
+					key,
+					field);
+		}
+		return field;
+	}
+
+	private static int readInt(
+			final byte[] bytes,
+			final int offset ) {
+		return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16) | ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+	}
+
+	private static class CachedField
+	{
+		private final ByteArrayId fieldId;
+		private final FieldReader<CommonIndexValue> commonReader;
+		private final FieldReader<Object> extendedReader;
+
+		private CachedField(
+				final ByteArrayId fieldId,
+				final FieldReader<CommonIndexValue> commonReader,
+				final FieldReader<Object> extendedReader ) {
+			this.fieldId = fieldId;
+			this.commonReader = commonReader;
+			this.extendedReader = extendedReader;
+		}
+	}
+
+	/**
+	 * A column qualifier within a byte array, so that the qualifier of a key
+	 * can be looked up in place
+	 */
+	private static class QualifierKey
+	{
+		private byte[] bytes;
+		private int offset;
+		private int length;
+		private int hash;
+
+		private void set(
+				final byte[] bytes,
+				final int offset,
+				final int length ) {
+			this.bytes = bytes;
+			this.offset = offset;
+			this.length = length;
+			int hash = 1;
+			for (int i = offset; i < (offset + length); i++) {
+				hash = (31 * hash) + bytes[i];
+			}
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(
+				final Object obj ) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof QualifierKey)) {
+				return false;
+			}
+			final QualifierKey other = (QualifierKey) obj;
+			if ((length != other.length) || (hash != other.hash)) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (bytes[offset + i] != other.bytes[other.offset + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * A view of the row ID elements in the row's backing bytes. The layout
+	 * matches AccumuloRowId: insertion ID, adapter ID, data ID, then the
+	 * adapter ID length, data ID length and number of duplicates.
+	 */
+	private static class RowEncoding extends
+			IndexedAdapterPersistenceEncoding
+	{
+		private byte[] row;
+		private int adapterIdOffset;
+		private int adapterIdLength;
+		private int dataIdLength;
+		private int numberOfDuplicates;
+		private ByteArrayId insertionId;
+		private ByteArrayId adapterId;
+		private ByteArrayId dataId;
+
+		private RowEncoding(
+				final LazyPersistentDataset<CommonIndexValue> commonData,
+				final LazyPersistentDataset<Object> extendedData ) {
+			super(
+					null,
+					null,
+					null,
+					0,
+					commonData,
+					extendedData);
+		}
+
+		private void setRow(
+				final byte[] row,
+				final int length ) {
+			this.row = row;
+			final int metadataOffset = length - ROW_ID_METADATA_LENGTH;
+			adapterIdLength = readInt(
+					row,
+					metadataOffset);
+			dataIdLength = readInt(
+					row,
+					metadataOffset + 4);
+			numberOfDuplicates = readInt(
+					row,
+					metadataOffset + 8);
+			adapterIdOffset = metadataOffset - dataIdLength - adapterIdLength;
+			insertionId = null;
+			adapterId = null;
+			dataId = null;
+		}
+
+		@Override
+		public ByteArrayId getAdapterId() {
+			if (adapterId == null) {
+				adapterId = new ByteArrayId(
+						Arrays.copyOfRange(
+								row,
+								adapterIdOffset,
+								adapterIdOffset + adapterIdLength));
+			}
+			return adapterId;
+		}
+
+		@Override
+		public ByteArrayId getDataId() {
+			if (dataId == null) {
+				final int dataIdOffset = adapterIdOffset + adapterIdLength;
+				dataId = new ByteArrayId(
+						Arrays.copyOfRange(
+								row,
+								dataIdOffset,
+								dataIdOffset + dataIdLength));
+			}
+			return dataId;
+		}
+
+		@Override
+		public ByteArrayId getIndexInsertionId() {
+			if (insertionId == null) {
+				insertionId = new ByteArrayId(
+						Arrays.copyOfRange(
+								row,
+								0,
+								adapterIdOffset));
+			}
+			return insertionId;
+		}
+
+		@Override
+		public int getDuplicateCount() {
+			return numberOfDuplicates;
+		}
+
+		@Override
+		public boolean isDuplicated() {
+			return numberOfDuplicates > 0;
+		}
+
+		@Override
+		public boolean isDeduplicationEnabled() {
+			return numberOfDuplicates >= 0;
+		}
+	}
+}
@@ -27,6 +27,7 @@ import mil.nga.giat.geowave.store.adapter.DataAdapter;
 import mil.nga.giat.geowave.store.adapter.IndexedAdapterPersistenceEncoding;
 import mil.nga.giat.geowave.store.adapter.WritableDataAdapter;
 import mil.nga.giat.geowave.store.data.DataWriter;
+import mil.nga.giat.geowave.store.data.LazyPersistentDataset;
 import mil.nga.giat.geowave.store.data.PersistentDataset;
 import mil.nga.giat.geowave.store.data.PersistentValue;
 import mil.nga.giat.geowave.store.data.VisibilityWriter;
@@ -35,6 +36,7 @@ import mil.nga.giat.geowave.store.data.field.FieldVisibilityHandler;
 import mil.nga.giat.geowave.store.data.field.FieldWriter;
 import mil.nga.giat.geowave.store.data.visibility.UnconstrainedVisibilityHandler;
 import mil.nga.giat.geowave.store.data.visibility.UniformVisibilityWriter;
+import mil.nga.giat.geowave.store.dimension.DimensionField;
 import mil.nga.giat.geowave.store.filter.QueryFilter;
 import mil.nga.giat.geowave.store.index.CommonIndexModel;
 import mil.nga.giat.geowave.store.index.CommonIndexValue;
@@ -45,7 +47,6 @@ import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.user.WholeRowIterator;
-import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
@@ -67,6 +68,7 @@ public class AccumuloUtils
 	})
 	private static final UniformVisibilityWriter DEFAULT_VISIBILITY = new UniformVisibilityWriter(
 			new UnconstrainedVisibilityHandler());
+	private static final MutationBuilder MUTATION_BUILDER = new MutationBuilder();
 
 	public static Range byteArrayRangeToAccumuloRange(
 			final ByteArrayRange byteArrayRange ) {
@@ -262,8 +264,11 @@ public class AccumuloUtils
 		// build a persistence encoding object first, pass it through the
 		// client filters and if its accepted, use the data adapter to
 		// decode the persistence model into the native data type
-		final PersistentDataset<CommonIndexValue> indexData = new PersistentDataset<CommonIndexValue>();
-		final PersistentDataset<Object> extendedData = new PersistentDataset<Object>();
+		// the fields are only decoded when they are requested, so that filters
+		// and adapters that only look at some of the fields do not pay to
+		// decode the rest
+		final LazyPersistentDataset<CommonIndexValue> indexData = new LazyPersistentDataset<CommonIndexValue>();
+		final LazyPersistentDataset<Object> extendedData = new LazyPersistentDataset<Object>();
 		// for now we are assuming all entries in a row are of the same type
 		// and use the same adapter
 		boolean adapterMatchVerified;
@@ -312,16 +317,16 @@ public class AccumuloUtils
 			final FieldReader<? extends CommonIndexValue> indexFieldReader = indexModel.getReader(fieldId);
 			final byte byteValue[] = entry.getValue().get();
 			if (indexFieldReader != null) {
-				final CommonIndexValue indexValue = indexFieldReader.readField(byteValue);
-				indexValue.setVisibility(entry.getKey().getColumnVisibilityData().getBackingArray());
-				final PersistentValue<CommonIndexValue> val = new PersistentValue<CommonIndexValue>(
+				final byte[] visibility = entry.getKey().getColumnVisibilityData().getBackingArray();
+				indexData.addEncodedValue(
 						fieldId,
-						indexValue);
-				indexData.addValue(val);
+						indexFieldReader,
+						byteValue,
+						visibility);
 				fieldInfoList.add(getFieldInfo(
-						val,
+						indexData.getPersistentValue(fieldId),
 						byteValue,
-						indexValue.getVisibility()));
+						visibility));
 			}
 			else {
 				// next check if this field is part of the adapter's
@@ -333,13 +338,13 @@ public class AccumuloUtils
 					LOGGER.error("field reader not found for data entry, the value will be ignored");
 					continue;
 				}
-				final Object value = extFieldReader.readField(byteValue);
-				final PersistentValue<Object> val = new PersistentValue<Object>(
+				extendedData.addEncodedValue(
 						fieldId,
-						value);
-				extendedData.addValue(val);
+						extFieldReader,
+						byteValue,
+						null);
 				fieldInfoList.add(getFieldInfo(
-						val,
+						extendedData.getPersistentValue(fieldId),
 						byteValue,
 						entry.getKey().getColumnVisibility().getBytes()));
 			}
@@ -408,6 +413,47 @@ public class AccumuloUtils
 		return ingestInfo;
 	}
 
+	public static <T> List<DataStoreEntryInfo> write(
+			final WritableDataAdapter<T> writableAdapter,
+			final Index index,
+			final List<T> entries,
+			final Writer writer ) {
+		return AccumuloUtils.write(
+				writableAdapter,
+				index,
+				entries,
+				writer,
+				DEFAULT_VISIBILITY);
+	}
+
+	/**
+	 * Write a batch of entries, computing the insertion IDs of the whole batch
+	 * at once and writing all of their mutations together
+	 * 
+	 * @return the ingest info of each entry, in the same order as the entries
+	 */
+	public static <T> List<DataStoreEntryInfo> write(
+			final WritableDataAdapter<T> writableAdapter,
+			final Index index,
+			final List<T> entries,
+			final Writer writer,
+			final VisibilityWriter<T> customFieldVisibilityWriter ) {
+		final List<DataStoreEntryInfo> ingestInfo = getIngestInfo(
+				writableAdapter,
+				index,
+				entries,
+				customFieldVisibilityWriter);
+		final byte[] adapterId = writableAdapter.getAdapterId().getBytes();
+		final List<Mutation> mutations = new ArrayList<Mutation>();
+		for (final DataStoreEntryInfo entryInfo : ingestInfo) {
+			mutations.addAll(buildMutations(
+					adapterId,
+					entryInfo));
+		}
+		writer.write(mutations);
+		return ingestInfo;
+	}
+
 	public static <T> void removeFromAltIndex(
 			final WritableDataAdapter<T> writableAdapter,
 			final List<ByteArrayId> rowIds,
@@ -441,13 +487,25 @@ public class AccumuloUtils
 			final DataStoreEntryInfo entryInfo,
 			final T entry,
 			final Writer writer ) {
+		final List<Mutation> mutations = buildAltIndexMutations(
+				writableAdapter,
+				entryInfo,
+				entry);
+		if (!mutations.isEmpty()) {
+			writer.write(mutations);
+		}
+	}
+
+	public static <T> List<Mutation> buildAltIndexMutations(
+			final WritableDataAdapter<T> writableAdapter,
+			final DataStoreEntryInfo entryInfo,
+			final T entry ) {
 
 		final byte[] adapterId = writableAdapter.getAdapterId().getBytes();
 		final byte[] dataId = writableAdapter.getDataId(
 				entry).getBytes();
+		final List<Mutation> mutations = new ArrayList<Mutation>();
 		if ((dataId != null) && (dataId.length > 0)) {
-			final List<Mutation> mutations = new ArrayList<Mutation>();
-
 			for (final ByteArrayId rowId : entryInfo.getRowIds()) {
 
 				final Mutation mutation = new Mutation(
@@ -463,8 +521,8 @@ public class AccumuloUtils
 
 				mutations.add(mutation);
 			}
-			writer.write(mutations);
 		}
+		return mutations;
 	}
 
 	public static <T> List<Mutation> entryToMutations(
@@ -482,30 +540,12 @@ public class AccumuloUtils
 				ingestInfo);
 	}
 
-	private static <T> List<Mutation> buildMutations(
+	public static <T> List<Mutation> buildMutations(
 			final byte[] adapterId,
 			final DataStoreEntryInfo ingestInfo ) {
-		final List<Mutation> mutations = new ArrayList<Mutation>();
-		final List<FieldInfo> fieldInfoList = ingestInfo.getFieldInfo();
-		for (final ByteArrayId rowId : ingestInfo.getRowIds()) {
-			final Mutation mutation = new Mutation(
-					new Text(
-							rowId.getBytes()));
-			for (final FieldInfo fieldInfo : fieldInfoList) {
-				mutation.put(
-						new Text(
-								adapterId),
-						new Text(
-								fieldInfo.getDataValue().getId().getBytes()),
-						new ColumnVisibility(
-								fieldInfo.getVisibility()),
-						new Value(
-								fieldInfo.getWrittenValue()));
-			}
-
-			mutations.add(mutation);
-		}
-		return mutations;
+		return MUTATION_BUILDER.buildMutations(
+				adapterId,
+				ingestInfo);
 	}
 
 	/**
@@ -565,6 +605,17 @@ public class AccumuloUtils
 		}
 	}
 
+	public static <T> DataStoreEntryInfo getIngestInfo(
+			final WritableDataAdapter<T> dataWriter,
+			final Index index,
+			final T entry ) {
+		return getIngestInfo(
+				dataWriter,
+				index,
+				entry,
+				DEFAULT_VISIBILITY);
+	}
+
 	@SuppressWarnings({
 		"rawtypes",
 		"unchecked"
@@ -585,7 +636,126 @@ public class AccumuloUtils
 		final AdapterPersistenceEncoding encodedData = dataWriter.encode(
 				entry,
 				indexModel);
-		final List<ByteArrayId> insertionIds = encodedData.getInsertionIds(index);
+		return getIngestInfo(
+				dataWriter,
+				indexModel,
+				entry,
+				encodedData,
+				encodedData.getInsertionIds(index),
+				customFieldVisibilityWriter);
+	}
+
+	public static <T> List<DataStoreEntryInfo> getIngestInfo(
+			final WritableDataAdapter<T> dataWriter,
+			final Index index,
+			final List<T> entries ) {
+		return getIngestInfo(
+				dataWriter,
+				index,
+				entries,
+				DEFAULT_VISIBILITY);
+	}
+
+	/**
+	 * Get the ingest info of a batch of entries, computing the insertion IDs of
+	 * the whole batch at once through the index strategy
+	 * 
+	 * @param dataWriter
+	 * @param index
+	 * @param entries
+	 * @param customFieldVisibilityWriter
+	 * @return the ingest info of each entry, in the same order as the entries
+	 */
+	@SuppressWarnings({
+		"rawtypes",
+		"unchecked"
+	})
+	public static <T> List<DataStoreEntryInfo> getIngestInfo(
+			final WritableDataAdapter<T> dataWriter,
+			final Index index,
+			final List<T> entries,
+			final VisibilityWriter<T> customFieldVisibilityWriter ) {
+		final CommonIndexModel indexModel;
+		if (dataWriter instanceof ModelConvertingDataAdapter) {
+			indexModel = ((ModelConvertingDataAdapter) dataWriter).convertModel(index.getIndexModel());
+		}
+		else {
+			indexModel = index.getIndexModel();
+		}
+		final DimensionField[] dimensions = index.getIndexModel().getDimensions();
+		final int entryCount = entries.size();
+		final List<AdapterPersistenceEncoding> encodings = new ArrayList<AdapterPersistenceEncoding>(
+				entryCount);
+		final List<MultiDimensionalNumericData> numericData = new ArrayList<MultiDimensionalNumericData>(
+				entryCount);
+		final double[] minValuesPerEntry = new double[entryCount * dimensions.length];
+		final double[] maxValuesPerEntry = new double[entryCount * dimensions.length];
+		for (int i = 0; i < entryCount; i++) {
+			final AdapterPersistenceEncoding encodedData = dataWriter.encode(
+					entries.get(i),
+					indexModel);
+			final MultiDimensionalNumericData entryData = encodedData.getNumericData(dimensions);
+			System.arraycopy(
+					entryData.getMinValuesPerDimension(),
+					0,
+					minValuesPerEntry,
+					i * dimensions.length,
+					dimensions.length);
+			System.arraycopy(
+					entryData.getMaxValuesPerDimension(),
+					0,
+					maxValuesPerEntry,
+					i * dimensions.length,
+					dimensions.length);
+			encodings.add(encodedData);
+			numericData.add(entryData);
+		}
+		final List<ByteArrayId> batchInsertionIds = new ArrayList<ByteArrayId>(
+				entryCount);
+		final int[] insertionIdCountPerEntry = new int[entryCount];
+		index.getIndexStrategy().getInsertionIds(
+				minValuesPerEntry,
+				maxValuesPerEntry,
+				entryCount,
+				batchInsertionIds,
+				insertionIdCountPerEntry);
+
+		final List<DataStoreEntryInfo> ingestInfo = new ArrayList<DataStoreEntryInfo>(
+				entryCount);
+		int offset = 0;
+		for (int i = 0; i < entryCount; i++) {
+			final AdapterPersistenceEncoding encodedData = encodings.get(i);
+			// the encoding may trim the insertion IDs so give it its own copy
+			final List<ByteArrayId> insertionIds = encodedData.getInsertionIds(
+					index,
+					numericData.get(i),
+					new ArrayList<ByteArrayId>(
+							batchInsertionIds.subList(
+									offset,
+									offset + insertionIdCountPerEntry[i])));
+			offset += insertionIdCountPerEntry[i];
+			ingestInfo.add(getIngestInfo(
+					dataWriter,
+					indexModel,
+					entries.get(i),
+					encodedData,
+					insertionIds,
+					customFieldVisibilityWriter));
+		}
+		return ingestInfo;
+	}
+
+	@SuppressWarnings({
+		"rawtypes",
+		"unchecked"
+	})
+	private static <T> DataStoreEntryInfo getIngestInfo(
+			final WritableDataAdapter<T> dataWriter,
+			final CommonIndexModel indexModel,
+			final T entry,
+			final AdapterPersistenceEncoding encodedData,
+			final List<ByteArrayId> insertionIds,
+			final VisibilityWriter<T> customFieldVisibilityWriter ) {
 		final List<ByteArrayId> rowIds = new ArrayList<ByteArrayId>(
 				insertionIds.size());
 		final PersistentDataset extendedData = encodedData.getAdapterExtendedData();
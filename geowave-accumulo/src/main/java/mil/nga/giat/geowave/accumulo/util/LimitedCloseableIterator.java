@@ -0,0 +1,89 @@
+package mil.nga.giat.geowave.accumulo.util;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import mil.nga.giat.geowave.store.CloseableIterator;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This limits the number of results returned by a closeable iterator. The
+ * underlying iterator is closed as soon as the last result within the limit is
+ * returned, so that its scanners are released even if the caller stops
+ * iterating without asking for more results or closing this iterator.
+ * 
+ * @param <E>
+ *            The type to iterate on
+ */
+public class LimitedCloseableIterator<E> implements
+		CloseableIterator<E>
+{
+	private final static Logger LOGGER = Logger.getLogger(LimitedCloseableIterator.class);
+	private final CloseableIterator<E> iterator;
+	private final int limit;
+	private int resultCount = 0;
+	private boolean closed = false;
+
+	/**
+	 * @param iterator
+	 *            the iterator to limit
+	 * @param limit
+	 *            the most results to return, must be greater than 0
+	 */
+	public LimitedCloseableIterator(
+			final CloseableIterator<E> iterator,
+			final int limit ) {
+		this.iterator = iterator;
+		this.limit = limit;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (closed) {
+			return false;
+		}
+		if (resultCount >= limit) {
+			closeQuietly();
+			return false;
+		}
+		return iterator.hasNext();
+	}
+
+	@Override
+	public E next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		final E result = iterator.next();
+		if (++resultCount >= limit) {
+			closeQuietly();
+		}
+		return result;
+	}
+
+	@Override
+	public void remove() {
+		iterator.remove();
+	}
+
+	@Override
+	public void close()
+			throws IOException {
+		if (!closed) {
+			closed = true;
+			iterator.close();
+		}
+	}
+
+	private void closeQuietly() {
+		try {
+			close();
+		}
+		catch (final IOException e) {
+			LOGGER.warn(
+					"Unable to close iterator",
+					e);
+		}
+	}
+}
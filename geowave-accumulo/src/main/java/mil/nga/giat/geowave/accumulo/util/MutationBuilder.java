@@ -0,0 +1,103 @@
+package mil.nga.giat.geowave.accumulo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.store.DataStoreEntryInfo;
+import mil.nga.giat.geowave.store.DataStoreEntryInfo.FieldInfo;
+
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.security.ColumnVisibility;
+
+/**
+ * This builds the mutations for an entry without allocating per field and per
+ * row. The column family, qualifier and value of each field are written to the
+ * mutations directly from the entry's bytes rather than through Text and Value
+ * wrappers, and each field is resolved once and then shared by all of the row
+ * IDs of an entry that is duplicated across tiers or bins. Parsed column
+ * visibilities are interned because the same few visibility expressions are
+ * typically used by every entry.
+ * 
+ * This is thread safe so a single instance can be shared by every writer.
+ */
+public class MutationBuilder
+{
+	// visibilities are usually low cardinality, but if they aren't, rather
+	// than growing without bound the interned visibilities are dropped
+	private static final int MAX_INTERNED_VISIBILITIES = 1024;
+	private static final ColumnVisibility EMPTY_VISIBILITY = new ColumnVisibility();
+
+	private final ConcurrentHashMap<ByteArrayId, ColumnVisibility> visibilities = new ConcurrentHashMap<ByteArrayId, ColumnVisibility>();
+
+	/**
+	 * Build a mutation per row ID of the entry
+	 * 
+	 * @param adapterId
+	 *            the adapter ID, which is the column family
+	 * @param ingestInfo
+	 *            the row IDs and encoded fields of the entry
+	 * @return the mutations
+	 */
+	public List<Mutation> buildMutations(
+			final byte[] adapterId,
+			final DataStoreEntryInfo ingestInfo ) {
+		final List<FieldInfo> fieldInfoList = ingestInfo.getFieldInfo();
+		final int fieldCount = fieldInfoList.size();
+		final byte[][] qualifiers = new byte[fieldCount][];
+		final ColumnVisibility[] columnVisibilities = new ColumnVisibility[fieldCount];
+		final byte[][] values = new byte[fieldCount][];
+		for (int i = 0; i < fieldCount; i++) {
+			final FieldInfo fieldInfo = fieldInfoList.get(i);
+			qualifiers[i] = fieldInfo.getDataValue().getId().getBytes();
+			columnVisibilities[i] = getColumnVisibility(fieldInfo.getVisibility());
+			values[i] = fieldInfo.getWrittenValue();
+		}
+		final List<ByteArrayId> rowIds = ingestInfo.getRowIds();
+		final List<Mutation> mutations = new ArrayList<Mutation>(
+				rowIds.size());
+		for (final ByteArrayId rowId : rowIds) {
+			final Mutation mutation = new Mutation(
+					rowId.getBytes());
+			for (int i = 0; i < fieldCount; i++) {
+				mutation.put(
+						adapterId,
+						qualifiers[i],
+						columnVisibilities[i],
+						values[i]);
+			}
+			mutations.add(mutation);
+		}
+		return mutations;
+	}
+
+	/**
+	 * @param visibility
+	 *            the visibility expression
+	 * @return the parsed visibility, shared with every other caller that asks
+	 *         for the same expression
+	 */
+	public ColumnVisibility getColumnVisibility(
+			final byte[] visibility ) {
+		if ((visibility == null) || (visibility.length == 0)) {
+			return EMPTY_VISIBILITY;
+		}
+		final ByteArrayId key = new ByteArrayId(
+				visibility);
+		ColumnVisibility columnVisibility = visibilities.get(key);
+		if (columnVisibility == null) {
+			columnVisibility = new ColumnVisibility(
+					visibility);
+			if (visibilities.size() >= MAX_INTERNED_VISIBILITIES) {
+				visibilities.clear();
+			}
+			// the caller may reuse its array, so the interned key is a copy
+			visibilities.put(
+					new ByteArrayId(
+							visibility.clone()),
+					columnVisibility);
+		}
+		return columnVisibility;
+	}
+}
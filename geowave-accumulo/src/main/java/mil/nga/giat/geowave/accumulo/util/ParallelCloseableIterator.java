@@ -0,0 +1,288 @@
+package mil.nga.giat.geowave.accumulo.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mil.nga.giat.geowave.store.CloseableIterator;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This reads several sources of results concurrently and streams them back
+ * through a single iterator, in whatever order they arrive. Each source is
+ * opened and read on a thread of an executor that is shared by every query, so
+ * the executor bounds how many sources are read at once across all of them. The
+ * results of each source are handed over through a bounded queue, so a source
+ * that is read faster than the caller consumes blocks rather than buffering
+ * everything it has read. Closing the iterator, or reaching the limit, stops
+ * every source that is still being read and closes it.
+ * 
+ * If a source fails, the failure is thrown from hasNext() or next() once the
+ * results read before it are consumed, rather than the results ending early.
+ * Because sources wait for threads of the shared executor, a source must not
+ * itself read in parallel on the same executor.
+ * 
+ * @param <E>
+ *            The type to iterate on
+ */
+public class ParallelCloseableIterator<E> implements
+		CloseableIterator<E>
+{
+	private final static Logger LOGGER = Logger.getLogger(ParallelCloseableIterator.class);
+	public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+	private static final Object END_OF_SOURCE = new Object();
+	private static final long OFFER_TIMEOUT_MILLIS = 100;
+	private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+
+	private final BlockingQueue<Object> queue;
+	private final List<Future<?>> futures;
+	private final int sourceCount;
+	private final Integer limit;
+	private int finishedSourceCount = 0;
+	private int resultCount = 0;
+	private Object nextResult = null;
+	private volatile boolean closed = false;
+
+	/**
+	 * @param sources
+	 *            the sources, each is opened on a thread of the executor
+	 * @param executor
+	 *            the executor to read the sources on, which bounds the sources
+	 *            read at once
+	 * @param queueCapacity
+	 *            the most results to hold that have been read but not yet
+	 *            consumed
+	 * @param limit
+	 *            the most results to return across all sources, null or less
+	 *            than 1 implies no limit
+	 */
+	public ParallelCloseableIterator(
+			final List<Callable<CloseableIterator<E>>> sources,
+			final ExecutorService executor,
+			final int queueCapacity,
+			final Integer limit ) {
+		this.limit = limit;
+		sourceCount = sources.size();
+		queue = new ArrayBlockingQueue<Object>(
+				Math.max(
+						1,
+						queueCapacity));
+		futures = new ArrayList<Future<?>>(
+				sourceCount);
+		for (final Callable<CloseableIterator<E>> source : sources) {
+			futures.add(executor.submit(new SourceReader(
+					source)));
+		}
+	}
+
+	/**
+	 * Create an executor to share between the queries that read their sources
+	 * concurrently. Its threads are daemon threads that exit once they have
+	 * been idle for a while, so an executor that is no longer used does not
+	 * need to be shut down.
+	 * 
+	 * @param threads
+	 *            the most sources to read at once across every query
+	 * @return the executor
+	 */
+	public static ExecutorService createExecutor(
+			final int threads ) {
+		final int poolSize = Math.max(
+				1,
+				threads);
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+				poolSize,
+				poolSize,
+				IDLE_THREAD_TIMEOUT_SECONDS,
+				TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					private final AtomicInteger threadCount = new AtomicInteger();
+
+					@Override
+					public Thread newThread(
+							final Runnable runnable ) {
+						final Thread thread = new Thread(
+								runnable,
+								"geowave-query-" + threadCount.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (nextResult != null) {
+			return true;
+		}
+		if (closed || ((limit != null) && (limit > 0) && (resultCount >= limit))) {
+			close();
+			return false;
+		}
+		try {
+			while (finishedSourceCount < sourceCount) {
+				final Object result = queue.take();
+				if (result == END_OF_SOURCE) {
+					finishedSourceCount++;
+				}
+				else if (result instanceof SourceFailure) {
+					close();
+					final Throwable cause = ((SourceFailure) result).cause;
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					throw new RuntimeException(
+							"Unable to read results",
+							cause);
+				}
+				else {
+					nextResult = result;
+					return true;
+				}
+			}
+		}
+		catch (final InterruptedException e) {
+			LOGGER.warn(
+					"Interrupted while waiting for results",
+					e);
+			Thread.currentThread().interrupt();
+		}
+		close();
+		return false;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		final E result = (E) nextResult;
+		nextResult = null;
+		resultCount++;
+		if ((limit != null) && (limit > 0) && (resultCount >= limit)) {
+			// stop the sources as soon as the last result is returned
+			close();
+		}
+		return result;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException(
+				"Results read in parallel cannot be removed");
+	}
+
+	@Override
+	protected void finalize()
+			throws Throwable {
+		super.finalize();
+		close();
+	}
+
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			// interrupt any source waiting on the server, and make room for any
+			// source waiting on the queue so that it notices it is closed
+			for (final Future<?> future : futures) {
+				future.cancel(true);
+			}
+			queue.clear();
+		}
+	}
+
+	private class SourceReader implements
+			Runnable
+	{
+		private final Callable<CloseableIterator<E>> source;
+
+		private SourceReader(
+				final Callable<CloseableIterator<E>> source ) {
+			this.source = source;
+		}
+
+		@Override
+		public void run() {
+			CloseableIterator<E> results = null;
+			Object end = END_OF_SOURCE;
+			try {
+				if (!closed) {
+					results = source.call();
+					// the limit is applied as results are consumed, which
+					// closes the sources once it is reached
+					while (!closed && results.hasNext()) {
+						if (!offer(results.next())) {
+							break;
+						}
+					}
+				}
+			}
+			catch (final Exception e) {
+				if (!closed) {
+					// the consumer throws the failure in place of the
+					// results that could not be read
+					end = new SourceFailure(
+							e);
+				}
+			}
+			finally {
+				if (results != null) {
+					try {
+						results.close();
+					}
+					catch (final IOException e) {
+						LOGGER.warn(
+								"Unable to close results",
+								e);
+					}
+				}
+				offer(end);
+			}
+		}
+
+		private boolean offer(
+				final Object result ) {
+			try {
+				while (!closed) {
+					if (queue.offer(
+							result,
+							OFFER_TIMEOUT_MILLIS,
+							TimeUnit.MILLISECONDS)) {
+						return true;
+					}
+				}
+			}
+			catch (final InterruptedException e) {
+				// closed while waiting for room on the queue
+			}
+			return false;
+		}
+	}
+
+	private static class SourceFailure
+	{
+		private final Throwable cause;
+
+		private SourceFailure(
+				final Throwable cause ) {
+			this.cause = cause;
+		}
+	}
+}
@@ -5,16 +5,27 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.FilenameFilter;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import mil.nga.giat.geowave.accumulo.metadata.AccumuloAdapterStore;
 import mil.nga.giat.geowave.accumulo.metadata.AccumuloDataStatisticsStore;
 import mil.nga.giat.geowave.accumulo.metadata.AccumuloIndexStore;
+import mil.nga.giat.geowave.accumulo.metadata.MetadataCache;
+import mil.nga.giat.geowave.accumulo.util.AccumuloUtils;
 import mil.nga.giat.geowave.index.ByteArrayId;
 import mil.nga.giat.geowave.index.StringUtils;
 import mil.nga.giat.geowave.store.CloseableIterator;
+import mil.nga.giat.geowave.store.IndexWriter;
 import mil.nga.giat.geowave.store.adapter.AbstractDataAdapter;
 import mil.nga.giat.geowave.store.adapter.NativeFieldHandler;
 import mil.nga.giat.geowave.store.adapter.NativeFieldHandler.RowBuilder;
@@ -46,6 +57,7 @@ import org.apache.accumulo.core.client.AccumuloSecurityException;
 import org.apache.accumulo.core.client.Connector;
 import org.apache.accumulo.core.client.mock.MockInstance;
 import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Before;
@@ -163,6 +175,489 @@ public class AccumuloDataStoreStatsTest
 		runtest();
 	}
 
+	@Test
+	public void testConcurrentWrites()
+			throws Exception {
+		accumuloOptions.setCreateTable(true);
+		accumuloOptions.setUseAltIndex(true);
+		accumuloOptions.setPersistDataStatistics(true);
+		accumuloOptions.setConcurrentWrites(true);
+
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final WritableDataAdapter<TestGeometry> adapter = new TestGeometryAdapter();
+		final AccumuloIndexWriter indexWriter = new AccumuloIndexWriter(
+				index,
+				accumuloOperations,
+				accumuloOptions,
+				mockDataStore);
+		final int threadCount = 4;
+		final int entriesPerThread = 50;
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int t = 0; t < threadCount; t++) {
+			final int thread = t;
+			futures.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					final List<TestGeometry> batch = new ArrayList<TestGeometry>();
+					for (int i = 0; i < entriesPerThread; i++) {
+						final TestGeometry geom = new TestGeometry(
+								factory.createPoint(new Coordinate(
+										thread * 10,
+										i)),
+								"test_pt_" + thread + "_" + i);
+						// write half of the entries one at a time and the
+						// other half as a batch
+						if ((i % 2) == 0) {
+							indexWriter.write(
+									adapter,
+									geom);
+						}
+						else {
+							batch.add(geom);
+						}
+					}
+					indexWriter.writeBatch(
+							adapter,
+							batch);
+				}
+			}));
+		}
+		for (final Future<?> future : futures) {
+			future.get();
+		}
+		indexWriter.close();
+
+		final CountDataStatistics<?> countStats = (CountDataStatistics<?>) statsStore.getDataStatistics(
+				adapter.getAdapterId(),
+				CountDataStatistics.STATS_ID);
+		assertEquals(
+				threadCount * entriesPerThread,
+				countStats.getCount());
+		final BoundingBoxDataStatistics<?> bboxStats = (BoundingBoxDataStatistics<?>) statsStore.getDataStatistics(
+				adapter.getAdapterId(),
+				BoundingBoxDataStatistics.STATS_ID);
+		assertEquals(
+				new Envelope(
+						0,
+						(threadCount - 1) * 10,
+						0,
+						entriesPerThread - 1),
+				new Envelope(
+						bboxStats.getMinX(),
+						bboxStats.getMaxX(),
+						bboxStats.getMinY(),
+						bboxStats.getMaxY()));
+		for (int t = 0; t < threadCount; t++) {
+			for (int i = 0; i < entriesPerThread; i++) {
+				final TestGeometry geom = mockDataStore.getEntry(
+						index,
+						new ByteArrayId(
+								"test_pt_" + t + "_" + i),
+						adapter.getAdapterId());
+				assertEquals(
+						"test_pt_" + t + "_" + i,
+						geom.id);
+			}
+		}
+
+		// the same threads can write again once the writer has been closed,
+		// and only the statistics of their new entries are incorporated
+		futures.clear();
+		for (int t = 0; t < threadCount; t++) {
+			final int thread = t;
+			futures.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					indexWriter.write(
+							adapter,
+							new TestGeometry(
+									factory.createPoint(new Coordinate(
+											thread * 10,
+											entriesPerThread)),
+									"test_pt_" + thread + "_" + entriesPerThread));
+				}
+			}));
+		}
+		for (final Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		indexWriter.close();
+		assertEquals(
+				threadCount * (entriesPerThread + 1),
+				((CountDataStatistics<?>) statsStore.getDataStatistics(
+						adapter.getAdapterId(),
+						CountDataStatistics.STATS_ID)).getCount());
+	}
+
+	@Test
+	public void testBulkIngest()
+			throws Exception {
+		accumuloOptions.setCreateTable(true);
+		accumuloOptions.setUseAltIndex(true);
+		accumuloOptions.setPersistDataStatistics(true);
+		final File workDirectory = new File(
+				Files.createTempDirectory(
+						"bulk").toFile(),
+				"work");
+		accumuloOptions.setBulkIngestDirectory(workDirectory.getAbsolutePath());
+
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final WritableDataAdapter<TestGeometry> adapter = new TestGeometryAdapter();
+		final int entryCount = 20;
+		final List<TestGeometry> entries = new ArrayList<TestGeometry>();
+		for (int i = 0; i < entryCount; i++) {
+			entries.add(new TestGeometry(
+					factory.createPoint(new Coordinate(
+							i,
+							i)),
+					"test_pt_" + i));
+		}
+		// split the table within the entries so that they are written to a
+		// file for each tablet
+		final String tableName = StringUtils.stringFromBinary(index.getId().getBytes());
+		accumuloOperations.createWriter(
+				tableName,
+				true).close();
+		((BasicAccumuloOperations) accumuloOperations).getConnector().tableOperations().addSplits(
+				tableName,
+				new TreeSet<Text>(
+						Arrays.asList(new Text(
+								AccumuloUtils.getRowIds(
+										adapter,
+										index,
+										entries.get(entryCount / 2)).get(
+										0).getBytes()))));
+
+		final IndexWriter indexWriter = mockDataStore.createIndexWriter(index);
+		assertTrue(indexWriter instanceof AccumuloBulkIndexWriter);
+		indexWriter.writeBatch(
+				adapter,
+				entries);
+		indexWriter.close();
+
+		// nothing is visible until the files are imported
+		assertNull(mockDataStore.getEntry(
+				index,
+				new ByteArrayId(
+						"test_pt_0"),
+				adapter.getAdapterId()));
+		assertNull(statsStore.getDataStatistics(
+				adapter.getAdapterId(),
+				CountDataStatistics.STATS_ID));
+		final File[] files = new File(
+				new File(
+						workDirectory,
+						"tables"),
+				tableName).listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(
+					final File dir,
+					final String name ) {
+				return name.endsWith("." + RFileWriter.FILE_EXTENSION);
+			}
+		});
+		assertEquals(
+				2,
+				files.length);
+
+		assertTrue(mockDataStore.importBulkIngestDirectory());
+		assertFalse(workDirectory.exists());
+		workDirectory.getParentFile().delete();
+
+		final CountDataStatistics<?> countStats = (CountDataStatistics<?>) statsStore.getDataStatistics(
+				adapter.getAdapterId(),
+				CountDataStatistics.STATS_ID);
+		assertEquals(
+				entryCount,
+				countStats.getCount());
+		for (int i = 0; i < entryCount; i++) {
+			final TestGeometry geom = mockDataStore.getEntry(
+					index,
+					new ByteArrayId(
+							"test_pt_" + i),
+					adapter.getAdapterId());
+			assertEquals(
+					"test_pt_" + i,
+					geom.id);
+		}
+		final CloseableIterator<?> it = mockDataStore.query(
+				adapter,
+				index,
+				new SpatialQuery(
+						factory.toGeometry(new Envelope(
+								-1,
+								entryCount,
+								-1,
+								entryCount))));
+		int count = 0;
+		while (it.hasNext()) {
+			it.next();
+			count++;
+		}
+		it.close();
+		assertEquals(
+				entryCount,
+				count);
+	}
+
+	@Test
+	public void testBulkIngestFailedTable()
+			throws Exception {
+		accumuloOptions.setCreateTable(true);
+		accumuloOptions.setPersistDataStatistics(true);
+		final File workDirectory = new File(
+				Files.createTempDirectory(
+						"bulk").toFile(),
+				"work");
+		accumuloOptions.setBulkIngestDirectory(workDirectory.getAbsolutePath());
+
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final WritableDataAdapter<TestGeometry> adapter = new TestGeometryAdapter();
+		final IndexWriter indexWriter = mockDataStore.createIndexWriter(index);
+		indexWriter.write(
+				adapter,
+				new TestGeometry(
+						factory.createPoint(new Coordinate(
+								1,
+								1)),
+						"test_pt_1"));
+		indexWriter.close();
+
+		// a file that failed to import before is left where it was moved to
+		final String tableName = StringUtils.stringFromBinary(index.getId().getBytes());
+		final File failedFile = new File(
+				new File(
+						new File(
+								workDirectory,
+								"failures"),
+						tableName),
+				"failed." + RFileWriter.FILE_EXTENSION);
+		failedFile.getParentFile().mkdirs();
+		failedFile.createNewFile();
+
+		// the table is not imported and its statistics are not incorporated,
+		// no matter how many times the directory is imported
+		assertFalse(mockDataStore.importBulkIngestDirectory());
+		assertFalse(mockDataStore.importBulkIngestDirectory());
+		assertNull(statsStore.getDataStatistics(
+				adapter.getAdapterId(),
+				CountDataStatistics.STATS_ID));
+		assertNull(mockDataStore.getEntry(
+				index,
+				new ByteArrayId(
+						"test_pt_1"),
+				adapter.getAdapterId()));
+		assertTrue(new File(
+				new File(
+						workDirectory,
+						"statistics"),
+				tableName).exists());
+
+		// once the failed file is dealt with the table is imported
+		failedFile.delete();
+		assertTrue(mockDataStore.importBulkIngestDirectory());
+		assertFalse(workDirectory.exists());
+		workDirectory.getParentFile().delete();
+		final CountDataStatistics<?> countStats = (CountDataStatistics<?>) statsStore.getDataStatistics(
+				adapter.getAdapterId(),
+				CountDataStatistics.STATS_ID);
+		assertEquals(
+				1,
+				countStats.getCount());
+		final TestGeometry geom = mockDataStore.getEntry(
+				index,
+				new ByteArrayId(
+						"test_pt_1"),
+				adapter.getAdapterId());
+		assertEquals(
+				"test_pt_1",
+				geom.id);
+	}
+
+	@Test
+	public void testStatisticsCache() {
+		final ByteArrayId adapterId = new ByteArrayId(
+				"test_adapter");
+		final AccumuloOptions cacheOptions = new AccumuloOptions();
+		cacheOptions.setCacheStatistics(true);
+		final AccumuloDataStatisticsStore cachingStore = new AccumuloDataStatisticsStore(
+				accumuloOperations,
+				cacheOptions);
+
+		// misses are not cached, so statistics written afterwards are found
+		assertNull(cachingStore.getDataStatistics(
+				adapterId,
+				CountDataStatistics.STATS_ID));
+		final CountDataStatistics<Object> stats = new CountDataStatistics<Object>(
+				adapterId);
+		stats.entryIngested(
+				null,
+				null);
+		cachingStore.incorporateStatistics(stats);
+		assertEquals(
+				1,
+				((CountDataStatistics<?>) cachingStore.getDataStatistics(
+						adapterId,
+						CountDataStatistics.STATS_ID)).getCount());
+		final CountDataStatistics<?> cachedStats = (CountDataStatistics<?>) cachingStore.getDataStatistics(
+				adapterId,
+				CountDataStatistics.STATS_ID);
+		assertEquals(
+				1,
+				cachedStats.getCount());
+		assertEquals(
+				adapterId,
+				cachedStats.getDataAdapterId());
+		assertEquals(
+				1,
+				cachingStore.getStatisticsCache().getHitCount());
+
+		// replacing the statistics invalidates what was cached
+		stats.entryIngested(
+				null,
+				null);
+		cachingStore.setStatistics(stats);
+		assertEquals(
+				2,
+				((CountDataStatistics<?>) cachingStore.getDataStatistics(
+						adapterId,
+						CountDataStatistics.STATS_ID)).getCount());
+
+		// stores are not caching by default
+		statsStore.getDataStatistics(
+				adapterId,
+				CountDataStatistics.STATS_ID);
+		assertEquals(
+				0,
+				statsStore.getStatisticsCache().size());
+	}
+
+	@Test
+	public void testStatisticsCacheOptions()
+			throws InterruptedException {
+		final AccumuloOptions cacheOptions = new AccumuloOptions();
+		assertEquals(
+				MetadataCache.DEFAULT_MAX_ENTRIES,
+				cacheOptions.getStatisticsCacheSize());
+		assertEquals(
+				AccumuloDataStatisticsStore.DEFAULT_STATISTICS_TIME_TO_LIVE_MILLIS,
+				cacheOptions.getStatisticsCacheTimeToLiveMillis());
+		cacheOptions.setCacheStatistics(true);
+		cacheOptions.setStatisticsCacheSize(2);
+		cacheOptions.setStatisticsCacheTimeToLiveMillis(50);
+
+		// the data store hands its options to its statistics store
+		final AccumuloDataStatisticsStore cachingStore = (AccumuloDataStatisticsStore) new AccumuloDataStore(
+				accumuloOperations,
+				cacheOptions).statisticsStore;
+		final MetadataCache<?> cache = cachingStore.getStatisticsCache();
+		assertEquals(
+				2,
+				cache.getMaxEntries());
+		assertEquals(
+				50,
+				cache.getTimeToLiveMillis());
+
+		for (int i = 0; i < 3; i++) {
+			final CountDataStatistics<Object> stats = new CountDataStatistics<Object>(
+					new ByteArrayId(
+							"test_adapter_" + i));
+			stats.entryIngested(
+					null,
+					null);
+			cachingStore.incorporateStatistics(stats);
+		}
+		for (int i = 0; i < 3; i++) {
+			assertEquals(
+					1,
+					((CountDataStatistics<?>) cachingStore.getDataStatistics(
+							new ByteArrayId(
+									"test_adapter_" + i),
+							CountDataStatistics.STATS_ID)).getCount());
+		}
+		assertEquals(
+				2,
+				cache.size());
+		assertEquals(
+				1,
+				cache.getEvictionCount());
+
+		// the cached lookups expire
+		Thread.sleep(100);
+		cachingStore.getDataStatistics(
+				new ByteArrayId(
+						"test_adapter_2"),
+				CountDataStatistics.STATS_ID);
+		assertEquals(
+				1,
+				cache.getExpirationCount());
+	}
+
+	@Test
+	public void testAggregate() {
+		accumuloOptions.setCreateTable(true);
+		accumuloOptions.setUseAltIndex(false);
+		accumuloOptions.setPersistDataStatistics(true);
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final WritableDataAdapter<TestGeometry> adapter = new TestGeometryAdapter();
+		for (int i = 0; i < 20; i++) {
+			mockDataStore.ingest(
+					adapter,
+					index,
+					new TestGeometry(
+							factory.createPoint(new Coordinate(
+									i,
+									i)),
+							"test_pt_" + i));
+		}
+		// a polygon that is stored in several rows, which the tablet servers
+		// cannot aggregate without the client de-duplicating it
+		mockDataStore.ingest(
+				adapter,
+				index,
+				new TestGeometry(
+						factory.toGeometry(new Envelope(
+								0.5,
+								2.5,
+								0.5,
+								2.5)),
+						"test_poly"));
+
+		final List<DataStatistics<TestGeometry>> statistics = new ArrayList<DataStatistics<TestGeometry>>();
+		statistics.add(new CountDataStatistics<TestGeometry>(
+				adapter.getAdapterId()));
+		statistics.add(new GeoBoundingBoxStatistics(
+				adapter.getAdapterId()));
+		final List<DataStatistics<TestGeometry>> results = mockDataStore.aggregate(
+				adapter,
+				index,
+				new SpatialQuery(
+						factory.toGeometry(new Envelope(
+								-0.5,
+								9.5,
+								-0.5,
+								9.5))),
+				statistics);
+		assertEquals(
+				11,
+				((CountDataStatistics<?>) results.get(0)).getCount());
+		final BoundingBoxDataStatistics<?> bbox = (BoundingBoxDataStatistics<?>) results.get(1);
+		assertEquals(
+				0,
+				bbox.getMinX(),
+				0);
+		assertEquals(
+				9,
+				bbox.getMaxX(),
+				0);
+		assertEquals(
+				9,
+				bbox.getMaxY(),
+				0);
+	}
+
 	private void runtest() {
 
 		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
@@ -262,6 +757,15 @@ public class AccumuloDataStoreStatsTest
 				1,
 				countStats.getCount());
 
+		assertEquals(
+				3,
+				mockDataStore.estimateCardinality(
+						index,
+						null));
+		assertTrue(mockDataStore.estimateCardinality(
+				index,
+				query.getIndexConstraints(index.getIndexStrategy())) <= 3);
+
 		assertFalse(mockDataStore.deleteEntry(
 				index,
 				new ByteArrayId(
@@ -324,6 +828,13 @@ public class AccumuloDataStoreStatsTest
 				1,
 				countStats.getCount());
 
+		// the row of the deleted entry is removed from the row range histogram
+		assertEquals(
+				2,
+				mockDataStore.estimateCardinality(
+						index,
+						null));
+
 		try {
 			mockDataStore.deleteEntries(
 					adapter,
@@ -354,6 +865,11 @@ public class AccumuloDataStoreStatsTest
 				adapter.getAdapterId(),
 				CountDataStatistics.STATS_ID);
 		assertNull(countStats);
+		assertEquals(
+				-1,
+				mockDataStore.estimateCardinality(
+						index,
+						null));
 
 		mockDataStore.ingest(
 				adapter,
@@ -9,6 +9,7 @@ import java.util.List;
 import mil.nga.giat.geowave.accumulo.metadata.AccumuloAdapterStore;
 import mil.nga.giat.geowave.accumulo.metadata.AccumuloDataStatisticsStore;
 import mil.nga.giat.geowave.accumulo.metadata.AccumuloIndexStore;
+import mil.nga.giat.geowave.accumulo.util.AccumuloUtils;
 import mil.nga.giat.geowave.index.ByteArrayId;
 import mil.nga.giat.geowave.index.StringUtils;
 import mil.nga.giat.geowave.store.CloseableIterator;
@@ -471,6 +472,70 @@ public class AccumuloOptionsTest
 				geom3.id);
 	}
 
+	@Test
+	public void testWriteBatch()
+			throws IOException {
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final WritableDataAdapter<TestGeometry> adapter = new TestGeometryAdapter();
+
+		accumuloOptions.setUseAltIndex(true);
+
+		final List<TestGeometry> batch = new ArrayList<TestGeometry>();
+		final List<ByteArrayId> expectedRowIds = new ArrayList<ByteArrayId>();
+		for (int i = 0; i < 10; i++) {
+			final TestGeometry geom;
+			if ((i % 3) == 0) {
+				geom = new TestGeometry(
+						factory.createLineString(new Coordinate[] {
+							new Coordinate(
+									-10 + i,
+									-5),
+							new Coordinate(
+									20 + i,
+									15)
+						}),
+						"test_batch_" + i);
+			}
+			else {
+				geom = new TestGeometry(
+						factory.createPoint(new Coordinate(
+								(i * 7) - 30,
+								(i * 3) - 10)),
+						"test_batch_" + i);
+			}
+			batch.add(geom);
+			expectedRowIds.addAll(AccumuloUtils.getRowIds(
+					adapter,
+					index,
+					geom));
+		}
+
+		final AccumuloIndexWriter indexWriter = new AccumuloIndexWriter(
+				index,
+				accumuloOperations,
+				accumuloOptions,
+				mockDataStore);
+		final List<ByteArrayId> rowIds = indexWriter.writeBatch(
+				adapter,
+				batch);
+		indexWriter.close();
+
+		// the batch must produce the same row IDs as writing one at a time
+		assertEquals(
+				expectedRowIds,
+				rowIds);
+		for (final TestGeometry geom : batch) {
+			final TestGeometry storedGeom = mockDataStore.getEntry(
+					index,
+					new ByteArrayId(
+							geom.id),
+					adapter.getAdapterId());
+			assertEquals(
+					geom.id,
+					storedGeom.id);
+		}
+	}
+
 	@Test
 	public void testDeleteAll() {
 		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
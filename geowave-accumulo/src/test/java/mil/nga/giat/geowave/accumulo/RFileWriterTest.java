@@ -0,0 +1,53 @@
+package mil.nga.giat.geowave.accumulo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import mil.nga.giat.geowave.index.ByteArrayId;
+
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RFileWriterTest
+{
+	@Test
+	public void testWriteFailureIsThrown()
+			throws IOException {
+		// a file where the directory should be cannot hold the written files
+		final File directory = File.createTempFile(
+				"rfile",
+				"test");
+		directory.deleteOnExit();
+		final Configuration conf = new Configuration();
+		final RFileWriter writer = new RFileWriter(
+				FileSystem.getLocal(conf),
+				conf,
+				new Path(
+						directory.getAbsolutePath()),
+				Collections.<ByteArrayId> emptyList(),
+				RFileWriter.DEFAULT_BUFFER_SIZE);
+		final Mutation mutation = new Mutation(
+				"row");
+		mutation.put(
+				"cf",
+				"cq",
+				new Value(
+						new byte[] {
+							1
+						}));
+		writer.write(mutation);
+		try {
+			writer.close();
+			Assert.fail("The entries could not be written, so closing the writer should fail");
+		}
+		catch (final RuntimeException e) {
+			Assert.assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package mil.nga.giat.geowave.accumulo.mapreduce.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.store.DataStoreEntryInfo;
+import mil.nga.giat.geowave.store.DataStoreEntryInfo.FieldInfo;
+import mil.nga.giat.geowave.store.adapter.statistics.RowRangeHistogramStatistics;
+import mil.nga.giat.geowave.store.index.Index;
+import mil.nga.giat.geowave.store.index.IndexType;
+
+import org.apache.accumulo.core.data.Range;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.junit.Test;
+
+public class RowCountSplitPlannerTest
+{
+	private static final Index INDEX = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+
+	@Test
+	public void testBalanceSkewedTablets()
+			throws IOException,
+			InterruptedException {
+		// almost all of the rows are in the first tablet
+		final RowRangeHistogramStatistics<Object> histogram = new RowRangeHistogramStatistics<Object>(
+				new ByteArrayId(
+						"adapter"),
+				INDEX.getId());
+		for (int i = 0; i < 9000; i++) {
+			ingest(
+					histogram,
+					new byte[] {
+						(byte) (i % 64),
+						(byte) i
+					});
+		}
+		for (int i = 0; i < 1000; i++) {
+			ingest(
+					histogram,
+					new byte[] {
+						(byte) (128 + (i % 128)),
+						(byte) i
+					});
+		}
+		final Map<ByteArrayId, RowRangeHistogramStatistics<?>> histograms = new HashMap<ByteArrayId, RowRangeHistogramStatistics<?>>();
+		histograms.put(
+				INDEX.getId(),
+				histogram);
+
+		final RowCountSplitPlanner planner = new RowCountSplitPlanner(
+				histograms,
+				1000L);
+		final Text split = new Text(
+				new byte[] {
+					(byte) 128
+				});
+		planner.addTabletRanges(
+				INDEX,
+				Arrays.asList(new Range(
+						null,
+						split)),
+				"server1");
+		planner.addTabletRanges(
+				INDEX,
+				Arrays.asList(new Range(
+						split,
+						false,
+						null,
+						true)),
+				"server2");
+		final List<InputSplit> splits = planner.plan(
+				null,
+				null);
+		// the first tablet is cut into about 9 splits and the second is one
+		assertTrue(
+				"planned " + splits.size() + " splits",
+				(splits.size() >= 9) && (splits.size() <= 11));
+		int server2Splits = 0;
+		for (final InputSplit inputSplit : splits) {
+			final GeoWaveInputSplit geowaveSplit = (GeoWaveInputSplit) inputSplit;
+			// each split reads from a single tablet server
+			assertEquals(
+					1,
+					geowaveSplit.getLocations().length);
+			if (geowaveSplit.getLocations()[0].equals("server2")) {
+				server2Splits++;
+			}
+		}
+		assertEquals(
+				1,
+				server2Splits);
+
+		// the same tablets limited to 2 splits
+		final RowCountSplitPlanner maxPlanner = new RowCountSplitPlanner(
+				histograms,
+				1000L);
+		maxPlanner.addTabletRanges(
+				INDEX,
+				Arrays.asList(new Range(
+						null,
+						split)),
+				"server1");
+		maxPlanner.addTabletRanges(
+				INDEX,
+				Arrays.asList(new Range(
+						split,
+						false,
+						null,
+						true)),
+				"server2");
+		assertEquals(
+				2,
+				maxPlanner.plan(
+						null,
+						2).size());
+	}
+
+	private static void ingest(
+			final RowRangeHistogramStatistics<Object> stats,
+			final byte[] row ) {
+		stats.entryIngested(
+				new DataStoreEntryInfo(
+						Arrays.asList(new ByteArrayId(
+								row)),
+						new ArrayList<FieldInfo>()),
+				null);
+	}
+}
@@ -0,0 +1,162 @@
+package mil.nga.giat.geowave.accumulo.metadata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import mil.nga.giat.geowave.index.ByteArrayId;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetadataCacheTest
+{
+	@Test
+	public void testEvictLeastRecentlyUsed()
+			throws InterruptedException {
+		final MetadataCache<String> cache = new MetadataCache<String>(
+				2,
+				-1,
+				-1);
+		cache.put(
+				id("a"),
+				"a");
+		Thread.sleep(5);
+		cache.put(
+				id("b"),
+				"b");
+		Thread.sleep(5);
+		// touching "a" makes "b" the least recently used
+		Assert.assertEquals(
+				"a",
+				cache.get(id("a")));
+		Thread.sleep(5);
+		cache.put(
+				id("c"),
+				"c");
+		Assert.assertEquals(
+				2,
+				cache.size());
+		Assert.assertNull(cache.get(id("b")));
+		Assert.assertEquals(
+				"a",
+				cache.get(id("a")));
+		Assert.assertEquals(
+				"c",
+				cache.get(id("c")));
+		Assert.assertEquals(
+				1,
+				cache.getEvictionCount());
+		Assert.assertEquals(
+				3,
+				cache.getHitCount());
+		Assert.assertEquals(
+				1,
+				cache.getMissCount());
+	}
+
+	@Test
+	public void testExpiration()
+			throws InterruptedException {
+		final MetadataCache<String> cache = new MetadataCache<String>(
+				10,
+				20,
+				20);
+		cache.put(
+				id("a"),
+				"a");
+		cache.putMissing(id("b"));
+		Assert.assertEquals(
+				"a",
+				cache.get(id("a")));
+		Assert.assertTrue(cache.isCachedAsMissing(id("b")));
+		Thread.sleep(50);
+		Assert.assertNull(cache.get(id("a")));
+		Assert.assertFalse(cache.isCachedAsMissing(id("b")));
+		Assert.assertEquals(
+				2,
+				cache.getExpirationCount());
+		Assert.assertEquals(
+				0,
+				cache.size());
+	}
+
+	@Test
+	public void testNegativeCaching() {
+		final MetadataCache<String> cache = new MetadataCache<String>();
+		cache.putMissing(id("a"));
+		Assert.assertNull(cache.get(id("a")));
+		Assert.assertTrue(cache.isCachedAsMissing(id("a")));
+		Assert.assertEquals(
+				1,
+				cache.getNegativeHitCount());
+		// adding the object replaces the cached miss
+		cache.put(
+				id("a"),
+				"a");
+		Assert.assertFalse(cache.isCachedAsMissing(id("a")));
+		Assert.assertEquals(
+				"a",
+				cache.get(id("a")));
+
+		final MetadataCache<String> noNegativeCache = new MetadataCache<String>(
+				10,
+				-1,
+				-1);
+		noNegativeCache.putMissing(id("a"));
+		Assert.assertFalse(noNegativeCache.isCachedAsMissing(id("a")));
+	}
+
+	@Test
+	public void testConcurrentAccess()
+			throws Exception {
+		final MetadataCache<Integer> cache = new MetadataCache<Integer>(
+				50,
+				-1,
+				-1);
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int t = 0; t < 8; t++) {
+			final int seed = t;
+			futures.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 10000; i++) {
+						final int key = (i * 31 + seed) % 100;
+						final Integer value = cache.get(id(Integer.toString(key)));
+						if (value == null) {
+							cache.put(
+									id(Integer.toString(key)),
+									key);
+						}
+						else {
+							Assert.assertEquals(
+									key,
+									value.intValue());
+						}
+					}
+				}
+			}));
+		}
+		for (final Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		Assert.assertTrue(executor.awaitTermination(
+				10,
+				TimeUnit.SECONDS));
+		Assert.assertTrue(cache.size() <= 50);
+		Assert.assertEquals(
+				80000,
+				cache.getHitCount() + cache.getMissCount());
+	}
+
+	private static ByteArrayId id(
+			final String id ) {
+		return new ByteArrayId(
+				id);
+	}
+}
@@ -1,6 +1,7 @@
 package mil.nga.giat.geowave.accumulo.query;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import junit.framework.Assert;
@@ -10,6 +11,8 @@ import mil.nga.giat.geowave.index.ByteArrayId;
 import mil.nga.giat.geowave.store.CloseableIterator;
 import mil.nga.giat.geowave.store.DataStore;
 import mil.nga.giat.geowave.store.adapter.AbstractDataAdapter;
+import mil.nga.giat.geowave.store.adapter.DataAdapter;
+import mil.nga.giat.geowave.store.adapter.MemoryAdapterStore;
 import mil.nga.giat.geowave.store.adapter.NativeFieldHandler;
 import mil.nga.giat.geowave.store.adapter.NativeFieldHandler.RowBuilder;
 import mil.nga.giat.geowave.store.adapter.PersistentIndexFieldHandler;
@@ -43,6 +46,7 @@ import com.vividsolutions.jts.geom.GeometryFactory;
 public class AccumuloRangeQueryTest
 {
 	private DataStore mockDataStore;
+	private BasicAccumuloOperations accumuloOperations;
 	private Index index;
 	private WritableDataAdapter<TestGeometry> adapter;
 	private final GeometryFactory factory = new GeometryFactory();
@@ -72,9 +76,10 @@ public class AccumuloRangeQueryTest
 				"root",
 				new PasswordToken(
 						new byte[0]));
+		accumuloOperations = new BasicAccumuloOperations(
+				mockConnector);
 		mockDataStore = new AccumuloDataStore(
-				new BasicAccumuloOperations(
-						mockConnector));
+				accumuloOperations);
 
 		index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
 		adapter = new TestGeometryAdapter();
@@ -161,6 +166,30 @@ public class AccumuloRangeQueryTest
 				geom1.id);
 	}
 
+	@Test
+	public void testFieldIds() {
+		final Query spatialQuery = new SpatialQuery(
+				testdata.geom);
+		final AccumuloConstraintsQuery query = new AccumuloConstraintsQuery(
+				Arrays.asList(adapter.getAdapterId()),
+				index,
+				spatialQuery.getIndexConstraints(index.getIndexStrategy()),
+				spatialQuery.createFilters(index.getIndexModel()));
+		// only the fields of the index model are read, so the ID is not
+		query.setFieldIds(new ArrayList<ByteArrayId>());
+		final CloseableIterator<?> results = query.query(
+				accumuloOperations,
+				new MemoryAdapterStore(
+						new DataAdapter[] {
+							adapter
+						}),
+				null);
+		Assert.assertTrue(results.hasNext());
+		final TestGeometry geom1 = (TestGeometry) results.next();
+		Assert.assertTrue(geom1.geom.equalsExact(testdata.geom));
+		Assert.assertNull(geom1.id);
+	}
+
 	protected static class TestGeometry
 	{
 		protected final Geometry geom;
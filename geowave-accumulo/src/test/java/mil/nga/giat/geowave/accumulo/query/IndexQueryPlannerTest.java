@@ -0,0 +1,309 @@
+package mil.nga.giat.geowave.accumulo.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import mil.nga.giat.geowave.accumulo.BasicAccumuloOperations;
+import mil.nga.giat.geowave.accumulo.metadata.AccumuloAdapterStore;
+import mil.nga.giat.geowave.accumulo.metadata.AccumuloDataStatisticsStore;
+import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.store.DataStoreEntryInfo;
+import mil.nga.giat.geowave.store.DataStoreEntryInfo.FieldInfo;
+import mil.nga.giat.geowave.store.adapter.statistics.RowRangeHistogramStatistics;
+import mil.nga.giat.geowave.store.index.Index;
+import mil.nga.giat.geowave.store.index.IndexType;
+import mil.nga.giat.geowave.store.query.Query;
+import mil.nga.giat.geowave.store.query.SpatialQuery;
+import mil.nga.giat.geowave.store.query.SpatialTemporalQuery;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.mock.MockInstance;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+public class IndexQueryPlannerTest
+{
+	private static final Index SPATIAL_INDEX = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+	private static final Index SPATIAL_TEMPORAL_INDEX = IndexType.SPATIAL_TEMPORAL_VECTOR.createDefaultIndex();
+	private static final ByteArrayId BOTH_INDICES_ADAPTER_ID = new ByteArrayId(
+			"both");
+	private static final ByteArrayId SPATIAL_ADAPTER_ID = new ByteArrayId(
+			"spatial");
+	private static final ByteArrayId UNKNOWN_ADAPTER_ID = new ByteArrayId(
+			"unknown");
+
+	private AccumuloAdapterStore adapterStore;
+	private AccumuloDataStatisticsStore statisticsStore;
+
+	@Before
+	public void setUp()
+			throws AccumuloException,
+			AccumuloSecurityException {
+		final MockInstance mockInstance = new MockInstance();
+		final Connector mockConnector = mockInstance.getConnector(
+				"root",
+				new PasswordToken(
+						new byte[0]));
+		final BasicAccumuloOperations operations = new BasicAccumuloOperations(
+				mockConnector);
+		adapterStore = new AccumuloAdapterStore(
+				operations);
+		statisticsStore = new AccumuloDataStatisticsStore(
+				operations);
+
+		// the rows are spread evenly across the key space of each index
+		statisticsStore.incorporateStatistics(createHistogram(
+				BOTH_INDICES_ADAPTER_ID,
+				SPATIAL_INDEX));
+		statisticsStore.incorporateStatistics(createHistogram(
+				BOTH_INDICES_ADAPTER_ID,
+				SPATIAL_TEMPORAL_INDEX));
+		statisticsStore.incorporateStatistics(createHistogram(
+				SPATIAL_ADAPTER_ID,
+				SPATIAL_INDEX));
+	}
+
+	@Test
+	public void testSpatialQuery() {
+		// both indices support a spatial query, but the spatial temporal index
+		// has to read every time bin
+		final SpatialQuery query = new SpatialQuery(
+				new GeometryFactory().toGeometry(new Envelope(
+						new Coordinate(
+								10,
+								10),
+						new Coordinate(
+								11,
+								11))));
+		final IndexQueryPlan plan = new IndexQueryPlanner(
+				adapterStore,
+				statisticsStore,
+				new RangePlanner(),
+				true).plan(
+				Arrays.asList(
+						BOTH_INDICES_ADAPTER_ID,
+						SPATIAL_ADAPTER_ID,
+						UNKNOWN_ADAPTER_ID),
+				query,
+				Arrays.asList(
+						SPATIAL_INDEX,
+						SPATIAL_TEMPORAL_INDEX).iterator());
+		assertTrue(plan.isCostBased());
+		assertEquals(
+				Arrays.asList(
+						BOTH_INDICES_ADAPTER_ID,
+						SPATIAL_ADAPTER_ID,
+						UNKNOWN_ADAPTER_ID),
+				plan.getAdapterIds(SPATIAL_INDEX.getId()));
+		// nothing is known about the unknown adapter so it is read from every
+		// index
+		assertEquals(
+				Arrays.asList(UNKNOWN_ADAPTER_ID),
+				plan.getAdapterIds(SPATIAL_TEMPORAL_INDEX.getId()));
+		assertTrue(plan.isMultiIndex());
+
+		IndexQueryPlan.IndexCost spatialCost = null;
+		IndexQueryPlan.IndexCost spatialTemporalCost = null;
+		for (final IndexQueryPlan.IndexCost cost : plan.getIndexCosts()) {
+			if (cost.getAdapterId().equals(
+					BOTH_INDICES_ADAPTER_ID)) {
+				if (cost.getIndexId().equals(
+						SPATIAL_INDEX.getId())) {
+					spatialCost = cost;
+				}
+				else {
+					spatialTemporalCost = cost;
+				}
+			}
+		}
+		assertTrue(spatialCost.isChosen());
+		assertFalse(spatialTemporalCost.isChosen());
+		assertTrue(spatialCost.getCost() < spatialTemporalCost.getCost());
+		assertTrue(plan.toString().contains(
+				"(chosen)"));
+	}
+
+	@Test
+	public void testTimeBoundedQuery() {
+		// only the spatial temporal index supports time bounds, so there is no
+		// choice to make
+		final SpatialTemporalQuery query = new SpatialTemporalQuery(
+				new Date(
+						1000000000000L),
+				new Date(
+						1000000000000L + (24L * 60 * 60 * 1000)),
+				new GeometryFactory().toGeometry(new Envelope(
+						new Coordinate(
+								-180,
+								-90),
+						new Coordinate(
+								180,
+								90))));
+		final IndexQueryPlan plan = new IndexQueryPlanner(
+				adapterStore,
+				statisticsStore,
+				new RangePlanner(),
+				true).plan(
+				Arrays.asList(BOTH_INDICES_ADAPTER_ID),
+				query,
+				Arrays.asList(
+						SPATIAL_INDEX,
+						SPATIAL_TEMPORAL_INDEX).iterator());
+		assertEquals(
+				Arrays.asList(SPATIAL_TEMPORAL_INDEX),
+				plan.getIndices());
+		assertFalse(plan.isMultiIndex());
+	}
+
+	@Test
+	public void testWithoutCosts() {
+		final IndexQueryPlan plan = new IndexQueryPlanner(
+				adapterStore,
+				statisticsStore,
+				new RangePlanner(),
+				false).plan(
+				null,
+				null,
+				Arrays.asList(
+						SPATIAL_INDEX,
+						SPATIAL_TEMPORAL_INDEX).iterator());
+		assertFalse(plan.isCostBased());
+		assertEquals(
+				2,
+				plan.getIndices().size());
+		assertNull(plan.getAdapterIds(SPATIAL_INDEX.getId()));
+		assertTrue(plan.isMultiIndex());
+		assertTrue(plan.getIndexCosts().isEmpty());
+	}
+
+	@Test
+	public void testChooseIndex() {
+		// the spatial temporal index is not constrained by time, so it would
+		// be read in full
+		final Map<Index, Query> queriesPerIndex = new LinkedHashMap<Index, Query>();
+		queriesPerIndex.put(
+				SPATIAL_INDEX,
+				new SpatialQuery(
+						new GeometryFactory().toGeometry(new Envelope(
+								new Coordinate(
+										10,
+										10),
+								new Coordinate(
+										11,
+										11)))));
+		queriesPerIndex.put(
+				SPATIAL_TEMPORAL_INDEX,
+				null);
+		final IndexQueryPlanner planner = new IndexQueryPlanner(
+				adapterStore,
+				statisticsStore,
+				new RangePlanner(),
+				true);
+		assertEquals(
+				SPATIAL_INDEX,
+				planner.chooseIndex(
+						BOTH_INDICES_ADAPTER_ID,
+						queriesPerIndex));
+		// the adapter may not be in the spatial temporal index at all
+		assertNull(planner.chooseIndex(
+				SPATIAL_ADAPTER_ID,
+				queriesPerIndex));
+	}
+
+	@Test
+	public void testChooseOnlyIndex() {
+		final IndexQueryPlanner planner = new IndexQueryPlanner(
+				adapterStore,
+				statisticsStore,
+				new RangePlanner(),
+				false);
+		final List<Index> indices = Arrays.asList(
+				SPATIAL_INDEX,
+				SPATIAL_TEMPORAL_INDEX);
+		assertEquals(
+				SPATIAL_INDEX,
+				planner.chooseOnlyIndex(
+						SPATIAL_ADAPTER_ID,
+						indices));
+		// both indices hold the adapter, so neither can be read alone
+		assertNull(planner.chooseOnlyIndex(
+				BOTH_INDICES_ADAPTER_ID,
+				indices));
+		assertNull(planner.chooseOnlyIndex(
+				UNKNOWN_ADAPTER_ID,
+				indices));
+	}
+
+	@Test
+	public void testEstimateRowCount() {
+		final IndexQueryPlanner planner = new IndexQueryPlanner(
+				adapterStore,
+				statisticsStore,
+				new RangePlanner(),
+				true);
+		final Long allRows = planner.estimateRowCount(
+				BOTH_INDICES_ADAPTER_ID,
+				SPATIAL_INDEX,
+				null);
+		assertEquals(
+				100000,
+				allRows,
+				1000);
+		final Long spatialRows = planner.estimateRowCount(
+				BOTH_INDICES_ADAPTER_ID,
+				SPATIAL_INDEX,
+				new SpatialQuery(
+						new GeometryFactory().toGeometry(new Envelope(
+								new Coordinate(
+										10,
+										10),
+								new Coordinate(
+										11,
+										11)))));
+		assertTrue(spatialRows < (allRows / 100));
+		assertNull(planner.estimateRowCount(
+				UNKNOWN_ADAPTER_ID,
+				SPATIAL_INDEX,
+				null));
+	}
+
+	private static RowRangeHistogramStatistics<Object> createHistogram(
+			final ByteArrayId adapterId,
+			final Index index ) {
+		final RowRangeHistogramStatistics<Object> histogram = new RowRangeHistogramStatistics<Object>(
+				adapterId,
+				index.getId());
+		final Random rng = new Random(
+				7);
+		for (int i = 0; i < 100000; i++) {
+			final byte[] row = new byte[8];
+			rng.nextBytes(row);
+			final List<ByteArrayId> rowIds = new ArrayList<ByteArrayId>();
+			rowIds.add(new ByteArrayId(
+					row));
+			histogram.entryIngested(
+					new DataStoreEntryInfo(
+							rowIds,
+							new ArrayList<FieldInfo>()),
+					null);
+		}
+		return histogram;
+	}
+}
@@ -0,0 +1,214 @@
+package mil.nga.giat.geowave.accumulo.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.index.ByteArrayRange;
+import mil.nga.giat.geowave.store.DataStoreEntryInfo;
+import mil.nga.giat.geowave.store.DataStoreEntryInfo.FieldInfo;
+import mil.nga.giat.geowave.store.adapter.statistics.RowRangeHistogramStatistics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RangePlannerTest
+{
+	@Test
+	public void testCoalesceSmallGaps() {
+		final RangePlanner planner = new RangePlanner(
+				5000,
+				100,
+				1000000);
+		// the first two ranges are contiguous and the third is close, but the
+		// fourth is far away relative to the span of the query
+		final List<ByteArrayRange> ranges = Arrays.asList(
+				range(
+						0x10000000,
+						0x10000fff),
+				range(
+						0x10001000,
+						0x10001fff),
+				range(
+						0x10002005,
+						0x10002fff),
+				range(
+						0x18000000,
+						0x18000fff));
+		final List<ByteArrayRange> coalesced = planner.coalesce(
+				ranges,
+				Collections.<ByteArrayId> emptyList());
+		Assert.assertEquals(
+				Arrays.asList(
+						range(
+								0x10000000,
+								0x10002fff),
+						range(
+								0x18000000,
+								0x18000fff)),
+				coalesced);
+		Assert.assertEquals(
+				4,
+				planner.getPlannedRangeCount());
+		Assert.assertEquals(
+				2,
+				planner.getScannedRangeCount());
+	}
+
+	@Test
+	public void testNoCoalesceAcrossSplits() {
+		final RangePlanner planner = new RangePlanner();
+		final List<ByteArrayRange> ranges = new ArrayList<ByteArrayRange>();
+		ranges.add(range(
+				0x10001000,
+				0x10001fff));
+		// the ranges are out of order to make sure they are sorted
+		ranges.add(
+				0,
+				range(
+						0x10000000,
+						0x10000fff));
+		ranges.add(range(
+				0x10002000,
+				0x10002fff));
+		final List<ByteArrayRange> coalesced = planner.coalesce(
+				ranges,
+				Arrays.asList(new ByteArrayId(
+						bytes(0x10001800))));
+		Assert.assertEquals(
+				Arrays.asList(
+						range(
+								0x10000000,
+								0x10000fff),
+						range(
+								0x10001000,
+								0x10001fff),
+						range(
+								0x10002000,
+								0x10002fff)),
+				coalesced);
+	}
+
+	@Test
+	public void testMaxRanges() {
+		final RangePlanner planner = new RangePlanner(
+				5000,
+				100,
+				10000);
+		// without a row count a single small tablet isn't worth more than 100
+		// seeks, and more tablets are worth more seeks
+		Assert.assertEquals(
+				100,
+				planner.getMaxRanges(
+						1,
+						-1));
+		Assert.assertEquals(
+				1000,
+				planner.getMaxRanges(
+						10,
+						-1));
+	}
+
+	@Test
+	public void testMaxRangesFromRowCount() {
+		final RangePlanner planner = new RangePlanner();
+		// the default decomposition does not cap a large table
+		Assert.assertEquals(
+				10000,
+				planner.getMaxRanges(
+						1,
+						1000000));
+		// every tablet is worth a seek even when the table is small
+		Assert.assertEquals(
+				50,
+				planner.getMaxRanges(
+						50,
+						1000));
+		Assert.assertEquals(
+				1,
+				planner.getMaxRanges(
+						1,
+						0));
+	}
+
+	@Test
+	public void testCoalesceWithHistogram() {
+		final RangePlanner planner = new RangePlanner();
+		final List<ByteArrayRange> ranges = Arrays.asList(
+				range(
+						0x10000000,
+						0x10000fff),
+				range(
+						0x10002000,
+						0x10002fff),
+				range(
+						0x80000000,
+						0x80000fff),
+				range(
+						0x80002000,
+						0x80002fff));
+		// assuming the rows are spread evenly, both small gaps are merged
+		Assert.assertEquals(
+				Arrays.asList(
+						range(
+								0x10000000,
+								0x10002fff),
+						range(
+								0x80000000,
+								0x80002fff)),
+				planner.coalesce(
+						ranges,
+						Collections.<ByteArrayId> emptyList()));
+		// but the histogram shows that the first gap is full of rows and that
+		// the large gap between the pairs is empty
+		final RowRangeHistogramStatistics<Object> histogram = new RowRangeHistogramStatistics<Object>(
+				new ByteArrayId(
+						"adapter"),
+				new ByteArrayId(
+						"index"));
+		for (int i = 0; i < 1000; i++) {
+			final List<ByteArrayId> rowIds = new ArrayList<ByteArrayId>();
+			rowIds.add(new ByteArrayId(
+					bytes(0x10001000 + (i * 4))));
+			histogram.entryIngested(
+					new DataStoreEntryInfo(
+							rowIds,
+							new ArrayList<FieldInfo>()),
+					null);
+		}
+		Assert.assertEquals(
+				Arrays.asList(
+						range(
+								0x10000000,
+								0x10000fff),
+						range(
+								0x10002000,
+								0x80002fff)),
+				planner.coalesce(
+						ranges,
+						Collections.<ByteArrayId> emptyList(),
+						histogram));
+	}
+
+	private static ByteArrayRange range(
+			final int start,
+			final int end ) {
+		return new ByteArrayRange(
+				new ByteArrayId(
+						bytes(start)),
+				new ByteArrayId(
+						bytes(end)));
+	}
+
+	private static byte[] bytes(
+			final int value ) {
+		return new byte[] {
+			(byte) (value >>> 24),
+			(byte) (value >>> 16),
+			(byte) (value >>> 8),
+			(byte) value
+		};
+	}
+}
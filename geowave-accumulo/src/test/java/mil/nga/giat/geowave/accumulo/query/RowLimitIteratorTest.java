@@ -0,0 +1,102 @@
+package mil.nga.giat.geowave.accumulo.query;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import mil.nga.giat.geowave.accumulo.AccumuloRowId;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RowLimitIteratorTest
+{
+	@Test
+	public void testLimit()
+			throws IOException {
+		final TreeMap<Key, Value> rows = new TreeMap<Key, Value>();
+		for (int i = 0; i < 10; i++) {
+			// every other entry is duplicated, and duplicated rows are not
+			// counted towards the limit
+			addRow(
+					rows,
+					i,
+					(i % 2) == 0 ? 0 : 1);
+		}
+		final Map<String, String> options = new HashMap<String, String>();
+		options.put(
+				RowLimitIterator.LIMIT,
+				"3");
+		final RowLimitIterator it = new RowLimitIterator();
+		it.init(
+				new SortedMapIterator(
+						rows),
+				options,
+				null);
+		it.seek(
+				new Range(),
+				new ArrayList<ByteSequence>(),
+				false);
+		final List<Key> results = new ArrayList<Key>();
+		while (it.hasTop()) {
+			results.add(it.getTopKey());
+			it.next();
+		}
+		// 3 rows are counted and the 2 duplicated rows between them are not
+		Assert.assertEquals(
+				5,
+				results.size());
+	}
+
+	@Test
+	public void testIsDuplicated() {
+		Assert.assertFalse(RowLimitIterator.isDuplicated(new ArrayByteSequence(
+				createRowId(
+						1,
+						0))));
+		Assert.assertTrue(RowLimitIterator.isDuplicated(new ArrayByteSequence(
+				createRowId(
+						1,
+						2))));
+		Assert.assertFalse(RowLimitIterator.isDuplicated(new ArrayByteSequence(
+				new byte[] {
+					1
+				})));
+	}
+
+	private static void addRow(
+			final TreeMap<Key, Value> rows,
+			final int i,
+			final int duplicates ) {
+		rows.put(
+				new Key(
+						new Text(
+								createRowId(
+										i,
+										duplicates))),
+				new Value(
+						new byte[0]));
+	}
+
+	private static byte[] createRowId(
+			final int i,
+			final int duplicates ) {
+		return new AccumuloRowId(
+				new byte[] {
+					(byte) i
+				},
+				("data" + i).getBytes(),
+				"adapter".getBytes(),
+				duplicates).getRowId();
+	}
+}
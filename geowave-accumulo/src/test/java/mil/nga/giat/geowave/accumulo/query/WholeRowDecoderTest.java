@@ -0,0 +1,194 @@
+package mil.nga.giat.geowave.accumulo.query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mil.nga.giat.geowave.accumulo.AccumuloRowId;
+import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.store.adapter.IndexedAdapterPersistenceEncoding;
+import mil.nga.giat.geowave.store.data.PersistentValue;
+import mil.nga.giat.geowave.store.dimension.DimensionField;
+import mil.nga.giat.geowave.store.dimension.GeometryWrapper;
+import mil.nga.giat.geowave.store.index.CommonIndexModel;
+import mil.nga.giat.geowave.store.index.CommonIndexValue;
+import mil.nga.giat.geowave.store.index.IndexType;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+public class WholeRowDecoderTest
+{
+	private final CommonIndexModel model = IndexType.SPATIAL_VECTOR.getDefaultIndexModel();
+	private final GeometryFactory factory = new GeometryFactory();
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testDecodeRow() {
+		final WholeRowDecoder decoder = new WholeRowDecoder(
+				model,
+				null);
+		final DimensionField<GeometryWrapper> geometryField = (DimensionField<GeometryWrapper>) model.getDimensions()[0];
+		final ByteArrayId fieldId = geometryField.getFieldId();
+		final List<Key> keys = new ArrayList<Key>();
+		final List<Value> values = new ArrayList<Value>();
+		for (int i = 0; i < 2; i++) {
+			keys.clear();
+			values.clear();
+			final byte[] rowId = new AccumuloRowId(
+					new byte[] {
+						1,
+						2,
+						(byte) i
+					},
+					("data" + i).getBytes(),
+					"adapter".getBytes(),
+					i).getRowId();
+			// a longer row is read first so that the backing array of the
+			// reused text is longer than the row
+			final Text row = new Text(
+					new byte[64]);
+			row.set(rowId);
+			keys.add(new Key(
+					new Text(
+							rowId),
+					new Text(),
+					new Text(
+							fieldId.getBytes()),
+					new Text(
+							"vis"),
+					0L));
+			values.add(new Value(
+					geometryField.getWriter().writeField(
+							new GeometryWrapper(
+									factory.createPoint(new Coordinate(
+											i,
+											i))))));
+			keys.add(new Key(
+					new Text(
+							rowId),
+					new Text(),
+					new Text(
+							"unknown"),
+					new Text(),
+					0L));
+			values.add(new Value(
+					new byte[] {
+						0
+					}));
+			final IndexedAdapterPersistenceEncoding encoding = decoder.decodeRow(
+					row,
+					keys,
+					values);
+			Assert.assertEquals(
+					new ByteArrayId(
+							"adapter"),
+					encoding.getAdapterId());
+			Assert.assertEquals(
+					new ByteArrayId(
+							"data" + i),
+					encoding.getDataId());
+			Assert.assertEquals(
+					new ByteArrayId(
+							new byte[] {
+								1,
+								2,
+								(byte) i
+							}),
+					encoding.getIndexInsertionId());
+			Assert.assertEquals(
+					i,
+					encoding.getDuplicateCount());
+			Assert.assertEquals(
+					i > 0,
+					encoding.isDuplicated());
+			final List<PersistentValue<CommonIndexValue>> commonValues = (List<PersistentValue<CommonIndexValue>>) (List<?>) encoding.getCommonData().getValues();
+			Assert.assertEquals(
+					1,
+					commonValues.size());
+			final GeometryWrapper geometry = (GeometryWrapper) encoding.getCommonData().getValue(
+					fieldId);
+			Assert.assertEquals(
+					factory.createPoint(new Coordinate(
+							i,
+							i)),
+					geometry.getGeometry());
+			Assert.assertArrayEquals(
+					"vis".getBytes(),
+					geometry.getVisibility());
+			Assert.assertNull(encoding.getCommonData().getValue(
+					new ByteArrayId(
+							"unknown")));
+			Assert.assertTrue(encoding.getAdapterExtendedData().getValues().isEmpty());
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testManyQualifiers() {
+		final WholeRowDecoder decoder = new WholeRowDecoder(
+				model,
+				null);
+		final DimensionField<GeometryWrapper> geometryField = (DimensionField<GeometryWrapper>) model.getDimensions()[0];
+		final ByteArrayId fieldId = geometryField.getFieldId();
+		final byte[] rowId = new AccumuloRowId(
+				new byte[] {
+					1
+				},
+				"data".getBytes(),
+				"adapter".getBytes(),
+				0).getRowId();
+		final List<Key> keys = new ArrayList<Key>();
+		final List<Value> values = new ArrayList<Value>();
+		// more distinct qualifiers than are cached precede the geometry
+		for (int i = 0; i < 300; i++) {
+			keys.add(new Key(
+					new Text(
+							rowId),
+					new Text(),
+					new Text(
+							"unknown" + i),
+					new Text(),
+					0L));
+			values.add(new Value(
+					new byte[] {
+						0
+					}));
+		}
+		keys.add(new Key(
+				new Text(
+						rowId),
+				new Text(),
+				new Text(
+						fieldId.getBytes()),
+				new Text(),
+				0L));
+		values.add(new Value(
+				geometryField.getWriter().writeField(
+						new GeometryWrapper(
+								factory.createPoint(new Coordinate(
+										1,
+										2))))));
+		for (int i = 0; i < 2; i++) {
+			final IndexedAdapterPersistenceEncoding encoding = decoder.decodeRow(
+					new Text(
+							rowId),
+					keys,
+					values);
+			Assert.assertEquals(
+					1,
+					encoding.getCommonData().getValues().size());
+			Assert.assertEquals(
+					factory.createPoint(new Coordinate(
+							1,
+							2)),
+					((GeometryWrapper) encoding.getCommonData().getValue(
+							fieldId)).getGeometry());
+		}
+	}
+}
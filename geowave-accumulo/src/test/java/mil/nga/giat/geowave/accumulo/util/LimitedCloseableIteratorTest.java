@@ -0,0 +1,79 @@
+package mil.nga.giat.geowave.accumulo.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mil.nga.giat.geowave.store.CloseableIterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LimitedCloseableIteratorTest
+{
+	@Test
+	public void testClosesWhenLimitIsReturned()
+			throws IOException {
+		final AtomicInteger closedCount = new AtomicInteger();
+		final CloseableIterator<Integer> it = new LimitedCloseableIterator<Integer>(
+				createIterator(
+						10,
+						closedCount),
+				3);
+		// the caller stops at the limit without asking for more results
+		for (int i = 0; i < 3; i++) {
+			Assert.assertEquals(
+					Integer.valueOf(i),
+					it.next());
+		}
+		Assert.assertEquals(
+				1,
+				closedCount.get());
+		Assert.assertFalse(it.hasNext());
+		it.close();
+		Assert.assertEquals(
+				1,
+				closedCount.get());
+	}
+
+	@Test
+	public void testFewerResultsThanLimit()
+			throws IOException {
+		final AtomicInteger closedCount = new AtomicInteger();
+		final CloseableIterator<Integer> it = new LimitedCloseableIterator<Integer>(
+				createIterator(
+						2,
+						closedCount),
+				5);
+		int count = 0;
+		while (it.hasNext()) {
+			it.next();
+			count++;
+		}
+		Assert.assertEquals(
+				2,
+				count);
+		Assert.assertEquals(
+				1,
+				closedCount.get());
+	}
+
+	private static CloseableIterator<Integer> createIterator(
+			final int count,
+			final AtomicInteger closedCount ) {
+		final List<Integer> results = new ArrayList<Integer>();
+		for (int i = 0; i < count; i++) {
+			results.add(i);
+		}
+		return new CloseableIteratorWrapper<Integer>(
+				new Closeable() {
+					@Override
+					public void close() {
+						closedCount.incrementAndGet();
+					}
+				},
+				results.iterator());
+	}
+}
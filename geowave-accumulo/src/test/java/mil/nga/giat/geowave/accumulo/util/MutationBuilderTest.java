@@ -0,0 +1,106 @@
+package mil.nga.giat.geowave.accumulo.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.index.StringUtils;
+import mil.nga.giat.geowave.store.DataStoreEntryInfo;
+import mil.nga.giat.geowave.store.DataStoreEntryInfo.FieldInfo;
+import mil.nga.giat.geowave.store.data.PersistentValue;
+
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MutationBuilderTest
+{
+	@Test
+	public void testMatchesMutationsBuiltFromText() {
+		final byte[] adapterId = StringUtils.stringToBinary("adapter");
+		final List<FieldInfo> fieldInfo = new ArrayList<FieldInfo>();
+		fieldInfo.add(field(
+				"geom",
+				new byte[] {
+					1,
+					2,
+					3
+				},
+				"a&b"));
+		fieldInfo.add(field(
+				"name",
+				StringUtils.stringToBinary("test"),
+				""));
+		fieldInfo.add(field(
+				"time",
+				new byte[] {
+					4
+				},
+				"a|c"));
+		final DataStoreEntryInfo ingestInfo = new DataStoreEntryInfo(
+				Arrays.asList(
+						new ByteArrayId(
+								"row1"),
+						new ByteArrayId(
+								"row2"),
+						new ByteArrayId(
+								"row3")),
+				fieldInfo);
+
+		final List<Mutation> expectedMutations = new ArrayList<Mutation>();
+		for (final ByteArrayId rowId : ingestInfo.getRowIds()) {
+			final Mutation mutation = new Mutation(
+					new Text(
+							rowId.getBytes()));
+			for (final FieldInfo f : fieldInfo) {
+				mutation.put(
+						new Text(
+								adapterId),
+						new Text(
+								f.getDataValue().getId().getBytes()),
+						new ColumnVisibility(
+								f.getVisibility()),
+						new Value(
+								f.getWrittenValue()));
+			}
+			expectedMutations.add(mutation);
+		}
+		Assert.assertEquals(
+				expectedMutations,
+				new MutationBuilder().buildMutations(
+						adapterId,
+						ingestInfo));
+	}
+
+	@Test
+	public void testInternVisibilities() {
+		final MutationBuilder builder = new MutationBuilder();
+		final ColumnVisibility visibility = builder.getColumnVisibility(StringUtils.stringToBinary("a&b"));
+		Assert.assertSame(
+				visibility,
+				builder.getColumnVisibility(StringUtils.stringToBinary("a&b")));
+		Assert.assertNotSame(
+				visibility,
+				builder.getColumnVisibility(StringUtils.stringToBinary("a|b")));
+		Assert.assertEquals(
+				new ColumnVisibility(),
+				builder.getColumnVisibility(new byte[0]));
+	}
+
+	private static FieldInfo field(
+			final String fieldId,
+			final byte[] value,
+			final String visibility ) {
+		return new FieldInfo<Object>(
+				new PersistentValue<Object>(
+						new ByteArrayId(
+								fieldId),
+						null),
+				value,
+				StringUtils.stringToBinary(visibility));
+	}
+}
@@ -0,0 +1,178 @@
+package mil.nga.giat.geowave.accumulo.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mil.nga.giat.geowave.store.CloseableIterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParallelCloseableIteratorTest
+{
+	private final ExecutorService executor = ParallelCloseableIterator.createExecutor(3);
+
+	@Test
+	public void testMergesAllSources()
+			throws IOException {
+		final AtomicInteger openedCount = new AtomicInteger();
+		final AtomicInteger closedCount = new AtomicInteger();
+		final List<Callable<CloseableIterator<Integer>>> sources = new ArrayList<Callable<CloseableIterator<Integer>>>();
+		for (int i = 0; i < 4; i++) {
+			sources.add(createSource(
+					i * 1000,
+					1000,
+					-1,
+					openedCount,
+					closedCount));
+		}
+		// a queue much smaller than the results makes the sources wait on the
+		// consumer
+		final ParallelCloseableIterator<Integer> it = new ParallelCloseableIterator<Integer>(
+				sources,
+				executor,
+				10,
+				null);
+		final List<Integer> results = new ArrayList<Integer>();
+		while (it.hasNext()) {
+			results.add(it.next());
+		}
+		it.close();
+		Collections.sort(results);
+		Assert.assertEquals(
+				4000,
+				results.size());
+		for (int i = 0; i < results.size(); i++) {
+			Assert.assertEquals(
+					Integer.valueOf(i),
+					results.get(i));
+		}
+		Assert.assertEquals(
+				4,
+				closedCount.get());
+	}
+
+	@Test
+	public void testLimitClosesSources()
+			throws InterruptedException {
+		final AtomicInteger openedCount = new AtomicInteger();
+		final AtomicInteger closedCount = new AtomicInteger();
+		final List<Callable<CloseableIterator<Integer>>> sources = new ArrayList<Callable<CloseableIterator<Integer>>>();
+		for (int i = 0; i < 3; i++) {
+			// the sources never end on their own
+			sources.add(createSource(
+					0,
+					Integer.MAX_VALUE,
+					-1,
+					openedCount,
+					closedCount));
+		}
+		final ParallelCloseableIterator<Integer> it = new ParallelCloseableIterator<Integer>(
+				sources,
+				executor,
+				10,
+				25);
+		int count = 0;
+		while (it.hasNext()) {
+			it.next();
+			count++;
+		}
+		Assert.assertEquals(
+				25,
+				count);
+		// a source that had not been opened by the time the limit was reached
+		// is never opened, and every source that was opened is closed
+		for (int i = 0; (i < 100) && (closedCount.get() < openedCount.get()); i++) {
+			Thread.sleep(100);
+		}
+		Assert.assertTrue(openedCount.get() > 0);
+		Assert.assertEquals(
+				openedCount.get(),
+				closedCount.get());
+	}
+
+	@Test
+	public void testSourceFailureIsThrown() {
+		final AtomicInteger openedCount = new AtomicInteger();
+		final AtomicInteger closedCount = new AtomicInteger();
+		final List<Callable<CloseableIterator<Integer>>> sources = new ArrayList<Callable<CloseableIterator<Integer>>>();
+		sources.add(createSource(
+				0,
+				1000,
+				-1,
+				openedCount,
+				closedCount));
+		sources.add(createSource(
+				1000,
+				1000,
+				500,
+				openedCount,
+				closedCount));
+		final ParallelCloseableIterator<Integer> it = new ParallelCloseableIterator<Integer>(
+				sources,
+				executor,
+				10,
+				null);
+		int count = 0;
+		try {
+			while (it.hasNext()) {
+				it.next();
+				count++;
+			}
+			Assert.fail("The failure of a source should be thrown rather than ending the results");
+		}
+		catch (final IllegalStateException e) {
+			Assert.assertEquals(
+					"Unable to read result 500",
+					e.getMessage());
+		}
+		// the failing source returned 500 results before it failed
+		Assert.assertTrue(count >= 500);
+		Assert.assertTrue(count < 2000);
+		Assert.assertFalse(it.hasNext());
+	}
+
+	private static Callable<CloseableIterator<Integer>> createSource(
+			final int start,
+			final int count,
+			final int failAt,
+			final AtomicInteger openedCount,
+			final AtomicInteger closedCount ) {
+		return new Callable<CloseableIterator<Integer>>() {
+			@Override
+			public CloseableIterator<Integer> call() {
+				openedCount.incrementAndGet();
+				return new CloseableIterator<Integer>() {
+					private int i = 0;
+
+					@Override
+					public boolean hasNext() {
+						return i < count;
+					}
+
+					@Override
+					public Integer next() {
+						if (i == failAt) {
+							throw new IllegalStateException(
+									"Unable to read result " + i);
+						}
+						return start + i++;
+					}
+
+					@Override
+					public void remove() {}
+
+					@Override
+					public void close() {
+						closedCount.incrementAndGet();
+					}
+				};
+			}
+		};
+	}
+}
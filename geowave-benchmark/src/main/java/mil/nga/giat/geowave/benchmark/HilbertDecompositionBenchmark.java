@@ -0,0 +1,150 @@
+package mil.nga.giat.geowave.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import mil.nga.giat.geowave.index.dimension.LatitudeDefinition;
+import mil.nga.giat.geowave.index.dimension.LongitudeDefinition;
+import mil.nga.giat.geowave.index.sfc.RangeDecomposition;
+import mil.nga.giat.geowave.index.sfc.SFCDimensionDefinition;
+import mil.nga.giat.geowave.index.sfc.SFCFactory;
+import mil.nga.giat.geowave.index.sfc.SFCFactory.SFCType;
+import mil.nga.giat.geowave.index.sfc.SpaceFillingCurve;
+import mil.nga.giat.geowave.index.sfc.data.BasicNumericDataset;
+import mil.nga.giat.geowave.index.sfc.data.MultiDimensionalNumericData;
+import mil.nga.giat.geowave.index.sfc.data.NumericData;
+import mil.nga.giat.geowave.index.sfc.data.NumericRange;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures Hilbert SFC query decomposition throughput when a single curve
+ * instance is shared by 1, 8 and 64 concurrent threads, which mirrors many
+ * WMS/WFS request threads planning queries against the same index.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class HilbertDecompositionBenchmark
+{
+	private static final int LATITUDE_BITS = 31;
+	private static final int LONGITUDE_BITS = 31;
+	private static final int NUM_QUERIES = 1024;
+	private static final int MAX_RANGES = 1000;
+
+	@State(Scope.Benchmark)
+	public static class SharedCurve
+	{
+		SpaceFillingCurve hilbertSFC;
+		MultiDimensionalNumericData[] queries;
+
+		@Setup
+		public void setup() {
+			hilbertSFC = SFCFactory.createSpaceFillingCurve(
+					new SFCDimensionDefinition[] {
+						new SFCDimensionDefinition(
+								new LongitudeDefinition(),
+								LONGITUDE_BITS),
+						new SFCDimensionDefinition(
+								new LatitudeDefinition(),
+								LATITUDE_BITS)
+					},
+					SFCType.HILBERT);
+
+			// a fixed seed keeps the query mix identical across runs
+			final Random rng = new Random(
+					8675309L);
+			queries = new MultiDimensionalNumericData[NUM_QUERIES];
+			for (int i = 0; i < NUM_QUERIES; i++) {
+				// roughly tile sized boxes, between 0.1 and 5 degrees wide
+				final double width = 0.1 + (rng.nextDouble() * 4.9);
+				final double height = 0.1 + (rng.nextDouble() * 4.9);
+				final double minX = -180 + (rng.nextDouble() * (360 - width));
+				final double minY = -90 + (rng.nextDouble() * (180 - height));
+				queries[i] = new BasicNumericDataset(
+						new NumericData[] {
+							new NumericRange(
+									minX,
+									minX + width),
+							new NumericRange(
+									minY,
+									minY + height)
+						});
+			}
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class QueryCursor
+	{
+		int next;
+
+		MultiDimensionalNumericData nextQuery(
+				final SharedCurve curve ) {
+			final MultiDimensionalNumericData query = curve.queries[next];
+			next = (next + 1) % NUM_QUERIES;
+			return query;
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public RangeDecomposition decomposeOneThread(
+			final SharedCurve curve,
+			final QueryCursor cursor ) {
+		return decompose(
+				curve,
+				cursor);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public RangeDecomposition decomposeEightThreads(
+			final SharedCurve curve,
+			final QueryCursor cursor ) {
+		return decompose(
+				curve,
+				cursor);
+	}
+
+	@Benchmark
+	@Threads(64)
+	public RangeDecomposition decomposeSixtyFourThreads(
+			final SharedCurve curve,
+			final QueryCursor cursor ) {
+		return decompose(
+				curve,
+				cursor);
+	}
+
+	private static RangeDecomposition decompose(
+			final SharedCurve curve,
+			final QueryCursor cursor ) {
+		return curve.hilbertSFC.decomposeQuery(
+				cursor.nextQuery(curve),
+				MAX_RANGES);
+	}
+
+	public static void main(
+			final String[] args )
+			throws RunnerException {
+		new Runner(
+				new OptionsBuilder().include(
+						HilbertDecompositionBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,150 @@
+package mil.nga.giat.geowave.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.index.NumericIndexStrategy;
+import mil.nga.giat.geowave.index.NumericIndexStrategyFactory.DataType;
+import mil.nga.giat.geowave.index.NumericIndexStrategyFactory.SpatialTemporalFactory;
+import mil.nga.giat.geowave.index.sfc.data.BasicNumericDataset;
+import mil.nga.giat.geowave.index.sfc.data.MultiDimensionalNumericData;
+import mil.nga.giat.geowave.index.sfc.data.NumericData;
+import mil.nga.giat.geowave.index.sfc.data.NumericRange;
+import mil.nga.giat.geowave.index.sfc.data.NumericValue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures insertion ID throughput when a single spatial temporal index
+ * strategy is shared by 1, 8 and 64 concurrent threads, which mirrors many
+ * ingest threads writing to the same index.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InsertionIdBenchmark
+{
+	private static final int NUM_ENTRIES = 4096;
+
+	@State(Scope.Benchmark)
+	public static class SharedStrategy
+	{
+		NumericIndexStrategy indexStrategy;
+		MultiDimensionalNumericData[] entries;
+
+		@Setup
+		public void setup() {
+			indexStrategy = new SpatialTemporalFactory().createIndexStrategy(DataType.VECTOR);
+
+			// a fixed seed keeps the entry mix identical across runs
+			final Random rng = new Random(
+					8675309L);
+			entries = new MultiDimensionalNumericData[NUM_ENTRIES];
+			for (int i = 0; i < NUM_ENTRIES; i++) {
+				final double time = rng.nextDouble() * 1500000000000L;
+				final NumericData x;
+				final NumericData y;
+				// mostly points, with some small polygons and lines
+				if ((i % 4) == 0) {
+					final double width = rng.nextDouble() * 0.5;
+					final double height = rng.nextDouble() * 0.5;
+					final double minX = -180 + (rng.nextDouble() * (360 - width));
+					final double minY = -90 + (rng.nextDouble() * (180 - height));
+					x = new NumericRange(
+							minX,
+							minX + width);
+					y = new NumericRange(
+							minY,
+							minY + height);
+				}
+				else {
+					x = new NumericValue(
+							-180 + (rng.nextDouble() * 360));
+					y = new NumericValue(
+							-90 + (rng.nextDouble() * 180));
+				}
+				entries[i] = new BasicNumericDataset(
+						new NumericData[] {
+							x,
+							y,
+							new NumericValue(
+									time)
+						});
+			}
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class EntryCursor
+	{
+		int next;
+
+		MultiDimensionalNumericData nextEntry(
+				final SharedStrategy strategy ) {
+			final MultiDimensionalNumericData entry = strategy.entries[next];
+			next = (next + 1) % NUM_ENTRIES;
+			return entry;
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public List<ByteArrayId> insertionIdsOneThread(
+			final SharedStrategy strategy,
+			final EntryCursor cursor ) {
+		return getInsertionIds(
+				strategy,
+				cursor);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public List<ByteArrayId> insertionIdsEightThreads(
+			final SharedStrategy strategy,
+			final EntryCursor cursor ) {
+		return getInsertionIds(
+				strategy,
+				cursor);
+	}
+
+	@Benchmark
+	@Threads(64)
+	public List<ByteArrayId> insertionIdsSixtyFourThreads(
+			final SharedStrategy strategy,
+			final EntryCursor cursor ) {
+		return getInsertionIds(
+				strategy,
+				cursor);
+	}
+
+	private static List<ByteArrayId> getInsertionIds(
+			final SharedStrategy strategy,
+			final EntryCursor cursor ) {
+		return strategy.indexStrategy.getInsertionIds(cursor.nextEntry(strategy));
+	}
+
+	public static void main(
+			final String[] args )
+			throws RunnerException {
+		new Runner(
+				new OptionsBuilder().include(
+						InsertionIdBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,154 @@
+package mil.nga.giat.geowave.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import mil.nga.giat.geowave.accumulo.util.MutationBuilder;
+import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.index.StringUtils;
+import mil.nga.giat.geowave.store.DataStoreEntryInfo;
+import mil.nga.giat.geowave.store.DataStoreEntryInfo.FieldInfo;
+import mil.nga.giat.geowave.store.data.PersistentValue;
+
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares building the mutations of a feature through Text, Value and a newly
+ * parsed ColumnVisibility per field and row ID against the MutationBuilder. The
+ * features have 8 attributes with a couple of visibilities and are duplicated
+ * across 1 or 4 row IDs, as a feature spanning tiers or bins would be. The GC
+ * profiler is enabled so the allocation per feature (gc.alloc.rate.norm) is
+ * reported alongside the time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MutationBuilderBenchmark
+{
+	private static final int NUM_FEATURES = 1024;
+	private static final int NUM_FIELDS = 8;
+	private static final byte[] ADAPTER_ID = StringUtils.stringToBinary("benchmark_feature");
+	private static final String[] VISIBILITIES = new String[] {
+		"a&b",
+		"a&(b|c)"
+	};
+
+	@State(Scope.Thread)
+	public static class Features
+	{
+		@Param({
+			"1",
+			"4"
+		})
+		int rowIdsPerFeature;
+
+		DataStoreEntryInfo[] features;
+		MutationBuilder builder;
+		int next;
+
+		@Setup
+		public void setup() {
+			builder = new MutationBuilder();
+			// a fixed seed keeps the features identical across runs
+			final Random rng = new Random(
+					8675309L);
+			features = new DataStoreEntryInfo[NUM_FEATURES];
+			for (int i = 0; i < NUM_FEATURES; i++) {
+				final List<ByteArrayId> rowIds = new ArrayList<ByteArrayId>(
+						rowIdsPerFeature);
+				for (int r = 0; r < rowIdsPerFeature; r++) {
+					final byte[] rowId = new byte[32];
+					rng.nextBytes(rowId);
+					rowIds.add(new ByteArrayId(
+							rowId));
+				}
+				final List<FieldInfo> fieldInfo = new ArrayList<FieldInfo>(
+						NUM_FIELDS);
+				for (int f = 0; f < NUM_FIELDS; f++) {
+					final byte[] value = new byte[8 + rng.nextInt(64)];
+					rng.nextBytes(value);
+					fieldInfo.add(new FieldInfo<Object>(
+							new PersistentValue<Object>(
+									new ByteArrayId(
+											"attribute_" + f),
+									null),
+							value,
+							StringUtils.stringToBinary(VISIBILITIES[f % VISIBILITIES.length])));
+				}
+				features[i] = new DataStoreEntryInfo(
+						rowIds,
+						fieldInfo);
+			}
+		}
+
+		DataStoreEntryInfo nextFeature() {
+			final DataStoreEntryInfo feature = features[next];
+			next = (next + 1) % NUM_FEATURES;
+			return feature;
+		}
+	}
+
+	@Benchmark
+	public List<Mutation> textPerField(
+			final Features features ) {
+		final DataStoreEntryInfo ingestInfo = features.nextFeature();
+		final List<Mutation> mutations = new ArrayList<Mutation>();
+		for (final ByteArrayId rowId : ingestInfo.getRowIds()) {
+			final Mutation mutation = new Mutation(
+					new Text(
+							rowId.getBytes()));
+			for (final FieldInfo fieldInfo : ingestInfo.getFieldInfo()) {
+				mutation.put(
+						new Text(
+								ADAPTER_ID),
+						new Text(
+								fieldInfo.getDataValue().getId().getBytes()),
+						new ColumnVisibility(
+								fieldInfo.getVisibility()),
+						new Value(
+								fieldInfo.getWrittenValue()));
+			}
+			mutations.add(mutation);
+		}
+		return mutations;
+	}
+
+	@Benchmark
+	public List<Mutation> mutationBuilder(
+			final Features features ) {
+		return features.builder.buildMutations(
+				ADAPTER_ID,
+				features.nextFeature());
+	}
+
+	public static void main(
+			final String[] args )
+			throws RunnerException {
+		new Runner(
+				new OptionsBuilder().include(
+						MutationBuilderBenchmark.class.getSimpleName()).addProfiler(
+						GCProfiler.class).build()).run();
+	}
+}
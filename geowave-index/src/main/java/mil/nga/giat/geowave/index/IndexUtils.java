@@ -1,9 +1,13 @@
 package mil.nga.giat.geowave.index;
 
+import java.util.List;
+
 import mil.nga.giat.geowave.index.dimension.NumericDimensionDefinition;
 import mil.nga.giat.geowave.index.sfc.data.BasicNumericDataset;
 import mil.nga.giat.geowave.index.sfc.data.MultiDimensionalNumericData;
+import mil.nga.giat.geowave.index.sfc.data.NumericData;
 import mil.nga.giat.geowave.index.sfc.data.NumericRange;
+import mil.nga.giat.geowave.index.sfc.data.NumericValue;
 
 public class IndexUtils
 {
@@ -21,4 +25,55 @@ public class IndexUtils
 		return new BasicNumericDataset(
 				boundsPerDimension);
 	}
+
+	/**
+	 * Get the numeric data of a single entry within a batch of entries laid out
+	 * as described by NumericIndexStrategy.getInsertionIds()
+	 */
+	public static MultiDimensionalNumericData getEntryData(
+			final double[] minValuesPerEntry,
+			final double[] maxValuesPerEntry,
+			final int entryIndex,
+			final int dimensionCount ) {
+		final NumericData[] dataPerDimension = new NumericData[dimensionCount];
+		final int offset = entryIndex * dimensionCount;
+		for (int d = 0; d < dimensionCount; d++) {
+			final double min = minValuesPerEntry[offset + d];
+			final double max = maxValuesPerEntry[offset + d];
+			if (min == max) {
+				dataPerDimension[d] = new NumericValue(
+						min);
+			}
+			else {
+				dataPerDimension[d] = new NumericRange(
+						min,
+						max);
+			}
+		}
+		return new BasicNumericDataset(
+				dataPerDimension);
+	}
+
+	/**
+	 * Adds the insertion IDs of a batch of entries one entry at a time, for
+	 * index strategies that have nothing to gain from batching
+	 */
+	public static void getInsertionIds(
+			final NumericIndexStrategy indexStrategy,
+			final double[] minValuesPerEntry,
+			final double[] maxValuesPerEntry,
+			final int entryCount,
+			final List<ByteArrayId> insertionIds,
+			final int[] insertionIdCountPerEntry ) {
+		final int dimensionCount = indexStrategy.getOrderedDimensionDefinitions().length;
+		for (int i = 0; i < entryCount; i++) {
+			final List<ByteArrayId> entryInsertionIds = indexStrategy.getInsertionIds(getEntryData(
+					minValuesPerEntry,
+					maxValuesPerEntry,
+					i,
+					dimensionCount));
+			insertionIds.addAll(entryInsertionIds);
+			insertionIdCountPerEntry[i] = entryInsertionIds.size();
+		}
+	}
 }
@@ -74,6 +74,22 @@ public class NullNumericIndexStrategy implements
 		return id;
 	}
 
+	@Override
+	public void getInsertionIds(
+			final double[] minValuesPerEntry,
+			final double[] maxValuesPerEntry,
+			final int entryCount,
+			final List<ByteArrayId> insertionIds,
+			final int[] insertionIdCountPerEntry ) {
+		IndexUtils.getInsertionIds(
+				this,
+				minValuesPerEntry,
+				maxValuesPerEntry,
+				entryCount,
+				insertionIds,
+				insertionIdCountPerEntry);
+	}
+
 	@Override
 	public MultiDimensionalNumericData getRangeForId(
 			final ByteArrayId insertionId ) {
@@ -61,6 +61,35 @@ public interface NumericIndexStrategy extends
 			MultiDimensionalNumericData indexedData,
 			int maxEstimatedDuplicateIds );
 
+	/**
+	 * Adds the insertion IDs for a batch of entries to a caller supplied
+	 * buffer. The index strategy will use a reasonable default for the maximum
+	 * duplication of insertion IDs. This avoids the per entry overhead of
+	 * getInsertionIds() when many entries, such as points, are ingested at
+	 * once.
+	 * 
+	 * @param minValuesPerEntry
+	 *            the min value per dimension of each entry, one entry after the
+	 *            other so that the min of dimension d for entry i is at (i *
+	 *            dimension count) + d
+	 * @param maxValuesPerEntry
+	 *            the max value per dimension of each entry, in the same layout
+	 *            as the min values
+	 * @param entryCount
+	 *            the number of entries in the batch
+	 * @param insertionIds
+	 *            the buffer that the insertion IDs of every entry are added to,
+	 *            in entry order
+	 * @param insertionIdCountPerEntry
+	 *            filled with the number of insertion IDs added for each entry
+	 */
+	public void getInsertionIds(
+			double[] minValuesPerEntry,
+			double[] maxValuesPerEntry,
+			int entryCount,
+			List<ByteArrayId> insertionIds,
+			int[] insertionIdCountPerEntry );
+
 	/**
 	 * Returns the range that the given ID represents
 	 * 
@@ -73,6 +73,21 @@ public class NumericIndexStrategyWrapper implements
 		return indexStrategy.getInsertionIds(indexedData);
 	}
 
+	@Override
+	public void getInsertionIds(
+			final double[] minValuesPerEntry,
+			final double[] maxValuesPerEntry,
+			final int entryCount,
+			final List<ByteArrayId> insertionIds,
+			final int[] insertionIdCountPerEntry ) {
+		indexStrategy.getInsertionIds(
+				minValuesPerEntry,
+				maxValuesPerEntry,
+				entryCount,
+				insertionIds,
+				insertionIdCountPerEntry);
+	}
+
 	@Override
 	public MultiDimensionalNumericData getRangeForId(
 			final ByteArrayId insertionId ) {
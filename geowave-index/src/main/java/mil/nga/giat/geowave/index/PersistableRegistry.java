@@ -0,0 +1,93 @@
+package mil.nga.giat.geowave.index;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This registry maps persistable types to short numeric type IDs. When a type
+ * is registered, PersistenceUtils writes its type ID instead of its fully
+ * qualified class name, which is usually the largest part of a small serialized
+ * object such as a query filter. Binaries written with the class name remain
+ * readable whether or not the type is registered.
+ * 
+ * Registration is opt-in because every process that reads the binary must
+ * register the same type IDs, including the tablet servers that deserialize
+ * filters and statistics in iterators. Types should therefore be registered in
+ * a static initializer of a class that both the writer and the reader load.
+ */
+public class PersistableRegistry
+{
+	private static final ConcurrentHashMap<Short, Constructor<? extends Persistable>> CONSTRUCTORS_BY_ID = new ConcurrentHashMap<Short, Constructor<? extends Persistable>>();
+	private static final ConcurrentHashMap<Class<?>, Short> IDS_BY_TYPE = new ConcurrentHashMap<Class<?>, Short>();
+
+	/**
+	 * Register a persistable type
+	 * 
+	 * @param typeId
+	 *            the type ID, which must be positive
+	 * @param type
+	 *            the persistable type
+	 * @throws IllegalArgumentException
+	 *             if the type ID is not positive or either the type ID or the
+	 *             type is already registered to something else, or the type
+	 *             does not have a no-arg constructor
+	 */
+	public static synchronized void register(
+			final short typeId,
+			final Class<? extends Persistable> type ) {
+		if (typeId <= 0) {
+			throw new IllegalArgumentException(
+					"Type ID for " + type.getName() + " must be positive");
+		}
+		final Constructor<? extends Persistable> existingConstructor = CONSTRUCTORS_BY_ID.get(typeId);
+		final Short existingId = IDS_BY_TYPE.get(type);
+		if ((existingConstructor != null) && (existingConstructor.getDeclaringClass() == type)) {
+			return;
+		}
+		if (existingConstructor != null) {
+			throw new IllegalArgumentException(
+					"Type ID " + typeId + " is already registered to " + existingConstructor.getDeclaringClass().getName());
+		}
+		if (existingId != null) {
+			throw new IllegalArgumentException(
+					type.getName() + " is already registered with type ID " + existingId);
+		}
+		final Constructor<? extends Persistable> noArgConstructor;
+		try {
+			noArgConstructor = type.getDeclaredConstructor();
+			noArgConstructor.setAccessible(true);
+		}
+		catch (final NoSuchMethodException e) {
+			throw new IllegalArgumentException(
+					type.getName() + " does not have a no-arg constructor",
+					e);
+		}
+		CONSTRUCTORS_BY_ID.put(
+				typeId,
+				noArgConstructor);
+		IDS_BY_TYPE.put(
+				type,
+				typeId);
+	}
+
+	/**
+	 * @param type
+	 *            the persistable type
+	 * @return the registered type ID, or null if the type is not registered
+	 */
+	public static Short getTypeId(
+			final Class<?> type ) {
+		return IDS_BY_TYPE.get(type);
+	}
+
+	/**
+	 * @param typeId
+	 *            the type ID
+	 * @return the accessible no-arg constructor of the registered type, or null
+	 *         if nothing is registered with the type ID
+	 */
+	public static Constructor<? extends Persistable> getConstructor(
+			final short typeId ) {
+		return CONSTRUCTORS_BY_ID.get(typeId);
+	}
+}
@@ -5,6 +5,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 
@@ -16,6 +17,10 @@ import org.apache.log4j.Logger;
 public class PersistenceUtils
 {
 	private final static Logger LOGGER = Logger.getLogger(PersistenceUtils.class);
+	// there are only so many persistable classes, this just guards against
+	// unbounded growth if class names are somehow arbitrary
+	private static final int MAX_CACHED_CONSTRUCTORS = 1024;
+	private static final ConcurrentHashMap<ByteArrayId, Constructor<?>> CONSTRUCTOR_CACHE = new ConcurrentHashMap<ByteArrayId, Constructor<?>>();
 
 	public static byte[] toBinary(
 			final Collection<Persistable> persistables ) {
@@ -41,10 +46,19 @@ public class PersistenceUtils
 
 	public static byte[] toBinary(
 			final Persistable persistable ) {
+		final byte[] persistableBinary = persistable.toBinary();
+		final Short typeId = PersistableRegistry.getTypeId(persistable.getClass());
+		if (typeId != null) {
+			// preface the payload with the negated type ID, which can never be
+			// mistaken for the leading bytes of a class name length
+			final ByteBuffer buf = ByteBuffer.allocate(2 + persistableBinary.length);
+			buf.putShort((short) -typeId);
+			buf.put(persistableBinary);
+			return buf.array();
+		}
 		// preface the payload with the class name and a length of the class
 		// name
 		final byte[] className = StringUtils.stringToBinary(persistable.getClass().getName());
-		final byte[] persistableBinary = persistable.toBinary();
 		final int classNameLength = className.length;
 		final ByteBuffer buf = ByteBuffer.allocate(4 + classNameLength + persistableBinary.length);
 		buf.putInt(classNameLength);
@@ -77,63 +91,114 @@ public class PersistenceUtils
 			final byte[] bytes,
 			final Class<T> expectedType ) {
 		final ByteBuffer buf = ByteBuffer.wrap(bytes);
-		final int classNameLength = buf.getInt();
-		final byte[] classNameBinary = new byte[classNameLength];
-		final byte[] persistableBinary = new byte[bytes.length - classNameLength - 4];
-		buf.get(classNameBinary);
-
-		final String className = StringUtils.stringFromBinary(classNameBinary);
-
-		final T retVal = classFactory(
-				className,
-				expectedType);
+		final T retVal;
+		if ((bytes.length > 0) && (bytes[0] < 0)) {
+			final short typeId = (short) -buf.getShort();
+			final Constructor<?> noArgConstructor = PersistableRegistry.getConstructor(typeId);
+			if (noArgConstructor == null) {
+				LOGGER.warn("error creating class: type ID " + typeId + " is not registered");
+				return null;
+			}
+			retVal = newInstance(
+					noArgConstructor,
+					expectedType);
+		}
+		else {
+			final int classNameLength = buf.getInt();
+			final byte[] classNameBinary = new byte[classNameLength];
+			buf.get(classNameBinary);
+			retVal = newInstance(
+					getNoArgConstructor(
+							new ByteArrayId(
+									classNameBinary),
+							null),
+					expectedType);
+		}
 		if (retVal != null) {
+			final byte[] persistableBinary = new byte[buf.remaining()];
 			buf.get(persistableBinary);
 			retVal.fromBinary(persistableBinary);
 		}
 		return retVal;
 	}
 
-	@SuppressWarnings("unchecked")
 	public static <T> T classFactory(
 			final String className,
 			final Class<T> expectedType ) {
-		Class<?> factoryType = null;
-
-		try {
-			factoryType = Class.forName(className);
-		}
-		catch (final Throwable e) {
-			LOGGER.warn(
-					"error creating class: could not find class " + className,
-					e);
-		}
-
-		if (factoryType != null) {
-			Object factoryClassInst = null;
+		return newInstance(
+				getNoArgConstructor(
+						new ByteArrayId(
+								StringUtils.stringToBinary(className)),
+						className),
+				expectedType);
+	}
 
+	@SuppressWarnings("unchecked")
+	private static <T> T newInstance(
+			final Constructor<?> noArgConstructor,
+			final Class<T> expectedType ) {
+		if (noArgConstructor != null) {
+			if (!expectedType.isAssignableFrom(noArgConstructor.getDeclaringClass())) {
+				LOGGER.warn("error creating class: " + noArgConstructor.getDeclaringClass().getName() + " does not implement " + expectedType.getCanonicalName());
+				return null;
+			}
 			try {
-				// use the no arg constructor and make sure its accessible
-				final Constructor<?> noArgConstructor = factoryType.getDeclaredConstructor();
-				noArgConstructor.setAccessible(true);
-				factoryClassInst = noArgConstructor.newInstance();
+				return (T) noArgConstructor.newInstance();
 			}
 			catch (final Throwable e) {
 				LOGGER.warn(
-						"error creating class: could not create class " + className,
+						"error creating class: could not create class " + noArgConstructor.getDeclaringClass().getName(),
 						e);
 			}
-
-			if (factoryClassInst != null) {
-				if (!expectedType.isAssignableFrom(factoryClassInst.getClass())) {
-					LOGGER.warn("error creating class: " + className + " does not implement " + expectedType.getCanonicalName());
-				}
-				else {
-					return ((T) factoryClassInst);
-				}
-			}
 		}
 
 		return null;
 	}
+
+	/**
+	 * Resolving the class and its constructor is much more expensive than
+	 * calling the constructor, and the same few classes are deserialized over
+	 * and over (for example every time a filter is initialized in an iterator),
+	 * so the accessible no-arg constructors are cached by the bytes of the
+	 * class name, which avoids decoding the name on a hit
+	 */
+	private static Constructor<?> getNoArgConstructor(
+			final ByteArrayId classNameKey,
+			final String className ) {
+		Constructor<?> noArgConstructor = CONSTRUCTOR_CACHE.get(classNameKey);
+		if (noArgConstructor != null) {
+			return noArgConstructor;
+		}
+		final String name = className != null ? className : classNameKey.getString();
+		Class<?> factoryType = null;
+
+		try {
+			factoryType = Class.forName(name);
+		}
+		catch (final Throwable e) {
+			LOGGER.warn(
+					"error creating class: could not find class " + name,
+					e);
+			return null;
+		}
+
+		try {
+			// use the no arg constructor and make sure its accessible
+			noArgConstructor = factoryType.getDeclaredConstructor();
+			noArgConstructor.setAccessible(true);
+		}
+		catch (final Throwable e) {
+			LOGGER.warn(
+					"error creating class: could not create class " + name,
+					e);
+			return null;
+		}
+		if (CONSTRUCTOR_CACHE.size() >= MAX_CACHED_CONSTRUCTORS) {
+			CONSTRUCTOR_CACHE.clear();
+		}
+		CONSTRUCTOR_CACHE.put(
+				classNameKey,
+				noArgConstructor);
+		return noArgConstructor;
+	}
 }
@@ -0,0 +1,247 @@
+package mil.nga.giat.geowave.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import mil.nga.giat.geowave.index.sfc.data.MultiDimensionalNumericData;
+
+/**
+ * This is a size-bounded least recently used cache of query range
+ * decompositions. Map clients tend to request the same tiles over and over, so
+ * remembering the ranges for an exact set of constraints avoids repeating the
+ * space filling curve decomposition for every request. The cache is bounded by
+ * an estimate of the memory used by the cached ranges rather than by the number
+ * of entries, because a single decomposition can hold anywhere from one to
+ * thousands of ranges.
+ * 
+ */
+public class QueryRangesCache
+{
+	// rough per-object costs of a range (the range, 2 IDs and 2 arrays) and of
+	// an entry (the key, its arrays and the linked map entry)
+	private static final long BYTES_PER_RANGE = 112;
+	private static final long BYTES_PER_ENTRY = 160;
+
+	private final long maxBytes;
+	private long currentBytes = 0;
+	private final LinkedHashMap<CacheKey, CachedRanges> cache = new LinkedHashMap<CacheKey, CachedRanges>(
+			16,
+			.75F,
+			true);
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	/**
+	 * @param maxBytes
+	 *            the approximate memory budget for the cached ranges
+	 */
+	public QueryRangesCache(
+			final long maxBytes ) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Get the cached ranges for the query constraints
+	 * 
+	 * @param strategyId
+	 *            a unique identifier of the index strategy that decomposed the
+	 *            constraints
+	 * @param constraints
+	 *            the query constraints
+	 * @param maxRangeDecomposition
+	 *            the max range decomposition given for the decomposition
+	 * @return a copy of the cached ranges or null if they are not cached
+	 */
+	public List<ByteArrayRange> get(
+			final byte[] strategyId,
+			final MultiDimensionalNumericData constraints,
+			final int maxRangeDecomposition ) {
+		final CacheKey key = new CacheKey(
+				strategyId,
+				constraints,
+				maxRangeDecomposition);
+		final CachedRanges cachedRanges;
+		synchronized (cache) {
+			cachedRanges = cache.get(key);
+		}
+		if (cachedRanges == null) {
+			missCount.incrementAndGet();
+			return null;
+		}
+		hitCount.incrementAndGet();
+		// callers are free to modify the list they get back
+		return new ArrayList<ByteArrayRange>(
+				cachedRanges.ranges);
+	}
+
+	/**
+	 * Cache the ranges for the query constraints, evicting the least recently
+	 * used decompositions if the memory budget is exceeded. Decompositions that
+	 * are larger than the whole budget are not cached.
+	 * 
+	 * @param strategyId
+	 *            a unique identifier of the index strategy that decomposed the
+	 *            constraints
+	 * @param constraints
+	 *            the query constraints
+	 * @param maxRangeDecomposition
+	 *            the max range decomposition given for the decomposition
+	 * @param ranges
+	 *            the resulting query ranges
+	 */
+	public void put(
+			final byte[] strategyId,
+			final MultiDimensionalNumericData constraints,
+			final int maxRangeDecomposition,
+			final List<ByteArrayRange> ranges ) {
+		final CacheKey key = new CacheKey(
+				strategyId,
+				constraints,
+				maxRangeDecomposition);
+		final CachedRanges cachedRanges = new CachedRanges(
+				ranges,
+				key.getSizeInBytes());
+		if (cachedRanges.sizeInBytes > maxBytes) {
+			return;
+		}
+		synchronized (cache) {
+			final CachedRanges previous = cache.put(
+					key,
+					cachedRanges);
+			if (previous != null) {
+				currentBytes -= previous.sizeInBytes;
+			}
+			currentBytes += cachedRanges.sizeInBytes;
+			final Iterator<Entry<CacheKey, CachedRanges>> it = cache.entrySet().iterator();
+			while ((currentBytes > maxBytes) && it.hasNext()) {
+				final Entry<CacheKey, CachedRanges> eldest = it.next();
+				currentBytes -= eldest.getValue().sizeInBytes;
+				it.remove();
+				evictionCount.incrementAndGet();
+			}
+		}
+	}
+
+	public void clear() {
+		synchronized (cache) {
+			cache.clear();
+			currentBytes = 0;
+		}
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	public int getEntryCount() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * @return the estimated memory currently used by the cached ranges
+	 */
+	public long getSizeInBytes() {
+		synchronized (cache) {
+			return currentBytes;
+		}
+	}
+
+	public long getMaxSizeInBytes() {
+		return maxBytes;
+	}
+
+	private static class CachedRanges
+	{
+		private final List<ByteArrayRange> ranges;
+		private final long sizeInBytes;
+
+		public CachedRanges(
+				final List<ByteArrayRange> ranges,
+				final long keySizeInBytes ) {
+			this.ranges = Collections.unmodifiableList(new ArrayList<ByteArrayRange>(
+					ranges));
+			long size = keySizeInBytes;
+			for (final ByteArrayRange range : ranges) {
+				size += BYTES_PER_RANGE + range.getStart().getBytes().length + range.getEnd().getBytes().length;
+			}
+			sizeInBytes = size;
+		}
+	}
+
+	private static class CacheKey
+	{
+		private final byte[] strategyId;
+		private final double[] minValuesPerDimension;
+		private final double[] maxValuesPerDimension;
+		private final int maxRangeDecomposition;
+		private final int hashCode;
+
+		public CacheKey(
+				final byte[] strategyId,
+				final MultiDimensionalNumericData constraints,
+				final int maxRangeDecomposition ) {
+			this.strategyId = strategyId;
+			minValuesPerDimension = constraints.getMinValuesPerDimension();
+			maxValuesPerDimension = constraints.getMaxValuesPerDimension();
+			this.maxRangeDecomposition = maxRangeDecomposition;
+			final int prime = 31;
+			int result = 1;
+			result = (prime * result) + Arrays.hashCode(strategyId);
+			result = (prime * result) + Arrays.hashCode(minValuesPerDimension);
+			result = (prime * result) + Arrays.hashCode(maxValuesPerDimension);
+			result = (prime * result) + maxRangeDecomposition;
+			hashCode = result;
+		}
+
+		private long getSizeInBytes() {
+			// the strategy ID is shared by all keys of the same strategy so it
+			// is not counted here
+			return BYTES_PER_ENTRY + (16L * minValuesPerDimension.length);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(
+				final Object obj ) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null) {
+				return false;
+			}
+			if (getClass() != obj.getClass()) {
+				return false;
+			}
+			final CacheKey other = (CacheKey) obj;
+			return (hashCode == other.hashCode) && (maxRangeDecomposition == other.maxRangeDecomposition) && Arrays.equals(
+					minValuesPerDimension,
+					other.minValuesPerDimension) && Arrays.equals(
+					maxValuesPerDimension,
+					other.maxValuesPerDimension) && Arrays.equals(
+					strategyId,
+					other.strategyId);
+		}
+	}
+}
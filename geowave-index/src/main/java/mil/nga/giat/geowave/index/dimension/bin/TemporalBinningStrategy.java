@@ -58,11 +58,17 @@ public class TemporalBinningStrategy implements
 	}
 
 	protected static final long MILLIS_PER_DAY = 86400000L;
-	private static final NumberFormat TWO_DIGIT_NUMBER = NumberFormat.getIntegerInstance();
-	{
-		TWO_DIGIT_NUMBER.setMinimumIntegerDigits(2);
-		TWO_DIGIT_NUMBER.setMaximumIntegerDigits(2);
-	}
+	// NumberFormat is not thread-safe and bin IDs are computed concurrently
+	// during ingest, so each thread gets its own formatter
+	private static final ThreadLocal<NumberFormat> TWO_DIGIT_NUMBER = new ThreadLocal<NumberFormat>() {
+		@Override
+		protected NumberFormat initialValue() {
+			final NumberFormat format = NumberFormat.getIntegerInstance();
+			format.setMinimumIntegerDigits(2);
+			format.setMaximumIntegerDigits(2);
+			return format;
+		}
+	};
 
 	private Unit unit;
 	private String timezone;
@@ -187,9 +193,12 @@ public class TemporalBinningStrategy implements
 			default:
 				return StringUtils.stringToBinary(Integer.toString(value.get(Calendar.YEAR)));
 			case MONTH:
-				return StringUtils.stringToBinary((Integer.toString(value.get(Calendar.YEAR)) + "_" + TWO_DIGIT_NUMBER.format(value.get(Calendar.MONTH))));
+				return StringUtils.stringToBinary((Integer.toString(value.get(Calendar.YEAR)) + "_" + TWO_DIGIT_NUMBER.get().format(
+						value.get(Calendar.MONTH))));
 			case DAY:
-				return StringUtils.stringToBinary((Integer.toString(value.get(Calendar.YEAR)) + "_" + TWO_DIGIT_NUMBER.format(value.get(Calendar.MONTH)) + "_" + TWO_DIGIT_NUMBER.format(value.get(Calendar.DAY_OF_MONTH))));
+				return StringUtils.stringToBinary((Integer.toString(value.get(Calendar.YEAR)) + "_" + TWO_DIGIT_NUMBER.get().format(
+						value.get(Calendar.MONTH)) + "_" + TWO_DIGIT_NUMBER.get().format(
+						value.get(Calendar.DAY_OF_MONTH))));
 		}
 	}
 
@@ -26,6 +26,25 @@ public interface SpaceFillingCurve extends
 	public byte[] getId(
 			double[] values );
 
+	/***
+	 * Maps a batch of n-dimensional values to a single dimension, reusing any
+	 * working state across the batch
+	 * 
+	 * @param values
+	 *            the n-dimensional values to be encoded in the SFC, one entry
+	 *            after the other so that the value of dimension d for entry i
+	 *            is at (i * number of dimensions) + d
+	 * @param entryCount
+	 *            the number of entries in the batch
+	 * @param ids
+	 *            the buffer to fill with the SFC ID of each entry, it must hold
+	 *            at least entryCount IDs
+	 */
+	public void getIds(
+			double[] values,
+			int entryCount,
+			byte[][] ids );
+
 	/***
 	 * Gets n-dimensional ranges from a single dimension, i.e. 0033423 ->
 	 * [12,33]
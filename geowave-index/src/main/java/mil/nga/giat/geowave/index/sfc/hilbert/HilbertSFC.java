@@ -23,7 +23,12 @@ import com.google.uzaygezen.core.MultiDimensionalSpec;
 public class HilbertSFC implements
 		SpaceFillingCurve
 {
-	protected CompactHilbertCurve compactHilbertCurve;
+	/**
+	 * the compact Hilbert curve keeps mutable working state during index and
+	 * query decomposition calls, so each thread gets its own instance rather
+	 * than contending on a single shared curve
+	 */
+	protected ThreadLocal<CompactHilbertCurve> compactHilbertCurve;
 	protected SFCDimensionDefinition[] dimensionDefinitions;
 	protected int totalPrecision;
 
@@ -54,9 +59,10 @@ public class HilbertSFC implements
 			totalPrecision += dimension.getBitsOfPrecision();
 		}
 
-		compactHilbertCurve = new CompactHilbertCurve(
-				new MultiDimensionalSpec(
-						bitsPerDimension));
+		final MultiDimensionalSpec spec = new MultiDimensionalSpec(
+				bitsPerDimension);
+		compactHilbertCurve = new CompactHilbertCurveThreadLocal(
+				spec);
 
 		dimensionDefinitions = dimensionDefs;
 		setOptimalOperations(
@@ -115,10 +121,23 @@ public class HilbertSFC implements
 			final double[] values ) {
 		return getIdOperations.convertToHilbert(
 				values,
-				compactHilbertCurve,
+				compactHilbertCurve.get(),
 				dimensionDefinitions);
 	}
 
+	@Override
+	public void getIds(
+			final double[] values,
+			final int entryCount,
+			final byte[][] ids ) {
+		getIdOperations.convertToHilbert(
+				values,
+				entryCount,
+				compactHilbertCurve.get(),
+				dimensionDefinitions,
+				ids);
+	}
+
 	/***
 	 * {@inheritDoc}
 	 */
@@ -143,7 +162,7 @@ public class HilbertSFC implements
 		}
 		return decomposeQueryOperations.decomposeRange(
 				query.getDataPerDimension(),
-				compactHilbertCurve,
+				compactHilbertCurve.get(),
 				dimensionDefinitions,
 				totalPrecision,
 				maxFilteredIndexedRanges,
@@ -269,7 +288,7 @@ public class HilbertSFC implements
 			final byte[] id ) {
 		return getIdOperations.convertFromHilbert(
 				id,
-				compactHilbertCurve,
+				compactHilbertCurve.get(),
 				dimensionDefinitions);
 	}
 
@@ -278,7 +297,7 @@ public class HilbertSFC implements
 			final byte[] id ) {
 		return getIdOperations.indicesFromHilbert(
 				id,
-				compactHilbertCurve,
+				compactHilbertCurve.get(),
 				dimensionDefinitions);
 	}
 
@@ -286,4 +305,26 @@ public class HilbertSFC implements
 	public double[] getInsertionIdRangePerDimension() {
 		return getIdOperations.getInsertionIdRangePerDimension(dimensionDefinitions);
 	}
+
+	/**
+	 * Creates each thread's curve from the spec. This is a static class rather
+	 * than an anonymous one so that it only references the spec, and not the
+	 * space filling curve that created it.
+	 */
+	private static class CompactHilbertCurveThreadLocal extends
+			ThreadLocal<CompactHilbertCurve>
+	{
+		private final MultiDimensionalSpec spec;
+
+		private CompactHilbertCurveThreadLocal(
+				final MultiDimensionalSpec spec ) {
+			this.spec = spec;
+		}
+
+		@Override
+		protected CompactHilbertCurve initialValue() {
+			return new CompactHilbertCurve(
+					spec);
+		}
+	}
 }
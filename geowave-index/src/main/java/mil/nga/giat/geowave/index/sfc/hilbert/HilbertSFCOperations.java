@@ -16,6 +16,10 @@ import com.google.uzaygezen.core.CompactHilbertCurve;
  * adequately represented by primitives) and non-primitive based operations for
  * unbounded bits of precision.
  * 
+ * The compact Hilbert curve passed into each operation holds mutable working
+ * state, so implementations assume the caller does not share a curve instance
+ * across threads concurrently and do not synchronize on it.
+ * 
  */
 public interface HilbertSFCOperations
 {
@@ -45,6 +49,29 @@ public interface HilbertSFCOperations
 			CompactHilbertCurve compactHilbertCurve,
 			SFCDimensionDefinition[] dimensionDefinitions );
 
+	/**
+	 * Convert a batch of raw values to SFC values
+	 * 
+	 * @param values
+	 *            a raw value per dimension in order for each entry, one entry
+	 *            after the other
+	 * @param entryCount
+	 *            the number of entries in the batch
+	 * @param compactHilbertCurve
+	 *            the compact Hilbert curve to use for the conversion
+	 * @param dimensionDefinitions
+	 *            a set of dimension definitions to use to normalize the raw
+	 *            values
+	 * @param hilbertValues
+	 *            the buffer to fill with the Hilbert SFC value of each entry
+	 */
+	public void convertToHilbert(
+			double[] values,
+			int entryCount,
+			CompactHilbertCurve compactHilbertCurve,
+			SFCDimensionDefinition[] dimensionDefinitions,
+			byte[][] hilbertValues );
+
 	/**
 	 * Convert the single SFC value to the ranges of raw values that it
 	 * represents
@@ -0,0 +1,584 @@
+package mil.nga.giat.geowave.index.sfc.hilbert;
+
+import java.util.Arrays;
+
+/**
+ * This decomposes a query box into compact Hilbert SFC ranges working directly
+ * on primitive long state. It walks the curve in the same order and makes the
+ * same covered/overlapping/disjoint decisions and the same range merges as
+ * uzaygezen's BacktrackingQueryBuilder driven through a
+ * ZoomingSpaceVisitorAdapter and a SimpleRegionInspector, so the ranges it
+ * produces are identical to that path. Unlike that path, it allocates no
+ * objects per visited node and its buffers are reused across calls.
+ * 
+ * It only supports a total precision of up to 62 bits, and an instance is not
+ * thread safe; callers are expected to keep one instance per thread.
+ * 
+ */
+public class PrimitiveHilbertRangeDecomposer
+{
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int NIL = -1;
+
+	// curve definition
+	private final int n;
+	private final int[] m;
+	private final int mMax;
+	private final int sumBits;
+	private final long nMask;
+	private final long[] masks;
+	private final int[] cardinalities;
+	private final long[] cardinalityMasks;
+
+	// traversal state
+	private final long[] p;
+	private final long[] rBuffer;
+	private final int[] dStack;
+	private final long[] eStack;
+	private long w;
+	private long t;
+
+	// query state
+	private final long[] queryMin;
+	private final long[] queryMaxExclusive;
+	private long minOverlappingContent;
+	private int maxRanges;
+	private boolean removeVacuum;
+	private long currentGap;
+
+	// linked list of ranges in index order, backed by parallel arrays
+	private long[] nodeStart = new long[INITIAL_CAPACITY];
+	private long[] nodeEnd = new long[INITIAL_CAPACITY];
+	private int[] nodePrevious = new int[INITIAL_CAPACITY];
+	private int[] nodeNext = new int[INITIAL_CAPACITY];
+	private int nodeCount;
+	private int nodeHead;
+	private int nodeTail;
+	private int freeNode;
+	private int nextUnusedNode;
+
+	// min-heap of (left gap, node) ordered by gap, it mirrors the sift
+	// operations of java.util.PriorityQueue so that ties are broken the same
+	private long[] heapGap = new long[INITIAL_CAPACITY];
+	private int[] heapNode = new int[INITIAL_CAPACITY];
+	private int heapSize;
+
+	// output, pairs of inclusive start and exclusive end
+	private long[] ranges = new long[INITIAL_CAPACITY * 2];
+
+	public PrimitiveHilbertRangeDecomposer(
+			final int[] bitsPerDimension ) {
+		n = bitsPerDimension.length;
+		m = Arrays.copyOf(
+				bitsPerDimension,
+				n);
+		int maxBits = 0;
+		int totalBits = 0;
+		for (final int bits : m) {
+			maxBits = Math.max(
+					maxBits,
+					bits);
+			totalBits += bits;
+		}
+		if (totalBits > 62) {
+			throw new IllegalArgumentException(
+					"Total precision (" + totalBits + ") must be no more than 62 bits");
+		}
+		mMax = maxBits;
+		sumBits = totalBits;
+		nMask = n == 64 ? -1L : (1L << n) - 1L;
+		masks = new long[mMax];
+		cardinalities = new int[mMax];
+		cardinalityMasks = new long[mMax];
+		for (int i = 0; i < mMax; i++) {
+			int cardinality = 0;
+			long mask = 0;
+			for (int j = 0; j < n; j++) {
+				if (m[j] > i) {
+					cardinality++;
+				}
+				// the mask considers dimensions in reverse order to keep the
+				// natural orientation of the curve
+				if (m[n - j - 1] > i) {
+					mask |= (1L << j);
+				}
+			}
+			masks[i] = mask;
+			cardinalities[i] = cardinality;
+			cardinalityMasks[i] = (1L << cardinality) - 1L;
+		}
+		p = new long[n];
+		rBuffer = new long[mMax];
+		dStack = new int[mMax];
+		eStack = new long[mMax];
+		queryMin = new long[n];
+		queryMaxExclusive = new long[n];
+	}
+
+	/**
+	 * Decompose the query box into SFC ranges
+	 * 
+	 * @param minPerDimension
+	 *            the inclusive normalized minimum per dimension
+	 * @param maxPerDimension
+	 *            the inclusive normalized maximum per dimension
+	 * @param minQuadSize
+	 *            the range length under which a partially overlapping region is
+	 *            treated as covered rather than refined further
+	 * @param maxFilteredIndexedRanges
+	 *            the maximum number of ranges, adjacent ranges with the
+	 *            smallest gaps are merged to stay within it
+	 * @param removeVacuum
+	 *            whether ranges with no gap between them are always joined
+	 * @return the number of ranges, which can be read back through
+	 *         {@link #getRanges()}
+	 */
+	public int decompose(
+			final long[] minPerDimension,
+			final long[] maxPerDimension,
+			final long minQuadSize,
+			final int maxFilteredIndexedRanges,
+			final boolean removeVacuum ) {
+		if (maxFilteredIndexedRanges <= 0) {
+			throw new IllegalArgumentException(
+					"maxFilteredIndexRanges must be positive");
+		}
+		if (minQuadSize <= 0) {
+			throw new IllegalArgumentException(
+					"minQuadSize must be positive");
+		}
+		for (int d = 0; d < n; d++) {
+			queryMin[d] = minPerDimension[d];
+			queryMaxExclusive[d] = maxPerDimension[d] + 1L;
+		}
+		minOverlappingContent = minQuadSize;
+		maxRanges = maxFilteredIndexedRanges;
+		this.removeVacuum = removeVacuum;
+		reset();
+
+		traverse();
+
+		return collectRanges();
+	}
+
+	/**
+	 * @return the ranges from the last decomposition as consecutive pairs of
+	 *         inclusive start and exclusive end, only the first 2 * count
+	 *         values are meaningful
+	 */
+	public long[] getRanges() {
+		return ranges;
+	}
+
+	private void reset() {
+		nodeCount = 0;
+		nodeHead = NIL;
+		nodeTail = NIL;
+		freeNode = NIL;
+		nextUnusedNode = 0;
+		heapSize = 0;
+		currentGap = 0;
+	}
+
+	/**
+	 * This follows CompactHilbertCurve.accept(), with the bit vectors replaced
+	 * by longs
+	 */
+	private void traverse() {
+		Arrays.fill(
+				p,
+				0L);
+		long index = 0;
+		long e = 0;
+		int d = 0;
+		int k = sumBits;
+		if (!visit(
+				mMax,
+				index)) {
+			return;
+		}
+		if (mMax != 0) {
+			rBuffer[mMax - 1] = 0;
+		}
+		for (int i = mMax; --i >= 0;) {
+			final long mu = rotate(
+					masks[i],
+					d);
+			computeInverseBits(
+					d,
+					mu,
+					e,
+					rBuffer[i]);
+			for (long bits = t; bits != 0; bits &= bits - 1) {
+				p[n - Long.numberOfTrailingZeros(bits) - 1] |= (1L << i);
+			}
+			dStack[i] = d;
+			eStack[i] = e;
+			final int oldD = d;
+			d = updateD(
+					d,
+					w);
+			k -= cardinalities[i];
+			e = updateE(
+					oldD,
+					w,
+					e);
+			index = (index & ~(cardinalityMasks[i] << k)) | (rBuffer[i] << k);
+			final boolean wantsChildren = visit(
+					i,
+					index);
+			if (wantsChildren & (i != 0)) {
+				rBuffer[i - 1] = 0;
+			}
+			else {
+				// go up while the current level has been exhausted
+				final int startK = k;
+				int dimensionCount;
+				do {
+					final long bit = 1L << i;
+					for (int j = 0; j < n; j++) {
+						if (i < m[j]) {
+							p[j] &= ~bit;
+						}
+					}
+					dimensionCount = cardinalities[i];
+					k += dimensionCount;
+					i++;
+				}
+				while ((Long.bitCount(rBuffer[i - 1]) == dimensionCount) && (i != mMax));
+				index &= ~(bitsBetween(
+						startK,
+						k));
+				d = dStack[i - 1];
+				e = eStack[i - 1];
+				if (rBuffer[i - 1] == cardinalityMasks[i - 1]) {
+					break;
+				}
+				rBuffer[i - 1]++;
+			}
+		}
+	}
+
+	/**
+	 * Computes the next bit in each coordinate, setting w to the gray code rank
+	 * inverse and t to the bit set with one bit for each coordinate
+	 */
+	private void computeInverseBits(
+			final int d,
+			final long mu,
+			final long e,
+			final long r ) {
+		final long known = rotate(
+				e,
+				d) & ~mu;
+		final long rankInverse = grayCodeRankInverse(
+				mu,
+				known,
+				r);
+		w = rankInverse;
+		t = rotate(
+				rankInverse ^ (rankInverse >>> 1),
+				-d) ^ e;
+	}
+
+	private int updateD(
+			final int d,
+			final long w ) {
+		return (d + lowestDifferentBit(w) + 1) % n;
+	}
+
+	private long updateE(
+			final int oldD,
+			final long w,
+			final long e ) {
+		return e ^ rotate(
+				smallerEvenAndGrayCode(w),
+				-oldD);
+	}
+
+	private long rotate(
+			final long value,
+			int count ) {
+		count %= n;
+		if (count > 0) {
+			return ((value >>> count) | (value << (n - count))) & nMask;
+		}
+		return ((value >>> (n + count)) | (value << -count)) & nMask;
+	}
+
+	private int lowestDifferentBit(
+			final long value ) {
+		if ((value & 0x1L) == 0) {
+			if (value == 0) {
+				return 0;
+			}
+			return Long.numberOfTrailingZeros(value);
+		}
+		if (value == nMask) {
+			return 0;
+		}
+		return Long.numberOfTrailingZeros(~value);
+	}
+
+	private static long smallerEvenAndGrayCode(
+			final long value ) {
+		if ((value & 0x1L) == 1) {
+			return value ^ (value >>> 1) ^ 0x1L;
+		}
+		if (value != 0) {
+			final long valueMinusTwo = value - 2;
+			return valueMinusTwo ^ (valueMinusTwo >>> 1);
+		}
+		return value;
+	}
+
+	private static long grayCodeRankInverse(
+			final long mu,
+			final long known,
+			final long r ) {
+		long value = 0;
+		int pos = 0;
+		final int muLength = 64 - Long.numberOfLeadingZeros(mu);
+		long pow2k = 1L;
+		for (int k = 0; k < muLength; ++k) {
+			if ((mu & pow2k) != 0) {
+				if (((r >> pos) & 1L) != 0) {
+					value |= pow2k;
+				}
+				++pos;
+			}
+			pow2k <<= 1;
+		}
+		final int knownLength = 64 - Long.numberOfLeadingZeros(known);
+		for (int k = Math.max(
+				muLength - 1,
+				knownLength); --k >= 0;) {
+			pow2k = 1L << k;
+			if ((mu & pow2k) == 0) {
+				if (((known & pow2k) ^ ((value >> 1) & pow2k)) != 0) {
+					value |= pow2k;
+				}
+			}
+		}
+		return value;
+	}
+
+	private static long bitsBetween(
+			final int fromIndex,
+			final int toIndex ) {
+		if (fromIndex == toIndex) {
+			return 0;
+		}
+		final long upper = toIndex == 64 ? -1L : (1L << toIndex) - 1L;
+		return upper & ~((1L << fromIndex) - 1L);
+	}
+
+	/**
+	 * Assess the orthotope at the given level against the query box and feed
+	 * the outcome into the range builder
+	 * 
+	 * @return true if the children of this orthotope should be visited
+	 */
+	private boolean visit(
+			final int level,
+			final long index ) {
+		int lowOrderBitCount = 0;
+		long commonContent = 1;
+		for (int j = 0; j < n; j++) {
+			final int realLevel = Math.min(
+					m[j],
+					level);
+			lowOrderBitCount += realLevel;
+			if (commonContent != 0) {
+				final long start = p[j];
+				final long end = start + (1L << realLevel);
+				final long otherStart = queryMin[j];
+				final long otherEnd = queryMaxExclusive[j];
+				if ((start >= otherEnd) | (end <= otherStart)) {
+					commonContent = 0;
+				}
+				else {
+					commonContent *= Math.min(
+							end,
+							otherEnd) - Math.max(
+							start,
+							otherStart);
+				}
+			}
+		}
+		final long rangeLength = 1L << lowOrderBitCount;
+		if (commonContent == rangeLength) {
+			processCoveredNode(
+					index,
+					index + rangeLength);
+			return false;
+		}
+		if (commonContent == 0) {
+			if (nodeCount > 0) {
+				currentGap += rangeLength;
+			}
+			return false;
+		}
+		if (rangeLength >= minOverlappingContent) {
+			return true;
+		}
+		processCoveredNode(
+				index,
+				index + rangeLength);
+		return false;
+	}
+
+	private void processCoveredNode(
+			final long start,
+			final long end ) {
+		final int last = nodeTail;
+		if (removeVacuum & (last != NIL) & (currentGap == 0)) {
+			nodeEnd[last] = end;
+		}
+		else {
+			final int node = addNode(
+					start,
+					end);
+			if (last != NIL) {
+				heapOffer(
+						currentGap,
+						node);
+				// there is also one range which is not in the heap
+				if (heapSize >= maxRanges) {
+					final int removed = heapPoll();
+					final int previous = nodePrevious[removed];
+					nodeEnd[previous] = nodeEnd[removed];
+					removeNode(removed);
+				}
+			}
+			currentGap = 0;
+		}
+	}
+
+	private int addNode(
+			final long start,
+			final long end ) {
+		final int node;
+		if (freeNode != NIL) {
+			node = freeNode;
+			freeNode = nodeNext[node];
+		}
+		else {
+			if (nextUnusedNode == nodeStart.length) {
+				final int capacity = nodeStart.length * 2;
+				nodeStart = Arrays.copyOf(
+						nodeStart,
+						capacity);
+				nodeEnd = Arrays.copyOf(
+						nodeEnd,
+						capacity);
+				nodePrevious = Arrays.copyOf(
+						nodePrevious,
+						capacity);
+				nodeNext = Arrays.copyOf(
+						nodeNext,
+						capacity);
+			}
+			node = nextUnusedNode++;
+		}
+		nodeStart[node] = start;
+		nodeEnd[node] = end;
+		nodePrevious[node] = nodeTail;
+		nodeNext[node] = NIL;
+		if (nodeTail == NIL) {
+			nodeHead = node;
+		}
+		else {
+			nodeNext[nodeTail] = node;
+		}
+		nodeTail = node;
+		nodeCount++;
+		return node;
+	}
+
+	private void removeNode(
+			final int node ) {
+		final int previous = nodePrevious[node];
+		final int next = nodeNext[node];
+		if (previous == NIL) {
+			nodeHead = next;
+		}
+		else {
+			nodeNext[previous] = next;
+		}
+		if (next == NIL) {
+			nodeTail = previous;
+		}
+		else {
+			nodePrevious[next] = previous;
+		}
+		nodeNext[node] = freeNode;
+		freeNode = node;
+		nodeCount--;
+	}
+
+	private void heapOffer(
+			final long gap,
+			final int node ) {
+		if (heapSize == heapGap.length) {
+			final int capacity = heapGap.length * 2;
+			heapGap = Arrays.copyOf(
+					heapGap,
+					capacity);
+			heapNode = Arrays.copyOf(
+					heapNode,
+					capacity);
+		}
+		int k = heapSize++;
+		while (k > 0) {
+			final int parent = (k - 1) >>> 1;
+			if (gap >= heapGap[parent]) {
+				break;
+			}
+			heapGap[k] = heapGap[parent];
+			heapNode[k] = heapNode[parent];
+			k = parent;
+		}
+		heapGap[k] = gap;
+		heapNode[k] = node;
+	}
+
+	private int heapPoll() {
+		final int result = heapNode[0];
+		final int s = --heapSize;
+		if (s != 0) {
+			final long gap = heapGap[s];
+			final int node = heapNode[s];
+			int k = 0;
+			final int half = heapSize >>> 1;
+			while (k < half) {
+				int child = (k << 1) + 1;
+				final int right = child + 1;
+				if ((right < heapSize) && (heapGap[child] > heapGap[right])) {
+					child = right;
+				}
+				if (gap <= heapGap[child]) {
+					break;
+				}
+				heapGap[k] = heapGap[child];
+				heapNode[k] = heapNode[child];
+				k = child;
+			}
+			heapGap[k] = gap;
+			heapNode[k] = node;
+		}
+		return result;
+	}
+
+	private int collectRanges() {
+		if (ranges.length < (nodeCount * 2)) {
+			ranges = new long[nodeCount * 2];
+		}
+		int i = 0;
+		for (int node = nodeHead; node != NIL; node = nodeNext[node]) {
+			ranges[i++] = nodeStart[node];
+			ranges[i++] = nodeEnd[node];
+		}
+		return nodeCount;
+	}
+}
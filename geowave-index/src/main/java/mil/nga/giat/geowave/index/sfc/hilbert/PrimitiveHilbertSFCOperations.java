@@ -1,8 +1,8 @@
 package mil.nga.giat.geowave.index.sfc.hilbert;
 
 import java.math.BigInteger;
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import mil.nga.giat.geowave.index.ByteArrayId;
@@ -14,21 +14,9 @@ import mil.nga.giat.geowave.index.sfc.data.MultiDimensionalNumericData;
 import mil.nga.giat.geowave.index.sfc.data.NumericData;
 import mil.nga.giat.geowave.index.sfc.data.NumericRange;
 
-import com.google.common.base.Functions;
-import com.google.common.collect.ImmutableList;
-import com.google.uzaygezen.core.BacktrackingQueryBuilder;
 import com.google.uzaygezen.core.BitVector;
 import com.google.uzaygezen.core.BitVectorFactories;
 import com.google.uzaygezen.core.CompactHilbertCurve;
-import com.google.uzaygezen.core.FilteredIndexRange;
-import com.google.uzaygezen.core.LongContent;
-import com.google.uzaygezen.core.PlainFilterCombiner;
-import com.google.uzaygezen.core.QueryBuilder;
-import com.google.uzaygezen.core.RegionInspector;
-import com.google.uzaygezen.core.SimpleRegionInspector;
-import com.google.uzaygezen.core.ZoomingSpaceVisitorAdapter;
-import com.google.uzaygezen.core.ranges.LongRange;
-import com.google.uzaygezen.core.ranges.LongRangeHome;
 
 /**
  * This supports Compact Hilbert SFC operations using a primitive long
@@ -52,6 +40,13 @@ public class PrimitiveHilbertSFCOperations implements
 	protected long minHilbertValue;
 	protected long maxHilbertValue;
 
+	/**
+	 * the range decomposer keeps reusable working buffers, so there is one per
+	 * thread, it is only created on first use because it is limited to 62 bits
+	 * of total precision
+	 */
+	protected ThreadLocal<PrimitiveHilbertRangeDecomposer> rangeDecomposer;
+
 	@Override
 	public void init(
 			final SFCDimensionDefinition[] dimensionDefs ) {
@@ -68,6 +63,17 @@ public class PrimitiveHilbertSFCOperations implements
 		maxHilbertValue = (long) (Math.pow(
 				2,
 				totalPrecision) - 1);
+		final int[] bitsPerDimension = new int[dimensionDefs.length];
+		for (int d = 0; d < dimensionDefs.length; d++) {
+			bitsPerDimension[d] = dimensionDefs[d].getBitsOfPrecision();
+		}
+		rangeDecomposer = new ThreadLocal<PrimitiveHilbertRangeDecomposer>() {
+			@Override
+			protected PrimitiveHilbertRangeDecomposer initialValue() {
+				return new PrimitiveHilbertRangeDecomposer(
+						bitsPerDimension);
+			}
+		};
 	}
 
 	@Override
@@ -103,6 +109,42 @@ public class PrimitiveHilbertSFCOperations implements
 		return hilbertBitVector.toBigEndianByteArray();
 	}
 
+	@Override
+	public void convertToHilbert(
+			final double[] values,
+			final int entryCount,
+			final CompactHilbertCurve compactHilbertCurve,
+			final SFCDimensionDefinition[] dimensionDefinitions,
+			final byte[][] hilbertValues ) {
+		final int numDimensions = dimensionDefinitions.length;
+		if (values.length < (entryCount * numDimensions)) {
+			throw new ArrayIndexOutOfBoundsException(
+					"Number of values supplied (" + values.length + ") is less than " + entryCount + " entries of " + numDimensions + " dimensions.");
+		}
+		// the bit vectors are reused for every entry in the batch, the curve
+		// clears the Hilbert bit vector before each index
+		final BitVector[] bitVectors = new BitVector[numDimensions];
+		for (int d = 0; d < numDimensions; d++) {
+			bitVectors[d] = BitVectorFactories.OPTIMAL.apply(dimensionDefinitions[d].getBitsOfPrecision());
+		}
+		final BitVector hilbertBitVector = BitVectorFactories.OPTIMAL.apply(compactHilbertCurve.getSpec().sumBitsPerDimension());
+		for (int e = 0; e < entryCount; e++) {
+			final int offset = e * numDimensions;
+			for (int d = 0; d < numDimensions; d++) {
+				bitVectors[d].copyFrom(normalizeDimension(
+						dimensionDefinitions[d],
+						values[offset + d],
+						binsPerDimension[d],
+						false));
+			}
+			compactHilbertCurve.index(
+					bitVectors,
+					0,
+					hilbertBitVector);
+			hilbertValues[e] = hilbertBitVector.toBigEndianByteArray();
+		}
+	}
+
 	/***
 	 * Converts the incoming values (one per dimension) into a BitVector using
 	 * the Compact Hilbert instance. BitVector is a wrapper to allow values
@@ -125,12 +167,10 @@ public class PrimitiveHilbertSFCOperations implements
 			bitVectors[i] = BitVectorFactories.OPTIMAL.apply(dimensionDefinitions[i].getBitsOfPrecision());
 			bitVectors[i].copyFrom(values.get(i));
 		}
-		synchronized (compactHilbertCurve) {
-			compactHilbertCurve.index(
-					bitVectors,
-					0,
-					hilbertBitVector);
-		}
+		compactHilbertCurve.index(
+				bitVectors,
+				0,
+				hilbertBitVector);
 		return hilbertBitVector;
 	}
 
@@ -194,11 +234,9 @@ public class PrimitiveHilbertSFCOperations implements
 			perDimensionBitVectors[i] = BitVectorFactories.OPTIMAL.apply(dimensionDefinitions[i].getBitsOfPrecision());
 		}
 
-		synchronized (compactHilbertCurve) {
-			compactHilbertCurve.indexInverse(
-					hilbertBitVector,
-					perDimensionBitVectors);
-		}
+		compactHilbertCurve.indexInverse(
+				hilbertBitVector,
+				perDimensionBitVectors);
 		return perDimensionBitVectors;
 	}
 
@@ -299,16 +337,22 @@ public class PrimitiveHilbertSFCOperations implements
 			final SFCDimensionDefinition[] dimensionDefinitions,
 			final int totalPrecision,
 			final int maxFilteredIndexedRanges,
-			final boolean removeVacuum ) {// List of query range minimum and
-											// maximum
-		// values
-		final List<Long> minRangeList = new ArrayList<Long>();
-		final List<Long> maxRangeList = new ArrayList<Long>();
-
-		final LongContent zero = new LongContent(
-				0L);
-		final List<LongRange> region = new ArrayList<LongRange>(
-				dimensionDefinitions.length);
+			final boolean removeVacuum ) {
+		final int expectedByteCount = (int) Math.ceil(totalPrecision / 8.0);
+		if (expectedByteCount <= 0) {
+			// special case for no precision
+			return new RangeDecomposition(
+					new ByteArrayRange[] {
+						new ByteArrayRange(
+								new ByteArrayId(
+										new byte[] {}),
+								new ByteArrayId(
+										new byte[] {}))
+					});
+		}
+		// query range minimum and maximum values
+		final long[] minRanges = new long[dimensionDefinitions.length];
+		final long[] maxRanges = new long[dimensionDefinitions.length];
 		for (int d = 0; d < dimensionDefinitions.length; d++) {
 
 			final long normalizedMin = normalizeDimension(
@@ -327,89 +371,45 @@ public class PrimitiveHilbertSFCOperations implements
 				// inclusive in this case)
 				normalizedMax = normalizedMin;
 			}
-			minRangeList.add(normalizedMin);
-			maxRangeList.add(normalizedMax);
-			region.add(LongRange.of(
-					normalizedMin,
-					normalizedMax + 1L));
-
+			minRanges[d] = normalizedMin;
+			maxRanges[d] = normalizedMax;
 		}
 
 		final long minQuadSize = getMinimumQuadSize(
-				minRangeList,
-				maxRangeList);
-
-		final RegionInspector<LongRange, LongContent> regionInspector = SimpleRegionInspector.create(
-				ImmutableList.of(region),
-				new LongContent(
-						minQuadSize),
-				Functions.<LongRange> identity(),
-				LongRangeHome.INSTANCE,
-				zero);
-
-		final PlainFilterCombiner<LongRange, Long, LongContent, LongRange> intervalCombiner = new PlainFilterCombiner<LongRange, Long, LongContent, LongRange>(
-				LongRange.of(
-						0,
-						1));
-
-		final QueryBuilder<LongRange, LongRange> queryBuilder = BacktrackingQueryBuilder.create(
-				regionInspector,
-				intervalCombiner,
+				minRanges,
+				maxRanges);
+
+		final PrimitiveHilbertRangeDecomposer decomposer = rangeDecomposer.get();
+		final int rangeCount = decomposer.decompose(
+				minRanges,
+				maxRanges,
+				minQuadSize,
 				maxFilteredIndexedRanges,
-				removeVacuum,
-				LongRangeHome.INSTANCE,
-				zero);
-		synchronized (compactHilbertCurve) {
-			compactHilbertCurve.accept(new ZoomingSpaceVisitorAdapter(
-					compactHilbertCurve,
-					queryBuilder));
-		}
-		final List<FilteredIndexRange<LongRange, LongRange>> hilbertRanges = queryBuilder.get().getFilteredIndexRanges();
+				removeVacuum);
+		final long[] hilbertRanges = decomposer.getRanges();
 
-		final ByteArrayRange[] sfcRanges = new ByteArrayRange[hilbertRanges.size()];
-		final int expectedByteCount = (int) Math.ceil(totalPrecision / 8.0);
-		if (expectedByteCount <= 0) {
-			// special case for no precision
-			return new RangeDecomposition(
-					new ByteArrayRange[] {
-						new ByteArrayRange(
-								new ByteArrayId(
-										new byte[] {}),
-								new ByteArrayId(
-										new byte[] {}))
-					});
-		}
-		for (int i = 0; i < hilbertRanges.size(); i++) {
-			final FilteredIndexRange<LongRange, LongRange> range = hilbertRanges.get(i);
+		final ByteArrayRange[] sfcRanges = new ByteArrayRange[rangeCount];
+		for (int i = 0; i < rangeCount; i++) {
 			// sanity check that values fit within the expected range
 			// it seems that uzaygezen can produce a value at 2^totalPrecision
 			// rather than 2^totalPrecision - 1
 			final long startValue = clamp(
 					minHilbertValue,
 					maxHilbertValue,
-					range.getIndexRange().getStart());
+					hilbertRanges[i * 2]);
 			final long endValue = clamp(
 					minHilbertValue,
 					maxHilbertValue,
-					range.getIndexRange().getEnd() - 1);
-			// make sure its padded if necessary
-			final byte[] start = HilbertSFC.fitExpectedByteCount(
-					expectedByteCount,
-					ByteBuffer.allocate(
-							8).putLong(
-							startValue).array());
-
-			// make sure its padded if necessary
-			final byte[] end = HilbertSFC.fitExpectedByteCount(
-					expectedByteCount,
-					ByteBuffer.allocate(
-							8).putLong(
-							endValue).array());
+					hilbertRanges[(i * 2) + 1] - 1);
 			sfcRanges[i] = new ByteArrayRange(
 					new ByteArrayId(
-							start),
+							toExpectedByteCount(
+									expectedByteCount,
+									startValue)),
 					new ByteArrayId(
-							end));
+							toExpectedByteCount(
+									expectedByteCount,
+									endValue)));
 		}
 
 		final RangeDecomposition rangeDecomposition = new RangeDecomposition(
@@ -418,6 +418,35 @@ public class PrimitiveHilbertSFCOperations implements
 		return rangeDecomposition;
 	}
 
+	/***
+	 * Writes the big endian bytes of the value padded or truncated to the
+	 * expected byte count, this is equivalent to
+	 * HilbertSFC.fitExpectedByteCount() on the 8 bytes of the long without the
+	 * intermediate arrays
+	 * 
+	 * @param expectedByteCount
+	 *            the number of bytes expected, at most 8
+	 * @param value
+	 *            the hilbert value
+	 * @return the bytes for the hilbert value
+	 */
+	private static byte[] toExpectedByteCount(
+			final int expectedByteCount,
+			long value ) {
+		final byte[] bytes = new byte[expectedByteCount];
+		if ((expectedByteCount < 8) && ((value >>> 56) != 0)) {
+			Arrays.fill(
+					bytes,
+					(byte) 255);
+			return bytes;
+		}
+		for (int i = expectedByteCount - 1; i >= 0; i--) {
+			bytes[i] = (byte) value;
+			value >>>= 8;
+		}
+		return bytes;
+	}
+
 	private static long clamp(
 			final long min,
 			final long max,
@@ -435,23 +464,23 @@ public class PrimitiveHilbertSFCOperations implements
 	 * Values is based on the _maximumRangeDecompsed and _minRangeDecompsed
 	 * instance members.
 	 * 
-	 * @param minRangeList
+	 * @param minRanges
 	 *            minimum values for each dimension (ordered)
-	 * @param maxRangeList
+	 * @param maxRanges
 	 *            maximum values for each dimension (ordered)
 	 * @return largest range that will be fully decomposed
 	 */
 	private long getMinimumQuadSize(
-			final List<Long> minRangeList,
-			final List<Long> maxRangeList ) {
+			final long[] minRanges,
+			final long[] maxRanges ) {
 		long maxRange = 1;
 		final int dimensionality = Math.min(
-				minRangeList.size(),
-				maxRangeList.size());
+				minRanges.length,
+				maxRanges.length);
 		for (int d = 0; d < dimensionality; d++) {
 			maxRange = Math.max(
 					maxRange,
-					(Math.abs(maxRangeList.get(d) - minRangeList.get(d)) + 1));
+					(Math.abs(maxRanges[d] - minRanges[d]) + 1));
 		}
 		final long maxRangeDecomposed = (long) Math.pow(
 				maxRange,
@@ -100,6 +100,29 @@ public class UnboundedHilbertSFCOperations implements
 		return hilbertBitVector.toBigEndianByteArray();
 	}
 
+	@Override
+	public void convertToHilbert(
+			final double[] values,
+			final int entryCount,
+			final CompactHilbertCurve compactHilbertCurve,
+			final SFCDimensionDefinition[] dimensionDefinitions,
+			final byte[][] hilbertValues ) {
+		// arbitrary precision values are not worth reusing across entries
+		final double[] entryValues = new double[dimensionDefinitions.length];
+		for (int e = 0; e < entryCount; e++) {
+			System.arraycopy(
+					values,
+					e * entryValues.length,
+					entryValues,
+					0,
+					entryValues.length);
+			hilbertValues[e] = convertToHilbert(
+					entryValues,
+					compactHilbertCurve,
+					dimensionDefinitions);
+		}
+	}
+
 	/***
 	 * Converts the incoming values (one per dimension) into a BitVector using
 	 * the Compact Hilbert instance. BitVector is a wrapper to allow values
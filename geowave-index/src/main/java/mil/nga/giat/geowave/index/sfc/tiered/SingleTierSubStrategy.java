@@ -7,6 +7,7 @@ import java.util.List;
 
 import mil.nga.giat.geowave.index.ByteArrayId;
 import mil.nga.giat.geowave.index.ByteArrayRange;
+import mil.nga.giat.geowave.index.IndexUtils;
 import mil.nga.giat.geowave.index.NumericIndexStrategy;
 import mil.nga.giat.geowave.index.PersistenceUtils;
 import mil.nga.giat.geowave.index.StringUtils;
@@ -61,6 +62,22 @@ public class SingleTierSubStrategy implements
 				tier);
 	}
 
+	@Override
+	public void getInsertionIds(
+			final double[] minValuesPerEntry,
+			final double[] maxValuesPerEntry,
+			final int entryCount,
+			final List<ByteArrayId> insertionIds,
+			final int[] insertionIdCountPerEntry ) {
+		IndexUtils.getInsertionIds(
+				this,
+				minValuesPerEntry,
+				maxValuesPerEntry,
+				entryCount,
+				insertionIds,
+				insertionIdCountPerEntry);
+	}
+
 	@Override
 	public MultiDimensionalNumericData getRangeForId(
 			final ByteArrayId insertionId ) {
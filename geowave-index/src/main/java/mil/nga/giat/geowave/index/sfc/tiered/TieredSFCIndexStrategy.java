@@ -13,7 +13,9 @@ import mil.nga.giat.geowave.index.ByteArrayId;
 import mil.nga.giat.geowave.index.ByteArrayRange;
 import mil.nga.giat.geowave.index.ByteArrayUtils;
 import mil.nga.giat.geowave.index.HierarchicalNumericIndexStrategy;
+import mil.nga.giat.geowave.index.IndexUtils;
 import mil.nga.giat.geowave.index.PersistenceUtils;
+import mil.nga.giat.geowave.index.QueryRangesCache;
 import mil.nga.giat.geowave.index.StringUtils;
 import mil.nga.giat.geowave.index.dimension.NumericDimensionDefinition;
 import mil.nga.giat.geowave.index.dimension.bin.BinRange;
@@ -46,6 +48,11 @@ public class TieredSFCIndexStrategy implements
 	private NumericDimensionDefinition[] baseDefinitions;
 	private long maxEstimatedDuplicateIds;
 	private BigInteger maxEstimatedDuplicateIdsBigInteger;
+	// the persisted form uniquely identifies this strategy for the query
+	// ranges cache, it is computed on first use
+	private volatile byte[] queryRangesCacheId;
+
+	private static volatile QueryRangesCache queryRangesCache = null;
 
 	protected TieredSFCIndexStrategy() {}
 
@@ -70,10 +77,62 @@ public class TieredSFCIndexStrategy implements
 		maxEstimatedDuplicateIdsBigInteger = BigInteger.valueOf(maxEstimatedDuplicateIds);
 	}
 
+	/**
+	 * Set a cache of query range decompositions shared by all tiered index
+	 * strategies in this JVM, or null to disable caching (the default)
+	 * 
+	 * @param cache
+	 *            the query ranges cache to use
+	 */
+	public static void setQueryRangesCache(
+			final QueryRangesCache cache ) {
+		queryRangesCache = cache;
+	}
+
+	public static QueryRangesCache getQueryRangesCache() {
+		return queryRangesCache;
+	}
+
 	@Override
 	public List<ByteArrayRange> getQueryRanges(
 			final MultiDimensionalNumericData indexedRange,
 			final int maxRangeDecomposition ) {
+		final QueryRangesCache cache = queryRangesCache;
+		if (cache == null) {
+			return internalGetQueryRanges(
+					indexedRange,
+					maxRangeDecomposition);
+		}
+		final byte[] cacheId = getQueryRangesCacheId();
+		List<ByteArrayRange> queryRanges = cache.get(
+				cacheId,
+				indexedRange,
+				maxRangeDecomposition);
+		if (queryRanges == null) {
+			queryRanges = internalGetQueryRanges(
+					indexedRange,
+					maxRangeDecomposition);
+			cache.put(
+					cacheId,
+					indexedRange,
+					maxRangeDecomposition,
+					queryRanges);
+		}
+		return queryRanges;
+	}
+
+	private byte[] getQueryRangesCacheId() {
+		byte[] cacheId = queryRangesCacheId;
+		if (cacheId == null) {
+			cacheId = toBinary();
+			queryRangesCacheId = cacheId;
+		}
+		return cacheId;
+	}
+
+	private List<ByteArrayRange> internalGetQueryRanges(
+			final MultiDimensionalNumericData indexedRange,
+			final int maxRangeDecomposition ) {
 		// TODO don't just pass max ranges along to the SFC, take tiering and
 		// binning into account to limit the number of ranges correctly
 
@@ -173,12 +232,101 @@ public class TieredSFCIndexStrategy implements
 				BigInteger.valueOf(maxDuplicateInsertionIds));
 	}
 
+	@Override
+	public void getInsertionIds(
+			final double[] minValuesPerEntry,
+			final double[] maxValuesPerEntry,
+			final int entryCount,
+			final List<ByteArrayId> insertionIds,
+			final int[] insertionIdCountPerEntry ) {
+		if (orderedSfcs.length == 0) {
+			IndexUtils.getInsertionIds(
+					this,
+					minValuesPerEntry,
+					maxValuesPerEntry,
+					entryCount,
+					insertionIds,
+					insertionIdCountPerEntry);
+			return;
+		}
+		// entries that fit within a single ID of the highest precision tier,
+		// such as points, are encoded by the space filling curve in one batch;
+		// anything else gets its row IDs one entry at a time
+		final int highestPrecisionSfcIndex = orderedSfcs.length - 1;
+		final SpaceFillingCurve highestPrecisionSfc = orderedSfcs[highestPrecisionSfcIndex];
+		final byte highestPrecisionTierId = orderedSfcIndexToTierId.get(highestPrecisionSfcIndex);
+		final int dimensionCount = baseDefinitions.length;
+		final double[] singleIdValues = new double[entryCount * dimensionCount];
+		final byte[][] singleIdBinIds = new byte[entryCount][];
+		final List<List<ByteArrayId>> multipleRowIds = new ArrayList<List<ByteArrayId>>(
+				entryCount);
+		int singleIdCount = 0;
+		for (int i = 0; i < entryCount; i++) {
+			final BinnedNumericDataset[] ranges = BinnedNumericDataset.applyBins(
+					IndexUtils.getEntryData(
+							minValuesPerEntry,
+							maxValuesPerEntry,
+							i,
+							dimensionCount),
+					baseDefinitions);
+			if ((ranges.length == 1) && highestPrecisionSfc.getEstimatedIdCount(
+					ranges[0]).equals(
+					BigInteger.ONE)) {
+				System.arraycopy(
+						ranges[0].getMaxValuesPerDimension(),
+						0,
+						singleIdValues,
+						singleIdCount * dimensionCount,
+						dimensionCount);
+				singleIdBinIds[i] = ranges[0].getBinId();
+				singleIdCount++;
+				multipleRowIds.add(null);
+			}
+			else {
+				multipleRowIds.add(getRowIds(
+						ranges,
+						maxEstimatedDuplicateIdsBigInteger));
+			}
+		}
+		final byte[][] sfcIds = new byte[singleIdCount][];
+		highestPrecisionSfc.getIds(
+				singleIdValues,
+				singleIdCount,
+				sfcIds);
+		int sfcIdIndex = 0;
+		for (int i = 0; i < entryCount; i++) {
+			final List<ByteArrayId> rowIds = multipleRowIds.get(i);
+			if (rowIds == null) {
+				insertionIds.add(new ByteArrayId(
+						ByteArrayUtils.combineArrays(
+								ByteArrayUtils.combineArrays(
+										new byte[] {
+											highestPrecisionTierId
+										},
+										singleIdBinIds[i]),
+								sfcIds[sfcIdIndex++])));
+				insertionIdCountPerEntry[i] = 1;
+			}
+			else {
+				insertionIds.addAll(rowIds);
+				insertionIdCountPerEntry[i] = rowIds.size();
+			}
+		}
+	}
+
 	private List<ByteArrayId> internalGetInsertionIds(
 			final MultiDimensionalNumericData indexedData,
 			final BigInteger maxDuplicateInsertionIds ) {
-		final BinnedNumericDataset[] ranges = BinnedNumericDataset.applyBins(
-				indexedData,
-				baseDefinitions);
+		return getRowIds(
+				BinnedNumericDataset.applyBins(
+						indexedData,
+						baseDefinitions),
+				maxDuplicateInsertionIds);
+	}
+
+	private List<ByteArrayId> getRowIds(
+			final BinnedNumericDataset[] ranges,
+			final BigInteger maxDuplicateInsertionIds ) {
 		// place each of these indices into a single row ID at a tier that will
 		// fit its min and max
 		final List<ByteArrayId> rowIds = new ArrayList<ByteArrayId>(
@@ -274,7 +422,7 @@ public class TieredSFCIndexStrategy implements
 		return baseDefinitions;
 	}
 
-	synchronized private List<ByteArrayId> getRowIds(
+	private List<ByteArrayId> getRowIds(
 			final BinnedNumericDataset index,
 			final BigInteger maxEstimatedDuplicateIds ) {
 		// most times this should be a single row ID, but if the lowest
@@ -450,6 +598,7 @@ public class TieredSFCIndexStrategy implements
 					buf.get());
 		}
 		orderedSfcIndexToTierId = bimapBuilder.build();
+		queryRangesCacheId = null;
 	}
 
 	@Override
@@ -71,6 +71,24 @@ public class ZOrderSFC implements
 				values.length);
 	}
 
+	@Override
+	public void getIds(
+			final double[] values,
+			final int entryCount,
+			final byte[][] ids ) {
+		final double[] normalizedValues = new double[dimensionDefs.length];
+		for (int e = 0; e < entryCount; e++) {
+			final int offset = e * dimensionDefs.length;
+			for (int d = 0; d < dimensionDefs.length; d++) {
+				normalizedValues[d] = dimensionDefs[d].normalize(values[offset + d]);
+			}
+			ids[e] = ZOrderUtils.encode(
+					normalizedValues,
+					cardinalityPerDimension,
+					dimensionDefs.length);
+		}
+	}
+
 	@Override
 	public MultiDimensionalNumericData getRanges(
 			final byte[] id ) {
@@ -12,10 +12,42 @@ import mil.nga.giat.geowave.index.sfc.data.NumericRange;
  */
 public class ZOrderUtils
 {
+	// beyond this precision the bisection in double precision is no longer
+	// exact, so the bit set implementation is used
+	private static final int MAX_PRIMITIVE_BITS_PER_DIMENSION = 53;
+
 	public static NumericRange[] decodeRanges(
 			final byte[] bytes,
 			final int bitsPerDimension,
 			final SFCDimensionDefinition[] dimensionDefinitions ) {
+		if (isPrimitive(
+				bitsPerDimension,
+				dimensionDefinitions.length)) {
+			final NumericRange[] normalizedValues = new NumericRange[dimensionDefinitions.length];
+			final long zOrder = toZOrder(
+					bytes,
+					bitsPerDimension * dimensionDefinitions.length);
+			for (int d = 0; d < dimensionDefinitions.length; d++) {
+				normalizedValues[d] = decode(
+						getCoordinate(
+								zOrder,
+								d,
+								dimensionDefinitions.length),
+						bitsPerDimension,
+						dimensionDefinitions[d]);
+			}
+			return normalizedValues;
+		}
+		return decodeRangesWithBitSet(
+				bytes,
+				bitsPerDimension,
+				dimensionDefinitions);
+	}
+
+	protected static NumericRange[] decodeRangesWithBitSet(
+			final byte[] bytes,
+			final int bitsPerDimension,
+			final SFCDimensionDefinition[] dimensionDefinitions ) {
 		final byte[] littleEndianBytes = swapEndianFormat(bytes);
 		final BitSet bitSet = BitSet.valueOf(littleEndianBytes);
 		final NumericRange[] normalizedValues = new NumericRange[dimensionDefinitions.length];
@@ -42,6 +74,31 @@ public class ZOrderUtils
 			final byte[] bytes,
 			final int bitsPerDimension,
 			final int numDimensions ) {
+		if (isPrimitive(
+				bitsPerDimension,
+				numDimensions)) {
+			final long[] coordinates = new long[numDimensions];
+			final long zOrder = toZOrder(
+					bytes,
+					bitsPerDimension * numDimensions);
+			for (int d = 0; d < numDimensions; d++) {
+				coordinates[d] = getCoordinate(
+						zOrder,
+						d,
+						numDimensions);
+			}
+			return coordinates;
+		}
+		return decodeIndicesWithBitSet(
+				bytes,
+				bitsPerDimension,
+				numDimensions);
+	}
+
+	protected static long[] decodeIndicesWithBitSet(
+			final byte[] bytes,
+			final int bitsPerDimension,
+			final int numDimensions ) {
 		final byte[] littleEndianBytes = swapEndianFormat(bytes);
 		final BitSet bitSet = BitSet.valueOf(littleEndianBytes);
 		final long[] coordinates = new long[numDimensions];
@@ -107,6 +164,33 @@ public class ZOrderUtils
 			final double[] normalizedValues,
 			final int bitsPerDimension,
 			final int numDimensions ) {
+		if (isPrimitive(
+				bitsPerDimension,
+				numDimensions)) {
+			long zOrder = 0;
+			for (int d = 0; d < numDimensions; d++) {
+				// the first dimension takes the most significant bit of each
+				// interleaved group
+				zOrder |= spread(
+						getCoordinate(
+								normalizedValues[d],
+								bitsPerDimension),
+						numDimensions) << (numDimensions - d - 1);
+			}
+			return toBytes(
+					zOrder,
+					bitsPerDimension * numDimensions);
+		}
+		return encodeWithBitSet(
+				normalizedValues,
+				bitsPerDimension,
+				numDimensions);
+	}
+
+	protected static byte[] encodeWithBitSet(
+			final double[] normalizedValues,
+			final int bitsPerDimension,
+			final int numDimensions ) {
 		final BitSet[] bitSets = new BitSet[numDimensions];
 
 		for (int d = 0; d < numDimensions; d++) {
@@ -173,4 +257,158 @@ public class ZOrderUtils
 		return buffer;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * The interleaved value fits in a long and the bisection of a normalized
+	 * value is exact in double precision, so bit twiddling on primitives gives
+	 * exactly the same bits as the bit set implementation.
+	 */
+	private static boolean isPrimitive(
+			final int bitsPerDimension,
+			final int numDimensions ) {
+		return (bitsPerDimension > 0) && (bitsPerDimension <= MAX_PRIMITIVE_BITS_PER_DIMENSION) && ((bitsPerDimension * numDimensions) <= 64);
+	}
+
+	/**
+	 * Equivalent to bisecting [0, 1] once per bit and setting the bit when the
+	 * value is at or above the midpoint
+	 */
+	private static long getCoordinate(
+			final double normalizedValue,
+			final int bitsPerDimension ) {
+		if (normalizedValue >= 1) {
+			return (1L << bitsPerDimension) - 1;
+		}
+		if (normalizedValue > 0) {
+			return (long) (normalizedValue * (1L << bitsPerDimension));
+		}
+		// negative values and NaN never reach a midpoint
+		return 0;
+	}
+
+	private static long getCoordinate(
+			final long zOrder,
+			final int dimension,
+			final int numDimensions ) {
+		return compact(
+				zOrder >>> (numDimensions - dimension - 1),
+				numDimensions);
+	}
+
+	private static NumericRange decode(
+			final long coordinate,
+			final int bitsPerDimension,
+			final SFCDimensionDefinition dimensionDefinition ) {
+		// the bisection stops at the last bit that is set, so the range is
+		// only as narrow as the lowest set bit of the coordinate
+		if (coordinate == 0) {
+			return new NumericRange(
+					dimensionDefinition.denormalize(0),
+					dimensionDefinition.denormalize(1));
+		}
+		final double cellsPerDimension = 1L << bitsPerDimension;
+		return new NumericRange(
+				dimensionDefinition.denormalize(coordinate / cellsPerDimension),
+				dimensionDefinition.denormalize((coordinate + Long.lowestOneBit(coordinate)) / cellsPerDimension));
+	}
+
+	/**
+	 * Spread the bits of a coordinate so that there are numDimensions - 1 zero
+	 * bits between each of them
+	 */
+	private static long spread(
+			long x,
+			final int numDimensions ) {
+		switch (numDimensions) {
+			case 1:
+				return x;
+			case 2:
+				x &= 0x00000000FFFFFFFFL;
+				x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+				x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+				x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+				x = (x | (x << 2)) & 0x3333333333333333L;
+				x = (x | (x << 1)) & 0x5555555555555555L;
+				return x;
+			case 3:
+				x &= 0x00000000001FFFFFL;
+				x = (x | (x << 32)) & 0x001F00000000FFFFL;
+				x = (x | (x << 16)) & 0x001F0000FF0000FFL;
+				x = (x | (x << 8)) & 0x100F00F00F00F00FL;
+				x = (x | (x << 4)) & 0x10C30C30C30C30C3L;
+				x = (x | (x << 2)) & 0x1249249249249249L;
+				return x;
+			default:
+				long spread = 0;
+				for (int i = 0; x != 0; i += numDimensions, x >>>= 1) {
+					spread |= (x & 1L) << i;
+				}
+				return spread;
+		}
+	}
+
+	/**
+	 * The inverse of spread, gathering every numDimensions-th bit
+	 */
+	private static long compact(
+			long x,
+			final int numDimensions ) {
+		switch (numDimensions) {
+			case 1:
+				return x;
+			case 2:
+				x &= 0x5555555555555555L;
+				x = (x | (x >>> 1)) & 0x3333333333333333L;
+				x = (x | (x >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+				x = (x | (x >>> 4)) & 0x00FF00FF00FF00FFL;
+				x = (x | (x >>> 8)) & 0x0000FFFF0000FFFFL;
+				x = (x | (x >>> 16)) & 0x00000000FFFFFFFFL;
+				return x;
+			case 3:
+				x &= 0x1249249249249249L;
+				x = (x | (x >>> 2)) & 0x10C30C30C30C30C3L;
+				x = (x | (x >>> 4)) & 0x100F00F00F00F00FL;
+				x = (x | (x >>> 8)) & 0x001F0000FF0000FFL;
+				x = (x | (x >>> 16)) & 0x001F00000000FFFFL;
+				x = (x | (x >>> 32)) & 0x00000000001FFFFFL;
+				return x;
+			default:
+				long compact = 0;
+				for (int i = 0; x != 0; i++, x >>>= numDimensions) {
+					compact |= (x & 1L) << i;
+				}
+				return compact;
+		}
+	}
+
+	/**
+	 * Write the interleaved bits most significant first, dropping trailing zero
+	 * bytes as BitSet.toByteArray() does
+	 */
+	private static byte[] toBytes(
+			final long zOrder,
+			final int totalBits ) {
+		final long leftAligned = zOrder << (64 - totalBits);
+		if (leftAligned == 0) {
+			return new byte[0];
+		}
+		final int length = (71 - Long.numberOfTrailingZeros(leftAligned)) / 8;
+		final byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = (byte) (leftAligned >>> (56 - (8 * i)));
+		}
+		return bytes;
+	}
+
+	/**
+	 * Read the interleaved bits, treating missing trailing bytes as zeros
+	 */
+	private static long toZOrder(
+			final byte[] bytes,
+			final int totalBits ) {
+		long leftAligned = 0;
+		for (int i = 0; (i < bytes.length) && (i < 8); i++) {
+			leftAligned |= (bytes[i] & 0xFFL) << (56 - (8 * i));
+		}
+		return leftAligned >>> (64 - totalBits);
+	}
+}
@@ -0,0 +1,137 @@
+package mil.nga.giat.geowave.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PersistenceUtilsTest
+{
+	@Test
+	public void testClassNameFormat() {
+		final byte[] binary = PersistenceUtils.toBinary(new TestPersistable(
+				42));
+		final ByteBuffer buf = ByteBuffer.wrap(binary);
+		assertEquals(
+				TestPersistable.class.getName(),
+				StringUtils.stringFromBinary(Arrays.copyOfRange(
+						binary,
+						4,
+						4 + buf.getInt())));
+		// deserialize twice so the second one uses the cached constructor
+		for (int i = 0; i < 2; i++) {
+			assertEquals(
+					42,
+					PersistenceUtils.fromBinary(
+							binary,
+							TestPersistable.class).value);
+		}
+		assertNull(PersistenceUtils.fromBinary(
+				binary,
+				NumericIndexStrategy.class));
+	}
+
+	@Test
+	public void testRegisteredFormat() {
+		// written before the type is registered
+		final byte[] classNameBinary = PersistenceUtils.toBinary(new RegisteredPersistable(
+				7));
+		PersistableRegistry.register(
+				(short) 1000,
+				RegisteredPersistable.class);
+		// registering the same type with the same ID again is fine
+		PersistableRegistry.register(
+				(short) 1000,
+				RegisteredPersistable.class);
+		final byte[] compactBinary = PersistenceUtils.toBinary(new RegisteredPersistable(
+				7));
+		assertEquals(
+				6,
+				compactBinary.length);
+		assertTrue(compactBinary.length < classNameBinary.length);
+		assertEquals(
+				7,
+				PersistenceUtils.fromBinary(
+						compactBinary,
+						RegisteredPersistable.class).value);
+		// the class name format is still readable
+		assertEquals(
+				7,
+				PersistenceUtils.fromBinary(
+						classNameBinary,
+						RegisteredPersistable.class).value);
+
+		final List<Persistable> persistables = PersistenceUtils.fromBinary(PersistenceUtils.toBinary(Arrays.asList(new Persistable[] {
+			new RegisteredPersistable(
+					1),
+			new TestPersistable(
+					2)
+		})));
+		assertEquals(
+				1,
+				((RegisteredPersistable) persistables.get(0)).value);
+		assertEquals(
+				2,
+				((TestPersistable) persistables.get(1)).value);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConflictingRegistration() {
+		PersistableRegistry.register(
+				(short) 1001,
+				ConflictingPersistable.class);
+		PersistableRegistry.register(
+				(short) 1002,
+				ConflictingPersistable.class);
+	}
+
+	public static class TestPersistable implements
+			Persistable
+	{
+		protected int value;
+
+		protected TestPersistable() {}
+
+		public TestPersistable(
+				final int value ) {
+			this.value = value;
+		}
+
+		@Override
+		public byte[] toBinary() {
+			return ByteBuffer.allocate(
+					4).putInt(
+					value).array();
+		}
+
+		@Override
+		public void fromBinary(
+				final byte[] bytes ) {
+			value = ByteBuffer.wrap(
+					bytes).getInt();
+		}
+	}
+
+	public static class RegisteredPersistable extends
+			TestPersistable
+	{
+		protected RegisteredPersistable() {}
+
+		public RegisteredPersistable(
+				final int value ) {
+			super(
+					value);
+		}
+	}
+
+	public static class ConflictingPersistable extends
+			TestPersistable
+	{
+		protected ConflictingPersistable() {}
+	}
+}
@@ -1,6 +1,12 @@
 package mil.nga.giat.geowave.index.sfc.hilbert;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import mil.nga.giat.geowave.index.dimension.LatitudeDefinition;
 import mil.nga.giat.geowave.index.dimension.LongitudeDefinition;
@@ -273,5 +279,65 @@ public class HilbertSFCTest
 
 	}
 
+	@Test
+	public void testDecomposeQuery_2DSpatialConcurrent()
+			throws Exception {
+
+		int LATITUDE_BITS = 31;
+		int LONGITUDE_BITS = 31;
+
+		SFCDimensionDefinition[] SPATIAL_DIMENSIONS = new SFCDimensionDefinition[] {
+			new SFCDimensionDefinition(
+					new LongitudeDefinition(),
+					LONGITUDE_BITS),
+			new SFCDimensionDefinition(
+					new LatitudeDefinition(),
+					LATITUDE_BITS)
+		};
+
+		final SpaceFillingCurve hilbertSFC = SFCFactory.createSpaceFillingCurve(
+				SPATIAL_DIMENSIONS,
+				SFCType.HILBERT);
+		final BasicNumericDataset spatialQuery = new BasicNumericDataset(
+				new NumericData[] {
+					new NumericRange(
+							10,
+							57),
+					new NumericRange(
+							25,
+							50)
+				});
+
+		final RangeDecomposition expected = hilbertSFC.decomposeQuery(
+				spatialQuery,
+				100);
+
+		// every thread works on its own curve state, so results must match
+		// the single threaded decomposition exactly
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<RangeDecomposition>> futures = new ArrayList<Future<RangeDecomposition>>();
+			for (int i = 0; i < 32; i++) {
+				futures.add(executor.submit(new Callable<RangeDecomposition>() {
+					@Override
+					public RangeDecomposition call()
+							throws Exception {
+						return hilbertSFC.decomposeQuery(
+								spatialQuery,
+								100);
+					}
+				}));
+			}
+			for (final Future<RangeDecomposition> future : futures) {
+				Assert.assertArrayEquals(
+						expected.getRanges(),
+						future.get().getRanges());
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
 	/* public void testDecomposeQuery_2DSpatialRanges() {} */
 }
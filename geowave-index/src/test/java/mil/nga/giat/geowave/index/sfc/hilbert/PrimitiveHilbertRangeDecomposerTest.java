@@ -0,0 +1,180 @@
+package mil.nga.giat.geowave.index.sfc.hilbert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Functions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import com.google.uzaygezen.core.BacktrackingQueryBuilder;
+import com.google.uzaygezen.core.CompactHilbertCurve;
+import com.google.uzaygezen.core.FilteredIndexRange;
+import com.google.uzaygezen.core.LongContent;
+import com.google.uzaygezen.core.MultiDimensionalSpec;
+import com.google.uzaygezen.core.PlainFilterCombiner;
+import com.google.uzaygezen.core.QueryBuilder;
+import com.google.uzaygezen.core.RegionInspector;
+import com.google.uzaygezen.core.SimpleRegionInspector;
+import com.google.uzaygezen.core.ZoomingSpaceVisitorAdapter;
+import com.google.uzaygezen.core.ranges.LongRange;
+import com.google.uzaygezen.core.ranges.LongRangeHome;
+
+public class PrimitiveHilbertRangeDecomposerTest
+{
+	private static final int[] MAX_RANGES = new int[] {
+		1,
+		2,
+		7,
+		20,
+		100,
+		Integer.MAX_VALUE
+	};
+
+	@Test
+	public void testMatchesUzaygezen2D() {
+		assertMatchesUzaygezen(new int[] {
+			31,
+			31
+		});
+	}
+
+	@Test
+	public void testMatchesUzaygezen3D() {
+		assertMatchesUzaygezen(new int[] {
+			14,
+			14,
+			14
+		});
+	}
+
+	@Test
+	public void testMatchesUzaygezenUnevenBits() {
+		assertMatchesUzaygezen(new int[] {
+			5,
+			3,
+			7
+		});
+		assertMatchesUzaygezen(new int[] {
+			12,
+			16,
+			0,
+			9
+		});
+	}
+
+	@Test
+	public void testMatchesUzaygezenSingleDimension() {
+		assertMatchesUzaygezen(new int[] {
+			62
+		});
+	}
+
+	private static void assertMatchesUzaygezen(
+			final int[] bitsPerDimension ) {
+		final Random rng = new Random(
+				2718281828L);
+		final CompactHilbertCurve compactHilbertCurve = new CompactHilbertCurve(
+				new MultiDimensionalSpec(
+						Ints.asList(bitsPerDimension)));
+		final PrimitiveHilbertRangeDecomposer decomposer = new PrimitiveHilbertRangeDecomposer(
+				bitsPerDimension);
+		for (int q = 0; q < 20; q++) {
+			final long[] mins = new long[bitsPerDimension.length];
+			final long[] maxes = new long[bitsPerDimension.length];
+			long maxRange = 1;
+			for (int d = 0; d < bitsPerDimension.length; d++) {
+				final long bins = 1L << bitsPerDimension[d];
+				// mostly small boxes, with the first box covering a large
+				// part of the space
+				final double fraction = (q == 0) ? rng.nextDouble() : rng.nextDouble() * 0.001;
+				final long width = (long) (fraction * (bins - 1));
+				mins[d] = (long) (rng.nextDouble() * (bins - width));
+				maxes[d] = Math.min(
+						mins[d] + width,
+						bins - 1);
+				maxRange = Math.max(
+						maxRange,
+						(maxes[d] - mins[d]) + 1);
+			}
+			final long maxRangeDecomposed = (long) Math.pow(
+					maxRange,
+					bitsPerDimension.length);
+			final long minQuadSize = maxRangeDecomposed <= PrimitiveHilbertSFCOperations.UNIT_CELL_SIZE ? 1L : maxRangeDecomposed / PrimitiveHilbertSFCOperations.UNIT_CELL_SIZE;
+			for (final int maxRanges : MAX_RANGES) {
+				final long[] expected = decomposeWithUzaygezen(
+						compactHilbertCurve,
+						mins,
+						maxes,
+						minQuadSize,
+						maxRanges);
+				final int count = decomposer.decompose(
+						mins,
+						maxes,
+						minQuadSize,
+						maxRanges,
+						true);
+				final long[] actual = new long[count * 2];
+				System.arraycopy(
+						decomposer.getRanges(),
+						0,
+						actual,
+						0,
+						actual.length);
+				Assert.assertArrayEquals(
+						expected,
+						actual);
+			}
+		}
+	}
+
+	private static long[] decomposeWithUzaygezen(
+			final CompactHilbertCurve compactHilbertCurve,
+			final long[] mins,
+			final long[] maxes,
+			final long minQuadSize,
+			final int maxRanges ) {
+		final LongContent zero = new LongContent(
+				0L);
+		final List<LongRange> region = new ArrayList<LongRange>(
+				mins.length);
+		for (int d = 0; d < mins.length; d++) {
+			region.add(LongRange.of(
+					mins[d],
+					maxes[d] + 1L));
+		}
+		final RegionInspector<LongRange, LongContent> regionInspector = SimpleRegionInspector.create(
+				ImmutableList.of(region),
+				new LongContent(
+						minQuadSize),
+				Functions.<LongRange> identity(),
+				LongRangeHome.INSTANCE,
+				zero);
+		final PlainFilterCombiner<LongRange, Long, LongContent, LongRange> intervalCombiner = new PlainFilterCombiner<LongRange, Long, LongContent, LongRange>(
+				LongRange.of(
+						0,
+						1));
+		final QueryBuilder<LongRange, LongRange> queryBuilder = BacktrackingQueryBuilder.create(
+				regionInspector,
+				intervalCombiner,
+				maxRanges,
+				true,
+				LongRangeHome.INSTANCE,
+				zero);
+		compactHilbertCurve.accept(new ZoomingSpaceVisitorAdapter(
+				compactHilbertCurve,
+				queryBuilder));
+		final List<FilteredIndexRange<LongRange, LongRange>> hilbertRanges = queryBuilder.get().getFilteredIndexRanges();
+		final long[] retVal = new long[hilbertRanges.size() * 2];
+		for (int i = 0; i < hilbertRanges.size(); i++) {
+			retVal[i * 2] = hilbertRanges.get(
+					i).getIndexRange().getStart();
+			retVal[(i * 2) + 1] = hilbertRanges.get(
+					i).getIndexRange().getEnd();
+		}
+		return retVal;
+	}
+}
@@ -6,11 +6,17 @@ import static org.junit.Assert.assertTrue;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import mil.nga.giat.geowave.index.ByteArrayId;
 import mil.nga.giat.geowave.index.ByteArrayRange;
@@ -18,6 +24,8 @@ import mil.nga.giat.geowave.index.NumericIndexStrategy;
 import mil.nga.giat.geowave.index.NumericIndexStrategyFactory.DataType;
 import mil.nga.giat.geowave.index.NumericIndexStrategyFactory.SpatialFactory;
 import mil.nga.giat.geowave.index.NumericIndexStrategyFactory.SpatialTemporalFactory;
+import mil.nga.giat.geowave.index.PersistenceUtils;
+import mil.nga.giat.geowave.index.QueryRangesCache;
 import mil.nga.giat.geowave.index.dimension.LatitudeDefinition;
 import mil.nga.giat.geowave.index.dimension.LongitudeDefinition;
 import mil.nga.giat.geowave.index.dimension.NumericDimensionDefinition;
@@ -30,6 +38,7 @@ import mil.nga.giat.geowave.index.sfc.data.NumericData;
 import mil.nga.giat.geowave.index.sfc.data.NumericRange;
 import mil.nga.giat.geowave.index.sfc.data.NumericValue;
 import mil.nga.giat.geowave.index.sfc.tiered.TieredSFCIndexFactory;
+import mil.nga.giat.geowave.index.sfc.tiered.TieredSFCIndexStrategy;
 
 import org.junit.Test;
 
@@ -365,6 +374,287 @@ public class TieredSFCIndexStrategyTest
 				5));
 	}
 
+	@Test
+	public void testConcurrentInsertionIds()
+			throws Exception {
+		// daily time bins exercise the bin ID formatting along with the
+		// space filling curves
+		final NumericIndexStrategy strategy = TieredSFCIndexFactory.createEqualIntervalPrecisionTieredStrategy(
+				new NumericDimensionDefinition[] {
+					new LongitudeDefinition(),
+					new LatitudeDefinition(),
+					new TimeDefinition(
+							Unit.DAY)
+				},
+				new int[] {
+					20,
+					20,
+					20
+				},
+				SFCType.HILBERT,
+				4);
+		final Random rng = new Random(
+				42);
+		final List<MultiDimensionalNumericData> entries = new ArrayList<MultiDimensionalNumericData>();
+		final List<List<ByteArrayId>> expectedIds = new ArrayList<List<ByteArrayId>>();
+		for (int i = 0; i < 200; i++) {
+			final double minX = (rng.nextDouble() * 350) - 180;
+			final double minY = (rng.nextDouble() * 170) - 90;
+			final double time = rng.nextDouble() * 1500000000000L;
+			final MultiDimensionalNumericData entry = new BasicNumericDataset(
+					new NumericData[] {
+						new NumericRange(
+								minX,
+								minX + (rng.nextDouble() * 10)),
+						new NumericRange(
+								minY,
+								minY + (rng.nextDouble() * 10)),
+						new NumericValue(
+								time)
+					});
+			entries.add(entry);
+			expectedIds.add(strategy.getInsertionIds(entry));
+		}
+
+		// insertion IDs are computed concurrently by ingest threads sharing
+		// the strategy, so every thread must produce the sequential result
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<List<List<ByteArrayId>>>> futures = new ArrayList<Future<List<List<ByteArrayId>>>>();
+			for (int t = 0; t < 16; t++) {
+				futures.add(executor.submit(new Callable<List<List<ByteArrayId>>>() {
+					@Override
+					public List<List<ByteArrayId>> call()
+							throws Exception {
+						final List<List<ByteArrayId>> ids = new ArrayList<List<ByteArrayId>>();
+						for (final MultiDimensionalNumericData entry : entries) {
+							ids.add(strategy.getInsertionIds(entry));
+						}
+						return ids;
+					}
+				}));
+			}
+			for (final Future<List<List<ByteArrayId>>> future : futures) {
+				assertEquals(
+						expectedIds,
+						future.get());
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testBatchInsertionIds() {
+		final NumericDimensionDefinition[] dimensions = new NumericDimensionDefinition[] {
+			new LongitudeDefinition(),
+			new LatitudeDefinition(),
+			new TimeDefinition(
+					Unit.DAY)
+		};
+		for (final SFCType sfcType : SFCType.values()) {
+			final NumericIndexStrategy strategy = TieredSFCIndexFactory.createEqualIntervalPrecisionTieredStrategy(
+					dimensions,
+					new int[] {
+						20,
+						20,
+						20
+					},
+					sfcType,
+					4);
+			final Random rng = new Random(
+					7);
+			final int entryCount = 500;
+			final double[] mins = new double[entryCount * dimensions.length];
+			final double[] maxes = new double[entryCount * dimensions.length];
+			final List<ByteArrayId> expectedIds = new ArrayList<ByteArrayId>();
+			final int[] expectedCounts = new int[entryCount];
+			for (int i = 0; i < entryCount; i++) {
+				final double x = (rng.nextDouble() * 350) - 180;
+				final double y = (rng.nextDouble() * 170) - 90;
+				final double time = rng.nextDouble() * 1500000000000L;
+				final int offset = i * dimensions.length;
+				mins[offset] = x;
+				mins[offset + 1] = y;
+				mins[offset + 2] = time;
+				// mostly points, with some boxes and time ranges that span
+				// multiple bins (Z-order does not decompose ranges well enough
+				// for that yet)
+				final boolean isRange = (sfcType == SFCType.HILBERT) && ((i % 5) == 0);
+				maxes[offset] = isRange ? x + (rng.nextDouble() * 10) : x;
+				maxes[offset + 1] = isRange ? y + (rng.nextDouble() * 10) : y;
+				maxes[offset + 2] = isRange ? time + (rng.nextDouble() * 200000000L) : time;
+				final List<ByteArrayId> ids = strategy.getInsertionIds(new BasicNumericDataset(
+						new NumericData[] {
+							new NumericRange(
+									mins[offset],
+									maxes[offset]),
+							new NumericRange(
+									mins[offset + 1],
+									maxes[offset + 1]),
+							new NumericRange(
+									mins[offset + 2],
+									maxes[offset + 2])
+						}));
+				expectedIds.addAll(ids);
+				expectedCounts[i] = ids.size();
+			}
+			final List<ByteArrayId> actualIds = new ArrayList<ByteArrayId>();
+			final int[] actualCounts = new int[entryCount];
+			strategy.getInsertionIds(
+					mins,
+					maxes,
+					entryCount,
+					actualIds,
+					actualCounts);
+			assertEquals(
+					expectedIds,
+					actualIds);
+			assertTrue(Arrays.equals(
+					expectedCounts,
+					actualCounts));
+		}
+	}
+
+	@Test
+	public void testQueryRangesCache() {
+		final NumericIndexStrategy strategy = new SpatialFactory().createIndexStrategy(DataType.VECTOR);
+		final MultiDimensionalNumericData query = new BasicNumericDataset(
+				new NumericData[] {
+					new NumericRange(
+							-10,
+							12),
+					new NumericRange(
+							20,
+							33)
+				});
+		final List<ByteArrayRange> uncachedRanges = strategy.getQueryRanges(
+				query,
+				100);
+		final QueryRangesCache cache = new QueryRangesCache(
+				1024 * 1024);
+		TieredSFCIndexStrategy.setQueryRangesCache(cache);
+		try {
+			final List<ByteArrayRange> firstRanges = strategy.getQueryRanges(
+					query,
+					100);
+			assertEquals(
+					uncachedRanges,
+					firstRanges);
+			assertEquals(
+					0,
+					cache.getHitCount());
+			assertEquals(
+					1,
+					cache.getMissCount());
+
+			// a deserialized copy of the strategy should share cached entries
+			final NumericIndexStrategy strategyCopy = PersistenceUtils.fromBinary(
+					PersistenceUtils.toBinary(strategy),
+					NumericIndexStrategy.class);
+			final List<ByteArrayRange> secondRanges = strategyCopy.getQueryRanges(
+					new BasicNumericDataset(
+							new NumericData[] {
+								new NumericRange(
+										-10,
+										12),
+								new NumericRange(
+										20,
+										33)
+							}),
+					100);
+			assertEquals(
+					uncachedRanges,
+					secondRanges);
+			assertEquals(
+					1,
+					cache.getHitCount());
+
+			// a different max range decomposition is a different entry
+			strategy.getQueryRanges(
+					query,
+					10);
+			assertEquals(
+					2,
+					cache.getMissCount());
+			assertEquals(
+					2,
+					cache.getEntryCount());
+			assertTrue(cache.getSizeInBytes() <= cache.getMaxSizeInBytes());
+		}
+		finally {
+			TieredSFCIndexStrategy.setQueryRangesCache(null);
+		}
+	}
+
+	@Test
+	public void testQueryRangesCacheEviction() {
+		final NumericIndexStrategy strategy = new SpatialFactory().createIndexStrategy(DataType.VECTOR);
+		final List<ByteArrayRange> ranges = strategy.getQueryRanges(
+				new BasicNumericDataset(
+						new NumericData[] {
+							new NumericRange(
+									-10,
+									12),
+							new NumericRange(
+									20,
+									33)
+						}),
+				100);
+		// allow roughly two entries
+		final QueryRangesCache cache = new QueryRangesCache(
+				(ranges.size() * 160) * 2);
+		final byte[] strategyId = PersistenceUtils.toBinary(strategy);
+		for (int i = 0; i < 10; i++) {
+			cache.put(
+					strategyId,
+					new BasicNumericDataset(
+							new NumericData[] {
+								new NumericRange(
+										i,
+										i + 1),
+								new NumericRange(
+										i,
+										i + 1)
+							}),
+					100,
+					ranges);
+			assertTrue(cache.getSizeInBytes() <= cache.getMaxSizeInBytes());
+		}
+		assertTrue(cache.getEvictionCount() > 0);
+		// the most recently added entry must still be there, the first must
+		// have been evicted
+		assertEquals(
+				ranges,
+				cache.get(
+						strategyId,
+						new BasicNumericDataset(
+								new NumericData[] {
+									new NumericRange(
+											9,
+											10),
+									new NumericRange(
+											9,
+											10)
+								}),
+						100));
+		assertEquals(
+				null,
+				cache.get(
+						strategyId,
+						new BasicNumericDataset(
+								new NumericData[] {
+									new NumericRange(
+											0,
+											1),
+									new NumericRange(
+											0,
+											1)
+								}),
+						100));
+	}
+
 	private boolean compare(
 			final byte[] one,
 			final byte[] two,
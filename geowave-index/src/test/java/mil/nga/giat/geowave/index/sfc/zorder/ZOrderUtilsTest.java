@@ -0,0 +1,144 @@
+package mil.nga.giat.geowave.index.sfc.zorder;
+
+import java.util.Random;
+
+import mil.nga.giat.geowave.index.dimension.BasicDimensionDefinition;
+import mil.nga.giat.geowave.index.sfc.SFCDimensionDefinition;
+import mil.nga.giat.geowave.index.sfc.data.NumericRange;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ZOrderUtilsTest
+{
+	private static final int[] BITS_PER_DIMENSION = new int[] {
+		1,
+		7,
+		8,
+		16,
+		20,
+		21,
+		31,
+		32,
+		53
+	};
+
+	@Test
+	public void testMatchesBitSetEncoding() {
+		final Random rng = new Random(
+				1618033988L);
+		for (int numDimensions = 1; numDimensions <= 5; numDimensions++) {
+			for (final int bitsPerDimension : BITS_PER_DIMENSION) {
+				if ((bitsPerDimension * numDimensions) > 64) {
+					continue;
+				}
+				for (int i = 0; i < 200; i++) {
+					final double[] normalizedValues = new double[numDimensions];
+					for (int d = 0; d < numDimensions; d++) {
+						normalizedValues[d] = getNormalizedValue(
+								rng,
+								i);
+					}
+					final byte[] expected = ZOrderUtils.encodeWithBitSet(
+							normalizedValues,
+							bitsPerDimension,
+							numDimensions);
+					final byte[] actual = ZOrderUtils.encode(
+							normalizedValues,
+							bitsPerDimension,
+							numDimensions);
+					Assert.assertArrayEquals(
+							expected,
+							actual);
+
+					Assert.assertArrayEquals(
+							ZOrderUtils.decodeIndicesWithBitSet(
+									expected,
+									bitsPerDimension,
+									numDimensions),
+							ZOrderUtils.decodeIndices(
+									actual,
+									bitsPerDimension,
+									numDimensions));
+
+					final SFCDimensionDefinition[] dimensionDefinitions = new SFCDimensionDefinition[numDimensions];
+					for (int d = 0; d < numDimensions; d++) {
+						dimensionDefinitions[d] = new SFCDimensionDefinition(
+								new BasicDimensionDefinition(
+										-180,
+										180),
+								bitsPerDimension);
+					}
+					final NumericRange[] expectedRanges = ZOrderUtils.decodeRangesWithBitSet(
+							expected,
+							bitsPerDimension,
+							dimensionDefinitions);
+					final NumericRange[] actualRanges = ZOrderUtils.decodeRanges(
+							actual,
+							bitsPerDimension,
+							dimensionDefinitions);
+					for (int d = 0; d < numDimensions; d++) {
+						Assert.assertEquals(
+								expectedRanges[d].getMin(),
+								actualRanges[d].getMin(),
+								0);
+						Assert.assertEquals(
+								expectedRanges[d].getMax(),
+								actualRanges[d].getMax(),
+								0);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testWideKeysFallBack() {
+		final double[] normalizedValues = new double[] {
+			0.25,
+			0.8,
+			0.5
+		};
+		// 3 dimensions of 32 bits do not fit a long
+		final byte[] id = ZOrderUtils.encode(
+				normalizedValues,
+				32,
+				3);
+		Assert.assertArrayEquals(
+				ZOrderUtils.encodeWithBitSet(
+						normalizedValues,
+						32,
+						3),
+				id);
+		Assert.assertArrayEquals(
+				new long[] {
+					1L << 30,
+					(long) (0.8 * (1L << 32)),
+					1L << 31
+				},
+				ZOrderUtils.decodeIndices(
+						id,
+						32,
+						3));
+	}
+
+	private static double getNormalizedValue(
+			final Random rng,
+			final int i ) {
+		// include the boundaries, out of range values and exact bin edges
+		switch (i % 10) {
+			case 0:
+				return 0;
+			case 1:
+				return 1;
+			case 2:
+				return -rng.nextDouble();
+			case 3:
+				return 1 + rng.nextDouble();
+			case 4:
+				return rng.nextInt(1024) / 1024.0;
+			default:
+				return rng.nextDouble();
+		}
+	}
+}
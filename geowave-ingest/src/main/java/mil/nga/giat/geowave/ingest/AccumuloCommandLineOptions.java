@@ -32,6 +32,7 @@ public class AccumuloCommandLineOptions
 	private final String visibility;
 	private final boolean clearNamespace;
 	private final DimensionalityType type;
+	private final String bulkIngestDirectory;
 	private AccumuloOperations operations;
 
 	public AccumuloCommandLineOptions(
@@ -42,7 +43,8 @@ public class AccumuloCommandLineOptions
 			final String namespace,
 			final String visibility,
 			final boolean clearNamespace,
-			final DimensionalityType type )
+			final DimensionalityType type,
+			final String bulkIngestDirectory )
 			throws AccumuloException,
 			AccumuloSecurityException {
 		this.zookeepers = zookeepers;
@@ -53,6 +55,7 @@ public class AccumuloCommandLineOptions
 		this.visibility = visibility;
 		this.clearNamespace = clearNamespace;
 		this.type = type;
+		this.bulkIngestDirectory = bulkIngestDirectory;
 
 		if (clearNamespace) {
 			clearNamespace();
@@ -110,6 +113,15 @@ public class AccumuloCommandLineOptions
 		return clearNamespace;
 	}
 
+	/**
+	 * @return a work directory to write sorted files to, which are bulk
+	 *         imported once the ingest is complete, or null to write entries
+	 *         through batch writers
+	 */
+	public String getBulkIngestDirectory() {
+		return bulkIngestDirectory;
+	}
+
 	public synchronized AccumuloOperations getAccumuloOperations()
 			throws AccumuloException,
 			AccumuloSecurityException {
@@ -166,6 +178,7 @@ public class AccumuloCommandLineOptions
 		if (typeValue.equalsIgnoreCase("spatial-temporal")) {
 			type = DimensionalityType.SPATIAL_TEMPORAL;
 		}
+		final String bulkIngestDirectory = commandLine.getOptionValue("bulk");
 		if (zookeepers == null) {
 			success = false;
 			LOGGER.fatal("Zookeeper URL not set");
@@ -195,7 +208,8 @@ public class AccumuloCommandLineOptions
 					namespace,
 					visibility,
 					clearNamespace,
-					type);
+					type,
+					bulkIngestDirectory);
 		}
 		catch (AccumuloException | AccumuloSecurityException e) {
 			LOGGER.fatal(
@@ -255,5 +269,10 @@ public class AccumuloCommandLineOptions
 				"clear",
 				false,
 				"Clear ALL data stored with the same prefix as this namespace (optional; default is to append data to the namespace if it exists)"));
+		allOptions.addOption(new Option(
+				"bulk",
+				"bulk-ingest-dir",
+				true,
+				"A work directory, which must not exist, to write sorted files to that are bulk imported into Accumulo once the ingest is complete, rather than writing through batch writers; the directory must be on a file system that the tablet servers can read (optional; default is to write through batch writers)"));
 	}
 }
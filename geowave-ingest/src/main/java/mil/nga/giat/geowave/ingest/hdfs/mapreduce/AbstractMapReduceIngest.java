@@ -1,5 +1,6 @@
 package mil.nga.giat.geowave.ingest.hdfs.mapreduce;
 
+import mil.nga.giat.geowave.accumulo.mapreduce.output.GeoWaveBulkOutputFormat;
 import mil.nga.giat.geowave.accumulo.mapreduce.output.GeoWaveOutputFormat;
 import mil.nga.giat.geowave.index.ByteArrayUtils;
 import mil.nga.giat.geowave.index.Persistable;
@@ -102,7 +103,17 @@ abstract public class AbstractMapReduceIngest<T extends Persistable & DataAdapte
 		setupMapper(job);
 		setupReducer(job);
 		// set geowave output format
-		job.setOutputFormatClass(GeoWaveOutputFormat.class);
+		if (accumuloOptions.getBulkIngestDirectory() != null) {
+			// write sorted files to be bulk imported once the job completes
+			job.setOutputFormatClass(GeoWaveBulkOutputFormat.class);
+			GeoWaveBulkOutputFormat.setBulkIngestDirectory(
+					job,
+					new Path(
+							accumuloOptions.getBulkIngestDirectory()));
+		}
+		else {
+			job.setOutputFormatClass(GeoWaveOutputFormat.class);
+		}
 
 		// set accumulo operations
 		GeoWaveOutputFormat.setAccumuloOperationsInfo(
@@ -136,7 +147,13 @@ abstract public class AbstractMapReduceIngest<T extends Persistable & DataAdapte
 						requiredIndex);
 			}
 		}
-		return job.waitForCompletion(true) ? 0 : -1;
+		if (!job.waitForCompletion(true)) {
+			return -1;
+		}
+		if ((accumuloOptions.getBulkIngestDirectory() != null) && !GeoWaveBulkOutputFormat.importBulkIngestDirectory(job)) {
+			return -1;
+		}
+		return 0;
 	}
 
 	abstract protected void setupMapper(
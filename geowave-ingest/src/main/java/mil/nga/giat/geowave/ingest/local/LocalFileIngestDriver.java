@@ -10,11 +10,9 @@ import java.util.Map;
 
 import mil.nga.giat.geowave.accumulo.AccumuloDataStore;
 import mil.nga.giat.geowave.accumulo.AccumuloOperations;
+import mil.nga.giat.geowave.accumulo.AccumuloOptions;
 import mil.nga.giat.geowave.ingest.AccumuloCommandLineOptions;
-import mil.nga.giat.geowave.ingest.GeoWaveData;
 import mil.nga.giat.geowave.ingest.IngestTypePluginProviderSpi;
-import mil.nga.giat.geowave.store.CloseableIterator;
-import mil.nga.giat.geowave.store.DataStore;
 import mil.nga.giat.geowave.store.IndexWriter;
 import mil.nga.giat.geowave.store.adapter.WritableDataAdapter;
 
@@ -28,13 +26,16 @@ import org.apache.log4j.Logger;
 
 /**
  * This extends the local file driver to directly ingest data into GeoWave
- * utilizing the LocalFileIngestPlugin's that are discovered by the system.
+ * utilizing the LocalFileIngestPlugin's that are discovered by the system. The
+ * files are converted and written by a pipeline of thread pools so that many
+ * files can be parsed at once.
  */
 public class LocalFileIngestDriver extends
 		AbstractLocalFileDriver<LocalFileIngestPlugin<?>, IngestRunData>
 {
 	private final static Logger LOGGER = Logger.getLogger(LocalFileIngestDriver.class);
 	protected AccumuloCommandLineOptions accumulo;
+	protected LocalFileIngestPipeline pipeline;
 
 	public LocalFileIngestDriver(
 			final String operation ) {
@@ -106,19 +107,52 @@ public class LocalFileIngestDriver extends
 			LOGGER.fatal("There were no local file ingest type plugin providers found");
 			return;
 		}
-		final DataStore dataStore = new AccumuloDataStore(
-				operations);
+		final AccumuloOptions accumuloOptions = new AccumuloOptions();
+		// let the writer threads encode entries in parallel
+		accumuloOptions.setConcurrentWrites(localInput.getWriterThreads() > 1);
+		accumuloOptions.setBulkIngestDirectory(accumulo.getBulkIngestDirectory());
+		final AccumuloDataStore dataStore = new AccumuloDataStore(
+				operations,
+				accumuloOptions);
 		try (IngestRunData runData = new IngestRunData(
 				adapters,
 				dataStore)) {
-			processInput(
-					localFileIngestPlugins,
-					runData);
+			pipeline = new LocalFileIngestPipeline(
+					runData,
+					accumulo.getVisibility(),
+					localInput.getConversionThreads(),
+					localInput.getWriterThreads(),
+					localInput.getQueueSize());
+			try {
+				processInput(
+						localFileIngestPlugins,
+						runData);
+			}
+			finally {
+				// wait for the queued files before the writers are closed
+				pipeline.close();
+				pipeline = null;
+			}
 		}
 		catch (final IOException e) {
 			LOGGER.fatal(
 					"Unexpected I/O exception when reading input files",
 					e);
+			return;
+		}
+		if (accumulo.getBulkIngestDirectory() != null) {
+			// every index writer has been closed so their files can be
+			// imported
+			try {
+				if (!dataStore.importBulkIngestDirectory()) {
+					LOGGER.fatal("Not every file in the bulk ingest directory '" + accumulo.getBulkIngestDirectory() + "' was imported");
+				}
+			}
+			catch (final IOException e) {
+				LOGGER.fatal(
+						"Unable to import the bulk ingest directory",
+						e);
+			}
 		}
 	}
 
@@ -143,22 +177,9 @@ public class LocalFileIngestDriver extends
 			throw new IOException(
 					"Could not get index instance, getIndex() returned null");
 		}
-		try (CloseableIterator<GeoWaveData<?>> geowaveDataIt = plugin.toGeoWaveData(
+		pipeline.submit(
 				file,
-				idx.getId(),
-				accumulo.getVisibility())) {
-			while (geowaveDataIt.hasNext()) {
-				final GeoWaveData<?> geowaveData = geowaveDataIt.next();
-				final WritableDataAdapter adapter = ingestRunData.getDataAdapter(geowaveData);
-				if (adapter == null) {
-					LOGGER.warn("Adapter not found for " + geowaveData.getValue());
-					continue;
-				}
-				indexWriter.write(
-						adapter,
-						geowaveData.getValue());
-			}
-		}
-
+				plugin,
+				idx);
 	}
 }
@@ -0,0 +1,460 @@
+package mil.nga.giat.geowave.ingest.local;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import mil.nga.giat.geowave.ingest.GeoWaveData;
+import mil.nga.giat.geowave.store.CloseableIterator;
+import mil.nga.giat.geowave.store.IndexWriter;
+import mil.nga.giat.geowave.store.adapter.WritableDataAdapter;
+import mil.nga.giat.geowave.store.index.Index;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This runs a local file ingest as a pipeline of stages connected by bounded
+ * queues. The thread that finds the files submits them to a pool of conversion
+ * threads, which read and convert each file into GeoWave data through the
+ * plugin, and the converted entries are handed to a pool of writer threads
+ * which write them in batches through the index writers. When a queue is full
+ * the stage feeding it blocks, so a slow stage slows down the ones before it
+ * rather than letting converted data accumulate in memory.
+ *
+ * Conversion threads call the plugins concurrently, so the plugins must be
+ * thread safe. If any stage fails, the remaining files are skipped and the
+ * failure is thrown when the pipeline is closed. The writer threads stop on a
+ * failure, so a stage waiting on a full queue gives up once the pipeline has
+ * failed rather than waiting for space that may never be freed.
+ */
+public class LocalFileIngestPipeline implements
+		Closeable
+{
+	private final static Logger LOGGER = Logger.getLogger(LocalFileIngestPipeline.class);
+	private static final int MAX_BATCH_SIZE = 1000;
+	private static final long OFFER_TIMEOUT_MILLIS = 100;
+	private static final FileTask FILE_POISON = new FileTask(
+			null,
+			null,
+			null);
+	private static final WriteTask WRITE_POISON = new WriteTask(
+			null,
+			null,
+			null);
+
+	private final IngestRunData runData;
+	private final String visibility;
+	private final BlockingQueue<FileTask> fileQueue;
+	private final BlockingQueue<WriteTask> writeQueue;
+	private final ExecutorService conversionPool;
+	private final ExecutorService writerPool;
+	private final List<Future<?>> conversionFutures = new ArrayList<Future<?>>();
+	private final List<Future<?>> writerFutures = new ArrayList<Future<?>>();
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+	private final AtomicLong fileCount = new AtomicLong();
+	private final AtomicLong entryCount = new AtomicLong();
+	private boolean closed = false;
+
+	public LocalFileIngestPipeline(
+			final IngestRunData runData,
+			final String visibility,
+			final int conversionThreads,
+			final int writerThreads,
+			final int queueSize ) {
+		this.runData = runData;
+		this.visibility = visibility;
+		fileQueue = new ArrayBlockingQueue<FileTask>(
+				queueSize);
+		writeQueue = new ArrayBlockingQueue<WriteTask>(
+				queueSize);
+		conversionPool = Executors.newFixedThreadPool(conversionThreads);
+		writerPool = Executors.newFixedThreadPool(writerThreads);
+		for (int i = 0; i < conversionThreads; i++) {
+			conversionFutures.add(conversionPool.submit(new ConversionWorker()));
+		}
+		for (int i = 0; i < writerThreads; i++) {
+			writerFutures.add(writerPool.submit(new WriterWorker()));
+		}
+	}
+
+	/**
+	 * Queue a file to be converted and written, blocking while the conversion
+	 * stage is full
+	 *
+	 * @param file
+	 *            the file
+	 * @param plugin
+	 *            the plugin to convert the file with
+	 * @param index
+	 *            the index to write the converted data to
+	 * @throws IOException
+	 *             if the pipeline has failed
+	 */
+	public void submit(
+			final File file,
+			final LocalFileIngestPlugin<?> plugin,
+			final Index index )
+			throws IOException {
+		checkFailure();
+		if (!offer(
+				fileQueue,
+				new FileTask(
+						file,
+						plugin,
+						index))) {
+			checkFailure();
+		}
+	}
+
+	public long getFileCount() {
+		return fileCount.get();
+	}
+
+	public long getEntryCount() {
+		return entryCount.get();
+	}
+
+	/**
+	 * Wait for every queued file to be converted and written
+	 *
+	 * @throws IOException
+	 *             if any file could not be ingested
+	 */
+	@Override
+	public void close()
+			throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			// once the pipeline has failed, the threads that are left are
+			// stopped rather than waited for
+			if (offerAll(
+					fileQueue,
+					FILE_POISON,
+					conversionFutures.size())) {
+				waitFor(conversionFutures);
+			}
+			if (offerAll(
+					writeQueue,
+					WRITE_POISON,
+					writerFutures.size())) {
+				waitFor(writerFutures);
+			}
+		}
+		finally {
+			conversionPool.shutdownNow();
+			writerPool.shutdownNow();
+			awaitTermination(conversionPool);
+			awaitTermination(writerPool);
+		}
+		LOGGER.info("Ingested " + entryCount.get() + " entries from " + fileCount.get() + " files");
+		checkFailure();
+	}
+
+	private void waitFor(
+			final List<Future<?>> futures ) {
+		for (final Future<?> future : futures) {
+			try {
+				future.get();
+			}
+			catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				fail(e);
+			}
+			catch (final ExecutionException e) {
+				fail(e.getCause());
+			}
+		}
+	}
+
+	private void awaitTermination(
+			final ExecutorService pool ) {
+		try {
+			while (!pool.awaitTermination(
+					OFFER_TIMEOUT_MILLIS,
+					TimeUnit.MILLISECONDS)) {
+				LOGGER.debug("Waiting for the ingest pipeline threads to stop");
+			}
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			fail(e);
+		}
+	}
+
+	private void fail(
+			final Throwable t ) {
+		if (failure.compareAndSet(
+				null,
+				t)) {
+			LOGGER.error(
+					"Local file ingest failed, skipping the remaining files",
+					t);
+		}
+	}
+
+	private void checkFailure()
+			throws IOException {
+		final Throwable t = failure.get();
+		if (t != null) {
+			if (t instanceof IOException) {
+				throw (IOException) t;
+			}
+			throw new IOException(
+					"Local file ingest failed",
+					t);
+		}
+	}
+
+	private <T> boolean offerAll(
+			final BlockingQueue<T> queue,
+			final T task,
+			final int count ) {
+		for (int i = 0; i < count; i++) {
+			if (!offer(
+					queue,
+					task)) {
+				return false;
+			}
+		}
+		return failure.get() == null;
+	}
+
+	/**
+	 * Queue a task, blocking while the queue is full unless the pipeline fails
+	 *
+	 * @return whether the task was queued, which is false if the pipeline
+	 *         failed while waiting
+	 */
+	private <T> boolean offer(
+			final BlockingQueue<T> queue,
+			final T task ) {
+		try {
+			while (!queue.offer(
+					task,
+					OFFER_TIMEOUT_MILLIS,
+					TimeUnit.MILLISECONDS)) {
+				if (failure.get() != null) {
+					return false;
+				}
+			}
+			return true;
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(
+					"Interrupted while waiting for the ingest pipeline",
+					e);
+		}
+	}
+
+	private static <T> T take(
+			final BlockingQueue<T> queue ) {
+		try {
+			return queue.take();
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(
+					"Interrupted while waiting for the ingest pipeline",
+					e);
+		}
+	}
+
+	private class ConversionWorker implements
+			Runnable
+	{
+		@Override
+		public void run() {
+			while (true) {
+				final FileTask task = take(fileQueue);
+				if (task == FILE_POISON) {
+					return;
+				}
+				// keep draining after a failure so the walker never blocks
+				if (failure.get() != null) {
+					continue;
+				}
+				try {
+					if (convert(task)) {
+						fileCount.incrementAndGet();
+					}
+				}
+				catch (final Throwable t) {
+					fail(t);
+				}
+			}
+		}
+
+		@SuppressWarnings({
+			"rawtypes",
+			"unchecked"
+		})
+		private boolean convert(
+				final FileTask task )
+				throws IOException {
+			final IndexWriter indexWriter = runData.getIndexWriter(task.index);
+			try (CloseableIterator<GeoWaveData<?>> geowaveDataIt = (CloseableIterator) task.plugin.toGeoWaveData(
+					task.file,
+					task.index.getId(),
+					visibility)) {
+				while (geowaveDataIt.hasNext()) {
+					final GeoWaveData<?> geowaveData = geowaveDataIt.next();
+					final WritableDataAdapter adapter = runData.getDataAdapter(geowaveData);
+					if (adapter == null) {
+						LOGGER.warn("Adapter not found for " + geowaveData.getValue());
+						continue;
+					}
+					if (!offer(
+							writeQueue,
+							new WriteTask(
+									indexWriter,
+									adapter,
+									geowaveData.getValue()))) {
+						// the writers have stopped
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+	}
+
+	private class WriterWorker implements
+			Runnable
+	{
+		private final List<WriteTask> tasks = new ArrayList<WriteTask>(
+				MAX_BATCH_SIZE);
+
+		@Override
+		public void run() {
+			try {
+				writeAll();
+			}
+			catch (final Throwable t) {
+				fail(t);
+			}
+		}
+
+		private void writeAll() {
+			// stop once anything has failed, the other stages give up waiting
+			// on the write queue
+			while (failure.get() == null) {
+				tasks.clear();
+				tasks.add(take(writeQueue));
+				writeQueue.drainTo(
+						tasks,
+						MAX_BATCH_SIZE - 1);
+				// write each run of entries for the same writer and adapter as
+				// one batch
+				int poisonCount = 0;
+				int batchStart = 0;
+				for (int i = 0; i < tasks.size(); i++) {
+					final WriteTask task = tasks.get(i);
+					if (task == WRITE_POISON) {
+						write(tasks.subList(
+								batchStart,
+								i));
+						batchStart = i + 1;
+						poisonCount++;
+					}
+					else if ((i > batchStart) && !task.isSameBatch(tasks.get(batchStart))) {
+						write(tasks.subList(
+								batchStart,
+								i));
+						batchStart = i;
+					}
+				}
+				write(tasks.subList(
+						batchStart,
+						tasks.size()));
+				if (poisonCount > 0) {
+					// another writer must take any poison that was drained
+					// along with this writer's
+					for (int i = 1; i < poisonCount; i++) {
+						offer(
+								writeQueue,
+								WRITE_POISON);
+					}
+					return;
+				}
+			}
+		}
+
+		@SuppressWarnings({
+			"rawtypes",
+			"unchecked"
+		})
+		private void write(
+				final List<WriteTask> batch ) {
+			if (batch.isEmpty() || (failure.get() != null)) {
+				return;
+			}
+			try {
+				final WriteTask first = batch.get(0);
+				final List entries = new ArrayList(
+						batch.size());
+				for (final WriteTask task : batch) {
+					entries.add(task.entry);
+				}
+				first.indexWriter.writeBatch(
+						first.adapter,
+						entries);
+				entryCount.addAndGet(batch.size());
+			}
+			catch (final Throwable t) {
+				fail(t);
+			}
+		}
+	}
+
+	private static class FileTask
+	{
+		private final File file;
+		private final LocalFileIngestPlugin<?> plugin;
+		private final Index index;
+
+		private FileTask(
+				final File file,
+				final LocalFileIngestPlugin<?> plugin,
+				final Index index ) {
+			this.file = file;
+			this.plugin = plugin;
+			this.index = index;
+		}
+	}
+
+	private static class WriteTask
+	{
+		private final IndexWriter indexWriter;
+		private final WritableDataAdapter<?> adapter;
+		private final Object entry;
+
+		private WriteTask(
+				final IndexWriter indexWriter,
+				final WritableDataAdapter<?> adapter,
+				final Object entry ) {
+			this.indexWriter = indexWriter;
+			this.adapter = adapter;
+			this.entry = entry;
+		}
+
+		private boolean isSameBatch(
+				final WriteTask other ) {
+			return (indexWriter == other.indexWriter) && (adapter == other.adapter);
+		}
+	}
+}
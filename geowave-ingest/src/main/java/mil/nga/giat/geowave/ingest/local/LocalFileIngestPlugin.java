@@ -8,6 +8,8 @@ import mil.nga.giat.geowave.store.index.Index;
 /**
  * This is the primary plugin for directly ingesting data to GeoWave from local
  * files. It will write any GeoWaveData that is emitted for any supported file.
+ * Several files may be converted at once, so converting a file must be thread
+ * safe.
  * 
  * 
  * @param <O>
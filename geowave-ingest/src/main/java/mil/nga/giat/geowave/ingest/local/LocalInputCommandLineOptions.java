@@ -11,19 +11,44 @@ import org.apache.log4j.Logger;
  * directing the ingestion framework to a local file system. The user must set
  * an input file or directory and can set a list of extensions to narrow the
  * ingestion to. The process will recurse a directory and filter by the
- * extensions if provided.
+ * extensions if provided. The number of threads that convert files and that
+ * write the converted data, and the number of files and entries that may be
+ * waiting between those stages, can also be set.
  */
 public class LocalInputCommandLineOptions
 {
 	private final static Logger LOGGER = Logger.getLogger(LocalInputCommandLineOptions.class);
+	public static final int DEFAULT_CONVERSION_THREADS = Runtime.getRuntime().availableProcessors();
+	public static final int DEFAULT_WRITER_THREADS = 2;
+	public static final int DEFAULT_QUEUE_SIZE = 10000;
 	private final String input;
 	private final String[] extensions;
+	private final int conversionThreads;
+	private final int writerThreads;
+	private final int queueSize;
 
 	public LocalInputCommandLineOptions(
 			final String input,
 			final String[] extensions ) {
+		this(
+				input,
+				extensions,
+				DEFAULT_CONVERSION_THREADS,
+				DEFAULT_WRITER_THREADS,
+				DEFAULT_QUEUE_SIZE);
+	}
+
+	public LocalInputCommandLineOptions(
+			final String input,
+			final String[] extensions,
+			final int conversionThreads,
+			final int writerThreads,
+			final int queueSize ) {
 		this.input = input;
 		this.extensions = extensions;
+		this.conversionThreads = conversionThreads;
+		this.writerThreads = writerThreads;
+		this.queueSize = queueSize;
 	}
 
 	public String getInput() {
@@ -34,6 +59,18 @@ public class LocalInputCommandLineOptions
 		return extensions;
 	}
 
+	public int getConversionThreads() {
+		return conversionThreads;
+	}
+
+	public int getWriterThreads() {
+		return writerThreads;
+	}
+
+	public int getQueueSize() {
+		return queueSize;
+	}
+
 	public static LocalInputCommandLineOptions parseOptions(
 			final CommandLine commandLine )
 			throws ParseException {
@@ -60,9 +97,48 @@ public class LocalInputCommandLineOptions
 						ex);
 			}
 		}
+		final int conversionThreads = parsePositiveInt(
+				commandLine,
+				"ct",
+				DEFAULT_CONVERSION_THREADS);
+		final int writerThreads = parsePositiveInt(
+				commandLine,
+				"wt",
+				DEFAULT_WRITER_THREADS);
+		final int queueSize = parsePositiveInt(
+				commandLine,
+				"q",
+				DEFAULT_QUEUE_SIZE);
 		return new LocalInputCommandLineOptions(
 				value,
-				extensions);
+				extensions,
+				conversionThreads,
+				writerThreads,
+				queueSize);
+	}
+
+	private static int parsePositiveInt(
+			final CommandLine commandLine,
+			final String option,
+			final int defaultValue )
+			throws ParseException {
+		if (!commandLine.hasOption(option)) {
+			return defaultValue;
+		}
+		final String value = commandLine.getOptionValue(option);
+		try {
+			final int intValue = Integer.parseInt(value);
+			if (intValue > 0) {
+				return intValue;
+			}
+		}
+		catch (final NumberFormatException e) {
+			LOGGER.debug(
+					"Unable to parse '" + value + "'",
+					e);
+		}
+		throw new ParseException(
+				"Option '" + option + "' must be a positive integer, but was '" + value + "'");
 	}
 
 	public static void applyOptions(
@@ -78,5 +154,23 @@ public class LocalInputCommandLineOptions
 				"extension",
 				true,
 				"individual or comma-delimited set of file extensions to accept (optional)");
+
+		allOptions.addOption(
+				"ct",
+				"conversion-threads",
+				true,
+				"the number of threads that convert files into GeoWave data (optional, defaults to the number of processors)");
+
+		allOptions.addOption(
+				"wt",
+				"writer-threads",
+				true,
+				"the number of threads that write the converted data to GeoWave (optional, defaults to " + DEFAULT_WRITER_THREADS + ")");
+
+		allOptions.addOption(
+				"q",
+				"queue-size",
+				true,
+				"the number of files, and the number of converted entries, that may be waiting for the next stage of the ingest before the previous stage blocks (optional, defaults to " + DEFAULT_QUEUE_SIZE + ")");
 	}
 }
@@ -0,0 +1,279 @@
+package mil.nga.giat.geowave.ingest.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.ingest.GeoWaveData;
+import mil.nga.giat.geowave.store.CloseableIterator;
+import mil.nga.giat.geowave.store.DataStore;
+import mil.nga.giat.geowave.store.IndexWriter;
+import mil.nga.giat.geowave.store.adapter.WritableDataAdapter;
+import mil.nga.giat.geowave.store.index.Index;
+import mil.nga.giat.geowave.store.index.IndexType;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LocalFileIngestPipelineTest
+{
+	private static final int ENTRIES_PER_FILE = 1000;
+	private static final int FILE_COUNT = 20;
+	private static final ByteArrayId ADAPTER_ID = new ByteArrayId(
+			"test_adapter");
+
+	private final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+	private final WritableDataAdapter<Object> adapter = createAdapter();
+
+	@Test(timeout = 60000)
+	public void testIngest()
+			throws IOException {
+		final AtomicInteger writtenCount = new AtomicInteger();
+		final LocalFileIngestPipeline pipeline = createPipeline(new TestIndexWriter(
+				index) {
+			@Override
+			public <T> List<ByteArrayId> writeBatch(
+					final WritableDataAdapter<T> writableAdapter,
+					final List<T> entries ) {
+				writtenCount.addAndGet(entries.size());
+				return Collections.emptyList();
+			}
+		});
+		for (int i = 0; i < FILE_COUNT; i++) {
+			pipeline.submit(
+					new File(
+							"test_" + i),
+					new TestPlugin(),
+					index);
+		}
+		pipeline.close();
+		Assert.assertEquals(
+				FILE_COUNT,
+				pipeline.getFileCount());
+		Assert.assertEquals(
+				FILE_COUNT * ENTRIES_PER_FILE,
+				pipeline.getEntryCount());
+		Assert.assertEquals(
+				FILE_COUNT * ENTRIES_PER_FILE,
+				writtenCount.get());
+	}
+
+	@Test(timeout = 60000)
+	public void testWriterFailure() {
+		final AtomicInteger writeAttempts = new AtomicInteger();
+		final LocalFileIngestPipeline pipeline = createPipeline(new TestIndexWriter(
+				index) {
+			@Override
+			public <T> List<ByteArrayId> writeBatch(
+					final WritableDataAdapter<T> writableAdapter,
+					final List<T> entries ) {
+				writeAttempts.incrementAndGet();
+				throw new IllegalStateException(
+						"Unable to write");
+			}
+		});
+		// each file converts into many more entries than the write queue
+		// holds, so the conversion threads are left waiting on a full queue
+		// once the writer has stopped
+		boolean submitFailed = false;
+		try {
+			for (int i = 0; i < FILE_COUNT; i++) {
+				pipeline.submit(
+						new File(
+								"test_" + i),
+						new TestPlugin(),
+						index);
+			}
+		}
+		catch (final IOException e) {
+			submitFailed = true;
+		}
+		try {
+			pipeline.close();
+			Assert.fail("The writer failure should be thrown when the pipeline is closed");
+		}
+		catch (final IOException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+			Assert.assertEquals(
+					"Unable to write",
+					e.getCause().getMessage());
+		}
+		// the writer stops at its first failure
+		Assert.assertEquals(
+				1,
+				writeAttempts.get());
+		Assert.assertEquals(
+				0,
+				pipeline.getEntryCount());
+		Assert.assertTrue(submitFailed || (pipeline.getFileCount() < FILE_COUNT));
+	}
+
+	private LocalFileIngestPipeline createPipeline(
+			final IndexWriter indexWriter ) {
+		final List<WritableDataAdapter<?>> adapters = new ArrayList<WritableDataAdapter<?>>();
+		adapters.add(adapter);
+		final DataStore dataStore = (DataStore) Proxy.newProxyInstance(
+				DataStore.class.getClassLoader(),
+				new Class<?>[] {
+					DataStore.class
+				},
+				new InvocationHandler() {
+					@Override
+					public Object invoke(
+							final Object proxy,
+							final Method method,
+							final Object[] args ) {
+						if ("createIndexWriter".equals(method.getName())) {
+							return indexWriter;
+						}
+						throw new UnsupportedOperationException(
+								method.getName());
+					}
+				});
+		return new LocalFileIngestPipeline(
+				new IngestRunData(
+						adapters,
+						dataStore),
+				null,
+				2,
+				1,
+				10);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static WritableDataAdapter<Object> createAdapter() {
+		// the pipeline only needs the adapter to look it up by its ID
+		return (WritableDataAdapter<Object>) Proxy.newProxyInstance(
+				WritableDataAdapter.class.getClassLoader(),
+				new Class<?>[] {
+					WritableDataAdapter.class
+				},
+				new InvocationHandler() {
+					@Override
+					public Object invoke(
+							final Object proxy,
+							final Method method,
+							final Object[] args ) {
+						if ("getAdapterId".equals(method.getName())) {
+							return ADAPTER_ID;
+						}
+						if ("hashCode".equals(method.getName())) {
+							return System.identityHashCode(proxy);
+						}
+						if ("equals".equals(method.getName())) {
+							return proxy == args[0];
+						}
+						throw new UnsupportedOperationException(
+								method.getName());
+					}
+				});
+	}
+
+	private static abstract class TestIndexWriter implements
+			IndexWriter
+	{
+		private final Index index;
+
+		private TestIndexWriter(
+				final Index index ) {
+			this.index = index;
+		}
+
+		@Override
+		public <T> List<ByteArrayId> write(
+				final WritableDataAdapter<T> writableAdapter,
+				final T entry ) {
+			return writeBatch(
+					writableAdapter,
+					Collections.singletonList(entry));
+		}
+
+		@Override
+		public <T> void setupAdapter(
+				final WritableDataAdapter<T> writableAdapter ) {}
+
+		@Override
+		public Index getIndex() {
+			return index;
+		}
+
+		@Override
+		public void close() {}
+	}
+
+	private class TestPlugin implements
+			LocalFileIngestPlugin<Object>
+	{
+		@Override
+		public String[] getFileExtensionFilters() {
+			return new String[] {};
+		}
+
+		@Override
+		public void init(
+				final File baseDirectory ) {}
+
+		@Override
+		public boolean supportsFile(
+				final File file ) {
+			return true;
+		}
+
+		@Override
+		public Index[] getSupportedIndices() {
+			return new Index[] {
+				index
+			};
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public WritableDataAdapter<Object>[] getDataAdapters(
+				final String globalVisibility ) {
+			return new WritableDataAdapter[] {
+				adapter
+			};
+		}
+
+		@Override
+		public CloseableIterator<GeoWaveData<Object>> toGeoWaveData(
+				final File input,
+				final ByteArrayId primaryIndexId,
+				final String globalVisibility ) {
+			return new CloseableIterator.Wrapper<GeoWaveData<Object>>(
+					new Iterator<GeoWaveData<Object>>() {
+						private int count = 0;
+
+						@Override
+						public boolean hasNext() {
+							return count < ENTRIES_PER_FILE;
+						}
+
+						@Override
+						public GeoWaveData<Object> next() {
+							if (!hasNext()) {
+								throw new NoSuchElementException();
+							}
+							return new GeoWaveData<Object>(
+									ADAPTER_ID,
+									primaryIndexId,
+									Integer.valueOf(count++));
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					});
+		}
+	}
+}
@@ -0,0 +1,631 @@
+package mil.nga.giat.geowave.store;
+
+import java.io.ByteArrayOutputStream;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateFilter;
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * This geometry encoding is a compact alternative to well-known binary, similar
+ * to TWKB. Ordinates are quantized to a fixed number of decimal digits and each
+ * vertex is stored as the variable length difference from the previous vertex,
+ * which typically takes 2 or 3 bytes per ordinate rather than 8 for long tracks
+ * and detailed polygons. The geometry is the quantized geometry once it is
+ * decoded, so the precision should be chosen according to the accuracy of the
+ * data; the default of 7 decimal digits is about a centimeter in EPSG:4326.
+ * 
+ * The binary starts with a format ID that well-known binary can never start
+ * with, followed by a header and the quantized envelope of the geometry, so
+ * that the envelope can be read with {@link #decodeEnvelope(byte[])} without
+ * decoding the rest of the geometry.
+ */
+public class CompactGeometryEncoding implements
+		GeometryEncoding
+{
+	// well-known binary always starts with a byte order of 0 or 1
+	public static final byte FORMAT_ID = 2;
+	public static final int DEFAULT_PRECISION = 7;
+	private static final int MIN_PRECISION = -7;
+	private static final int MAX_PRECISION = 12;
+	// the largest magnitude that a double holds every integer up to, so the
+	// quantized ordinates and the deltas between them cannot overflow a long
+	private static final double MAX_QUANTIZED_ORDINATE = 9007199254740992.0;
+
+	private static final int POINT = 1;
+	private static final int LINESTRING = 2;
+	private static final int POLYGON = 3;
+	private static final int MULTIPOINT = 4;
+	private static final int MULTILINESTRING = 5;
+	private static final int MULTIPOLYGON = 6;
+	private static final int GEOMETRYCOLLECTION = 7;
+	private static final int TYPE_MASK = 0x0F;
+	private static final int HAS_Z = 0x10;
+	private static final int IS_EMPTY = 0x20;
+
+	private int xyPrecision;
+	private int zPrecision;
+
+	public CompactGeometryEncoding() {
+		this(
+				DEFAULT_PRECISION);
+	}
+
+	/**
+	 * @param precision
+	 *            the number of decimal digits to keep for every ordinate
+	 */
+	public CompactGeometryEncoding(
+			final int precision ) {
+		this(
+				precision,
+				precision);
+	}
+
+	/**
+	 * @param xyPrecision
+	 *            the number of decimal digits to keep for x and y
+	 * @param zPrecision
+	 *            the number of decimal digits to keep for z
+	 */
+	public CompactGeometryEncoding(
+			final int xyPrecision,
+			final int zPrecision ) {
+		checkPrecision(xyPrecision);
+		checkPrecision(zPrecision);
+		this.xyPrecision = xyPrecision;
+		this.zPrecision = zPrecision;
+	}
+
+	private static void checkPrecision(
+			final int precision ) {
+		if ((precision < MIN_PRECISION) || (precision > MAX_PRECISION)) {
+			throw new IllegalArgumentException(
+					"Precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION + " decimal digits");
+		}
+	}
+
+	public int getXYPrecision() {
+		return xyPrecision;
+	}
+
+	public int getZPrecision() {
+		return zPrecision;
+	}
+
+	@Override
+	public byte[] encode(
+			final Geometry geometry ) {
+		final boolean hasZ = !geometry.isEmpty() && !Double.isNaN(geometry.getCoordinate().getOrdinate(
+				Coordinate.Z));
+		final Encoder encoder = new Encoder(
+				xyPrecision,
+				zPrecision,
+				hasZ,
+				geometry.getNumPoints());
+		encoder.out.write(FORMAT_ID);
+		encoder.writeHeader(geometry);
+		encoder.out.write(xyPrecision);
+		if (hasZ) {
+			encoder.out.write(zPrecision);
+		}
+		if (!geometry.isEmpty()) {
+			encoder.writeEnvelope(geometry);
+			encoder.writeBody(geometry);
+		}
+		return encoder.out.toByteArray();
+	}
+
+	/**
+	 * @param binary
+	 *            the binary representation of a geometry
+	 * @return whether the binary was written by this encoding
+	 */
+	public static boolean isCompact(
+			final byte[] binary ) {
+		return (binary != null) && (binary.length > 0) && (binary[0] == FORMAT_ID);
+	}
+
+	/**
+	 * Converts a binary written by this encoding to a JTS geometry
+	 * 
+	 * @param binary
+	 *            the binary representation of the geometry
+	 * @return the JTS geometry
+	 * @throws IllegalArgumentException
+	 *             if the binary is not a valid compact geometry
+	 */
+	public static Geometry decode(
+			final byte[] binary ) {
+		try {
+			final Decoder decoder = new Decoder(
+					binary);
+			if (decoder.empty) {
+				return decoder.createEmpty(decoder.type);
+			}
+			// skip the envelope
+			decoder.readSignedVarLong();
+			decoder.readSignedVarLong();
+			decoder.readVarLong();
+			decoder.readVarLong();
+			return decoder.readBody(decoder.type);
+		}
+		catch (final ArrayIndexOutOfBoundsException e) {
+			throw new IllegalArgumentException(
+					"Compact geometry binary is truncated",
+					e);
+		}
+	}
+
+	/**
+	 * Reads the envelope of a geometry from a binary written by this encoding
+	 * without decoding the geometry
+	 * 
+	 * @param binary
+	 *            the binary representation of the geometry
+	 * @return the envelope of the geometry, which is a null envelope if the
+	 *         geometry is empty
+	 * @throws IllegalArgumentException
+	 *             if the binary is not a valid compact geometry
+	 */
+	public static Envelope decodeEnvelope(
+			final byte[] binary ) {
+		try {
+			final Decoder decoder = new Decoder(
+					binary);
+			if (decoder.empty) {
+				return new Envelope();
+			}
+			final long minX = decoder.readSignedVarLong();
+			final long minY = decoder.readSignedVarLong();
+			final long width = decoder.readVarLong();
+			final long height = decoder.readVarLong();
+			return new Envelope(
+					minX / decoder.xyScale,
+					(minX + width) / decoder.xyScale,
+					minY / decoder.xyScale,
+					(minY + height) / decoder.xyScale);
+		}
+		catch (final ArrayIndexOutOfBoundsException e) {
+			throw new IllegalArgumentException(
+					"Compact geometry binary is truncated",
+					e);
+		}
+	}
+
+	private static int getType(
+			final Geometry geometry ) {
+		if (geometry instanceof Point) {
+			return POINT;
+		}
+		if (geometry instanceof LineString) {
+			return LINESTRING;
+		}
+		if (geometry instanceof Polygon) {
+			return POLYGON;
+		}
+		if (geometry instanceof MultiPoint) {
+			return MULTIPOINT;
+		}
+		if (geometry instanceof MultiLineString) {
+			return MULTILINESTRING;
+		}
+		if (geometry instanceof MultiPolygon) {
+			return MULTIPOLYGON;
+		}
+		if (geometry instanceof GeometryCollection) {
+			return GEOMETRYCOLLECTION;
+		}
+		throw new IllegalArgumentException(
+				"Unsupported geometry type " + geometry.getGeometryType());
+	}
+
+	@Override
+	public byte[] toBinary() {
+		return new byte[] {
+			(byte) xyPrecision,
+			(byte) zPrecision
+		};
+	}
+
+	@Override
+	public void fromBinary(
+			final byte[] bytes ) {
+		xyPrecision = bytes[0];
+		zPrecision = bytes[1];
+	}
+
+	private static class Encoder implements
+			CoordinateFilter
+	{
+		private final ByteArrayOutputStream out;
+		private final double xyScale;
+		private final double zScale;
+		private final boolean hasZ;
+		// vertices are written as deltas from the previous vertex of the whole
+		// geometry
+		private long lastX = 0;
+		private long lastY = 0;
+		private long lastZ = 0;
+		// the quantized envelope
+		private long minX = Long.MAX_VALUE;
+		private long minY = Long.MAX_VALUE;
+		private long maxX = Long.MIN_VALUE;
+		private long maxY = Long.MIN_VALUE;
+
+		private Encoder(
+				final int xyPrecision,
+				final int zPrecision,
+				final boolean hasZ,
+				final int numPoints ) {
+			xyScale = Math.pow(
+					10,
+					xyPrecision);
+			zScale = Math.pow(
+					10,
+					zPrecision);
+			this.hasZ = hasZ;
+			out = new ByteArrayOutputStream(
+					16 + (numPoints * (hasZ ? 9 : 6)));
+		}
+
+		private void writeHeader(
+				final Geometry geometry ) {
+			out.write(getType(geometry) | (hasZ ? HAS_Z : 0) | (geometry.isEmpty() ? IS_EMPTY : 0));
+		}
+
+		private void writeEnvelope(
+				final Geometry geometry ) {
+			// the envelope is taken from the quantized ordinates so that it is
+			// exactly the envelope of the decoded geometry
+			geometry.apply(this);
+			writeSignedVarLong(minX);
+			writeSignedVarLong(minY);
+			writeVarLong(maxX - minX);
+			writeVarLong(maxY - minY);
+		}
+
+		@Override
+		public void filter(
+				final Coordinate coord ) {
+			final long x = quantize(
+					coord.x,
+					xyScale);
+			final long y = quantize(
+					coord.y,
+					xyScale);
+			minX = Math.min(
+					minX,
+					x);
+			minY = Math.min(
+					minY,
+					y);
+			maxX = Math.max(
+					maxX,
+					x);
+			maxY = Math.max(
+					maxY,
+					y);
+		}
+
+		private void writeBody(
+				final Geometry geometry ) {
+			switch (getType(geometry)) {
+				case POINT:
+					writeCoordinate(
+							geometry.getCoordinate().x,
+							geometry.getCoordinate().y,
+							geometry.getCoordinate().z);
+					break;
+				case LINESTRING:
+					writeCoordinates(((LineString) geometry).getCoordinateSequence());
+					break;
+				case POLYGON:
+					writePolygon((Polygon) geometry);
+					break;
+				case MULTIPOINT:
+					// empty points do not have a coordinate to write
+					int pointCount = 0;
+					for (int i = 0; i < geometry.getNumGeometries(); i++) {
+						if (!geometry.getGeometryN(
+								i).isEmpty()) {
+							pointCount++;
+						}
+					}
+					writeVarLong(pointCount);
+					for (int i = 0; i < geometry.getNumGeometries(); i++) {
+						final Geometry point = geometry.getGeometryN(i);
+						if (!point.isEmpty()) {
+							writeCoordinate(
+									point.getCoordinate().x,
+									point.getCoordinate().y,
+									point.getCoordinate().z);
+						}
+					}
+					break;
+				case MULTILINESTRING:
+				case MULTIPOLYGON:
+					writeVarLong(geometry.getNumGeometries());
+					for (int i = 0; i < geometry.getNumGeometries(); i++) {
+						writeBody(geometry.getGeometryN(i));
+					}
+					break;
+				case GEOMETRYCOLLECTION:
+					// the members of a collection can be of any type so each
+					// has
+					// its own header
+					writeVarLong(geometry.getNumGeometries());
+					for (int i = 0; i < geometry.getNumGeometries(); i++) {
+						final Geometry member = geometry.getGeometryN(i);
+						writeHeader(member);
+						if (!member.isEmpty()) {
+							writeBody(member);
+						}
+					}
+					break;
+			}
+		}
+
+		private void writePolygon(
+				final Polygon polygon ) {
+			if (polygon.isEmpty()) {
+				writeVarLong(0);
+				return;
+			}
+			writeVarLong(1 + polygon.getNumInteriorRing());
+			writeCoordinates(polygon.getExteriorRing().getCoordinateSequence());
+			for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+				writeCoordinates(polygon.getInteriorRingN(
+						i).getCoordinateSequence());
+			}
+		}
+
+		private void writeCoordinates(
+				final CoordinateSequence coordinates ) {
+			writeVarLong(coordinates.size());
+			for (int i = 0; i < coordinates.size(); i++) {
+				writeCoordinate(
+						coordinates.getX(i),
+						coordinates.getY(i),
+						hasZ ? coordinates.getOrdinate(
+								i,
+								CoordinateSequence.Z) : Double.NaN);
+			}
+		}
+
+		private void writeCoordinate(
+				final double x,
+				final double y,
+				final double z ) {
+			final long qx = quantize(
+					x,
+					xyScale);
+			final long qy = quantize(
+					y,
+					xyScale);
+			writeSignedVarLong(qx - lastX);
+			writeSignedVarLong(qy - lastY);
+			lastX = qx;
+			lastY = qy;
+			if (hasZ) {
+				// a missing z is written as 0
+				final long qz = Double.isNaN(z) ? 0 : quantize(
+						z,
+						zScale);
+				writeSignedVarLong(qz - lastZ);
+				lastZ = qz;
+			}
+		}
+
+		private static long quantize(
+				final double ordinate,
+				final double scale ) {
+			final double scaled = ordinate * scale;
+			if (!(Math.abs(scaled) <= MAX_QUANTIZED_ORDINATE)) {
+				throw new IllegalArgumentException(
+						"Ordinate " + ordinate + " cannot be quantized to the precision of this encoding, the precision must be lowered");
+			}
+			return Math.round(scaled);
+		}
+
+		private void writeSignedVarLong(
+				final long value ) {
+			// zig-zag encode so that small negative deltas stay small
+			writeVarLong((value << 1) ^ (value >> 63));
+		}
+
+		private void writeVarLong(
+				long value ) {
+			while ((value & ~0x7FL) != 0) {
+				out.write((int) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			out.write((int) value);
+		}
+	}
+
+	private static class Decoder
+	{
+		private final GeometryFactory factory = GeometryUtils.GEOMETRY_FACTORY;
+		private final byte[] binary;
+		private int position = 0;
+		private final int type;
+		private final boolean empty;
+		private final boolean hasZ;
+		private final double xyScale;
+		private final double zScale;
+		private long lastX = 0;
+		private long lastY = 0;
+		private long lastZ = 0;
+
+		private Decoder(
+				final byte[] binary ) {
+			if (!isCompact(binary)) {
+				throw new IllegalArgumentException(
+						"Binary is not a compact geometry");
+			}
+			this.binary = binary;
+			position = 1;
+			final int header = binary[position++];
+			type = header & TYPE_MASK;
+			empty = (header & IS_EMPTY) != 0;
+			hasZ = (header & HAS_Z) != 0;
+			xyScale = Math.pow(
+					10,
+					binary[position++]);
+			zScale = hasZ ? Math.pow(
+					10,
+					binary[position++]) : 1;
+		}
+
+		private Geometry readBody(
+				final int type ) {
+			switch (type) {
+				case POINT:
+					return factory.createPoint(readCoordinate());
+				case LINESTRING:
+					return factory.createLineString(readCoordinates());
+				case POLYGON:
+					return readPolygon();
+				case MULTIPOINT:
+					final Point[] points = new Point[readCount()];
+					for (int i = 0; i < points.length; i++) {
+						points[i] = factory.createPoint(readCoordinate());
+					}
+					return factory.createMultiPoint(points);
+				case MULTILINESTRING:
+					final LineString[] lines = new LineString[readCount()];
+					for (int i = 0; i < lines.length; i++) {
+						lines[i] = factory.createLineString(readCoordinates());
+					}
+					return factory.createMultiLineString(lines);
+				case MULTIPOLYGON:
+					final Polygon[] polygons = new Polygon[readCount()];
+					for (int i = 0; i < polygons.length; i++) {
+						polygons[i] = readPolygon();
+					}
+					return factory.createMultiPolygon(polygons);
+				case GEOMETRYCOLLECTION:
+					final Geometry[] members = new Geometry[readCount()];
+					for (int i = 0; i < members.length; i++) {
+						final int header = binary[position++];
+						if ((header & IS_EMPTY) != 0) {
+							members[i] = createEmpty(header & TYPE_MASK);
+						}
+						else {
+							members[i] = readBody(header & TYPE_MASK);
+						}
+					}
+					return factory.createGeometryCollection(members);
+				default:
+					throw new IllegalArgumentException(
+							"Unknown compact geometry type " + type);
+			}
+		}
+
+		private Geometry createEmpty(
+				final int type ) {
+			switch (type) {
+				case POINT:
+					return factory.createPoint((Coordinate) null);
+				case LINESTRING:
+					return factory.createLineString((Coordinate[]) null);
+				case POLYGON:
+					return factory.createPolygon(
+							null,
+							null);
+				case MULTIPOINT:
+					return factory.createMultiPoint((Point[]) null);
+				case MULTILINESTRING:
+					return factory.createMultiLineString(null);
+				case MULTIPOLYGON:
+					return factory.createMultiPolygon(null);
+				case GEOMETRYCOLLECTION:
+					return factory.createGeometryCollection(null);
+				default:
+					throw new IllegalArgumentException(
+							"Unknown compact geometry type " + type);
+			}
+		}
+
+		private Polygon readPolygon() {
+			final int ringCount = readCount();
+			if (ringCount == 0) {
+				return factory.createPolygon(
+						null,
+						null);
+			}
+			final LinearRing shell = factory.createLinearRing(readCoordinates());
+			final LinearRing[] holes = new LinearRing[ringCount - 1];
+			for (int i = 0; i < holes.length; i++) {
+				holes[i] = factory.createLinearRing(readCoordinates());
+			}
+			return factory.createPolygon(
+					shell,
+					holes);
+		}
+
+		private Coordinate[] readCoordinates() {
+			final Coordinate[] coordinates = new Coordinate[readCount()];
+			for (int i = 0; i < coordinates.length; i++) {
+				coordinates[i] = readCoordinate();
+			}
+			return coordinates;
+		}
+
+		private Coordinate readCoordinate() {
+			lastX += readSignedVarLong();
+			lastY += readSignedVarLong();
+			if (hasZ) {
+				lastZ += readSignedVarLong();
+				return new Coordinate(
+						lastX / xyScale,
+						lastY / xyScale,
+						lastZ / zScale);
+			}
+			return new Coordinate(
+					lastX / xyScale,
+					lastY / xyScale);
+		}
+
+		private int readCount() {
+			final long count = readVarLong();
+			// every element takes at least a byte, this guards against
+			// allocating huge arrays for a corrupt binary
+			if ((count < 0) || (count > (binary.length - position))) {
+				throw new IllegalArgumentException(
+						"Invalid element count in compact geometry binary");
+			}
+			return (int) count;
+		}
+
+		private long readSignedVarLong() {
+			final long value = readVarLong();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		private long readVarLong() {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = binary[position++];
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			}
+			while ((b & 0x80) != 0);
+			return value;
+		}
+	}
+}
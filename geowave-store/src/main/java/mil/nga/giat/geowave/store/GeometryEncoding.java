@@ -0,0 +1,27 @@
+package mil.nga.giat.geowave.store;
+
+import mil.nga.giat.geowave.index.Persistable;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * A geometry encoding determines how geometry is written to binary. Every
+ * encoding writes a binary that
+ * {@link GeometryUtils#geometryFromBinary(byte[])} can identify and decode on
+ * its own, so the reader of a geometry field never needs to know which encoding
+ * it was written with and data written with different encodings can be mixed
+ * within a table.
+ */
+public interface GeometryEncoding extends
+		Persistable
+{
+	/**
+	 * Converts a JTS geometry to binary
+	 * 
+	 * @param geometry
+	 *            The JTS geometry
+	 * @return The binary representation of the geometry
+	 */
+	public byte[] encode(
+			Geometry geometry );
+}
@@ -31,6 +31,28 @@ public class GeometryUtils
 	public static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
 	private final static Logger LOGGER = Logger.getLogger(GeometryUtils.class);
 	private static final int DEFAULT_DIMENSIONALITY = 2;
+	// well-known binary readers and writers are not thread safe but they are
+	// reusable, so keep one of each per thread rather than one per geometry
+	private static final ThreadLocal<WKBReader> WKB_READER = new ThreadLocal<WKBReader>() {
+		@Override
+		protected WKBReader initialValue() {
+			return new WKBReader();
+		}
+	};
+	private static final ThreadLocal<WKBWriter> WKB_WRITER_2D = new ThreadLocal<WKBWriter>() {
+		@Override
+		protected WKBWriter initialValue() {
+			return new WKBWriter(
+					2);
+		}
+	};
+	private static final ThreadLocal<WKBWriter> WKB_WRITER_3D = new ThreadLocal<WKBWriter>() {
+		@Override
+		protected WKBWriter initialValue() {
+			return new WKBWriter(
+					3);
+		}
+	};
 
 	/**
 	 * This utility method will convert a JTS geometry to contraints that can be
@@ -127,14 +149,29 @@ public class GeometryUtils
 	 */
 	public static NumericData longitudeRangeFromGeometry(
 			final Geometry geometry ) {
-		if ((geometry == null) || geometry.isEmpty()) {
+		if (geometry == null) {
 			return new NumericRange(
 					0,
 					0);
 		}
 		// Get the envelope of the geometry being held
-		final Envelope env = geometry.getEnvelopeInternal();
+		return longitudeRangeFromEnvelope(geometry.getEnvelopeInternal());
+	}
 
+	/**
+	 * Generate a longitude range from a JTS envelope
+	 * 
+	 * @param env
+	 *            The JTS envelope
+	 * @return The longitude range in EPSG:4326
+	 */
+	public static NumericData longitudeRangeFromEnvelope(
+			final Envelope env ) {
+		if ((env == null) || env.isNull()) {
+			return new NumericRange(
+					0,
+					0);
+		}
 		// Create a NumericRange object using the x axis
 		return new NumericRange(
 				env.getMinX(),
@@ -150,14 +187,29 @@ public class GeometryUtils
 	 */
 	public static NumericData latitudeRangeFromGeometry(
 			final Geometry geometry ) {
-		if ((geometry == null) || geometry.isEmpty()) {
+		if (geometry == null) {
 			return new NumericRange(
 					0,
 					0);
 		}
 		// Get the envelope of the geometry being held
-		final Envelope env = geometry.getEnvelopeInternal();
+		return latitudeRangeFromEnvelope(geometry.getEnvelopeInternal());
+	}
 
+	/**
+	 * Generate a latitude range from a JTS envelope
+	 * 
+	 * @param env
+	 *            The JTS envelope
+	 * @return The latitude range in EPSG:4326
+	 */
+	public static NumericData latitudeRangeFromEnvelope(
+			final Envelope env ) {
+		if ((env == null) || env.isNull()) {
+			return new NumericRange(
+					0,
+					0);
+		}
 		// Create a NumericRange object using the y axis
 		return new NumericRange(
 				env.getMinY(),
@@ -181,23 +233,28 @@ public class GeometryUtils
 					Coordinate.Z)) ? 2 : 3;
 		}
 
-		return new WKBWriter(
-				dimensions).write(geometry);
+		return (dimensions == 3 ? WKB_WRITER_3D : WKB_WRITER_2D).get().write(
+				geometry);
 	}
 
 	/**
-	 * Converts a byte array as well-known binary to a JTS geometry
+	 * Converts a byte array to a JTS geometry. The byte array can be well-known
+	 * binary or any other {@link GeometryEncoding}.
 	 * 
 	 * @param binary
-	 *            The well known binary
+	 *            The binary representation of the geometry
 	 * @return The JTS geometry
 	 */
 	public static Geometry geometryFromBinary(
 			final byte[] binary ) {
 		try {
-			return new WKBReader().read(binary);
+			if (CompactGeometryEncoding.isCompact(binary)) {
+				return CompactGeometryEncoding.decode(binary);
+			}
+			return WKB_READER.get().read(
+					binary);
 		}
-		catch (final ParseException e) {
+		catch (final ParseException | IllegalArgumentException e) {
 			LOGGER.warn(
 					"Unable to deserialize geometry data",
 					e);
@@ -205,6 +262,37 @@ public class GeometryUtils
 		return null;
 	}
 
+	/**
+	 * Reads the envelope of the geometry within a byte array. This is much
+	 * cheaper than decoding the geometry for the compact geometry encoding,
+	 * which stores the envelope up front, and is otherwise equivalent to
+	 * decoding the geometry and taking its envelope.
+	 * 
+	 * @param binary
+	 *            The binary representation of the geometry
+	 * @return The envelope of the geometry, or null if the binary could not be
+	 *         read
+	 */
+	public static Envelope envelopeFromBinary(
+			final byte[] binary ) {
+		if (CompactGeometryEncoding.isCompact(binary)) {
+			try {
+				return CompactGeometryEncoding.decodeEnvelope(binary);
+			}
+			catch (final IllegalArgumentException e) {
+				LOGGER.warn(
+						"Unable to deserialize geometry envelope",
+						e);
+				return null;
+			}
+		}
+		final Geometry geometry = geometryFromBinary(binary);
+		if (geometry == null) {
+			return null;
+		}
+		return geometry.getEnvelopeInternal();
+	}
+
 	/**
 	 * This mehtod returns an envelope between negative infinite and positive
 	 * inifinity in both x and y
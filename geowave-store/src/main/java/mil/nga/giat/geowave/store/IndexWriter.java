@@ -14,6 +14,20 @@ public interface IndexWriter extends
 			final WritableDataAdapter<T> writableAdapter,
 			T entry );
 
+	/**
+	 * Write a batch of entries at once, which amortizes the per entry cost of
+	 * computing insertion IDs and writing mutations
+	 * 
+	 * @param writableAdapter
+	 *            the adapter for the entries
+	 * @param entries
+	 *            the entries to write
+	 * @return the row IDs of all of the entries
+	 */
+	public <T> List<ByteArrayId> writeBatch(
+			final WritableDataAdapter<T> writableAdapter,
+			List<T> entries );
+
 	public <T> void setupAdapter(
 			final WritableDataAdapter<T> writableAdapter );
 
@@ -0,0 +1,26 @@
+package mil.nga.giat.geowave.store;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * This is the default geometry encoding, which writes geometry as well-known
+ * binary with full precision ordinates
+ */
+public class WKBGeometryEncoding implements
+		GeometryEncoding
+{
+	@Override
+	public byte[] encode(
+			final Geometry geometry ) {
+		return GeometryUtils.geometryToBinary(geometry);
+	}
+
+	@Override
+	public byte[] toBinary() {
+		return new byte[] {};
+	}
+
+	@Override
+	public void fromBinary(
+			final byte[] bytes ) {}
+}
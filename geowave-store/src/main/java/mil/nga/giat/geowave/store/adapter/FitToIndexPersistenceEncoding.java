@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.index.sfc.data.MultiDimensionalNumericData;
 import mil.nga.giat.geowave.store.data.PersistentDataset;
 import mil.nga.giat.geowave.store.index.CommonIndexValue;
 import mil.nga.giat.geowave.store.index.Index;
@@ -33,6 +34,14 @@ public class FitToIndexPersistenceEncoding extends
 		return insertionIds;
 	}
 
+	@Override
+	public List<ByteArrayId> getInsertionIds(
+			final Index index,
+			final MultiDimensionalNumericData boxRangeData,
+			final List<ByteArrayId> untrimmedResult ) {
+		return insertionIds;
+	}
+
 	@Override
 	public boolean isDeduplicationEnabled() {
 		return false;
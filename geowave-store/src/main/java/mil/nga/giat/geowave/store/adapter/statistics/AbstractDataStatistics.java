@@ -95,6 +95,8 @@ abstract public class AbstractDataStatistics<T> implements
 		}
 
 		newStats.fromBinary(toBinary());
+		// the adapter ID is not part of the binary
+		newStats.setDataAdapterId(dataAdapterId);
 		return newStats;
 	}
 }
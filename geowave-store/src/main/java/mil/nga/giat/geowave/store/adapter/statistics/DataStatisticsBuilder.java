@@ -17,6 +17,7 @@ public class DataStatisticsBuilder<T> implements
 		ScanCallback<T>
 {
 	private final StatisticalDataAdapter<T> adapter;
+	private final DataStatistics<T> prototype;
 	private final Map<ByteArrayId, DataStatistics<T>> statisticsMap = new HashMap<ByteArrayId, DataStatistics<T>>();
 	private final ByteArrayId statisticsId;
 	private final DataStatisticsVisibilityHandler<T> visibilityHandler;
@@ -28,6 +29,32 @@ public class DataStatisticsBuilder<T> implements
 		this.adapter = adapter;
 		this.statisticsId = statisticsId;
 		this.visibilityHandler = adapter.getVisibilityHandler(statisticsId);
+		prototype = null;
+	}
+
+	/**
+	 * Build statistics that the adapter does not define itself, such as
+	 * statistics that are specific to an index
+	 * 
+	 * @param prototype
+	 *            the statistics to duplicate for each visibility
+	 * @param visibilityHandler
+	 *            the visibility handler for the statistics
+	 */
+	public DataStatisticsBuilder(
+			final AbstractDataStatistics<T> prototype,
+			final DataStatisticsVisibilityHandler<T> visibilityHandler ) {
+		adapter = null;
+		this.prototype = prototype;
+		statisticsId = prototype.getStatisticsId();
+		this.visibilityHandler = visibilityHandler;
+	}
+
+	private DataStatistics<T> createStatistics() {
+		if (prototype != null) {
+			return ((AbstractDataStatistics<T>) prototype).duplicate();
+		}
+		return adapter.createDataStatistics(statisticsId);
 	}
 
 	@Override
@@ -40,7 +67,7 @@ public class DataStatisticsBuilder<T> implements
 						entry));
 		DataStatistics<T> statistics = statisticsMap.get(visibility);
 		if (statistics == null) {
-			statistics = adapter.createDataStatistics(statisticsId);
+			statistics = createStatistics();
 			statistics.setVisibility(visibility.getBytes());
 			statisticsMap.put(
 					visibility,
@@ -66,7 +93,7 @@ public class DataStatisticsBuilder<T> implements
 						entry));
 		DataStatistics<T> statistics = statisticsMap.get(visibilityByteArray);
 		if (statistics == null) {
-			statistics = adapter.createDataStatistics(statisticsId);
+			statistics = createStatistics();
 			statistics.setVisibility(visibilityByteArray.getBytes());
 			statisticsMap.put(
 					visibilityByteArray,
@@ -89,7 +116,7 @@ public class DataStatisticsBuilder<T> implements
 						entry));
 		DataStatistics<T> statistics = statisticsMap.get(visibility);
 		if (statistics == null) {
-			statistics = adapter.createDataStatistics(statisticsId);
+			statistics = createStatistics();
 			statistics.setVisibility(visibility.getBytes());
 			statisticsMap.put(
 					visibility,
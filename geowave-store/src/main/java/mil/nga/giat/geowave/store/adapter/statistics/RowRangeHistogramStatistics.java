@@ -0,0 +1,487 @@
+package mil.nga.giat.geowave.store.adapter.statistics;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.index.ByteArrayRange;
+import mil.nga.giat.geowave.index.Mergeable;
+import mil.nga.giat.geowave.store.DataStoreEntryInfo;
+import mil.nga.giat.geowave.store.DeleteCallback;
+import mil.nga.giat.geowave.store.IngestCallback;
+
+/**
+ * This tracks how the rows of an adapter are distributed across the key space
+ * of an index. Each row ID is mapped to its position in the key space as a
+ * fraction between 0 and 1 (using its first 8 bytes), and the positions are
+ * summarized by a streaming histogram: a bounded number of bins, each with a
+ * position and a count. When there are more distinct positions than bins, the
+ * two closest bins are merged into one at their weighted mean, so the bins
+ * concentrate wherever the rows do. Histograms merge the same way, which keeps
+ * the statistic mergeable by the statistics combiner.
+ * 
+ * Every row ID of an entry is counted because it is the number of rows that
+ * determines the cost of reading a range, so an entry duplicated across tiers
+ * or bins is counted once per row.
+ * 
+ * Deleted rows are summarized by a second histogram rather than being removed
+ * from the first, because the bins of the first histogram no longer know
+ * exactly which rows they hold. The estimates are the difference of the two.
+ * Keeping the histograms separate also means a statistic that only saw deletes
+ * merges correctly into one that saw the ingests.
+ * 
+ * Only deletes that go through the data store are subtracted: deleting an entry
+ * reports each of its rows, and deleting every entry of an adapter removes this
+ * statistic along with the adapter's other statistics. Rows that are removed
+ * any other way, such as by deleting them directly from the table or by an
+ * age-off iterator, are still counted, so the estimates are an upper bound on
+ * the rows that remain.
+ * 
+ * @param <T>
+ *            The type for the data elements that are being ingested
+ */
+public class RowRangeHistogramStatistics<T> extends
+		AbstractDataStatistics<T> implements
+		IngestCallback<T>,
+		DeleteCallback<T>
+{
+	public static final String STATS_TYPE = "ROW_RANGE_HISTOGRAM";
+	public static final int DEFAULT_MAX_BINS = 256;
+	private static final int POSITION_BYTES = 8;
+
+	private Histogram ingestedRows;
+	private Histogram deletedRows;
+
+	protected RowRangeHistogramStatistics() {
+		super();
+	}
+
+	public RowRangeHistogramStatistics(
+			final ByteArrayId dataAdapterId,
+			final ByteArrayId indexId ) {
+		this(
+				dataAdapterId,
+				indexId,
+				DEFAULT_MAX_BINS);
+	}
+
+	public RowRangeHistogramStatistics(
+			final ByteArrayId dataAdapterId,
+			final ByteArrayId indexId,
+			final int maxBins ) {
+		super(
+				dataAdapterId,
+				composeId(indexId));
+		ingestedRows = new Histogram(
+				maxBins);
+		deletedRows = new Histogram(
+				maxBins);
+	}
+
+	public static ByteArrayId composeId(
+			final ByteArrayId indexId ) {
+		return composeId(
+				STATS_TYPE,
+				indexId.getString());
+	}
+
+	public boolean isSet() {
+		return getTotalCount() > 0;
+	}
+
+	/**
+	 * @return the number of rows
+	 */
+	public long getTotalCount() {
+		return Math.max(
+				0,
+				ingestedRows.totalCount - deletedRows.totalCount);
+	}
+
+	public int getMaxBins() {
+		return ingestedRows.maxBins;
+	}
+
+	/**
+	 * @param startPosition
+	 *            the position of the first row of the range
+	 * @param endPosition
+	 *            the position of the end of the range
+	 * @return the estimated number of rows in the range
+	 */
+	public double estimateCount(
+			final double startPosition,
+			final double endPosition ) {
+		if (endPosition <= startPosition) {
+			return 0;
+		}
+		return Math.max(
+				0,
+				estimateCountBefore(endPosition) - estimateCountBefore(startPosition));
+	}
+
+	/**
+	 * @param ranges
+	 *            the row ranges, an empty or null list implies all rows
+	 * @return the estimated number of rows within the ranges
+	 */
+	public double estimateCount(
+			final List<ByteArrayRange> ranges ) {
+		if ((ranges == null) || ranges.isEmpty()) {
+			return getTotalCount();
+		}
+		double count = 0;
+		for (final ByteArrayRange range : ranges) {
+			count += estimateCount(
+					getStartPosition(range.getStart().getBytes()),
+					getEndPosition(range.getEnd().getBytes()));
+		}
+		return Math.min(
+				count,
+				getTotalCount());
+	}
+
+	/**
+	 * @param fraction
+	 *            the fraction of rows, between 0 and 1
+	 * @param startPosition
+	 *            the position of the first row of the range
+	 * @param endPosition
+	 *            the position of the end of the range
+	 * @return the position within the range with the given fraction of the
+	 *         range's estimated rows before it
+	 */
+	public double getQuantile(
+			final double fraction,
+			final double startPosition,
+			final double endPosition ) {
+		final double startCount = estimateCountBefore(startPosition);
+		final double target = startCount + (fraction * (estimateCountBefore(endPosition) - startCount));
+		double low = startPosition;
+		double high = endPosition;
+		// the estimated count is close enough to monotonic to bisect until
+		// the position is as precise as a double allows
+		for (int i = 0; (i < 64) && (low < high); i++) {
+			final double mid = (low + high) / 2;
+			if ((mid <= low) || (mid >= high)) {
+				break;
+			}
+			if (estimateCountBefore(mid) < target) {
+				low = mid;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return high;
+	}
+
+	private double estimateCountBefore(
+			final double position ) {
+		return ingestedRows.estimateCountBefore(position) - deletedRows.estimateCountBefore(position);
+	}
+
+	@Override
+	public void entryIngested(
+			final DataStoreEntryInfo entryInfo,
+			final T entry ) {
+		for (final ByteArrayId rowId : entryInfo.getRowIds()) {
+			ingestedRows.add(
+					getStartPosition(rowId.getBytes()),
+					1);
+		}
+	}
+
+	@Override
+	public void entryDeleted(
+			final DataStoreEntryInfo entryInfo,
+			final T entry ) {
+		for (final ByteArrayId rowId : entryInfo.getRowIds()) {
+			deletedRows.add(
+					getStartPosition(rowId.getBytes()),
+					1);
+		}
+	}
+
+	@Override
+	public void merge(
+			final Mergeable mergeable ) {
+		if ((mergeable != null) && (mergeable instanceof RowRangeHistogramStatistics)) {
+			final RowRangeHistogramStatistics<?> stats = (RowRangeHistogramStatistics<?>) mergeable;
+			ingestedRows.merge(stats.ingestedRows);
+			deletedRows.merge(stats.deletedRows);
+		}
+	}
+
+	@Override
+	public byte[] toBinary() {
+		final ByteBuffer buffer = super.binaryBuffer(ingestedRows.getBinarySize() + deletedRows.getBinarySize());
+		ingestedRows.toBinary(buffer);
+		deletedRows.toBinary(buffer);
+		return buffer.array();
+	}
+
+	@Override
+	public void fromBinary(
+			final byte[] bytes ) {
+		final ByteBuffer buffer = super.binaryBuffer(bytes);
+		ingestedRows = Histogram.fromBinary(buffer);
+		deletedRows = Histogram.fromBinary(buffer);
+	}
+
+	/**
+	 * @param row
+	 *            the row
+	 * @return the position of the row in the key space, as a fraction between 0
+	 *         and 1
+	 */
+	public static double getStartPosition(
+			final byte[] row ) {
+		return getPosition(
+				row,
+				0);
+	}
+
+	/**
+	 * @param prefix
+	 *            the row prefix
+	 * @return the position of the last row with the prefix in the key space, as
+	 *         a fraction between 0 and 1
+	 */
+	public static double getEndPosition(
+			final byte[] prefix ) {
+		return getPosition(
+				prefix,
+				0xff);
+	}
+
+	/**
+	 * @param position
+	 *            the position in the key space, as a fraction between 0 and 1
+	 * @return a row at the position
+	 */
+	public static byte[] getRow(
+			final double position ) {
+		final byte[] row = new byte[POSITION_BYTES];
+		double remainder = Math.max(
+				0,
+				Math.min(
+						1,
+						position));
+		for (int i = 0; i < POSITION_BYTES; i++) {
+			remainder *= 256;
+			final int value = (int) Math.min(
+					255,
+					Math.floor(remainder));
+			row[i] = (byte) value;
+			remainder -= value;
+		}
+		return row;
+	}
+
+	private static double getPosition(
+			final byte[] row,
+			final int padding ) {
+		double position = 0;
+		double scale = 1;
+		for (int i = 0; i < POSITION_BYTES; i++) {
+			scale /= 256;
+			position += (i < row.length ? row[i] & 0xff : padding) * scale;
+		}
+		return position;
+	}
+
+	/**
+	 * A streaming histogram of positions in the key space, with a bounded
+	 * number of bins
+	 */
+	private static class Histogram
+	{
+		private final int maxBins;
+		private final double[] positions;
+		private final long[] counts;
+		private int binCount = 0;
+		private long totalCount = 0;
+		private double minPosition = Double.MAX_VALUE;
+		private double maxPosition = -Double.MAX_VALUE;
+
+		private Histogram(
+				final int maxBins ) {
+			this.maxBins = Math.max(
+					2,
+					maxBins);
+			// one extra bin is used while adding a position before bins are
+			// merged
+			positions = new double[this.maxBins + 1];
+			counts = new long[this.maxBins + 1];
+		}
+
+		/**
+		 * This interpolates between the bins assuming that half of the rows of
+		 * a bin are on either side of its position and that the count changes
+		 * linearly between adjacent bins
+		 * 
+		 * @param position
+		 *            the position in the key space
+		 * @return the estimated number of rows before the position
+		 */
+		private double estimateCountBefore(
+				final double position ) {
+			if ((binCount == 0) || (position <= minPosition)) {
+				return 0;
+			}
+			if (position >= maxPosition) {
+				return totalCount;
+			}
+			if (position < positions[0]) {
+				return (counts[0] / 2.0) * ((position - minPosition) / (positions[0] - minPosition));
+			}
+			double sum = 0;
+			for (int i = 0; i < (binCount - 1); i++) {
+				if (position < positions[i + 1]) {
+					final double fraction = (position - positions[i]) / (positions[i + 1] - positions[i]);
+					final double countAtPosition = counts[i] + ((counts[i + 1] - counts[i]) * fraction);
+					return sum + (counts[i] / 2.0) + (((counts[i] + countAtPosition) / 2.0) * fraction);
+				}
+				sum += counts[i];
+			}
+			final int last = binCount - 1;
+			return totalCount - ((counts[last] / 2.0) * ((maxPosition - position) / (maxPosition - positions[last])));
+		}
+
+		private void merge(
+				final Histogram other ) {
+			for (int i = 0; i < other.binCount; i++) {
+				add(
+						other.positions[i],
+						other.counts[i]);
+			}
+			if (other.totalCount > 0) {
+				minPosition = Math.min(
+						minPosition,
+						other.minPosition);
+				maxPosition = Math.max(
+						maxPosition,
+						other.maxPosition);
+			}
+		}
+
+		private void add(
+				final double position,
+				final long count ) {
+			if (count <= 0) {
+				return;
+			}
+			totalCount += count;
+			minPosition = Math.min(
+					minPosition,
+					position);
+			maxPosition = Math.max(
+					maxPosition,
+					position);
+			int i = binarySearch(position);
+			if (i >= 0) {
+				counts[i] += count;
+				return;
+			}
+			i = -(i + 1);
+			System.arraycopy(
+					positions,
+					i,
+					positions,
+					i + 1,
+					binCount - i);
+			System.arraycopy(
+					counts,
+					i,
+					counts,
+					i + 1,
+					binCount - i);
+			positions[i] = position;
+			counts[i] = count;
+			binCount++;
+			if (binCount > maxBins) {
+				mergeClosestBins();
+			}
+		}
+
+		private void mergeClosestBins() {
+			int closest = 0;
+			double closestGap = Double.MAX_VALUE;
+			for (int i = 0; i < (binCount - 1); i++) {
+				final double gap = positions[i + 1] - positions[i];
+				if (gap < closestGap) {
+					closestGap = gap;
+					closest = i;
+				}
+			}
+			final long count = counts[closest] + counts[closest + 1];
+			positions[closest] = ((positions[closest] * counts[closest]) + (positions[closest + 1] * counts[closest + 1])) / count;
+			counts[closest] = count;
+			System.arraycopy(
+					positions,
+					closest + 2,
+					positions,
+					closest + 1,
+					binCount - closest - 2);
+			System.arraycopy(
+					counts,
+					closest + 2,
+					counts,
+					closest + 1,
+					binCount - closest - 2);
+			binCount--;
+		}
+
+		private int binarySearch(
+				final double position ) {
+			int low = 0;
+			int high = binCount - 1;
+			while (low <= high) {
+				final int mid = (low + high) >>> 1;
+				if (positions[mid] < position) {
+					low = mid + 1;
+				}
+				else if (positions[mid] > position) {
+					high = mid - 1;
+				}
+				else {
+					return mid;
+				}
+			}
+			return -(low + 1);
+		}
+
+		private int getBinarySize() {
+			return 32 + (binCount * 16);
+		}
+
+		private void toBinary(
+				final ByteBuffer buffer ) {
+			buffer.putInt(maxBins);
+			buffer.putLong(totalCount);
+			buffer.putDouble(minPosition);
+			buffer.putDouble(maxPosition);
+			buffer.putInt(binCount);
+			for (int i = 0; i < binCount; i++) {
+				buffer.putDouble(positions[i]);
+				buffer.putLong(counts[i]);
+			}
+		}
+
+		private static Histogram fromBinary(
+				final ByteBuffer buffer ) {
+			final Histogram histogram = new Histogram(
+					buffer.getInt());
+			histogram.totalCount = buffer.getLong();
+			histogram.minPosition = buffer.getDouble();
+			histogram.maxPosition = buffer.getDouble();
+			histogram.binCount = buffer.getInt();
+			for (int i = 0; i < histogram.binCount; i++) {
+				histogram.positions[i] = buffer.getDouble();
+				histogram.counts[i] = buffer.getLong();
+			}
+			return histogram;
+		}
+	}
+}
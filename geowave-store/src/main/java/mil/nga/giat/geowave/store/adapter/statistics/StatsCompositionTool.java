@@ -10,6 +10,7 @@ import mil.nga.giat.geowave.store.DeleteCallback;
 import mil.nga.giat.geowave.store.IngestCallback;
 import mil.nga.giat.geowave.store.ScanCallback;
 import mil.nga.giat.geowave.store.adapter.DataAdapter;
+import mil.nga.giat.geowave.store.index.Index;
 
 /**
  * 
@@ -39,6 +40,26 @@ public class StatsCompositionTool<T> implements
 	public StatsCompositionTool(
 			final DataAdapter<T> dataAdapter,
 			final DataStatisticsStore statisticsStore ) {
+		this(
+				dataAdapter,
+				statisticsStore,
+				null);
+	}
+
+	/**
+	 * @param dataAdapter
+	 *            the data adapter
+	 * @param statisticsStore
+	 *            the statistics store
+	 * @param index
+	 *            the index being written to or deleted from, which adds the
+	 *            statistics that are kept per index, or null for only the
+	 *            adapter's statistics
+	 */
+	public StatsCompositionTool(
+			final DataAdapter<T> dataAdapter,
+			final DataStatisticsStore statisticsStore,
+			final Index index ) {
 		this.statisticsStore = statisticsStore;
 		persistStats = (dataAdapter instanceof StatisticalDataAdapter) && (statisticsStore != null);
 		if (persistStats) {
@@ -50,9 +71,36 @@ public class StatsCompositionTool<T> implements
 						(StatisticalDataAdapter<T>) dataAdapter,
 						id));
 			}
+			if (index != null) {
+				statisticsBuilders.addAll(createIndexStatisticsBuilders(
+						dataAdapter,
+						index));
+			}
 		}
 	}
 
+	/**
+	 * @param dataAdapter
+	 *            the data adapter
+	 * @param index
+	 *            the index
+	 * @return builders for the statistics that are kept for every adapter in
+	 *         each index it is written to
+	 */
+	public static <T> List<DataStatisticsBuilder<T>> createIndexStatisticsBuilders(
+			final DataAdapter<T> dataAdapter,
+			final Index index ) {
+		final List<DataStatisticsBuilder<T>> builders = new ArrayList<DataStatisticsBuilder<T>>();
+		// the histogram estimates the cost of reading ranges of the index,
+		// which includes rows that aren't visible, so it has no visibility
+		builders.add(new DataStatisticsBuilder<T>(
+				new RowRangeHistogramStatistics<T>(
+						dataAdapter.getAdapterId(),
+						index.getId()),
+				new EmptyStatisticVisibility<T>()));
+		return builders;
+	}
+
 	public boolean isPersisting() {
 		return persistStats;
 	}
@@ -0,0 +1,171 @@
+package mil.nga.giat.geowave.store.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.store.data.field.FieldReader;
+import mil.nga.giat.geowave.store.index.CommonIndexValue;
+
+/**
+ * This is a persistent dataset that holds the encoded field values of a row and
+ * only decodes a field the first time its value is requested. It can be cleared
+ * and reused for subsequent rows, which is useful when a row is often rejected
+ * by a filter after only looking at one or two of its fields.
+ * 
+ * @param <T>
+ *            The most specific generalization for the type for all of the
+ *            values in this dataset.
+ */
+public class LazyPersistentDataset<T> extends
+		PersistentDataset<T>
+{
+	private final Map<ByteArrayId, T> decodedValues;
+	private final List<ByteArrayId> fieldIds = new ArrayList<ByteArrayId>();
+	// the position of each field within the lists of encoded fields
+	private final Map<ByteArrayId, Integer> fieldIndices = new HashMap<ByteArrayId, Integer>();
+	private final List<FieldReader<? extends T>> readers = new ArrayList<FieldReader<? extends T>>();
+	private final List<byte[]> encodedValues = new ArrayList<byte[]>();
+	private final List<byte[]> visibilities = new ArrayList<byte[]>();
+
+	public LazyPersistentDataset() {
+		this(
+				new LinkedHashMap<ByteArrayId, T>());
+	}
+
+	private LazyPersistentDataset(
+			final Map<ByteArrayId, T> decodedValues ) {
+		super(
+				decodedValues);
+		this.decodedValues = decodedValues;
+	}
+
+	/**
+	 * Add an encoded field value that will be decoded when it is first
+	 * requested. If the field is already in this dataset it is not overwritten.
+	 * 
+	 * @param fieldId
+	 *            the field ID
+	 * @param reader
+	 *            the reader to decode the value with
+	 * @param encodedValue
+	 *            the encoded value, which is not copied
+	 * @param visibility
+	 *            the visibility to set on the decoded value if it is a
+	 *            {@link CommonIndexValue}, or null
+	 */
+	public void addEncodedValue(
+			final ByteArrayId fieldId,
+			final FieldReader<? extends T> reader,
+			final byte[] encodedValue,
+			final byte[] visibility ) {
+		if (fieldIndices.containsKey(fieldId)) {
+			return;
+		}
+		fieldIndices.put(
+				fieldId,
+				fieldIds.size());
+		fieldIds.add(fieldId);
+		readers.add(reader);
+		encodedValues.add(encodedValue);
+		visibilities.add(visibility);
+	}
+
+	/**
+	 * Remove all of the encoded and decoded values so this dataset can be
+	 * reused for another row
+	 */
+	public void clear() {
+		decodedValues.clear();
+		fieldIds.clear();
+		fieldIndices.clear();
+		readers.clear();
+		encodedValues.clear();
+		visibilities.clear();
+	}
+
+	@Override
+	public void addValue(
+			final PersistentValue<T> value ) {
+		if (decodedValues.containsKey(value.getId()) || fieldIndices.containsKey(value.getId())) {
+			return;
+		}
+		decodedValues.put(
+				value.getId(),
+				value.getValue());
+	}
+
+	@Override
+	public T getValue(
+			final ByteArrayId fieldId ) {
+		if (decodedValues.containsKey(fieldId)) {
+			return decodedValues.get(fieldId);
+		}
+		final Integer i = fieldIndices.get(fieldId);
+		if (i == null) {
+			return null;
+		}
+		return decode(i);
+	}
+
+	@Override
+	public List<PersistentValue<T>> getValues() {
+		// keep the order the fields were added in, regardless of the order
+		// that they happened to be decoded in
+		final List<PersistentValue<T>> values = new ArrayList<PersistentValue<T>>(
+				fieldIds.size() + decodedValues.size());
+		for (int i = 0; i < fieldIds.size(); i++) {
+			final ByteArrayId fieldId = fieldIds.get(i);
+			values.add(new PersistentValue<T>(
+					fieldId,
+					decodedValues.containsKey(fieldId) ? decodedValues.get(fieldId) : decode(i)));
+		}
+		for (final Entry<ByteArrayId, T> entry : decodedValues.entrySet()) {
+			if (!fieldIndices.containsKey(entry.getKey())) {
+				values.add(new PersistentValue<T>(
+						entry.getKey(),
+						entry.getValue()));
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Get a field ID/value pair whose value is only decoded when it is
+	 * requested. The pair is only valid until this dataset is cleared.
+	 * 
+	 * @param fieldId
+	 *            the field ID
+	 * @return the field ID/value pair
+	 */
+	public PersistentValue<T> getPersistentValue(
+			final ByteArrayId fieldId ) {
+		return new PersistentValue<T>(
+				fieldId,
+				null) {
+			@Override
+			public T getValue() {
+				return LazyPersistentDataset.this.getValue(fieldId);
+			}
+		};
+	}
+
+	private T decode(
+			final int i ) {
+		final T value = readers.get(
+				i).readField(
+				encodedValues.get(i));
+		final byte[] visibility = visibilities.get(i);
+		if ((visibility != null) && (value instanceof CommonIndexValue)) {
+			((CommonIndexValue) value).setVisibility(visibility);
+		}
+		decodedValues.put(
+				fieldIds.get(i),
+				value);
+		return value;
+	}
+}
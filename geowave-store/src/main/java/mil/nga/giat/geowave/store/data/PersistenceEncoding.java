@@ -182,8 +182,31 @@ public class PersistenceEncoding
 	public List<ByteArrayId> getInsertionIds(
 			final Index index ) {
 		final MultiDimensionalNumericData boxRangeData = getNumericData(index.getIndexModel().getDimensions());
-		final List<ByteArrayId> untrimmedResult = index.getIndexStrategy().getInsertionIds(
-				boxRangeData);
+		return getInsertionIds(
+				index,
+				boxRangeData,
+				index.getIndexStrategy().getInsertionIds(
+						boxRangeData));
+	}
+
+	/**
+	 * Given the insertion IDs that the index strategy produced for this
+	 * persistent encoding's numeric data, for example within a batch of
+	 * entries, get the insertion IDs for this object in the index
+	 * 
+	 * @param index
+	 *            the index
+	 * @param boxRangeData
+	 *            the numeric data of this encoding for the index dimensions
+	 * @param untrimmedResult
+	 *            the insertion IDs the index strategy produced for the numeric
+	 *            data, which may be modified
+	 * @return The insertions IDs for this object in the index
+	 */
+	public List<ByteArrayId> getInsertionIds(
+			final Index index,
+			final MultiDimensionalNumericData boxRangeData,
+			final List<ByteArrayId> untrimmedResult ) {
 		final int size = untrimmedResult.size();
 		if (size > 3) { // need at least 4 quadrants in a quadtree to create a
 			// concave shape where the mbr overlaps an area that the
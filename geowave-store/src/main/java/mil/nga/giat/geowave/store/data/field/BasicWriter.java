@@ -8,6 +8,7 @@ import java.util.Date;
 
 import mil.nga.giat.geowave.index.ByteArrayId;
 import mil.nga.giat.geowave.index.StringUtils;
+import mil.nga.giat.geowave.store.GeometryEncoding;
 import mil.nga.giat.geowave.store.GeometryUtils;
 import mil.nga.giat.geowave.store.TimeUtils;
 
@@ -388,12 +389,32 @@ public class BasicWriter<RowType, FieldType> implements
 	public static class GeometryWriter implements
 			FieldWriter<Object, Geometry>
 	{
+		private final GeometryEncoding encoding;
+
+		public GeometryWriter() {
+			this(
+					null);
+		}
+
+		/**
+		 * @param encoding
+		 *            the encoding to write geometry with, or null to write it
+		 *            as well-known binary
+		 */
+		public GeometryWriter(
+				final GeometryEncoding encoding ) {
+			this.encoding = encoding;
+		}
+
 		@Override
 		public byte[] writeField(
 				final Geometry fieldValue ) {
 			if (fieldValue == null) {
 				return new byte[] {};
 			}
+			if (encoding != null) {
+				return encoding.encode(fieldValue);
+			}
 			return GeometryUtils.geometryToBinary(fieldValue);
 		}
 
@@ -3,7 +3,6 @@ package mil.nga.giat.geowave.store.dimension;
 import mil.nga.giat.geowave.index.ByteArrayId;
 import mil.nga.giat.geowave.index.ByteArrayUtils;
 import mil.nga.giat.geowave.index.StringUtils;
-import mil.nga.giat.geowave.store.GeometryUtils;
 import mil.nga.giat.geowave.store.data.field.FieldReader;
 import mil.nga.giat.geowave.store.data.field.FieldWriter;
 
@@ -30,14 +29,15 @@ public class GeometryAdapter implements
 	@Override
 	public byte[] writeField(
 			final GeometryWrapper geometry ) {
-		return GeometryUtils.geometryToBinary(geometry.getGeometry());
+		return geometry.toBinary();
 	}
 
 	@Override
 	public GeometryWrapper readField(
 			final byte[] fieldData ) {
-		return new GeometryWrapper(
-				GeometryUtils.geometryFromBinary(fieldData));
+		// the geometry is decoded lazily, because filters can often accept or
+		// reject it from its envelope alone
+		return GeometryWrapper.fromBinary(fieldData);
 	}
 
 	@Override
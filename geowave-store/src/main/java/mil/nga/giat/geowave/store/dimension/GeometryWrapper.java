@@ -2,6 +2,9 @@ package mil.nga.giat.geowave.store.dimension;
 
 import mil.nga.giat.geowave.index.sfc.data.NumericData;
 import mil.nga.giat.geowave.index.sfc.data.NumericRange;
+import mil.nga.giat.geowave.store.CompactGeometryEncoding;
+import mil.nga.giat.geowave.store.GeometryEncoding;
+import mil.nga.giat.geowave.store.GeometryUtils;
 import mil.nga.giat.geowave.store.index.CommonIndexValue;
 
 import com.google.common.math.DoubleMath;
@@ -10,14 +13,20 @@ import com.vividsolutions.jts.geom.Envelope;
 
 /**
  * This class wraps JTS geometry with visibility so that it can be used within
- * GeoWave as a CommonIndexValue
+ * GeoWave as a CommonIndexValue. A wrapper that is read from binary only
+ * decodes the geometry when it is first requested, and its envelope can often
+ * be read without decoding the geometry at all, so that filters can reject most
+ * entries cheaply.
  * 
  */
 public class GeometryWrapper implements
 		CommonIndexValue
 {
 	private byte[] visibility;
-	private final com.vividsolutions.jts.geom.Geometry geometry;
+	private com.vividsolutions.jts.geom.Geometry geometry;
+	private Envelope envelope;
+	private byte[] binary;
+	private GeometryEncoding encoding;
 	private static final double DOUBLE_TOLERANCE = 1E-12d;
 
 	public GeometryWrapper(
@@ -32,6 +41,43 @@ public class GeometryWrapper implements
 		this.geometry = geometry;
 	}
 
+	/**
+	 * @param geometry
+	 *            the geometry
+	 * @param visibility
+	 *            the visibility of the geometry
+	 * @param encoding
+	 *            the encoding to write the geometry with, or null to write it
+	 *            as well-known binary
+	 */
+	public GeometryWrapper(
+			final com.vividsolutions.jts.geom.Geometry geometry,
+			final byte[] visibility,
+			final GeometryEncoding encoding ) {
+		this.visibility = visibility;
+		this.geometry = geometry;
+		this.encoding = encoding;
+	}
+
+	private GeometryWrapper(
+			final byte[] binary ) {
+		this.binary = binary;
+	}
+
+	/**
+	 * Wrap the binary representation of a geometry, which is only decoded when
+	 * the geometry is requested
+	 * 
+	 * @param binary
+	 *            the binary representation of the geometry
+	 * @return the wrapper
+	 */
+	public static GeometryWrapper fromBinary(
+			final byte[] binary ) {
+		return new GeometryWrapper(
+				binary);
+	}
+
 	@Override
 	public void setVisibility(
 			final byte[] visibility ) {
@@ -44,9 +90,43 @@ public class GeometryWrapper implements
 	}
 
 	public com.vividsolutions.jts.geom.Geometry getGeometry() {
+		if ((geometry == null) && (binary != null)) {
+			geometry = GeometryUtils.geometryFromBinary(binary);
+		}
 		return geometry;
 	}
 
+	/**
+	 * @return the envelope of the geometry, which is read without decoding the
+	 *         geometry if it can be, or null if the geometry is null or could
+	 *         not be decoded
+	 */
+	public Envelope getEnvelope() {
+		if (envelope == null) {
+			if ((geometry == null) && CompactGeometryEncoding.isCompact(binary)) {
+				envelope = GeometryUtils.envelopeFromBinary(binary);
+			}
+			else if (getGeometry() != null) {
+				envelope = geometry.getEnvelopeInternal();
+			}
+		}
+		return envelope;
+	}
+
+	/**
+	 * @return the binary representation of the geometry, which is the binary
+	 *         that this wrapper was read from if it was read from binary
+	 */
+	public byte[] toBinary() {
+		if (binary != null) {
+			return binary;
+		}
+		if (encoding != null) {
+			return encoding.encode(geometry);
+		}
+		return GeometryUtils.geometryToBinary(geometry);
+	}
+
 	/**
 	 * Expects Longitude before Latitude
 	 */
@@ -57,8 +137,11 @@ public class GeometryWrapper implements
 
 		final int latPosition = fields[0] instanceof LatitudeField ? 0 : 1;
 		final int longPosition = fields[0] instanceof LatitudeField ? 1 : 0;
+		final Envelope env = getEnvelope();
+		if (env == null) {
+			return false;
+		}
 		if (fields.length == 1) {
-			final Envelope env = geometry.getEnvelopeInternal();
 			final NumericRange r = latPosition == 0 ? new NumericRange(
 					env.getMinY(),
 					env.getMaxY()) : new NumericRange(
@@ -72,6 +155,22 @@ public class GeometryWrapper implements
 					r.getMin(),
 					DOUBLE_TOLERANCE));
 		}
+		final Envelope rangeEnv = new Envelope(
+				rangeData[longPosition].getMin(),
+				rangeData[longPosition].getMax(),
+				rangeData[latPosition].getMin(),
+				rangeData[latPosition].getMax());
+		// the envelopes decide most cases without decoding the geometry
+		if (rangeEnv.covers(env)) {
+			return true;
+		}
+		final Envelope toleranceEnv = new Envelope(
+				rangeEnv);
+		toleranceEnv.expandBy(DOUBLE_TOLERANCE);
+		if (!toleranceEnv.intersects(env)) {
+			return false;
+		}
+		final com.vividsolutions.jts.geom.Geometry geometry = getGeometry();
 		return geometry.getFactory().createPolygon(
 				new Coordinate[] {
 					new Coordinate(
@@ -37,7 +37,7 @@ public class LatitudeField extends
 	@Override
 	public NumericData getNumericData(
 			final GeometryWrapper geometry ) {
-		return GeometryUtils.latitudeRangeFromGeometry(geometry.getGeometry());
+		return GeometryUtils.latitudeRangeFromEnvelope(geometry.getEnvelope());
 	}
 
 }
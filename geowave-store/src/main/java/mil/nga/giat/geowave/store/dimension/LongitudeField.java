@@ -37,7 +37,7 @@ public class LongitudeField extends
 	@Override
 	public NumericData getNumericData(
 			final GeometryWrapper geometry ) {
-		return GeometryUtils.longitudeRangeFromGeometry(geometry.getGeometry());
+		return GeometryUtils.longitudeRangeFromEnvelope(geometry.getEnvelope());
 	}
 
 }
@@ -1,26 +1,48 @@
 package mil.nga.giat.geowave.store.filter;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.io.Closeable;
+import java.nio.ByteBuffer;
 
-import mil.nga.giat.geowave.index.ByteArrayId;
 import mil.nga.giat.geowave.store.data.IndexedPersistenceEncoding;
 
+import org.apache.log4j.Logger;
+
 /**
  * This filter will perform de-duplication using the combination of data adapter
  * ID and data ID to determine uniqueness. It can be performed client-side
- * and/or distributed.
+ * and/or distributed. The visited IDs are bounded by a memory budget; see
+ * {@link VisitedDataIdSet} for what happens when the budget is exceeded.
  * 
  */
 public class DedupeFilter implements
-		DistributableQueryFilter
+		DistributableQueryFilter,
+		Closeable
 {
-	private final Map<ByteArrayId, Set<ByteArrayId>> adapterIdToVisitedDataIdMap;
+	private final static Logger LOGGER = Logger.getLogger(DedupeFilter.class);
+	public static final long DEFAULT_MAX_SIZE_IN_BYTES = 64L * 1024L * 1024L;
+
+	private long maxSizeInBytes;
+	private boolean spillToDisk;
+	private VisitedDataIdSet visitedDataIds;
 
 	public DedupeFilter() {
-		adapterIdToVisitedDataIdMap = new HashMap<ByteArrayId, Set<ByteArrayId>>();
+		this(
+				DEFAULT_MAX_SIZE_IN_BYTES,
+				false);
+	}
+
+	/**
+	 * @param maxSizeInBytes
+	 *            the approximate memory budget for the visited IDs
+	 * @param spillToDisk
+	 *            whether to spill visited IDs to a local temp file when the
+	 *            budget is exceeded, this should only be enabled client-side
+	 */
+	public DedupeFilter(
+			final long maxSizeInBytes,
+			final boolean spillToDisk ) {
+		this.maxSizeInBytes = maxSizeInBytes;
+		this.spillToDisk = spillToDisk;
 	}
 
 	@Override
@@ -33,38 +55,101 @@ public class DedupeFilter implements
 			// deduplication
 			return true;
 		}
-		if (!supportsMultipleIndices() && !persistenceEncoding.isDuplicated()) {
+		final boolean multipleIndices = supportsMultipleIndices();
+		if (!multipleIndices && !persistenceEncoding.isDuplicated()) {
 			// short circuit this check if the row is not duplicated anywhere
 			// and this is only intended to support a single index
 			return true;
 		}
-		final ByteArrayId adapterId = persistenceEncoding.getAdapterId();
-		final ByteArrayId dataId = persistenceEncoding.getDataId();
-		Set<ByteArrayId> visitedDataIds = adapterIdToVisitedDataIdMap.get(adapterId);
 		if (visitedDataIds == null) {
-			visitedDataIds = new HashSet<ByteArrayId>();
-			adapterIdToVisitedDataIdMap.put(
-					adapterId,
-					visitedDataIds);
-		}
-		else if (visitedDataIds.contains(dataId)) {
-			return false;
+			visitedDataIds = new VisitedDataIdSet(
+					maxSizeInBytes,
+					spillToDisk);
 		}
-		visitedDataIds.add(dataId);
-		return true;
+		// within a single index the number of rows for this entry is known,
+		// so it can be forgotten once they have all been visited
+		return visitedDataIds.add(
+				persistenceEncoding.getAdapterId().getBytes(),
+				persistenceEncoding.getDataId().getBytes(),
+				multipleIndices ? -1 : persistenceEncoding.getDuplicateCount() + 1);
 	}
 
 	protected boolean supportsMultipleIndices() {
 		return false;
 	}
 
+	public long getMaxSizeInBytes() {
+		return maxSizeInBytes;
+	}
+
+	public boolean isSpillToDisk() {
+		return spillToDisk;
+	}
+
+	/**
+	 * @return the most IDs that were remembered at once
+	 */
+	public long getPeakEntryCount() {
+		return visitedDataIds == null ? 0 : visitedDataIds.getPeakEntryCount();
+	}
+
+	/**
+	 * @return the most memory that was used at once for the remembered IDs
+	 */
+	public long getPeakSizeInBytes() {
+		return visitedDataIds == null ? 0 : visitedDataIds.getPeakSizeInBytes();
+	}
+
+	/**
+	 * @return the number of IDs that were written to disk
+	 */
+	public long getSpilledEntryCount() {
+		return visitedDataIds == null ? 0 : visitedDataIds.getSpilledEntryCount();
+	}
+
+	/**
+	 * @return the number of IDs that could not be remembered within the memory
+	 *         budget, duplicates of these IDs are not filtered
+	 */
+	public long getOverflowCount() {
+		return visitedDataIds == null ? 0 : visitedDataIds.getOverflowCount();
+	}
+
+	/**
+	 * Release the visited IDs, including any that were spilled to disk
+	 */
+	@Override
+	public void close() {
+		if (visitedDataIds != null) {
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("De-duplication visited a peak of " + visitedDataIds.getPeakEntryCount() + " IDs using " + visitedDataIds.getPeakSizeInBytes() + " bytes (" + visitedDataIds.getEvictionCount() + " evicted, " + visitedDataIds.getSpilledEntryCount() + " spilled, " + visitedDataIds.getOverflowCount() + " not remembered)");
+			}
+			visitedDataIds.close();
+			visitedDataIds = null;
+		}
+	}
+
 	@Override
 	public byte[] toBinary() {
-		return new byte[] {};
+		final ByteBuffer buf = ByteBuffer.allocate(9);
+		buf.putLong(maxSizeInBytes);
+		buf.put((byte) (spillToDisk ? 1 : 0));
+		return buf.array();
 	}
 
 	@Override
 	public void fromBinary(
-			final byte[] bytes ) {}
+			final byte[] bytes ) {
+		// filters serialized without any options use the defaults
+		if (bytes.length >= 9) {
+			final ByteBuffer buf = ByteBuffer.wrap(bytes);
+			maxSizeInBytes = buf.getLong();
+			spillToDisk = (buf.get() == 1);
+		}
+		else {
+			maxSizeInBytes = DEFAULT_MAX_SIZE_IN_BYTES;
+			spillToDisk = false;
+		}
+	}
 
 }
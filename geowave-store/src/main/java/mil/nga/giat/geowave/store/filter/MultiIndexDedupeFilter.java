@@ -1,12 +1,17 @@
 package mil.nga.giat.geowave.store.filter;
 
+import java.util.Arrays;
+
+import mil.nga.giat.geowave.store.data.IndexedPersistenceEncoding;
+
 /**
  * This filter will perform de-duplication using the combination of data adapter
  * ID and data ID to determine uniqueness. This should only be used client-side
  * because multiple indices would use a server-side scan per index anyways but
  * can be used distributed if necessary. This will cache every ID that streams
  * in regardless of whether its duplicated within a given index, so that it will
- * support deduplication across multiple indices.
+ * support deduplication across multiple indices. It is thread safe so that it
+ * can be shared by the scans of several indices that are read concurrently.
  * 
  */
 public class MultiIndexDedupeFilter extends
@@ -18,11 +23,34 @@ public class MultiIndexDedupeFilter extends
 		super();
 	}
 
+	public MultiIndexDedupeFilter(
+			final long maxSizeInBytes,
+			final boolean spillToDisk ) {
+		super(
+				maxSizeInBytes,
+				spillToDisk);
+	}
+
+	@Override
+	public synchronized boolean accept(
+			final IndexedPersistenceEncoding persistenceEncoding ) {
+		return super.accept(persistenceEncoding);
+	}
+
+	@Override
+	public synchronized void close() {
+		super.close();
+	}
+
 	@Override
 	protected boolean supportsMultipleIndices() {
 		return multiIndexSupport;
 	}
 
+	public boolean isMultiIndexSupportEnabled() {
+		return multiIndexSupport;
+	}
+
 	public void setMultiIndexSupportEnabled(
 			final boolean multiIndexSupport ) {
 		this.multiIndexSupport = multiIndexSupport;
@@ -30,9 +58,16 @@ public class MultiIndexDedupeFilter extends
 
 	@Override
 	public byte[] toBinary() {
-		return new byte[] {
-			(byte) (multiIndexSupport ? 0 : 1)
-		};
+		final byte[] dedupeBinary = super.toBinary();
+		final byte[] bytes = new byte[dedupeBinary.length + 1];
+		bytes[0] = (byte) (multiIndexSupport ? 0 : 1);
+		System.arraycopy(
+				dedupeBinary,
+				0,
+				bytes,
+				1,
+				dedupeBinary.length);
+		return bytes;
 	}
 
 	@Override
@@ -40,6 +75,13 @@ public class MultiIndexDedupeFilter extends
 			final byte[] bytes ) {
 		if (bytes.length > 0) {
 			multiIndexSupport = (bytes[0] == 0);
+			super.fromBinary(Arrays.copyOfRange(
+					bytes,
+					1,
+					bytes.length));
+		}
+		else {
+			super.fromBinary(bytes);
 		}
 	}
 
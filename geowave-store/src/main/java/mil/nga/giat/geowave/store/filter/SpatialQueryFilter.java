@@ -15,6 +15,7 @@ import mil.nga.giat.geowave.store.data.IndexedPersistenceEncoding;
 import mil.nga.giat.geowave.store.dimension.DimensionField;
 import mil.nga.giat.geowave.store.dimension.GeometryWrapper;
 
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 
 /**
@@ -26,6 +27,8 @@ public class SpatialQueryFilter extends
 		BasicQueryFilter
 {
 	private Geometry queryGeometry;
+	private Envelope queryEnvelope;
+	private boolean queryIsRectangle;
 
 	private Set<ByteArrayId> geometryFieldIds;
 
@@ -51,10 +54,19 @@ public class SpatialQueryFilter extends
 		super(
 				strippedGeometry.strippedQuery,
 				strippedGeometry.strippedDimensionDefinitions);
-		this.queryGeometry = queryGeometry;
+		setQueryGeometry(queryGeometry);
 		geometryFieldIds = strippedGeometry.geometryFieldIds;
 	}
 
+	private void setQueryGeometry(
+			final Geometry queryGeometry ) {
+		this.queryGeometry = queryGeometry;
+		if (queryGeometry != null) {
+			queryEnvelope = queryGeometry.getEnvelopeInternal();
+			queryIsRectangle = queryGeometry.isRectangle();
+		}
+	}
+
 	private static class StrippedGeometry
 	{
 		private final MultiDimensionalNumericData strippedQuery;
@@ -118,7 +130,7 @@ public class SpatialQueryFilter extends
 					fieldId);
 			if ((geomObj != null) && (geomObj instanceof GeometryWrapper)) {
 				final GeometryWrapper geom = (GeometryWrapper) geomObj;
-				if (geometryPasses(geom.getGeometry())) {
+				if (geometryPasses(geom)) {
 					geometryPasses = true;
 					break;
 				}
@@ -137,11 +149,21 @@ public class SpatialQueryFilter extends
 	}
 
 	private boolean geometryPasses(
-			final Geometry dataGeometry ) {
-		if (dataGeometry == null) {
+			final GeometryWrapper dataGeometry ) {
+		// the envelope can usually be read without decoding the geometry, and
+		// it decides most entries on its own
+		final Envelope dataEnvelope = dataGeometry.getEnvelope();
+		if ((dataEnvelope == null) || !dataEnvelope.intersects(queryEnvelope)) {
+			return false;
+		}
+		if (queryIsRectangle && queryEnvelope.covers(dataEnvelope)) {
+			return true;
+		}
+		final Geometry geometry = dataGeometry.getGeometry();
+		if (geometry == null) {
 			return false;
 		}
-		return dataGeometry.intersects(queryGeometry);
+		return geometry.intersects(queryGeometry);
 	}
 
 	protected boolean isSpatialOnly() {
@@ -188,7 +210,7 @@ public class SpatialQueryFilter extends
 					fieldId));
 		}
 		buf.get(theRest);
-		queryGeometry = GeometryUtils.geometryFromBinary(geometryBinary);
+		setQueryGeometry(GeometryUtils.geometryFromBinary(geometryBinary));
 
 		super.fromBinary(theRest);
 	}
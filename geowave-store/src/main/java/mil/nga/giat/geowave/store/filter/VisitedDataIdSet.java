@@ -0,0 +1,743 @@
+package mil.nga.giat.geowave.store.filter;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This is a memory bounded set of visited adapter ID and data ID pairs that is
+ * used for de-duplication. Rather than holding an object per ID, the IDs are
+ * packed into a single byte array and located using an open addressing table of
+ * primitive 64-bit hashes, which costs a few bytes per ID on top of the ID
+ * itself.
+ * 
+ * An ID that is added with a known number of occurrences is evicted as soon as
+ * it has been visited that many times because no more duplicates of it can
+ * follow. When the memory budget is exceeded anyway, the IDs are either spilled
+ * to an immutable hash table in a local temp file (guarded by an in-memory
+ * bloom filter) or, if spilling is disabled, new IDs are accepted without being
+ * remembered which means some duplicates may get through.
+ * 
+ * This class is not thread-safe.
+ */
+public class VisitedDataIdSet implements
+		Closeable
+{
+	private final static Logger LOGGER = Logger.getLogger(VisitedDataIdSet.class);
+
+	// the in-memory arrays are addressed by int, so keep the budget well
+	// within what a single array can hold
+	private static final long MAX_IN_MEMORY_SIZE_IN_BYTES = 1L << 30;
+	private static final int INITIAL_ENTRY_CAPACITY = 256;
+	private static final int INITIAL_ARENA_CAPACITY = 8192;
+	// each entry in the arena is prefixed by the adapter ID and data ID lengths
+	private static final int KEY_HEADER_LENGTH = 8;
+	// an entry has an int offset, a long hash and an int remaining occurrence
+	// count
+	private static final int BYTES_PER_ENTRY = 16;
+	// rough cost of the objects and buffers held by a spill segment
+	private static final int BYTES_PER_SPILL_SEGMENT = 256;
+	private static final int BYTES_PER_SPILLED_SLOT = 16;
+	private static final int BLOOM_FILTER_BITS_PER_ENTRY = 10;
+	private static final int BLOOM_FILTER_HASH_COUNT = 5;
+	private static final int UNKNOWN_OCCURRENCES = -1;
+
+	private final long maxSizeInBytes;
+	private final boolean spillToDisk;
+
+	// slots hold the entry index + 1, or 0 if empty
+	private int[] slots;
+	private int[] entryOffsets;
+	private long[] entryHashes;
+	private int[] entryRemainingOccurrences;
+	private int entryCount = 0;
+	private int liveEntryCount = 0;
+	private byte[] arena;
+	private int arenaLength = 0;
+	private int deadArenaLength = 0;
+
+	private final List<SpillSegment> spillSegments = new ArrayList<SpillSegment>();
+	private long spillSegmentsSizeInBytes = 0;
+
+	private long peakEntryCount = 0;
+	private long peakSizeInBytes = 0;
+	private long evictionCount = 0;
+	private long spilledEntryCount = 0;
+	private long overflowCount = 0;
+
+	/**
+	 * @param maxSizeInBytes
+	 *            the approximate memory budget for the visited IDs
+	 * @param spillToDisk
+	 *            whether to spill visited IDs to a local temp file when the
+	 *            budget is exceeded, rather than to stop remembering new IDs
+	 */
+	public VisitedDataIdSet(
+			final long maxSizeInBytes,
+			final boolean spillToDisk ) {
+		this.maxSizeInBytes = Math.min(
+				maxSizeInBytes,
+				MAX_IN_MEMORY_SIZE_IN_BYTES);
+		this.spillToDisk = spillToDisk;
+		allocate(
+				INITIAL_ENTRY_CAPACITY,
+				INITIAL_ARENA_CAPACITY);
+	}
+
+	/**
+	 * Visit an ID
+	 * 
+	 * @param adapterId
+	 *            the adapter ID
+	 * @param dataId
+	 *            the data ID
+	 * @param occurrences
+	 *            the total number of times this ID can be visited, or a value
+	 *            less than 1 if it is unknown
+	 * @return true if the ID had not been visited yet
+	 */
+	public boolean add(
+			final byte[] adapterId,
+			final byte[] dataId,
+			final int occurrences ) {
+		final long hash = hash(
+				adapterId,
+				dataId);
+		final int slot = findSlot(
+				hash,
+				adapterId,
+				dataId);
+		if (slots[slot] != 0) {
+			final int entry = slots[slot] - 1;
+			if ((entryRemainingOccurrences[entry] != UNKNOWN_OCCURRENCES) && (--entryRemainingOccurrences[entry] <= 0)) {
+				// every occurrence has been visited, so it can be forgotten
+				remove(slot);
+				evictionCount++;
+			}
+			return false;
+		}
+		for (final SpillSegment segment : spillSegments) {
+			try {
+				if (segment.contains(
+						hash,
+						adapterId,
+						dataId)) {
+					return false;
+				}
+			}
+			catch (final IOException e) {
+				LOGGER.warn(
+						"Unable to read spilled data IDs, the entry will not be de-duplicated",
+						e);
+				return true;
+			}
+		}
+		if (occurrences == 1) {
+			// it will never be visited again, so it doesn't need to be
+			// remembered
+			return true;
+		}
+		if (!ensureCapacity(KEY_HEADER_LENGTH + adapterId.length + dataId.length)) {
+			if (overflowCount == 0) {
+				LOGGER.warn("De-duplication exceeded its memory budget of " + maxSizeInBytes + " bytes, duplicates may not be filtered");
+			}
+			overflowCount++;
+			return true;
+		}
+		insert(
+				findSlot(
+						hash,
+						adapterId,
+						dataId),
+				hash,
+				adapterId,
+				dataId,
+				occurrences > 1 ? occurrences - 1 : UNKNOWN_OCCURRENCES);
+		peakEntryCount = Math.max(
+				peakEntryCount,
+				liveEntryCount + spilledEntryCount);
+		peakSizeInBytes = Math.max(
+				peakSizeInBytes,
+				getSizeInBytes());
+		return true;
+	}
+
+	/**
+	 * @return the number of IDs currently remembered, in memory and on disk
+	 */
+	public long getEntryCount() {
+		return liveEntryCount + spilledEntryCount;
+	}
+
+	/**
+	 * @return the estimated memory currently used by this set
+	 */
+	public long getSizeInBytes() {
+		return getSizeInBytes(
+				slots.length,
+				entryOffsets.length,
+				arena.length);
+	}
+
+	public long getPeakEntryCount() {
+		return peakEntryCount;
+	}
+
+	public long getPeakSizeInBytes() {
+		return peakSizeInBytes;
+	}
+
+	/**
+	 * @return the number of IDs that were forgotten because all of their
+	 *         occurrences were visited
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * @return the number of IDs that were written to disk
+	 */
+	public long getSpilledEntryCount() {
+		return spilledEntryCount;
+	}
+
+	/**
+	 * @return the number of new IDs that were not remembered because the memory
+	 *         budget was exceeded and spilling is disabled
+	 */
+	public long getOverflowCount() {
+		return overflowCount;
+	}
+
+	public long getMaxSizeInBytes() {
+		return maxSizeInBytes;
+	}
+
+	@Override
+	public void close() {
+		// every segment is closed even if one of them fails, so that none of
+		// the spilled files are left behind
+		for (final SpillSegment segment : spillSegments) {
+			try {
+				segment.close();
+			}
+			catch (final RuntimeException e) {
+				LOGGER.warn(
+						"Unable to delete spilled data IDs",
+						e);
+			}
+		}
+		spillSegments.clear();
+		spillSegmentsSizeInBytes = 0;
+		spilledEntryCount = 0;
+		allocate(
+				INITIAL_ENTRY_CAPACITY,
+				INITIAL_ARENA_CAPACITY);
+	}
+
+	private long getSizeInBytes(
+			final long slotCapacity,
+			final long entryCapacity,
+			final long arenaCapacity ) {
+		return (4L * slotCapacity) + (BYTES_PER_ENTRY * entryCapacity) + arenaCapacity + spillSegmentsSizeInBytes;
+	}
+
+	private void allocate(
+			final int entryCapacity,
+			final int arenaCapacity ) {
+		slots = new int[slotCapacity(entryCapacity)];
+		entryOffsets = new int[entryCapacity];
+		entryHashes = new long[entryCapacity];
+		entryRemainingOccurrences = new int[entryCapacity];
+		arena = new byte[arenaCapacity];
+		entryCount = 0;
+		liveEntryCount = 0;
+		arenaLength = 0;
+		deadArenaLength = 0;
+	}
+
+	private static int slotCapacity(
+			final int entryCapacity ) {
+		// keep the load factor at or below one half
+		return Integer.highestOneBit(Math.max(
+				entryCapacity,
+				1)) << 2;
+	}
+
+	/**
+	 * Make sure there is room for one more entry with a key of the given
+	 * length, compacting, growing or spilling as necessary
+	 * 
+	 * @return false if the entry can't be remembered within the memory budget
+	 */
+	private boolean ensureCapacity(
+			final int keyLength ) {
+		if ((entryCount < entryOffsets.length) && ((arenaLength + keyLength) <= arena.length)) {
+			return true;
+		}
+		final int liveArenaLength = arenaLength - deadArenaLength;
+		// leave room to grow so that the arrays aren't rebuilt for every
+		// entry
+		long entryCapacity = entryOffsets.length;
+		while (entryCapacity < ((liveEntryCount + 1L) * 2L)) {
+			entryCapacity *= 2;
+		}
+		long arenaCapacity = arena.length;
+		while (arenaCapacity < ((liveArenaLength + (long) keyLength) * 2L)) {
+			arenaCapacity *= 2;
+		}
+		if (getSizeInBytes(
+				4L * Long.highestOneBit(entryCapacity),
+				entryCapacity,
+				arenaCapacity) <= maxSizeInBytes) {
+			rebuild(
+					(int) entryCapacity,
+					(int) arenaCapacity);
+			return true;
+		}
+		if ((liveEntryCount < entryCount) && ((liveEntryCount + 1) <= entryOffsets.length) && ((liveArenaLength + keyLength) <= arena.length)) {
+			// reclaiming the evicted entries makes enough room without
+			// growing
+			rebuild(
+					entryOffsets.length,
+					arena.length);
+			return true;
+		}
+		if (!spillToDisk || (liveEntryCount == 0)) {
+			return false;
+		}
+		try {
+			spill();
+		}
+		catch (final IOException e) {
+			LOGGER.warn(
+					"Unable to spill visited data IDs to disk",
+					e);
+			return false;
+		}
+		if (getSizeInBytes(
+				slots.length,
+				entryOffsets.length,
+				arena.length) > maxSizeInBytes) {
+			// the bloom filters alone exceed the budget
+			return false;
+		}
+		return (keyLength <= arena.length) || ensureCapacity(keyLength);
+	}
+
+	private void rebuild(
+			final int entryCapacity,
+			final int arenaCapacity ) {
+		final int[] oldEntryOffsets = entryOffsets;
+		final long[] oldEntryHashes = entryHashes;
+		final int[] oldEntryRemainingOccurrences = entryRemainingOccurrences;
+		final byte[] oldArena = arena;
+		final int oldEntryCount = entryCount;
+		allocate(
+				entryCapacity,
+				arenaCapacity);
+		final int mask = slots.length - 1;
+		for (int i = 0; i < oldEntryCount; i++) {
+			final int offset = oldEntryOffsets[i];
+			if (offset < 0) {
+				continue;
+			}
+			final int length = keyLength(
+					oldArena,
+					offset);
+			System.arraycopy(
+					oldArena,
+					offset,
+					arena,
+					arenaLength,
+					length);
+			entryOffsets[entryCount] = arenaLength;
+			entryHashes[entryCount] = oldEntryHashes[i];
+			entryRemainingOccurrences[entryCount] = oldEntryRemainingOccurrences[i];
+			// the keys are known to be unique so only an empty slot is needed
+			int slot = (int) oldEntryHashes[i] & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = ++entryCount;
+			arenaLength += length;
+		}
+		liveEntryCount = entryCount;
+	}
+
+	private void insert(
+			final int slot,
+			final long hash,
+			final byte[] adapterId,
+			final byte[] dataId,
+			final int remainingOccurrences ) {
+		final ByteBuffer buf = ByteBuffer.wrap(
+				arena,
+				arenaLength,
+				KEY_HEADER_LENGTH + adapterId.length + dataId.length);
+		buf.putInt(adapterId.length);
+		buf.putInt(dataId.length);
+		buf.put(adapterId);
+		buf.put(dataId);
+		entryOffsets[entryCount] = arenaLength;
+		entryHashes[entryCount] = hash;
+		entryRemainingOccurrences[entryCount] = remainingOccurrences;
+		slots[slot] = ++entryCount;
+		liveEntryCount++;
+		arenaLength = buf.position();
+	}
+
+	private void remove(
+			final int slot ) {
+		final int entry = slots[slot] - 1;
+		deadArenaLength += keyLength(
+				arena,
+				entryOffsets[entry]);
+		entryOffsets[entry] = -1;
+		liveEntryCount--;
+		// shift back any following entries of the probe sequence so that
+		// lookups never stop early at the freed slot
+		final int mask = slots.length - 1;
+		int free = slot;
+		int next = slot;
+		while (true) {
+			next = (next + 1) & mask;
+			if (slots[next] == 0) {
+				break;
+			}
+			final int home = (int) entryHashes[slots[next] - 1] & mask;
+			if (((next - home) & mask) >= ((next - free) & mask)) {
+				slots[free] = slots[next];
+				free = next;
+			}
+		}
+		slots[free] = 0;
+	}
+
+	/**
+	 * @return the slot of the matching entry, or the empty slot where it
+	 *         belongs
+	 */
+	private int findSlot(
+			final long hash,
+			final byte[] adapterId,
+			final byte[] dataId ) {
+		final int mask = slots.length - 1;
+		int slot = (int) hash & mask;
+		while (slots[slot] != 0) {
+			final int entry = slots[slot] - 1;
+			if ((entryHashes[entry] == hash) && keyEquals(
+					arena,
+					entryOffsets[entry],
+					adapterId,
+					dataId)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void spill()
+			throws IOException {
+		final SpillSegment segment = new SpillSegment(
+				this);
+		spillSegments.add(segment);
+		spillSegmentsSizeInBytes += segment.getSizeInBytes();
+		spilledEntryCount += segment.entryCount;
+		LOGGER.info("Spilled " + segment.entryCount + " visited data IDs to '" + segment.file.getAbsolutePath() + "'");
+		allocate(
+				INITIAL_ENTRY_CAPACITY,
+				INITIAL_ARENA_CAPACITY);
+	}
+
+	private static int keyLength(
+			final byte[] bytes,
+			final int offset ) {
+		final ByteBuffer buf = ByteBuffer.wrap(
+				bytes,
+				offset,
+				KEY_HEADER_LENGTH);
+		return KEY_HEADER_LENGTH + buf.getInt() + buf.getInt();
+	}
+
+	private static boolean keyEquals(
+			final byte[] bytes,
+			final int offset,
+			final byte[] adapterId,
+			final byte[] dataId ) {
+		final ByteBuffer buf = ByteBuffer.wrap(
+				bytes,
+				offset,
+				KEY_HEADER_LENGTH);
+		if ((buf.getInt() != adapterId.length) || (buf.getInt() != dataId.length)) {
+			return false;
+		}
+		int i = offset + KEY_HEADER_LENGTH;
+		for (final byte b : adapterId) {
+			if (bytes[i++] != b) {
+				return false;
+			}
+		}
+		for (final byte b : dataId) {
+			if (bytes[i++] != b) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	protected static long hash(
+			final byte[] adapterId,
+			final byte[] dataId ) {
+		// FNV-1a over both IDs, separated by their lengths, followed by the
+		// murmur3 finalizer to spread the bits used for the table slots
+		long h = 0xcbf29ce484222325L;
+		h = (h ^ adapterId.length) * 0x100000001b3L;
+		for (final byte b : adapterId) {
+			h = (h ^ (b & 0xff)) * 0x100000001b3L;
+		}
+		h = (h ^ dataId.length) * 0x100000001b3L;
+		for (final byte b : dataId) {
+			h = (h ^ (b & 0xff)) * 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * An immutable open addressing hash table of visited IDs in a temp file.
+	 * The file starts with the slots, each holding the 64-bit hash and the
+	 * offset + 1 of the key (0 if empty), followed by the keys in the same
+	 * format as the in-memory arena. An in-memory bloom filter avoids reading
+	 * the file for most IDs that were never visited.
+	 */
+	private static class SpillSegment
+	{
+		private final File file;
+		private final RandomAccessFile randomAccessFile;
+		private final FileChannel channel;
+		private final int entryCount;
+		private final int slotMask;
+		private final long keysOffset;
+		private final long[] bloomFilter;
+		private final int bloomFilterMask;
+		private final ByteBuffer slotBuffer = ByteBuffer.allocate(BYTES_PER_SPILLED_SLOT);
+		private final ByteBuffer headerBuffer = ByteBuffer.allocate(KEY_HEADER_LENGTH);
+
+		private SpillSegment(
+				final VisitedDataIdSet set )
+				throws IOException {
+			entryCount = set.liveEntryCount;
+			final int slotCount = slotCapacity(entryCount);
+			slotMask = slotCount - 1;
+			keysOffset = (long) slotCount * BYTES_PER_SPILLED_SLOT;
+			final int bloomFilterBits = Integer.highestOneBit(Math.max(
+					64,
+					entryCount * BLOOM_FILTER_BITS_PER_ENTRY)) << 1;
+			bloomFilter = new long[bloomFilterBits / 64];
+			bloomFilterMask = bloomFilterBits - 1;
+
+			final long[] slotHashes = new long[slotCount];
+			final long[] slotKeyOffsets = new long[slotCount];
+			long keyOffset = 0;
+			for (int i = 0; i < set.entryCount; i++) {
+				final int offset = set.entryOffsets[i];
+				if (offset < 0) {
+					continue;
+				}
+				final long hash = set.entryHashes[i];
+				int slot = (int) hash & slotMask;
+				while (slotKeyOffsets[slot] != 0) {
+					slot = (slot + 1) & slotMask;
+				}
+				slotHashes[slot] = hash;
+				slotKeyOffsets[slot] = keyOffset + 1;
+				keyOffset += keyLength(
+						set.arena,
+						offset);
+				addToBloomFilter(hash);
+			}
+
+			// the file is deleted when the set is closed rather than on exit,
+			// as every file registered for deletion on exit is remembered until
+			// the JVM exits
+			file = File.createTempFile(
+					"geowave-dedupe",
+					".bin");
+			boolean opened = false;
+			try {
+				final DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(
+								new FileOutputStream(
+										file)));
+				try {
+					for (int slot = 0; slot < slotCount; slot++) {
+						out.writeLong(slotHashes[slot]);
+						out.writeLong(slotKeyOffsets[slot]);
+					}
+					for (int i = 0; i < set.entryCount; i++) {
+						final int offset = set.entryOffsets[i];
+						if (offset >= 0) {
+							out.write(
+									set.arena,
+									offset,
+									keyLength(
+											set.arena,
+											offset));
+						}
+					}
+				}
+				finally {
+					out.close();
+				}
+				randomAccessFile = new RandomAccessFile(
+						file,
+						"r");
+				opened = true;
+			}
+			finally {
+				if (!opened) {
+					deleteFile();
+				}
+			}
+			channel = randomAccessFile.getChannel();
+		}
+
+		private long getSizeInBytes() {
+			return (8L * bloomFilter.length) + BYTES_PER_SPILL_SEGMENT;
+		}
+
+		private void addToBloomFilter(
+				final long hash ) {
+			final int h1 = (int) hash;
+			final int h2 = (int) (hash >>> 32);
+			for (int i = 0; i < BLOOM_FILTER_HASH_COUNT; i++) {
+				final int bit = (h1 + (i * h2)) & bloomFilterMask;
+				bloomFilter[bit >>> 6] |= (1L << bit);
+			}
+		}
+
+		private boolean mightContain(
+				final long hash ) {
+			final int h1 = (int) hash;
+			final int h2 = (int) (hash >>> 32);
+			for (int i = 0; i < BLOOM_FILTER_HASH_COUNT; i++) {
+				final int bit = (h1 + (i * h2)) & bloomFilterMask;
+				if ((bloomFilter[bit >>> 6] & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean contains(
+				final long hash,
+				final byte[] adapterId,
+				final byte[] dataId )
+				throws IOException {
+			if (!mightContain(hash)) {
+				return false;
+			}
+			int slot = (int) hash & slotMask;
+			while (true) {
+				slotBuffer.clear();
+				readFully(
+						slotBuffer,
+						(long) slot * BYTES_PER_SPILLED_SLOT);
+				final long slotHash = slotBuffer.getLong();
+				final long keyOffset = slotBuffer.getLong();
+				if (keyOffset == 0) {
+					return false;
+				}
+				if ((slotHash == hash) && keyEquals(
+						keysOffset + (keyOffset - 1),
+						adapterId,
+						dataId)) {
+					return true;
+				}
+				slot = (slot + 1) & slotMask;
+			}
+		}
+
+		private boolean keyEquals(
+				final long position,
+				final byte[] adapterId,
+				final byte[] dataId )
+				throws IOException {
+			headerBuffer.clear();
+			readFully(
+					headerBuffer,
+					position);
+			if ((headerBuffer.getInt() != adapterId.length) || (headerBuffer.getInt() != dataId.length)) {
+				return false;
+			}
+			final ByteBuffer key = ByteBuffer.allocate(adapterId.length + dataId.length);
+			readFully(
+					key,
+					position + KEY_HEADER_LENGTH);
+			for (final byte b : adapterId) {
+				if (key.get() != b) {
+					return false;
+				}
+			}
+			for (final byte b : dataId) {
+				if (key.get() != b) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void readFully(
+				final ByteBuffer buf,
+				final long position )
+				throws IOException {
+			long currentPosition = position;
+			while (buf.hasRemaining()) {
+				final int read = channel.read(
+						buf,
+						currentPosition);
+				if (read < 0) {
+					throw new IOException(
+							"Unexpected end of spilled data IDs in '" + file.getAbsolutePath() + "'");
+				}
+				currentPosition += read;
+			}
+			buf.flip();
+		}
+
+		private void close() {
+			try {
+				randomAccessFile.close();
+			}
+			catch (final IOException e) {
+				LOGGER.warn(
+						"Unable to close spilled data IDs",
+						e);
+			}
+			deleteFile();
+		}
+
+		private void deleteFile() {
+			if (!file.delete()) {
+				LOGGER.warn("Unable to delete spilled data IDs in '" + file.getAbsolutePath() + "'");
+			}
+		}
+	}
+}
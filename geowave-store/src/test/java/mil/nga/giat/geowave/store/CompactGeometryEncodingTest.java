@@ -0,0 +1,231 @@
+package mil.nga.giat.geowave.store;
+
+import mil.nga.giat.geowave.index.PersistenceUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+public class CompactGeometryEncodingTest
+{
+	private static final double TOLERANCE = 1E-7;
+	private final GeometryFactory factory = new GeometryFactory();
+
+	@Test
+	public void testTrack() {
+		final Coordinate[] coords = new Coordinate[1000];
+		for (int i = 0; i < coords.length; i++) {
+			coords[i] = new Coordinate(
+					-77.0 + (i * 0.00012345678),
+					38.0 + Math.sin(i / 100.0) * 0.01);
+		}
+		final LineString track = factory.createLineString(coords);
+		final byte[] compact = new CompactGeometryEncoding().encode(track);
+		// a track of nearby vertices should be far smaller than well-known
+		// binary
+		Assert.assertTrue(compact.length < (GeometryUtils.geometryToBinary(track).length / 3));
+
+		final Geometry decoded = GeometryUtils.geometryFromBinary(compact);
+		Assert.assertTrue(decoded instanceof LineString);
+		Assert.assertEquals(
+				coords.length,
+				decoded.getNumPoints());
+		for (int i = 0; i < coords.length; i++) {
+			Assert.assertEquals(
+					coords[i].x,
+					decoded.getCoordinates()[i].x,
+					TOLERANCE);
+			Assert.assertEquals(
+					coords[i].y,
+					decoded.getCoordinates()[i].y,
+					TOLERANCE);
+		}
+		// the envelope is read without decoding the geometry and matches the
+		// envelope of the decoded geometry exactly
+		Assert.assertEquals(
+				decoded.getEnvelopeInternal(),
+				GeometryUtils.envelopeFromBinary(compact));
+	}
+
+	@Test
+	public void testPrecision() {
+		final Point point = factory.createPoint(new Coordinate(
+				12.3456,
+				-65.4321));
+		final Geometry decoded = GeometryUtils.geometryFromBinary(new CompactGeometryEncoding(
+				2).encode(point));
+		Assert.assertEquals(
+				12.35,
+				decoded.getCoordinate().x,
+				0);
+		Assert.assertEquals(
+				-65.43,
+				decoded.getCoordinate().y,
+				0);
+	}
+
+	@Test
+	public void testPrecisionOverflow() {
+		// a projected coordinate in meters cannot keep 12 decimal digits in a
+		// long
+		final Point point = factory.createPoint(new Coordinate(
+				20037508.34,
+				-20037508.34));
+		try {
+			new CompactGeometryEncoding(
+					12).encode(point);
+			Assert.fail("Encoding should fail rather than overflow");
+		}
+		catch (final IllegalArgumentException e) {}
+		final Geometry decoded = GeometryUtils.geometryFromBinary(new CompactGeometryEncoding(
+				7).encode(point));
+		Assert.assertEquals(
+				20037508.34,
+				decoded.getCoordinate().x,
+				TOLERANCE);
+		Assert.assertEquals(
+				-20037508.34,
+				decoded.getCoordinate().y,
+				TOLERANCE);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMaxPrecision() {
+		new CompactGeometryEncoding(
+				13);
+	}
+
+	@Test
+	public void testPolygonWithZ() {
+		final Polygon polygon = factory.createPolygon(
+				factory.createLinearRing(new Coordinate[] {
+					new Coordinate(
+							0,
+							0,
+							1),
+					new Coordinate(
+							10,
+							0,
+							2),
+					new Coordinate(
+							10,
+							10,
+							3),
+					new Coordinate(
+							0,
+							10,
+							4),
+					new Coordinate(
+							0,
+							0,
+							1)
+				}),
+				new com.vividsolutions.jts.geom.LinearRing[] {
+					factory.createLinearRing(new Coordinate[] {
+						new Coordinate(
+								2,
+								2,
+								0),
+						new Coordinate(
+								4,
+								2,
+								0),
+						new Coordinate(
+								4,
+								4,
+								0),
+						new Coordinate(
+								2,
+								2,
+								0)
+					})
+				});
+		final Geometry decoded = GeometryUtils.geometryFromBinary(new CompactGeometryEncoding().encode(polygon));
+		Assert.assertTrue(decoded.equalsExact(polygon));
+		Assert.assertEquals(
+				3,
+				decoded.getCoordinates()[2].z,
+				0);
+	}
+
+	@Test
+	public void testCollections()
+			throws Exception {
+		final Geometry collection = GeometryUtils.GEOMETRY_FACTORY.createGeometryCollection(new Geometry[] {
+			factory.createPoint(new Coordinate(
+					1,
+					2)),
+			factory.createMultiLineString(new LineString[] {
+				factory.createLineString(new Coordinate[] {
+					new Coordinate(
+							1,
+							1),
+					new Coordinate(
+							2,
+							2)
+				}),
+				factory.createLineString(new Coordinate[] {
+					new Coordinate(
+							-3,
+							-3),
+					new Coordinate(
+							-4,
+							-4)
+				})
+			}),
+			factory.createPolygon(
+					null,
+					null),
+			factory.createMultiPoint(new Coordinate[] {
+				new Coordinate(
+						5,
+						6),
+				new Coordinate(
+						7,
+						8)
+			})
+		});
+		final byte[] compact = new CompactGeometryEncoding().encode(collection);
+		final Geometry decoded = GeometryUtils.geometryFromBinary(compact);
+		Assert.assertTrue(decoded.equalsExact(collection));
+		Assert.assertEquals(
+				new Envelope(
+						-4,
+						7,
+						-4,
+						8),
+				GeometryUtils.envelopeFromBinary(compact));
+	}
+
+	@Test
+	public void testEmpty() {
+		final byte[] compact = new CompactGeometryEncoding().encode(factory.createLineString(new Coordinate[] {}));
+		final Geometry decoded = GeometryUtils.geometryFromBinary(compact);
+		Assert.assertTrue(decoded instanceof LineString);
+		Assert.assertTrue(decoded.isEmpty());
+		Assert.assertTrue(GeometryUtils.envelopeFromBinary(
+				compact).isNull());
+	}
+
+	@Test
+	public void testPersistence() {
+		final CompactGeometryEncoding encoding = PersistenceUtils.fromBinary(
+				PersistenceUtils.toBinary(new CompactGeometryEncoding(
+						5,
+						-1)),
+				CompactGeometryEncoding.class);
+		Assert.assertEquals(
+				5,
+				encoding.getXYPrecision());
+		Assert.assertEquals(
+				-1,
+				encoding.getZPrecision());
+	}
+}
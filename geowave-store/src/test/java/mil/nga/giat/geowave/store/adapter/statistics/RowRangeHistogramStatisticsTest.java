@@ -0,0 +1,226 @@
+package mil.nga.giat.geowave.store.adapter.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.index.ByteArrayRange;
+import mil.nga.giat.geowave.index.PersistenceUtils;
+import mil.nga.giat.geowave.store.DataStoreEntryInfo;
+import mil.nga.giat.geowave.store.DataStoreEntryInfo.FieldInfo;
+
+import org.junit.Test;
+
+public class RowRangeHistogramStatisticsTest
+{
+	private static final ByteArrayId ADAPTER_ID = new ByteArrayId(
+			"adapter");
+	private static final ByteArrayId INDEX_ID = new ByteArrayId(
+			"index");
+
+	@Test
+	public void testEstimateSkewedRows() {
+		final RowRangeHistogramStatistics<Object> stats = new RowRangeHistogramStatistics<Object>(
+				ADAPTER_ID,
+				INDEX_ID,
+				64);
+		final Random rng = new Random(
+				42);
+		// 90% of the rows are in the first 1/16th of the key space
+		for (int i = 0; i < 10000; i++) {
+			final byte[] row = new byte[12];
+			rng.nextBytes(row);
+			if (i % 10 != 0) {
+				row[0] = (byte) (row[0] & 0x0f);
+			}
+			ingest(
+					stats,
+					row);
+		}
+		assertEquals(
+				10000,
+				stats.getTotalCount());
+		assertEquals(
+				10000,
+				stats.estimateCount(
+						0,
+						1),
+				0.001);
+		final double firstSixteenth = stats.estimateCount(
+				0,
+				1.0 / 16);
+		// the estimates are approximate, especially where the density changes
+		// abruptly, so allow an error of 5% of the rows
+		assertTrue(
+				"estimated " + firstSixteenth,
+				Math.abs(firstSixteenth - 9062.5) < 500);
+		final double lastHalf = stats.estimateCount(
+				0.5,
+				1);
+		assertTrue(
+				"estimated " + lastHalf,
+				Math.abs(lastHalf - 500) < 250);
+
+		// the median is well within the dense part of the key space
+		final double median = stats.getQuantile(
+				0.5,
+				0,
+				1);
+		assertTrue(median < (1.0 / 16));
+		assertEquals(
+				5000,
+				stats.estimateCount(
+						0,
+						median),
+				1);
+	}
+
+	@Test
+	public void testMergeAndSerialize() {
+		final RowRangeHistogramStatistics<Object> stats1 = new RowRangeHistogramStatistics<Object>(
+				ADAPTER_ID,
+				INDEX_ID,
+				16);
+		final RowRangeHistogramStatistics<Object> stats2 = new RowRangeHistogramStatistics<Object>(
+				ADAPTER_ID,
+				INDEX_ID,
+				16);
+		for (int i = 0; i < 100; i++) {
+			ingest(
+					stats1,
+					new byte[] {
+						(byte) i
+					});
+			ingest(
+					stats2,
+					new byte[] {
+						(byte) (128 + i)
+					});
+		}
+		final RowRangeHistogramStatistics<Object> copy = PersistenceUtils.fromBinary(
+				PersistenceUtils.toBinary(stats1),
+				RowRangeHistogramStatistics.class);
+		assertEquals(
+				stats1.getStatisticsId(),
+				copy.getStatisticsId());
+		assertEquals(
+				100,
+				copy.getTotalCount());
+		copy.merge(stats2);
+		assertEquals(
+				200,
+				copy.getTotalCount());
+		assertEquals(
+				100,
+				copy.estimateCount(
+						0,
+						0.5),
+				10);
+		assertEquals(
+				100,
+				copy.estimateCount(
+						0.5,
+						1),
+				10);
+	}
+
+	@Test
+	public void testDeleteAndMergeDeltas() {
+		final RowRangeHistogramStatistics<Object> stats = new RowRangeHistogramStatistics<Object>(
+				ADAPTER_ID,
+				INDEX_ID,
+				16);
+		for (int i = 0; i < 200; i++) {
+			ingest(
+					stats,
+					new byte[] {
+						(byte) i
+					});
+		}
+		// the deletes are tracked by a separate statistic, the way a delete
+		// would be written to the statistics store and merged by the combiner
+		final RowRangeHistogramStatistics<Object> deletes = new RowRangeHistogramStatistics<Object>(
+				ADAPTER_ID,
+				INDEX_ID,
+				16);
+		for (int i = 0; i < 100; i++) {
+			deletes.entryDeleted(
+					new DataStoreEntryInfo(
+							Arrays.asList(new ByteArrayId(
+									new byte[] {
+										(byte) i
+									})),
+							new ArrayList<FieldInfo>()),
+					null);
+		}
+		assertEquals(
+				0,
+				deletes.getTotalCount());
+		stats.merge(PersistenceUtils.fromBinary(
+				PersistenceUtils.toBinary(deletes),
+				RowRangeHistogramStatistics.class));
+		assertEquals(
+				100,
+				stats.getTotalCount());
+		assertEquals(
+				0,
+				stats.estimateCount(
+						0,
+						100.0 / 256),
+				10);
+		assertEquals(
+				100,
+				stats.estimateCount(
+						100.0 / 256,
+						1),
+				10);
+		assertEquals(
+				100,
+				stats.estimateCount(Arrays.asList(new ByteArrayRange(
+						new ByteArrayId(
+								new byte[] {
+									0
+								}),
+						new ByteArrayId(
+								new byte[] {
+									(byte) 0xff
+								})))),
+				0.001);
+		assertEquals(
+				100,
+				stats.estimateCount((List<ByteArrayRange>) null),
+				0.001);
+	}
+
+	@Test
+	public void testRowPositions() {
+		final byte[] row = new byte[] {
+			0x12,
+			(byte) 0xab,
+			0x7f
+		};
+		final double position = RowRangeHistogramStatistics.getStartPosition(row);
+		assertTrue(position < RowRangeHistogramStatistics.getEndPosition(row));
+		assertTrue(Arrays.equals(
+				Arrays.copyOf(
+						row,
+						8),
+				RowRangeHistogramStatistics.getRow(position)));
+	}
+
+	private static void ingest(
+			final RowRangeHistogramStatistics<Object> stats,
+			final byte[] row ) {
+		stats.entryIngested(
+				new DataStoreEntryInfo(
+						Arrays.asList(new ByteArrayId(
+								row)),
+						new ArrayList<FieldInfo>()),
+				null);
+	}
+}
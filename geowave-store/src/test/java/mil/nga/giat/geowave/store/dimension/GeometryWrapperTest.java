@@ -1,9 +1,11 @@
 package mil.nga.giat.geowave.store.dimension;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import mil.nga.giat.geowave.index.sfc.data.NumericData;
 import mil.nga.giat.geowave.index.sfc.data.NumericRange;
+import mil.nga.giat.geowave.store.CompactGeometryEncoding;
 
 import org.junit.Test;
 
@@ -134,4 +136,60 @@ public class GeometryWrapperTest
 
 	}
 
+	@Test
+	public void testCompactBinary() {
+		final DimensionField[] fields = new DimensionField[] {
+			new LongitudeField(),
+			new LatitudeField()
+		};
+		final Geometry geo = factory.createLineString(new Coordinate[] {
+			new Coordinate(
+					-99.22,
+					33.7),
+			new Coordinate(
+					-99.15,
+					33.8)
+		});
+		final GeometryWrapper wrapper = GeometryWrapper.fromBinary(new CompactGeometryEncoding().encode(geo));
+		assertEquals(
+				geo.getEnvelopeInternal(),
+				wrapper.getEnvelope());
+		assertEquals(
+				33.7,
+				wrapper.getEnvelope().getMinY(),
+				0);
+		// these ranges are decided by the envelope alone
+		assertTrue(wrapper.overlaps(
+				fields,
+				new NumericData[] {
+					new NumericRange(
+							-100,
+							-99),
+					new NumericRange(
+							33,
+							34)
+				}));
+		assertFalse(wrapper.overlaps(
+				fields,
+				new NumericData[] {
+					new NumericRange(
+							-99,
+							-98),
+					new NumericRange(
+							33,
+							34)
+				}));
+		// this range is within the envelope but does not intersect the line
+		assertFalse(wrapper.overlaps(
+				fields,
+				new NumericData[] {
+					new NumericRange(
+							-99.22,
+							-99.2),
+					new NumericRange(
+							33.78,
+							33.8)
+				}));
+		assertTrue(geo.equalsExact(wrapper.getGeometry()));
+	}
 }
@@ -0,0 +1,202 @@
+package mil.nga.giat.geowave.store.filter;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import mil.nga.giat.geowave.index.ByteArrayId;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class VisitedDataIdSetTest
+{
+	private static final byte[] ADAPTER_ID = "adapter".getBytes();
+	private static final byte[] OTHER_ADAPTER_ID = "other".getBytes();
+
+	@Test
+	public void testDedupe() {
+		final VisitedDataIdSet set = new VisitedDataIdSet(
+				DedupeFilter.DEFAULT_MAX_SIZE_IN_BYTES,
+				false);
+		final Random rng = new Random(
+				42);
+		final Set<ByteArrayId> expected = new HashSet<ByteArrayId>();
+		for (int i = 0; i < 50000; i++) {
+			final byte[] dataId = dataId(rng.nextInt(20000));
+			Assert.assertEquals(
+					expected.add(new ByteArrayId(
+							dataId)),
+					set.add(
+							ADAPTER_ID,
+							dataId,
+							-1));
+		}
+		Assert.assertEquals(
+				expected.size(),
+				set.getEntryCount());
+		// the same data ID for another adapter is not a duplicate
+		Assert.assertTrue(set.add(
+				OTHER_ADAPTER_ID,
+				dataId(0),
+				-1));
+		Assert.assertEquals(
+				0,
+				set.getOverflowCount());
+		set.close();
+	}
+
+	@Test
+	public void testEvictAfterAllOccurrences() {
+		final VisitedDataIdSet set = new VisitedDataIdSet(
+				DedupeFilter.DEFAULT_MAX_SIZE_IN_BYTES,
+				false);
+		for (int i = 0; i < 10000; i++) {
+			Assert.assertTrue(set.add(
+					ADAPTER_ID,
+					dataId(i),
+					3));
+		}
+		for (int i = 0; i < 10000; i++) {
+			Assert.assertFalse(set.add(
+					ADAPTER_ID,
+					dataId(i),
+					3));
+			Assert.assertFalse(set.add(
+					ADAPTER_ID,
+					dataId(i),
+					3));
+		}
+		Assert.assertEquals(
+				0,
+				set.getEntryCount());
+		Assert.assertEquals(
+				10000,
+				set.getEvictionCount());
+		Assert.assertEquals(
+				10000,
+				set.getPeakEntryCount());
+		// IDs that only occur once are never remembered
+		Assert.assertTrue(set.add(
+				ADAPTER_ID,
+				dataId(0),
+				1));
+		Assert.assertEquals(
+				0,
+				set.getEntryCount());
+		set.close();
+	}
+
+	@Test
+	public void testOverflowWithinBudget() {
+		final long maxSizeInBytes = 64 * 1024;
+		final VisitedDataIdSet set = new VisitedDataIdSet(
+				maxSizeInBytes,
+				false);
+		for (int i = 0; i < 100000; i++) {
+			Assert.assertTrue(set.add(
+					ADAPTER_ID,
+					dataId(i),
+					-1));
+		}
+		Assert.assertTrue(set.getPeakSizeInBytes() <= maxSizeInBytes);
+		Assert.assertTrue(set.getOverflowCount() > 0);
+		Assert.assertEquals(
+				100000,
+				set.getEntryCount() + set.getOverflowCount());
+		// the IDs that were remembered are still de-duplicated
+		Assert.assertFalse(set.add(
+				ADAPTER_ID,
+				dataId(0),
+				-1));
+		set.close();
+	}
+
+	@Test
+	public void testSpill() {
+		final long maxSizeInBytes = 1024 * 1024;
+		final Set<String> spillFiles = getSpillFiles();
+		final VisitedDataIdSet set = new VisitedDataIdSet(
+				maxSizeInBytes,
+				true);
+		final Random rng = new Random(
+				7);
+		final Set<ByteArrayId> expected = new HashSet<ByteArrayId>();
+		for (int i = 0; i < 400000; i++) {
+			final byte[] dataId = dataId(rng.nextInt(200000));
+			Assert.assertEquals(
+					expected.add(new ByteArrayId(
+							dataId)),
+					set.add(
+							ADAPTER_ID,
+							dataId,
+							-1));
+		}
+		Assert.assertTrue(set.getSpilledEntryCount() > 0);
+		Assert.assertEquals(
+				0,
+				set.getOverflowCount());
+		Assert.assertEquals(
+				expected.size(),
+				set.getEntryCount());
+		Assert.assertTrue(set.getPeakSizeInBytes() <= maxSizeInBytes);
+		Assert.assertTrue(getSpillFiles().size() > spillFiles.size());
+		set.close();
+		Assert.assertEquals(
+				0,
+				set.getEntryCount());
+		// the spilled files are deleted when the set is closed
+		Assert.assertEquals(
+				spillFiles,
+				getSpillFiles());
+	}
+
+	private static Set<String> getSpillFiles() {
+		final Set<String> spillFiles = new HashSet<String>();
+		final String[] fileNames = new File(
+				System.getProperty("java.io.tmpdir")).list();
+		if (fileNames != null) {
+			for (final String fileName : fileNames) {
+				if (fileName.startsWith("geowave-dedupe")) {
+					spillFiles.add(fileName);
+				}
+			}
+		}
+		return spillFiles;
+	}
+
+	@Test
+	public void testFilterSerialization() {
+		final MultiIndexDedupeFilter filter = new MultiIndexDedupeFilter(
+				1024,
+				true);
+		filter.setMultiIndexSupportEnabled(false);
+		final MultiIndexDedupeFilter deserialized = new MultiIndexDedupeFilter();
+		deserialized.fromBinary(filter.toBinary());
+		Assert.assertFalse(deserialized.supportsMultipleIndices());
+		Assert.assertEquals(
+				1024,
+				deserialized.getMaxSizeInBytes());
+		Assert.assertTrue(deserialized.isSpillToDisk());
+
+		// filters serialized without options use the defaults
+		final DedupeFilter dedupeFilter = new DedupeFilter(
+				1024,
+				true);
+		dedupeFilter.fromBinary(new byte[] {});
+		Assert.assertEquals(
+				DedupeFilter.DEFAULT_MAX_SIZE_IN_BYTES,
+				dedupeFilter.getMaxSizeInBytes());
+		Assert.assertFalse(dedupeFilter.isSpillToDisk());
+	}
+
+	private static byte[] dataId(
+			final int i ) {
+		return ByteBuffer.allocate(
+				8).putInt(
+				i).putInt(
+				i * 31).array();
+	}
+}
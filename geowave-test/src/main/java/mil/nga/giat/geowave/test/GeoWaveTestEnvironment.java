@@ -95,6 +95,24 @@ abstract public class GeoWaveTestEnvironment
 		IngestMain.main(args);
 	}
 
+	protected void testLocalBulkIngest(
+			final IndexType indexType,
+			final String ingestFilePath ) {
+		// ingest a shapefile by writing sorted files to a work directory and
+		// bulk importing them, rather than writing through batch writers
+		LOGGER.warn("Bulk ingesting '" + ingestFilePath + "' - this may take several minutes...");
+		final File bulkIngestDirectory = new File(
+				TEMP_DIR,
+				"bulk_" + System.currentTimeMillis());
+		final String[] args = StringUtils.split(
+				"-localingest -t geotools-vector -b " + ingestFilePath + " -z " + zookeeper + " -i " + accumuloInstance + " -u " + accumuloUser + " -p " + accumuloPassword + " -n " + TEST_NAMESPACE + " -dim " + (indexType.equals(IndexType.SPATIAL_VECTOR) ? "spatial" : "spatial-temporal") + " -bulk " + bulkIngestDirectory.getAbsolutePath(),
+				' ');
+		IngestMain.main(args);
+		Assert.assertFalse(
+				"Bulk ingest directory was not fully imported",
+				bulkIngestDirectory.exists());
+	}
+
 	@BeforeClass
 	public static void setup()
 			throws IOException {
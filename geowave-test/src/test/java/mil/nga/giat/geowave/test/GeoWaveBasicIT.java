@@ -166,6 +166,46 @@ public class GeoWaveBasicIT extends
 		}
 	}
 
+	@Test
+	public void testBulkIngestAndQuerySpatialPoints() {
+		final Index spatialIndex = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		testLocalBulkIngest(
+				IndexType.SPATIAL_VECTOR,
+				HAIL_SHAPEFILE_FILE);
+
+		try {
+			testQuery(
+					new File(
+							TEST_BOX_FILTER_FILE).toURI().toURL(),
+					new URL[] {
+						new File(
+								HAIL_EXPECTED_BOX_FILTER_RESULTS_FILE).toURI().toURL()
+					},
+					spatialIndex,
+					"bounding box constraint only");
+		}
+		catch (final Exception e) {
+			e.printStackTrace();
+			try {
+				accumuloOperations.deleteAll();
+			}
+			catch (TableNotFoundException | AccumuloSecurityException | AccumuloException ex) {
+				LOGGER.error(
+						"Unable to clear accumulo namespace",
+						ex);
+			}
+			Assert.fail("Error occurred while testing a bounding box query of bulk ingested data: '" + e.getLocalizedMessage() + "'");
+		}
+		try {
+			accumuloOperations.deleteAll();
+		}
+		catch (TableNotFoundException | AccumuloSecurityException | AccumuloException ex) {
+			LOGGER.error(
+					"Unable to clear accumulo namespace",
+					ex);
+		}
+	}
+
 	@Test
 	public void testIngestAndQuerySpatialTemporalPointsAndLines() {
 		// ingest both lines and points
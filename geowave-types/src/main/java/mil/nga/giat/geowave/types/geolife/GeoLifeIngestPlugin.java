@@ -52,10 +52,8 @@ public class GeoLifeIngestPlugin implements
 
 	private final static Logger LOGGER = Logger.getLogger(GeoLifeIngestPlugin.class);
 
-	private final SimpleFeatureBuilder geolifePointBuilder;
 	private final SimpleFeatureType geolifePointType;
 
-	private final SimpleFeatureBuilder geolifeTrackBuilder;
 	private final SimpleFeatureType geolifeTrackType;
 
 	private final ByteArrayId pointKey;
@@ -68,14 +66,10 @@ public class GeoLifeIngestPlugin implements
 		geolifePointType = GeoLifeUtils.createGeoLifePointDataType();
 		pointKey = new ByteArrayId(
 				StringUtils.stringToBinary(GeoLifeUtils.GEOLIFE_POINT_FEATURE));
-		geolifePointBuilder = new SimpleFeatureBuilder(
-				geolifePointType);
 
 		geolifeTrackType = GeoLifeUtils.createGeoLifeTrackDataType();
 		trackKey = new ByteArrayId(
 				StringUtils.stringToBinary(GeoLifeUtils.GEOLIFE_TRACK_FEATURE));
-		geolifeTrackBuilder = new SimpleFeatureBuilder(
-				geolifeTrackType);
 
 		supportedIndices = new Index[] {
 			IndexType.SPATIAL_VECTOR.createDefaultIndex(),
@@ -191,6 +185,12 @@ public class GeoLifeIngestPlugin implements
 			final String globalVisibility ) {
 
 		final List<GeoWaveData<SimpleFeature>> featureData = new ArrayList<GeoWaveData<SimpleFeature>>();
+		// the builders are not thread safe, and files may be converted
+		// concurrently
+		final SimpleFeatureBuilder geolifePointBuilder = new SimpleFeatureBuilder(
+				geolifePointType);
+		final SimpleFeatureBuilder geolifeTrackBuilder = new SimpleFeatureBuilder(
+				geolifeTrackType);
 
 		final InputStream in = new ByteArrayInputStream(
 				hfile.getOriginalFile().array());
@@ -12,6 +12,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.stream.XMLStreamException;
 
@@ -59,7 +60,7 @@ public class GpxIngestPlugin implements
 	private final static String TAG_SEPARATOR = " ||| ";
 
 	private Map<Long, GpxTrack> metadata = null;
-	private static long currentFreeTrackId = 0;
+	private static final AtomicLong currentFreeTrackId = new AtomicLong();
 
 	private final Index[] supportedIndices;
 
@@ -190,7 +191,10 @@ public class GpxIngestPlugin implements
 		if (metadata != null) {
 			try {
 				final long id = Long.parseLong(FilenameUtils.removeExtension(input.getName()));
-				track = metadata.remove(id);
+				// files may be converted concurrently
+				synchronized (metadata) {
+					track = metadata.remove(id);
+				}
 			}
 			catch (final NumberFormatException e) {
 				LOGGER.info("OSM metadata found, but track file name is not a numeric ID");
@@ -198,7 +202,7 @@ public class GpxIngestPlugin implements
 		}
 		if (track == null) {
 			track = new GpxTrack();
-			track.setTrackid(currentFreeTrackId++);
+			track.setTrackid(currentFreeTrackId.getAndIncrement());
 		}
 
 		try {
@@ -44,7 +44,6 @@ public class TdriveIngestPlugin implements
 
 	private final static Logger LOGGER = Logger.getLogger(TdriveIngestPlugin.class);
 
-	private final SimpleFeatureBuilder tdrivepointBuilder;
 	private final SimpleFeatureType tdrivepointType;
 
 	private final ByteArrayId pointKey;
@@ -57,8 +56,6 @@ public class TdriveIngestPlugin implements
 
 		pointKey = new ByteArrayId(
 				StringUtils.stringToBinary(TdriveUtils.TDRIVE_POINT_FEATURE));
-		tdrivepointBuilder = new SimpleFeatureBuilder(
-				tdrivepointType);
 		supportedIndices = new Index[] {
 			IndexType.SPATIAL_VECTOR.createDefaultIndex(),
 			IndexType.SPATIAL_TEMPORAL_VECTOR.createDefaultIndex()
@@ -207,7 +204,10 @@ public class TdriveIngestPlugin implements
 
 		final List<GeoWaveData<SimpleFeature>> featureData = new ArrayList<GeoWaveData<SimpleFeature>>();
 
-		// tdrivepointBuilder = new SimpleFeatureBuilder(tdrivepointType);
+		// the builder is not thread safe, and files may be converted
+		// concurrently
+		final SimpleFeatureBuilder tdrivepointBuilder = new SimpleFeatureBuilder(
+				tdrivepointType);
 		tdrivepointBuilder.set(
 				"geometry",
 				GeometryUtils.GEOMETRY_FACTORY.createPoint(new Coordinate(
@@ -4,16 +4,20 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import mil.nga.giat.geowave.accumulo.AccumuloDataStore;
 import mil.nga.giat.geowave.accumulo.AccumuloOperations;
 import mil.nga.giat.geowave.accumulo.AccumuloOptions;
+import mil.nga.giat.geowave.accumulo.query.AccumuloConstraintsQuery;
+import mil.nga.giat.geowave.accumulo.query.IndexQueryPlanner;
 import mil.nga.giat.geowave.accumulo.util.CloseableIteratorWrapper;
 import mil.nga.giat.geowave.index.ByteArrayId;
 import mil.nga.giat.geowave.store.CloseableIterator;
 import mil.nga.giat.geowave.store.adapter.AdapterStore;
 import mil.nga.giat.geowave.store.adapter.DataAdapter;
 import mil.nga.giat.geowave.store.adapter.MemoryAdapterStore;
+import mil.nga.giat.geowave.store.adapter.statistics.DataStatistics;
 import mil.nga.giat.geowave.store.adapter.statistics.DataStatisticsStore;
 import mil.nga.giat.geowave.store.index.Index;
 import mil.nga.giat.geowave.store.index.IndexStore;
@@ -90,6 +94,156 @@ public class VectorDataStore extends
 		return this.statisticsStore;
 	}
 
+	/**
+	 * Choose the cheapest index to read the features of an adapter from, where
+	 * each candidate index is read with its own query. Without cost based index
+	 * selection an index is only chosen if it is the only candidate that holds
+	 * the adapter, as known from the adapter's row range histograms, because an
+	 * adapter in several indices may have features that are missing from some
+	 * of them.
+	 * 
+	 * @param adapter
+	 *            the adapter
+	 * @param queriesPerIndex
+	 *            the query to read each candidate index with, a null query
+	 *            implies all features
+	 * @param authorizations
+	 *            the authorizations for reading the statistics
+	 * @return the cheapest index, or null if the adapter is in more than one
+	 *         candidate index and cost based index selection is disabled or the
+	 *         cost of an index is unknown, in which case every candidate index
+	 *         must be read
+	 */
+	public Index chooseIndex(
+			final FeatureDataAdapter adapter,
+			final Map<Index, Query> queriesPerIndex,
+			final String... authorizations ) {
+		final IndexQueryPlanner planner = new IndexQueryPlanner(
+				adapterStore,
+				statisticsStore,
+				AccumuloConstraintsQuery.getRangePlanner(),
+				true);
+		if (!accumuloOptions.isCostBasedIndexSelection()) {
+			return planner.chooseOnlyIndex(
+					adapter.getAdapterId(),
+					queriesPerIndex.keySet(),
+					authorizations);
+		}
+		return planner.chooseIndex(
+				adapter.getAdapterId(),
+				queriesPerIndex,
+				authorizations);
+	}
+
+	/**
+	 * Estimate the number of rows of an adapter that a query reads from an
+	 * index, using the row range histogram of the index. The estimate includes
+	 * rows that the query's filters would reject.
+	 * 
+	 * @param adapter
+	 *            the adapter
+	 * @param index
+	 *            the index
+	 * @param query
+	 *            the query, a null query implies all features
+	 * @param authorizations
+	 *            the authorizations for reading the statistics
+	 * @return the estimated number of rows, or null if it is unknown
+	 */
+	public Long estimateRowCount(
+			final FeatureDataAdapter adapter,
+			final Index index,
+			final Query query,
+			final String... authorizations ) {
+		return new IndexQueryPlanner(
+				adapterStore,
+				statisticsStore,
+				AccumuloConstraintsQuery.getRangePlanner(),
+				true).estimateRowCount(
+				adapter.getAdapterId(),
+				index,
+				query,
+				authorizations);
+	}
+
+	/**
+	 * Aggregate the features that match a query into statistics within the
+	 * tablet servers, rather than returning the features. The features are
+	 * filtered by CQL within the tablet servers before being aggregated.
+	 * 
+	 * @param statistics
+	 *            the empty statistics to aggregate the features into
+	 * @return the statistics, or null if the features could not be aggregated
+	 */
+	public List<DataStatistics<SimpleFeature>> aggregate(
+			final FeatureDataAdapter adapter,
+			final Index index,
+			final Query query,
+			final Filter filter,
+			final List<DataStatistics<SimpleFeature>> statistics,
+			final String... authorizations ) {
+		store(adapter);
+		final List<ByteArrayId> adapterIds = Arrays.asList(new ByteArrayId[] {
+			adapter.getAdapterId()
+		});
+		// the CQL iterator is always used, even if there is nothing to filter,
+		// because it prepares the tablet server to decode features
+		final Filter cqlFilter = filter == null ? Filter.INCLUDE : filter;
+
+		final AccumuloCqlConstraintsQuery accumuloQuery;
+		if (query == null) {
+			accumuloQuery = new AccumuloCqlConstraintsQuery(
+					adapterIds,
+					index,
+					cqlFilter,
+					adapter,
+					authorizations);
+		}
+		else if (query.isSupported(index)) {
+			accumuloQuery = new AccumuloCqlConstraintsQuery(
+					adapterIds,
+					index,
+					query.getIndexConstraints(index.getIndexStrategy()),
+					query.createFilters(index.getIndexModel()),
+					cqlFilter,
+					adapter,
+					authorizations);
+		}
+		else {
+			return statistics;
+		}
+		return accumuloQuery.aggregate(
+				accumuloOperations,
+				adapter,
+				statistics);
+	}
+
+	public CloseableIterator<SimpleFeature> query(
+			final FeatureDataAdapter adapter,
+			final Index index,
+			final Query query,
+			final Filter filter,
+			final Integer limit,
+			final String... authorizations ) {
+		return query(
+				adapter,
+				index,
+				query,
+				filter,
+				limit,
+				null,
+				authorizations);
+	}
+
+	/**
+	 * Query for features, only reading the given attributes of them, along with
+	 * the attributes in the common index model. The rest of the attributes of
+	 * the features are null.
+	 * 
+	 * @param fieldIds
+	 *            the IDs of the attributes to read, or null to read every
+	 *            attribute
+	 */
 	@SuppressWarnings("unchecked")
 	public CloseableIterator<SimpleFeature> query(
 			final FeatureDataAdapter adapter,
@@ -97,6 +251,7 @@ public class VectorDataStore extends
 			final Query query,
 			final Filter filter,
 			final Integer limit,
+			final List<ByteArrayId> fieldIds,
 			final String... authorizations ) {
 		store(adapter);
 		final List<ByteArrayId> adapterIds = Arrays.asList(new ByteArrayId[] {
@@ -107,33 +262,34 @@ public class VectorDataStore extends
 					adapter
 				});
 
+		final AccumuloCqlConstraintsQuery accumuloQuery;
 		if (query == null) {
-			return (CloseableIterator<SimpleFeature>) new AccumuloCqlConstraintsQuery(
+			accumuloQuery = new AccumuloCqlConstraintsQuery(
 					adapterIds,
 					index,
 					filter,
 					adapter,
-					authorizations).query(
-					accumuloOperations,
-					adapterStore,
-					limit);
+					authorizations);
 		}
 		else if (query.isSupported(index)) {
 			// construct the query
-			return (CloseableIterator<SimpleFeature>) new AccumuloCqlConstraintsQuery(
+			accumuloQuery = new AccumuloCqlConstraintsQuery(
 					adapterIds,
 					index,
 					query.getIndexConstraints(index.getIndexStrategy()),
 					query.createFilters(index.getIndexModel()),
 					filter,
 					adapter,
-					authorizations).query(
-					accumuloOperations,
-					adapterStore,
-					limit);
+					authorizations);
 		}
-
-		return new CloseableIterator.Empty<SimpleFeature>();
+		else {
+			return new CloseableIterator.Empty<SimpleFeature>();
+		}
+		accumuloQuery.setFieldIds(fieldIds);
+		return (CloseableIterator<SimpleFeature>) accumuloQuery.query(
+				accumuloOperations,
+				adapterStore,
+				limit);
 	}
 
 	public CloseableIterator<SimpleFeature> query(
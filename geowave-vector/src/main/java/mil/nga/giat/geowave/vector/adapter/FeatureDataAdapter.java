@@ -2,29 +2,39 @@ package mil.nga.giat.geowave.vector.adapter;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import mil.nga.giat.geowave.accumulo.mapreduce.HadoopDataAdapter;
 import mil.nga.giat.geowave.accumulo.mapreduce.HadoopWritableSerializer;
 import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.index.PersistenceUtils;
 import mil.nga.giat.geowave.index.StringUtils;
+import mil.nga.giat.geowave.store.GeometryEncoding;
+import mil.nga.giat.geowave.store.WKBGeometryEncoding;
 import mil.nga.giat.geowave.store.adapter.AbstractDataAdapter;
 import mil.nga.giat.geowave.store.adapter.AdapterPersistenceEncoding;
 import mil.nga.giat.geowave.store.adapter.IndexFieldHandler;
+import mil.nga.giat.geowave.store.adapter.IndexedAdapterPersistenceEncoding;
 import mil.nga.giat.geowave.store.adapter.NativeFieldHandler;
 import mil.nga.giat.geowave.store.adapter.NativeFieldHandler.RowBuilder;
 import mil.nga.giat.geowave.store.adapter.PersistentIndexFieldHandler;
 import mil.nga.giat.geowave.store.adapter.statistics.DataStatistics;
 import mil.nga.giat.geowave.store.adapter.statistics.DataStatisticsVisibilityHandler;
 import mil.nga.giat.geowave.store.adapter.statistics.StatisticalDataAdapter;
+import mil.nga.giat.geowave.store.data.PersistentValue;
+import mil.nga.giat.geowave.store.data.field.BasicWriter;
+import mil.nga.giat.geowave.store.data.field.BasicWriter.GeometryWriter;
 import mil.nga.giat.geowave.store.data.field.FieldReader;
 import mil.nga.giat.geowave.store.data.field.FieldUtils;
 import mil.nga.giat.geowave.store.data.field.FieldVisibilityHandler;
 import mil.nga.giat.geowave.store.data.field.FieldWriter;
 import mil.nga.giat.geowave.store.data.visibility.VisibilityManagement;
+import mil.nga.giat.geowave.store.dimension.DimensionField;
 import mil.nga.giat.geowave.store.dimension.Time;
 import mil.nga.giat.geowave.store.index.CommonIndexModel;
 import mil.nga.giat.geowave.store.index.CommonIndexValue;
+import mil.nga.giat.geowave.store.index.Index;
 import mil.nga.giat.geowave.vector.plugin.GeoWaveGTDataStore;
 import mil.nga.giat.geowave.vector.plugin.visibility.AdaptorProxyFieldLevelVisibilityHandler;
 import mil.nga.giat.geowave.vector.plugin.visibility.JsonDefinitionColumnVisibilityManagement;
@@ -82,6 +92,11 @@ import com.vividsolutions.jts.geom.Geometry;
  * If the feature type contains a UserData property 'time' for *all* time
  * attributes with Boolean.FALSE, then a temporal index is not used.
  * 
+ * Geometry is written as well-known binary unless another GeometryEncoding is
+ * set with setGeometryEncoding() before the adapter is first stored, such as a
+ * CompactGeometryEncoding, which is typically several times smaller for tracks
+ * and polygons.
+ * 
  * 
  */
 @SuppressWarnings("unchecked")
@@ -91,6 +106,9 @@ public class FeatureDataAdapter extends
 		HadoopDataAdapter<SimpleFeature, FeatureWritable>
 {
 	private final static Logger LOGGER = Logger.getLogger(FeatureDataAdapter.class);
+	// the encoded type is UTF-8, which never contains a 0xFF byte, so this
+	// cannot be the end of an adapter stored without a geometry encoding
+	private final static int GEOMETRY_ENCODING_MARKER = 0xFFFFFFFF;
 	// the original coordinate system will always be represented internally by
 	// the persisted type
 	private SimpleFeatureType persistedType;
@@ -105,6 +123,7 @@ public class FeatureDataAdapter extends
 	private String visibilityAttributeName = "GEOWAVE_VISIBILITY";
 	private VisibilityManagement<SimpleFeature> fieldVisibilityManagement;
 	private TimeDescriptors timeDescriptors = null;
+	private GeometryEncoding geometryEncoding = new WKBGeometryEncoding();
 
 	protected FeatureDataAdapter() {}
 
@@ -209,6 +228,24 @@ public class FeatureDataAdapter extends
 		return fieldVisibilityManagement;
 	}
 
+	public GeometryEncoding getGeometryEncoding() {
+		return geometryEncoding;
+	}
+
+	/**
+	 * Set the encoding that geometry attributes are written with. Geometry is
+	 * read regardless of the encoding it was written with, but the encoding is
+	 * persisted with the adapter, so it must be set before the adapter is first
+	 * stored.
+	 * 
+	 * @param geometryEncoding
+	 *            the geometry encoding
+	 */
+	public void setGeometryEncoding(
+			final GeometryEncoding geometryEncoding ) {
+		this.geometryEncoding = geometryEncoding;
+	}
+
 	private IndexFieldHandler<SimpleFeature, Time, Object> getTimeRangeHandler(
 			final SimpleFeatureType featureType ) {
 		final TimeDescriptors timeDescriptors = inferTimeAttributeDescriptor(featureType);
@@ -251,7 +288,8 @@ public class FeatureDataAdapter extends
 					internalType.getGeometryDescriptor(),
 					new AdaptorProxyFieldLevelVisibilityHandler(
 							internalType.getGeometryDescriptor().getLocalName(),
-							this)));
+							this),
+					this));
 			return defaultHandlers;
 		}
 		LOGGER.warn("Simple Feature Type could not be used for handling the indexed data");
@@ -284,7 +322,14 @@ public class FeatureDataAdapter extends
 
 		final Class<?> bindingClass = descriptor.getType().getBinding();
 		FieldWriter<SimpleFeature, Object> basicWriter;
-		if (fieldVisiblityHandler != null) {
+		if (Geometry.class.isAssignableFrom(bindingClass)) {
+			// geometry attributes are written with this adapter's encoding
+			basicWriter = (FieldWriter<SimpleFeature, Object>) (FieldWriter<?, ?>) new BasicWriter<SimpleFeature, Geometry>(
+					new GeometryWriter(
+							geometryEncoding),
+					fieldVisiblityHandler);
+		}
+		else if (fieldVisiblityHandler != null) {
 			basicWriter = (FieldWriter<SimpleFeature, Object>) FieldUtils.getDefaultWriterForClass(
 					bindingClass,
 					fieldVisiblityHandler);
@@ -322,8 +367,9 @@ public class FeatureDataAdapter extends
 		else {
 			namespaceBytes = new byte[0];
 		}
+		final byte[] geometryEncodingBytes = PersistenceUtils.toBinary(geometryEncoding);
 		final byte[] encodedTypeBytes = StringUtils.stringToBinary(encodedType);
-		final ByteBuffer buf = ByteBuffer.allocate(encodedTypeBytes.length + typeNameBytes.length + namespaceBytes.length + fieldVisibilityAtributeNameBytes.length + visibilityManagementClassNameBytes.length + timeAndRangeBytes.length + 20);
+		final ByteBuffer buf = ByteBuffer.allocate(encodedTypeBytes.length + typeNameBytes.length + namespaceBytes.length + fieldVisibilityAtributeNameBytes.length + visibilityManagementClassNameBytes.length + timeAndRangeBytes.length + geometryEncodingBytes.length + 28);
 		buf.putInt(typeNameBytes.length);
 		buf.putInt(namespaceBytes.length);
 		buf.putInt(fieldVisibilityAtributeNameBytes.length);
@@ -335,6 +381,11 @@ public class FeatureDataAdapter extends
 		buf.put(visibilityManagementClassNameBytes);
 		buf.put(timeAndRangeBytes);
 		buf.put(encodedTypeBytes);
+		// the geometry encoding follows the fields of adapters stored before
+		// it was added, so that they can still be read
+		buf.put(geometryEncodingBytes);
+		buf.putInt(geometryEncodingBytes.length);
+		buf.putInt(GEOMETRY_ENCODING_MARKER);
 
 		return buf.array();
 	}
@@ -355,6 +406,25 @@ public class FeatureDataAdapter extends
 		buf.get(fieldVisibilityAtributeNameBytes);
 		buf.get(visibilityManagementClassNameBytes);
 		buf.get(timeAndRangeBytes);
+		final int fieldsLength = typeNameBytes.length + namespaceBytes.length + fieldVisibilityAtributeNameBytes.length + visibilityManagementClassNameBytes.length + timeAndRangeBytes.length + 20;
+
+		// adapters stored before the geometry encoding was added end with the
+		// encoded type and wrote well-known binary
+		int encodedTypeLength = bytes.length - fieldsLength;
+		geometryEncoding = new WKBGeometryEncoding();
+		if ((encodedTypeLength >= 8) && (buf.getInt(bytes.length - 4) == GEOMETRY_ENCODING_MARKER)) {
+			final byte[] geometryEncodingBytes = new byte[buf.getInt(bytes.length - 8)];
+			encodedTypeLength -= geometryEncodingBytes.length + 8;
+			System.arraycopy(
+					bytes,
+					fieldsLength + encodedTypeLength,
+					geometryEncodingBytes,
+					0,
+					geometryEncodingBytes.length);
+			geometryEncoding = PersistenceUtils.fromBinary(
+					geometryEncodingBytes,
+					GeometryEncoding.class);
+		}
 
 		final String typeName = StringUtils.stringFromBinary(typeNameBytes);
 		String namespace = StringUtils.stringFromBinary(namespaceBytes);
@@ -373,7 +443,7 @@ public class FeatureDataAdapter extends
 					ex);
 		}
 
-		final byte[] encodedTypeBytes = new byte[bytes.length - typeNameBytes.length - namespaceBytes.length - fieldVisibilityAtributeNameBytes.length - visibilityManagementClassNameBytes.length - timeAndRangeBytes.length - 20];
+		final byte[] encodedTypeBytes = new byte[encodedTypeLength];
 		buf.get(encodedTypeBytes);
 
 		final String encodedType = StringUtils.stringFromBinary(encodedTypeBytes);
@@ -437,6 +507,21 @@ public class FeatureDataAdapter extends
 		return reprojectedType;
 	}
 
+	@Override
+	public SimpleFeature decode(
+			final IndexedAdapterPersistenceEncoding data,
+			final Index index ) {
+		// the attributes are only decoded when they are requested, so
+		// attributes that a filter or a renderer never looks at are never
+		// decoded
+		return new LazySimpleFeature(
+				reprojectedType,
+				StringUtils.stringFromBinary(data.getDataId().getBytes()),
+				new EncodedAttributeDecoder(
+						data,
+						index));
+	}
+
 	@Override
 	public AdapterPersistenceEncoding encode(
 			final SimpleFeature entry,
@@ -591,4 +676,61 @@ public class FeatureDataAdapter extends
 		}
 
 	}
+
+	/**
+	 * Decodes the attributes of a lazy simple feature from the persistence
+	 * encoding of its row, just as
+	 * {@link AbstractDataAdapter#decode(IndexedAdapterPersistenceEncoding, Index)}
+	 * would, but one attribute at a time
+	 */
+	private class EncodedAttributeDecoder implements
+			LazySimpleFeature.AttributeDecoder
+	{
+		private final IndexedAdapterPersistenceEncoding data;
+		private final Index index;
+
+		public EncodedAttributeDecoder(
+				final IndexedAdapterPersistenceEncoding data,
+				final Index index ) {
+			this.data = data;
+			this.index = index;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public Object decode(
+				final String attributeName ) {
+			final ByteArrayId fieldId = new ByteArrayId(
+					StringUtils.stringToBinary(attributeName));
+			// extended values take precedence, as they do when a row is built
+			final Object extendedValue = data.getAdapterExtendedData().getValue(
+					fieldId);
+			if (extendedValue != null) {
+				return extendedValue;
+			}
+			for (final DimensionField<? extends CommonIndexValue> dimension : index.getIndexModel().getDimensions()) {
+				final IndexFieldHandler<SimpleFeature, CommonIndexValue, Object> fieldHandler = (IndexFieldHandler<SimpleFeature, CommonIndexValue, Object>) getFieldHandler(dimension);
+				if ((fieldHandler == null) || !Arrays.asList(
+						fieldHandler.getNativeFieldIds()).contains(
+						fieldId)) {
+					continue;
+				}
+				final CommonIndexValue value = data.getCommonData().getValue(
+						dimension.getFieldId());
+				if (value == null) {
+					continue;
+				}
+				final PersistentValue<Object>[] values = fieldHandler.toNativeValues(value);
+				if (values != null) {
+					for (final PersistentValue<Object> v : values) {
+						if (v.getId().equals(
+								fieldId)) {
+							return v.getValue();
+						}
+					}
+				}
+			}
+			return null;
+		}
+	}
 }
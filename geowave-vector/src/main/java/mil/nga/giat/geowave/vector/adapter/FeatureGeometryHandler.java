@@ -21,6 +21,7 @@ public class FeatureGeometryHandler implements
 {
 	private final FeatureAttributeHandler nativeGeometryHandler;
 	private final FieldVisibilityHandler<SimpleFeature, Object> visibilityHandler;
+	private final FeatureDataAdapter adapter;
 
 	public FeatureGeometryHandler(
 			final AttributeDescriptor geometryAttrDesc ) {
@@ -32,9 +33,30 @@ public class FeatureGeometryHandler implements
 	public FeatureGeometryHandler(
 			final AttributeDescriptor geometryAttrDesc,
 			final FieldVisibilityHandler<SimpleFeature, Object> visibilityHandler ) {
+		this(
+				geometryAttrDesc,
+				visibilityHandler,
+				null);
+	}
+
+	/**
+	 * @param geometryAttrDesc
+	 *            the geometry attribute
+	 * @param visibilityHandler
+	 *            the visibility handler of the geometry
+	 * @param adapter
+	 *            the adapter whose geometry encoding the geometry is written
+	 *            with, which is referenced rather than its encoding because the
+	 *            handlers are created before the adapter is fully initialized
+	 */
+	public FeatureGeometryHandler(
+			final AttributeDescriptor geometryAttrDesc,
+			final FieldVisibilityHandler<SimpleFeature, Object> visibilityHandler,
+			final FeatureDataAdapter adapter ) {
 		nativeGeometryHandler = new FeatureAttributeHandler(
 				geometryAttrDesc);
 		this.visibilityHandler = visibilityHandler;
+		this.adapter = adapter;
 	}
 
 	@Override
@@ -60,7 +82,8 @@ public class FeatureGeometryHandler implements
 		}
 		return new GeometryWrapper(
 				geometry,
-				visibility);
+				visibility,
+				adapter != null ? adapter.getGeometryEncoding() : null);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -0,0 +1,346 @@
+package mil.nga.giat.geowave.vector.adapter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.filter.identity.FeatureIdImpl;
+import org.geotools.util.Converters;
+import org.opengis.feature.GeometryAttribute;
+import org.opengis.feature.IllegalAttributeException;
+import org.opengis.feature.Property;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.identity.FeatureId;
+import org.opengis.geometry.BoundingBox;
+
+/**
+ * A simple feature that decodes each of its attributes the first time the
+ * attribute is requested. Filters, renderers and re-typing feature readers
+ * typically only look at a few of the attributes of a feature through
+ * {@link #getAttribute(String)} and {@link #getDefaultGeometry()}, so the rest
+ * of the attributes never have to be decoded.
+ *
+ * Methods that need every attribute, such as the property accessors and the
+ * setters, build a fully decoded feature that this feature delegates to from
+ * then on. The attribute decoder is only used until then, so a decoder that
+ * reads from a reused encoding must only be used while the encoding still
+ * holds this feature's row.
+ */
+public class LazySimpleFeature implements
+		SimpleFeature
+{
+	/**
+	 * Decodes the attributes of a lazy simple feature
+	 */
+	public static interface AttributeDecoder
+	{
+		/**
+		 * @param attributeName
+		 *            the name of the attribute
+		 * @return the value of the attribute, or null if it is not present
+		 */
+		public Object decode(
+				String attributeName );
+	}
+
+	private final SimpleFeatureType type;
+	private final String id;
+	private final AttributeDecoder decoder;
+	private final Object[] values;
+	private final boolean[] decoded;
+	private Map<Object, Object> userData;
+	private SimpleFeature feature;
+
+	public LazySimpleFeature(
+			final SimpleFeatureType type,
+			final String id,
+			final AttributeDecoder decoder ) {
+		this.type = type;
+		this.id = id;
+		this.decoder = decoder;
+		values = new Object[type.getAttributeCount()];
+		decoded = new boolean[values.length];
+	}
+
+	@Override
+	public String getID() {
+		return id;
+	}
+
+	@Override
+	public FeatureId getIdentifier() {
+		return new FeatureIdImpl(
+				id);
+	}
+
+	@Override
+	public SimpleFeatureType getType() {
+		return type;
+	}
+
+	@Override
+	public SimpleFeatureType getFeatureType() {
+		return type;
+	}
+
+	@Override
+	public Name getName() {
+		return type.getName();
+	}
+
+	@Override
+	public int getAttributeCount() {
+		return values.length;
+	}
+
+	@Override
+	public Object getAttribute(
+			final int index )
+			throws IndexOutOfBoundsException {
+		if (feature != null) {
+			return feature.getAttribute(index);
+		}
+		if (!decoded[index]) {
+			values[index] = decode(index);
+			decoded[index] = true;
+		}
+		return values[index];
+	}
+
+	@Override
+	public Object getAttribute(
+			final String name ) {
+		final int index = type.indexOf(name);
+		if (index < 0) {
+			return null;
+		}
+		return getAttribute(index);
+	}
+
+	@Override
+	public Object getAttribute(
+			final Name name ) {
+		return getAttribute(name.getLocalPart());
+	}
+
+	@Override
+	public List<Object> getAttributes() {
+		final List<Object> attributes = new ArrayList<Object>(
+				values.length);
+		for (int i = 0; i < values.length; i++) {
+			attributes.add(getAttribute(i));
+		}
+		return attributes;
+	}
+
+	@Override
+	public Object getDefaultGeometry() {
+		final GeometryDescriptor descriptor = type.getGeometryDescriptor();
+		if (descriptor == null) {
+			return null;
+		}
+		return getAttribute(descriptor.getLocalName());
+	}
+
+	@Override
+	public Map<Object, Object> getUserData() {
+		// the user data belongs to this feature, rather than to the decoded
+		// feature, so that it is the same map before and after decoding
+		if (userData == null) {
+			userData = new HashMap<Object, Object>();
+		}
+		return userData;
+	}
+
+	@Override
+	public boolean isNillable() {
+		return true;
+	}
+
+	@Override
+	public void setAttributes(
+			final List<Object> values ) {
+		getFeature().setAttributes(
+				values);
+	}
+
+	@Override
+	public void setAttributes(
+			final Object[] values ) {
+		getFeature().setAttributes(
+				values);
+	}
+
+	@Override
+	public void setAttribute(
+			final String name,
+			final Object value ) {
+		getFeature().setAttribute(
+				name,
+				value);
+	}
+
+	@Override
+	public void setAttribute(
+			final Name name,
+			final Object value ) {
+		getFeature().setAttribute(
+				name,
+				value);
+	}
+
+	@Override
+	public void setAttribute(
+			final int index,
+			final Object value )
+			throws IndexOutOfBoundsException {
+		getFeature().setAttribute(
+				index,
+				value);
+	}
+
+	@Override
+	public void setDefaultGeometry(
+			final Object geometry ) {
+		getFeature().setDefaultGeometry(
+				geometry);
+	}
+
+	@Override
+	public BoundingBox getBounds() {
+		return getFeature().getBounds();
+	}
+
+	@Override
+	public GeometryAttribute getDefaultGeometryProperty() {
+		return getFeature().getDefaultGeometryProperty();
+	}
+
+	@Override
+	public void setDefaultGeometryProperty(
+			final GeometryAttribute geometryAttribute ) {
+		getFeature().setDefaultGeometryProperty(
+				geometryAttribute);
+	}
+
+	@Override
+	public void setValue(
+			final Collection<Property> values ) {
+		getFeature().setValue(
+				values);
+	}
+
+	@Override
+	public Collection<? extends Property> getValue() {
+		return getFeature().getValue();
+	}
+
+	@Override
+	public Collection<Property> getProperties(
+			final Name name ) {
+		return getFeature().getProperties(
+				name);
+	}
+
+	@Override
+	public Property getProperty(
+			final Name name ) {
+		return getFeature().getProperty(
+				name);
+	}
+
+	@Override
+	public Collection<Property> getProperties(
+			final String name ) {
+		return getFeature().getProperties(
+				name);
+	}
+
+	@Override
+	public Collection<Property> getProperties() {
+		return getFeature().getProperties();
+	}
+
+	@Override
+	public Property getProperty(
+			final String name ) {
+		return getFeature().getProperty(
+				name);
+	}
+
+	@Override
+	public void validate()
+			throws IllegalAttributeException {
+		getFeature().validate();
+	}
+
+	@Override
+	public AttributeDescriptor getDescriptor() {
+		return getFeature().getDescriptor();
+	}
+
+	@Override
+	public void setValue(
+			final Object newValue ) {
+		getFeature().setValue(
+				newValue);
+	}
+
+	@Override
+	public int hashCode() {
+		return id.hashCode() * type.hashCode();
+	}
+
+	@Override
+	public boolean equals(
+			final Object obj ) {
+		if (obj == this) {
+			return true;
+		}
+		if (!(obj instanceof SimpleFeature)) {
+			return false;
+		}
+		final SimpleFeature other = (SimpleFeature) obj;
+		return id.equals(other.getID()) && type.equals(other.getType()) && getAttributes().equals(
+				other.getAttributes());
+	}
+
+	@Override
+	public String toString() {
+		return getFeature().toString();
+	}
+
+	private Object decode(
+			final int index ) {
+		final AttributeDescriptor descriptor = type.getDescriptor(index);
+		final Object value = decoder.decode(descriptor.getLocalName());
+		final Class<?> binding = descriptor.getType().getBinding();
+		if ((value != null) && !binding.isInstance(value)) {
+			// convert the value just as a feature builder would
+			final Object converted = Converters.convert(
+					value,
+					binding);
+			if (converted != null) {
+				return converted;
+			}
+		}
+		return value;
+	}
+
+	private SimpleFeature getFeature() {
+		if (feature == null) {
+			feature = SimpleFeatureBuilder.build(
+					type,
+					getAttributes(),
+					id);
+		}
+		return feature;
+	}
+}
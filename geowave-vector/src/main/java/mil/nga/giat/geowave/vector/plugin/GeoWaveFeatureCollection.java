@@ -1,6 +1,7 @@
 package mil.nga.giat.geowave.vector.plugin;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -10,6 +11,7 @@ import mil.nga.giat.geowave.store.CloseableIterator;
 import mil.nga.giat.geowave.store.adapter.statistics.BoundingBoxDataStatistics;
 import mil.nga.giat.geowave.store.adapter.statistics.CountDataStatistics;
 import mil.nga.giat.geowave.store.adapter.statistics.DataStatistics;
+import mil.nga.giat.geowave.store.adapter.statistics.NumericRangeDataStatistics;
 import mil.nga.giat.geowave.store.query.TemporalConstraintsSet;
 import mil.nga.giat.geowave.vector.stats.FeatureBoundingBoxStatistics;
 import mil.nga.giat.geowave.vector.stats.FeatureNumericRangeStatistics;
@@ -27,6 +29,7 @@ import org.geotools.feature.FeatureIterator;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.feature.visitor.MaxVisitor;
 import org.geotools.feature.visitor.MinVisitor;
+import org.geotools.filter.FidFilterImpl;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -35,6 +38,7 @@ import org.opengis.geometry.BoundingBox;
 import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.operation.TransformException;
 
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
 
@@ -56,6 +60,13 @@ public class GeoWaveFeatureCollection extends
 			DistributableRenderer.class);
 	public static final Hints.Key STATS_NAME = new Hints.Key(
 			String.class);
+	/**
+	 * Estimate the bounds and count of a filtered query from statistics, rather
+	 * than reading the features that match the filter. This overrides the
+	 * setting of the data store.
+	 */
+	public static final Hints.Key APPROXIMATE_STATISTICS = new Hints.Key(
+			Boolean.class);
 	private final static Logger LOGGER = Logger.getLogger(GeoWaveFeatureCollection.class);
 	private final GeoWaveFeatureReader reader;
 	private CloseableIterator<SimpleFeature> featureCursor;
@@ -78,19 +89,24 @@ public class GeoWaveFeatureCollection extends
 		if (query.getFilter().equals(
 				Filter.INCLUDE)) {
 			// GEOWAVE-60 optimization
-			final Map<ByteArrayId, DataStatistics<SimpleFeature>> statsMap = reader.getComponents().getDataStatistics(
-					reader.getTransaction());
-			if (statsMap.containsKey(CountDataStatistics.STATS_ID)) {
-				final CountDataStatistics stats = (CountDataStatistics) statsMap.get(CountDataStatistics.STATS_ID);
-				if ((stats != null) && stats.isSet()) {
-					return (int) stats.getCount();
-				}
+			final CountDataStatistics<SimpleFeature> stats = getCountStatistics();
+			if ((stats != null) && stats.isSet()) {
+				return (int) stats.getCount();
 			}
 		}
 		else if (query.getFilter().equals(
 				Filter.EXCLUDE)) {
 			return 0;
 		}
+		else if (isFeatureQuery()) {
+			final Long count = isApproximateStatistics() ? estimateCount() : aggregateCount();
+			if (count != null) {
+				final Integer limit = getLimit(query);
+				return (int) ((limit == null) ? count : Math.min(
+						count,
+						limit));
+			}
+		}
 
 		// fallback
 		int count = 0;
@@ -116,17 +132,23 @@ public class GeoWaveFeatureCollection extends
 		double minx = Double.MAX_VALUE, maxx = -Double.MAX_VALUE, miny = Double.MAX_VALUE, maxy = -Double.MAX_VALUE;
 		try {
 			// GEOWAVE-60 optimization
-			final Map<ByteArrayId, DataStatistics<SimpleFeature>> statsMap = reader.getComponents().getDataStatistics(
-					reader.getTransaction());
-			final ByteArrayId statId = FeatureBoundingBoxStatistics.composeId(reader.getFeatureType().getGeometryDescriptor().getLocalName());
-			if (statsMap.containsKey(statId)) {
-				final BoundingBoxDataStatistics<SimpleFeature> stats = (BoundingBoxDataStatistics<SimpleFeature>) statsMap.get(statId);
-				return new ReferencedEnvelope(
-						stats.getMinX(),
-						stats.getMaxX(),
-						stats.getMinY(),
-						stats.getMaxY(),
-						GeoWaveGTDataStore.DEFAULT_CRS);
+			final BoundingBoxDataStatistics<SimpleFeature> stats = getBoundingBoxStatistics();
+			if ((stats != null) && (query.getFilter().equals(
+					Filter.INCLUDE) || !isFeatureQuery())) {
+				return toEnvelope(stats);
+			}
+			if (isFeatureQuery()) {
+				if (isApproximateStatistics()) {
+					if (stats != null) {
+						return estimateBounds(stats);
+					}
+				}
+				else {
+					final BoundingBoxDataStatistics<SimpleFeature> aggregation = aggregateBounds();
+					if (aggregation != null) {
+						return aggregation.isSet() ? toEnvelope(aggregation) : null;
+					}
+				}
 			}
 			final Iterator<SimpleFeature> iterator = openIterator();
 			if (!iterator.hasNext()) {
@@ -170,6 +192,180 @@ public class GeoWaveFeatureCollection extends
 
 	}
 
+	/**
+	 * The bounds of the features that match the filter are within both the
+	 * bounds of all of the features and the bounds of the filter
+	 */
+	private ReferencedEnvelope estimateBounds(
+			final BoundingBoxDataStatistics<SimpleFeature> stats ) {
+		final Envelope envelope = new Envelope(
+				stats.getMinX(),
+				stats.getMaxX(),
+				stats.getMinY(),
+				stats.getMaxY());
+		final Geometry jtsBounds = getBBox(
+				query,
+				null);
+		return new ReferencedEnvelope(
+				jtsBounds == null ? envelope : envelope.intersection(jtsBounds.getEnvelopeInternal()),
+				GeoWaveGTDataStore.DEFAULT_CRS);
+	}
+
+	/**
+	 * The number of features that match the filter is at most both the number
+	 * of all of the features and the number of rows within the bounds of the
+	 * filter
+	 * 
+	 * @return the estimated count, or null if it is unknown
+	 */
+	private Long estimateCount() {
+		final Long rowCount = reader.estimateRowCount(
+				getBBox(
+						query,
+						null),
+				getBoundedTime(query));
+		if (rowCount == null) {
+			return null;
+		}
+		final CountDataStatistics<SimpleFeature> stats = getCountStatistics();
+		if ((stats != null) && stats.isSet()) {
+			return Math.min(
+					rowCount,
+					stats.getCount());
+		}
+		return rowCount;
+	}
+
+	/**
+	 * @return the number of features that match the filter counted within the
+	 *         tablet servers, or null if they could not be counted there
+	 */
+	private Long aggregateCount() {
+		final List<DataStatistics<SimpleFeature>> aggregation = reader.aggregate(
+				getBBox(
+						query,
+						null),
+				getBoundedTime(query),
+				query.getFilter(),
+				Arrays.<DataStatistics<SimpleFeature>> asList(new CountDataStatistics<SimpleFeature>(
+						reader.getComponents().getAdapter().getAdapterId())));
+		if (aggregation == null) {
+			return null;
+		}
+		final CountDataStatistics<SimpleFeature> count = (CountDataStatistics<SimpleFeature>) aggregation.get(0);
+		return count.isSet() ? count.getCount() : 0L;
+	}
+
+	/**
+	 * @return the bounds of the features that match the filter aggregated
+	 *         within the tablet servers, or null if they could not be
+	 *         aggregated there
+	 */
+	private BoundingBoxDataStatistics<SimpleFeature> aggregateBounds() {
+		final List<DataStatistics<SimpleFeature>> aggregation = reader.aggregate(
+				getBBox(
+						query,
+						null),
+				getBoundedTime(query),
+				query.getFilter(),
+				Arrays.<DataStatistics<SimpleFeature>> asList(new FeatureBoundingBoxStatistics(
+						reader.getComponents().getAdapter().getAdapterId(),
+						reader.getFeatureType().getGeometryDescriptor().getLocalName())));
+		if (aggregation == null) {
+			return null;
+		}
+		return (BoundingBoxDataStatistics<SimpleFeature>) aggregation.get(0);
+	}
+
+	/**
+	 * @return the time or numeric range of the attribute across the features
+	 *         that match the filter aggregated within the tablet servers, or
+	 *         the range across every feature from the statistics if the filter
+	 *         includes every feature or cannot be aggregated, or null if no
+	 *         feature matches the filter
+	 */
+	private DataStatistics<SimpleFeature> getRangeStatistics(
+			final String attr ) {
+		final DataStatistics<SimpleFeature> stat = reader.getStatsFor(attr);
+		if ((stat == null) || query.getFilter().equals(
+				Filter.INCLUDE) || !isFeatureQuery()) {
+			return stat;
+		}
+		final ByteArrayId adapterId = reader.getComponents().getAdapter().getAdapterId();
+		final NumericRangeDataStatistics<SimpleFeature> emptyStat;
+		if (stat instanceof FeatureTimeRangeStatistics) {
+			emptyStat = new FeatureTimeRangeStatistics(
+					adapterId,
+					((FeatureTimeRangeStatistics) stat).getFieldName());
+		}
+		else if (stat instanceof FeatureNumericRangeStatistics) {
+			emptyStat = new FeatureNumericRangeStatistics(
+					adapterId,
+					((FeatureNumericRangeStatistics) stat).getFieldName());
+		}
+		else {
+			return null;
+		}
+		final List<DataStatistics<SimpleFeature>> aggregation = reader.aggregate(
+				getBBox(
+						query,
+						null),
+				getBoundedTime(query),
+				query.getFilter(),
+				Arrays.<DataStatistics<SimpleFeature>> asList(emptyStat));
+		if (aggregation == null) {
+			return stat;
+		}
+		return emptyStat.isSet() ? emptyStat : null;
+	}
+
+	private CountDataStatistics<SimpleFeature> getCountStatistics() {
+		final Map<ByteArrayId, DataStatistics<SimpleFeature>> statsMap = reader.getComponents().getDataStatistics(
+				reader.getTransaction());
+		return (CountDataStatistics<SimpleFeature>) statsMap.get(CountDataStatistics.STATS_ID);
+	}
+
+	private BoundingBoxDataStatistics<SimpleFeature> getBoundingBoxStatistics() {
+		final Map<ByteArrayId, DataStatistics<SimpleFeature>> statsMap = reader.getComponents().getDataStatistics(
+				reader.getTransaction());
+		return (BoundingBoxDataStatistics<SimpleFeature>) statsMap.get(FeatureBoundingBoxStatistics.composeId(reader.getFeatureType().getGeometryDescriptor().getLocalName()));
+	}
+
+	private static ReferencedEnvelope toEnvelope(
+			final BoundingBoxDataStatistics<SimpleFeature> stats ) {
+		return new ReferencedEnvelope(
+				stats.getMinX(),
+				stats.getMaxX(),
+				stats.getMinY(),
+				stats.getMaxY(),
+				GeoWaveGTDataStore.DEFAULT_CRS);
+	}
+
+	protected boolean isApproximateStatistics() {
+		final Object approximate = query.getHints().get(
+				APPROXIMATE_STATISTICS);
+		if (approximate != null) {
+			return (Boolean) approximate;
+		}
+		return reader.getComponents().getGTstore().isApproximateStatistics();
+	}
+
+	/**
+	 * @return whether this query reads the features that match its filter, as
+	 *         opposed to rendered images, decimated features, statistics or
+	 *         features identified by their IDs
+	 */
+	private boolean isFeatureQuery() {
+		return !isDistributedRenderQuery() && !isDecimationQuery() && (getStatsQueryName() == null) && !(query.getFilter() instanceof FidFilterImpl);
+	}
+
+	private boolean isDecimationQuery() {
+		return query.getHints().containsKey(
+				DecimationProcess.OUTPUT_WIDTH) && query.getHints().containsKey(
+				DecimationProcess.OUTPUT_HEIGHT) && query.getHints().containsKey(
+				DecimationProcess.OUTPUT_BBOX);
+	}
+
 	@Override
 	public SimpleFeatureType getSchema() {
 		if (isDistributedRenderQuery()) {
@@ -246,10 +442,7 @@ public class GeoWaveFeatureCollection extends
 						(DistributableRenderer) query.getHints().get(
 								SERVER_FEATURE_RENDERER));
 			}
-			else if (query.getHints().containsKey(
-					DecimationProcess.OUTPUT_WIDTH) && query.getHints().containsKey(
-					DecimationProcess.OUTPUT_HEIGHT) && query.getHints().containsKey(
-					DecimationProcess.OUTPUT_BBOX)) {
+			else if (isDecimationQuery()) {
 				double pixelSize = 1;
 				if (query.getHints().containsKey(
 						DecimationProcess.PIXEL_SIZE)) {
@@ -367,7 +560,7 @@ public class GeoWaveFeatureCollection extends
 					null);
 			int acceptedCount = 0;
 			for (final String attr : attrs) {
-				final DataStatistics<SimpleFeature> stat = reader.getStatsFor(attr);
+				final DataStatistics<SimpleFeature> stat = getRangeStatistics(attr);
 				if (stat == null) {
 					continue;
 				}
@@ -401,7 +594,7 @@ public class GeoWaveFeatureCollection extends
 					null);
 			int acceptedCount = 0;
 			for (final String attr : attrs) {
-				final DataStatistics<SimpleFeature> stat = reader.getStatsFor(attr);
+				final DataStatistics<SimpleFeature> stat = getRangeStatistics(attr);
 				if (stat == null) {
 					continue;
 				}
@@ -10,17 +10,23 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
 
 import mil.nga.giat.geowave.accumulo.util.CloseableIteratorWrapper;
+import mil.nga.giat.geowave.accumulo.util.ParallelCloseableIterator;
 import mil.nga.giat.geowave.index.ByteArrayId;
 import mil.nga.giat.geowave.index.StringUtils;
 import mil.nga.giat.geowave.store.CloseableIterator;
 import mil.nga.giat.geowave.store.adapter.statistics.DataStatistics;
+import mil.nga.giat.geowave.store.filter.DedupeFilter;
+import mil.nga.giat.geowave.store.filter.VisitedDataIdSet;
 import mil.nga.giat.geowave.store.index.DimensionalityType;
 import mil.nga.giat.geowave.store.index.Index;
 import mil.nga.giat.geowave.store.query.BasicQuery;
@@ -33,6 +39,7 @@ import mil.nga.giat.geowave.vector.util.QueryIndexHelper;
 import mil.nga.giat.geowave.vector.wms.DistributableRenderer;
 
 import org.apache.log4j.Logger;
+import org.geotools.data.DataUtilities;
 import org.geotools.data.FeatureReader;
 import org.geotools.data.Query;
 import org.geotools.filter.FidFilterImpl;
@@ -41,7 +48,9 @@ import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.filter.Filter;
+import org.opengis.filter.sort.SortBy;
 
+import com.google.common.base.Predicate;
 import com.google.common.collect.Iterators;
 import com.vividsolutions.jts.geom.Geometry;
 
@@ -59,6 +68,7 @@ public class GeoWaveFeatureReader implements
 	private final GeoWaveDataStoreComponents components;
 	private final GeoWaveFeatureCollection featureCollection;
 	private final GeoWaveTransaction transaction;
+	private final List<ByteArrayId> fieldIds;
 
 	public GeoWaveFeatureReader(
 			final Query query,
@@ -66,11 +76,49 @@ public class GeoWaveFeatureReader implements
 			final GeoWaveDataStoreComponents components ) {
 		this.components = components;
 		this.transaction = transaction;
+		fieldIds = getFieldIds(
+				query,
+				components.getAdapter().getType());
 		featureCollection = new GeoWaveFeatureCollection(
 				this,
 				query);
 	}
 
+	/**
+	 * The attributes that have to be read for a query are the requested
+	 * properties, along with the attributes that the filter and the sort order
+	 * refer to, because they are evaluated against the features that are read
+	 * 
+	 * @return the IDs of the attributes to read, or null to read them all
+	 */
+	private static List<ByteArrayId> getFieldIds(
+			final Query query,
+			final SimpleFeatureType type ) {
+		if ((query == null) || query.retrieveAllProperties()) {
+			return null;
+		}
+		final Set<String> attributeNames = new LinkedHashSet<String>(
+				Arrays.asList(query.getPropertyNames()));
+		if (query.getFilter() != null) {
+			attributeNames.addAll(Arrays.asList(DataUtilities.attributeNames(
+					query.getFilter(),
+					type)));
+		}
+		if (query.getSortBy() != null) {
+			for (final SortBy sortBy : query.getSortBy()) {
+				if (sortBy.getPropertyName() != null) {
+					attributeNames.add(sortBy.getPropertyName().getPropertyName());
+				}
+			}
+		}
+		final List<ByteArrayId> fieldIds = new ArrayList<ByteArrayId>();
+		for (final String attributeName : attributeNames) {
+			fieldIds.add(new ByteArrayId(
+					StringUtils.stringToBinary(attributeName)));
+		}
+		return fieldIds;
+	}
+
 	public GeoWaveTransaction getTransaction() {
 		return transaction;
 	}
@@ -127,37 +175,175 @@ public class GeoWaveFeatureReader implements
 			final Geometry jtsBounds,
 			final TemporalConstraintsSet timeBounds,
 			final QueryIssuer issuer ) {
+		final Map<Index, mil.nga.giat.geowave.store.query.Query> queriesPerIndex = getQueriesPerIndex(
+				jtsBounds,
+				timeBounds);
+		if (queriesPerIndex.isEmpty()) {
+			return interweaveTransaction(getNoData());
+		}
+
+		final Index chosenIndex = chooseIndex(queriesPerIndex);
+		if (chosenIndex != null) {
+			return interweaveTransaction(issuer.query(
+					chosenIndex,
+					queriesPerIndex.get(chosenIndex)));
+		}
+
+		// the cost of reading an index is unknown, so read every index
+		// concurrently
+		final List<Callable<CloseableIterator<SimpleFeature>>> sources = new ArrayList<Callable<CloseableIterator<SimpleFeature>>>();
+		for (final Map.Entry<Index, mil.nga.giat.geowave.store.query.Query> entry : queriesPerIndex.entrySet()) {
+			sources.add(new Callable<CloseableIterator<SimpleFeature>>() {
+				@Override
+				public CloseableIterator<SimpleFeature> call() {
+					return issuer.query(
+							entry.getKey(),
+							entry.getValue());
+				}
+			});
+		}
+		final ParallelCloseableIterator<SimpleFeature> results = new ParallelCloseableIterator<SimpleFeature>(
+				sources,
+				components.getDataStore().getQueryExecutor(),
+				ParallelCloseableIterator.DEFAULT_QUEUE_CAPACITY,
+				null);
+		if (!issuer.isDeduplicatedById()) {
+			return interweaveTransaction(results);
+		}
+		// features read from several indices are de-duplicated on the client
+		// within the same bounded memory budget as the query dedupe filter
+		final byte[] adapterId = components.getAdapter().getAdapterId().getBytes();
+		final VisitedDataIdSet visitedFeatureIds = new VisitedDataIdSet(
+				DedupeFilter.DEFAULT_MAX_SIZE_IN_BYTES,
+				true);
+		return interweaveTransaction(new CloseableIteratorWrapper<SimpleFeature>(
+				new Closeable() {
+					@Override
+					public void close()
+							throws IOException {
+						try {
+							results.close();
+						}
+						finally {
+							visitedFeatureIds.close();
+						}
+					}
+				},
+				Iterators.filter(
+						results,
+						new Predicate<SimpleFeature>() {
+							@Override
+							public boolean apply(
+									final SimpleFeature feature ) {
+								return visitedFeatureIds.add(
+										adapterId,
+										StringUtils.stringToBinary(feature.getID()),
+										-1);
+							}
+						})));
+	}
 
-		final List<CloseableIterator<SimpleFeature>> results = new ArrayList<CloseableIterator<SimpleFeature>>();
+	/**
+	 * Aggregate the features within the bounds that match the filter into
+	 * statistics within the tablet servers, rather than reading the features
+	 * 
+	 * @param statistics
+	 *            the empty statistics to aggregate the features into
+	 * @return the statistics, or null if the features could not be aggregated
+	 *         and have to be read instead
+	 */
+	public List<DataStatistics<SimpleFeature>> aggregate(
+			final Geometry jtsBounds,
+			final TemporalConstraintsSet timeBounds,
+			final Filter filter,
+			final List<DataStatistics<SimpleFeature>> statistics ) {
+		if (!transaction.isEmpty()) {
+			// the changes within the transaction are only interwoven with the
+			// features that are read
+			return null;
+		}
+		final Map<Index, mil.nga.giat.geowave.store.query.Query> queriesPerIndex = getQueriesPerIndex(
+				jtsBounds,
+				timeBounds);
+		if (queriesPerIndex.isEmpty()) {
+			return statistics;
+		}
+		final Index chosenIndex = chooseIndex(queriesPerIndex);
+		if (chosenIndex == null) {
+			// features may be in only some of the indices, and aggregating
+			// every index would count the features that are in more than one
+			return null;
+		}
+		return components.getDataStore().aggregate(
+				components.getAdapter(),
+				chosenIndex,
+				queriesPerIndex.get(chosenIndex),
+				filter,
+				statistics,
+				transaction.composeAuthorizations());
+	}
+
+	/**
+	 * Estimate the number of rows read for the bounds from the row range
+	 * histogram of the index that would be read. This is an upper bound of the
+	 * number of features within the bounds, unless features are stored in
+	 * multiple rows.
+	 * 
+	 * @return the estimated number of rows, or null if it is unknown
+	 */
+	public Long estimateRowCount(
+			final Geometry jtsBounds,
+			final TemporalConstraintsSet timeBounds ) {
+		final Map<Index, mil.nga.giat.geowave.store.query.Query> queriesPerIndex = getQueriesPerIndex(
+				jtsBounds,
+				timeBounds);
+		if (queriesPerIndex.isEmpty()) {
+			return 0L;
+		}
+		final Index chosenIndex = chooseIndex(queriesPerIndex);
+		if (chosenIndex == null) {
+			return null;
+		}
+		return components.getDataStore().estimateRowCount(
+				components.getAdapter(),
+				chosenIndex,
+				queriesPerIndex.get(chosenIndex),
+				transaction.composeAuthorizations());
+	}
+
+	/**
+	 * Compose the query to read each index with, where a null query is a full
+	 * table scan
+	 */
+	private Map<Index, mil.nga.giat.geowave.store.query.Query> getQueriesPerIndex(
+			final Geometry jtsBounds,
+			final TemporalConstraintsSet timeBounds ) {
 		final Map<ByteArrayId, DataStatistics<SimpleFeature>> statsMap = components.getDataStatistics(transaction);
+		final Constraints timeConstraints = QueryIndexHelper.composeTimeBoundedConstraints(
+				components.getAdapter().getType(),
+				components.getAdapter().getTimeDescriptors(),
+				statsMap,
+				timeBounds);
 
+		final Map<Index, mil.nga.giat.geowave.store.query.Query> queriesPerIndex = new LinkedHashMap<Index, mil.nga.giat.geowave.store.query.Query>();
 		try (CloseableIterator<Index> indexIt = getComponents().getDataStore().getIndices()) {
 			while (indexIt.hasNext()) {
 				final Index index = indexIt.next();
 
-				final Constraints timeConstraints = QueryIndexHelper.composeTimeBoundedConstraints(
-						components.getAdapter().getType(),
-						components.getAdapter().getTimeDescriptors(),
-						statsMap,
-						timeBounds);
-
 				/*
 				 * Inspect for SPATIAL_TEMPORAL type index. Most queries issued
 				 * from GeoServer, where time is an 'enabled' dimension, provide
 				 * time constraints. Often they only an upper bound. The
 				 * statistics were used to clip the bounds prior to this point.
-				 * However, the range may be still too wide. Ideally, spatial
-				 * temporal indexing should not be used in these cases.
-				 * Eventually all this logic should be replaced by a
-				 * QueryPlanner that takes the full set of constraints and has
-				 * in-depth knowledge of each indices capabilities.
+				 * However, the range may be still too wide, in which case the
+				 * cost of reading each index decides which index is read.
 				 */
 				if ((jtsBounds == null) || (index.getDimensionalityType().equals(
 						DimensionalityType.SPATIAL_TEMPORAL) && timeConstraints.isEmpty())) {
 					// full table scan
-					results.add(issuer.query(
+					queriesPerIndex.put(
 							index,
-							null));
+							null);
 				}
 				else {
 
@@ -168,21 +354,21 @@ public class GeoWaveFeatureReader implements
 
 					if (timeConstraints.isSupported(index)) {
 
-						results.add(issuer.query(
+						queriesPerIndex.put(
 								index,
 								composeQuery(
 										jtsBounds,
 										geoConstraints,
-										timeConstraints)));
+										timeConstraints));
 					}
 					else {
 						// just geo
-						results.add(issuer.query(
+						queriesPerIndex.put(
 								index,
 								composeQuery(
 										jtsBounds,
 										geoConstraints,
-										null)));
+										null));
 					}
 				}
 			}
@@ -192,17 +378,27 @@ public class GeoWaveFeatureReader implements
 					"unable to close index iterator for query",
 					e);
 		}
-		return interweaveTransaction(new CloseableIteratorWrapper<SimpleFeature>(
-				new Closeable() {
-					@Override
-					public void close()
-							throws IOException {
-						for (final CloseableIterator<SimpleFeature> result : results) {
-							result.close();
-						}
-					}
-				},
-				Iterators.concat(results.iterator())));
+		return queriesPerIndex;
+	}
+
+	/**
+	 * An index is only chosen if it is the only index the adapter is in, or if
+	 * the adapter is known to be in every index and cost based index selection
+	 * is enabled, in which case reading the cheapest index is enough. The count
+	 * and bounds of an adapter in several indices are therefore computed by
+	 * reading its features unless cost based index selection is enabled.
+	 * 
+	 * @return the index to read, or null if every index has to be read
+	 */
+	private Index chooseIndex(
+			final Map<Index, mil.nga.giat.geowave.store.query.Query> queriesPerIndex ) {
+		if (queriesPerIndex.size() == 1) {
+			return queriesPerIndex.keySet().iterator().next();
+		}
+		return components.getDataStore().chooseIndex(
+				components.getAdapter(),
+				queriesPerIndex,
+				transaction.composeAuthorizations());
 	}
 
 	private class BaseIssuer implements
@@ -231,8 +427,14 @@ public class GeoWaveFeatureReader implements
 					query,
 					filter,
 					(limit != null) && (limit >= 0) ? limit : null,
+					fieldIds,
 					transaction.composeAuthorizations());
 		}
+
+		@Override
+		public boolean isDeduplicatedById() {
+			return true;
+		}
 	}
 
 	private class EnvelopQueryIssuer extends
@@ -309,6 +511,12 @@ public class GeoWaveFeatureReader implements
 					transaction.composeAuthorizations());
 		}
 
+		@Override
+		public boolean isDeduplicatedById() {
+			// each index renders its own image of its features
+			return false;
+		}
+
 	}
 
 	private class IdQueryIssuer extends
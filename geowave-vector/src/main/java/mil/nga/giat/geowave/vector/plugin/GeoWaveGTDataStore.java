@@ -127,6 +127,7 @@ public class GeoWaveGTDataStore extends
 	private final AuthorizationSPI authorizationSPI;
 	final private TransactionsAllocater transactionsAllocater;
 	private URI featureNameSpaceURI;
+	private boolean approximateStatistics = false;
 
 	/**
 	 * Manages InProcess locks for FeatureLocking implementations.
@@ -170,9 +171,18 @@ public class GeoWaveGTDataStore extends
 				this);
 
 		featureNameSpaceURI = config.getFeatureNamespace();
+		approximateStatistics = config.isApproximateStatistics();
 
 	}
 
+	/**
+	 * @return whether the bounds and counts of filtered queries are estimated
+	 *         from statistics, rather than read from the matching features
+	 */
+	public boolean isApproximateStatistics() {
+		return approximateStatistics;
+	}
+
 	@Override
 	public void dispose() {
 		// TODO are there any native resources we need to dispose of
@@ -45,6 +45,7 @@ public class GeoWavePluginConfig
 	protected static final String LOCK_MGT_KEY = "Lock Management";
 	protected static final String AUTH_MGT_KEY = "Authorization Management Provider";
 	protected static final String AUTH_URL_KEY = "Authorization Data URL";
+	protected static final String APPROXIMATE_STATISTICS_KEY = "Approximate Statistics";
 
 	private static final Param ZOOKEEPER_SERVERS = new Param(
 			ZOOKEEPER_SERVERS_KEY,
@@ -105,6 +106,13 @@ public class GeoWavePluginConfig
 			"The providers data URL.",
 			false);
 
+	private static final Param APPROXIMATE_STATISTICS = new Param(
+			APPROXIMATE_STATISTICS_KEY,
+			Boolean.class,
+			"Estimate the bounds and counts of filtered queries from statistics, rather than reading the matching features.",
+			false,
+			Boolean.FALSE);
+
 	private final String zookeeperServers;
 	private final String instanceName;
 	private final String userName;
@@ -114,6 +122,7 @@ public class GeoWavePluginConfig
 	private final LockingManagementFactory lockingManagementFactory;
 	private final AuthorizationFactorySPI authorizationFactory;
 	private final URL authorizationURL;
+	private final boolean approximateStatistics;
 
 	private static List<Param> accumuloParams = null;
 
@@ -137,6 +146,7 @@ public class GeoWavePluginConfig
 			accumuloParams.add(LOCK_MGT);
 			accumuloParams.add(AUTH_MGT);
 			accumuloParams.add(AUTH_URL);
+			accumuloParams.add(APPROXIMATE_STATISTICS);
 		}
 		return accumuloParams;
 	}
@@ -209,6 +219,9 @@ public class GeoWavePluginConfig
 
 		authorizationFactory = getAuthorizationFactory(params);
 		authorizationURL = getAuthorizationURL(params);
+
+		param = params.get(APPROXIMATE_STATISTICS_KEY);
+		approximateStatistics = (param != null) && Boolean.parseBoolean(param.toString());
 	}
 
 	public static AuthorizationFactorySPI getAuthorizationFactory(
@@ -258,6 +271,10 @@ public class GeoWavePluginConfig
 		return authorizationURL;
 	}
 
+	public boolean isApproximateStatistics() {
+		return approximateStatistics;
+	}
+
 	public LockingManagementFactory getLockingManagementFactory() {
 		return lockingManagementFactory;
 	}
@@ -11,4 +11,10 @@ public interface QueryIssuer
 	CloseableIterator<SimpleFeature> query(
 			Index index,
 			Query constraints );
+
+	/**
+	 * @return whether the results are features that may be read from more
+	 *         than one index, and so should be deduplicated by their IDs
+	 */
+	boolean isDeduplicatedById();
 }
@@ -7,17 +7,12 @@ import java.net.URLClassLoader;
 import java.util.List;
 import java.util.Map;
 
-import mil.nga.giat.geowave.accumulo.AccumuloRowId;
-import mil.nga.giat.geowave.index.ByteArrayId;
+import mil.nga.giat.geowave.accumulo.query.WholeRowDecoder;
 import mil.nga.giat.geowave.index.ByteArrayUtils;
 import mil.nga.giat.geowave.index.PersistenceUtils;
 import mil.nga.giat.geowave.store.adapter.IndexedAdapterPersistenceEncoding;
-import mil.nga.giat.geowave.store.data.PersistentDataset;
-import mil.nga.giat.geowave.store.data.PersistentValue;
-import mil.nga.giat.geowave.store.data.field.FieldReader;
 import mil.nga.giat.geowave.store.filter.DistributableQueryFilter;
 import mil.nga.giat.geowave.store.index.CommonIndexModel;
-import mil.nga.giat.geowave.store.index.CommonIndexValue;
 import mil.nga.giat.geowave.store.index.Index;
 import mil.nga.giat.geowave.vector.adapter.FeatureDataAdapter;
 
@@ -61,6 +56,8 @@ public class CqlQueryFilterIterator extends
 	private FeatureDataAdapter dataAdapter;
 	private DistributableQueryFilter geowaveFilter;
 	private Filter gtFilter;
+	private Index index;
+	private WholeRowDecoder decoder;
 
 	static {
 		URL.setURLStreamHandlerFactory(new FsUrlStreamHandlerFactory());
@@ -72,46 +69,10 @@ public class CqlQueryFilterIterator extends
 			final List<Key> keys,
 			final List<Value> values ) {
 		if ((gtFilter != null) && (model != null) && (dataAdapter != null)) {
-			final AccumuloRowId rowId = new AccumuloRowId(
-					currentRow.copyBytes());
-			final PersistentDataset<CommonIndexValue> commonData = new PersistentDataset<CommonIndexValue>();
-			final PersistentDataset<Object> extendedData = new PersistentDataset<Object>();
-			for (int i = 0; (i < keys.size()) && (i < values.size()); i++) {
-				final Key key = keys.get(i);
-				final ByteArrayId fieldId = new ByteArrayId(
-						key.getColumnQualifierData().getBackingArray());
-				final FieldReader<? extends CommonIndexValue> reader = model.getReader(fieldId);
-				if (reader == null) {
-					// try extended data
-					final FieldReader<Object> extReader = dataAdapter.getReader(fieldId);
-					if (extReader == null) {
-						continue;
-					}
-					final Object fieldValue = extReader.readField(values.get(
-							i).get());
-					extendedData.addValue(new PersistentValue<Object>(
-							fieldId,
-							fieldValue));
-				}
-				else {
-					final CommonIndexValue fieldValue = reader.readField(values.get(
-							i).get());
-					fieldValue.setVisibility(key.getColumnVisibilityData().getBackingArray());
-					commonData.addValue(new PersistentValue<CommonIndexValue>(
-							fieldId,
-							fieldValue));
-				}
-			}
-			final IndexedAdapterPersistenceEncoding encoding = new IndexedAdapterPersistenceEncoding(
-					new ByteArrayId(
-							rowId.getAdapterId()),
-					new ByteArrayId(
-							rowId.getDataId()),
-					new ByteArrayId(
-							rowId.getInsertionId()),
-					rowId.getNumberOfDuplicates(),
-					commonData,
-					extendedData);
+			final IndexedAdapterPersistenceEncoding encoding = decoder.decodeRow(
+					currentRow,
+					keys,
+					values);
 			if (geowaveFilter != null) {
 				if (!geowaveFilter.accept(encoding)) {
 					return false;
@@ -119,15 +80,7 @@ public class CqlQueryFilterIterator extends
 			}
 			final SimpleFeature feature = dataAdapter.decode(
 					encoding,
-					new Index(
-							null, // because we know the feature data adapter
-									// doesn't use the numeric index strategy
-									// and only the common index model to decode
-									// the simple feature, we pass along a null
-									// strategy to eliminate the necessity to
-									// send a serialization of the strategy in
-									// the options of this iterator
-							model));
+					index);
 			if (feature == null) {
 				return false;
 			}
@@ -239,6 +192,17 @@ public class CqlQueryFilterIterator extends
 			dataAdapter = PersistenceUtils.fromBinary(
 					dataAdapterBytes,
 					FeatureDataAdapter.class);
+			index = new Index(
+					null, // because we know the feature data adapter
+							// doesn't use the numeric index strategy and only
+							// the common index model to decode the simple
+							// feature, we pass along a null strategy to
+							// eliminate the necessity to send a serialization
+							// of the strategy in the options of this iterator
+					model);
+			decoder = new WholeRowDecoder(
+					model,
+					dataAdapter);
 		}
 		catch (final Exception e) {
 			throw new IllegalArgumentException(
@@ -4,14 +4,24 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.ByteBuffer;
 import java.text.ParseException;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
+import mil.nga.giat.geowave.index.StringUtils;
+import mil.nga.giat.geowave.store.CompactGeometryEncoding;
+import mil.nga.giat.geowave.store.GeometryUtils;
+import mil.nga.giat.geowave.store.WKBGeometryEncoding;
+import mil.nga.giat.geowave.store.adapter.AdapterPersistenceEncoding;
 import mil.nga.giat.geowave.store.adapter.IndexFieldHandler;
+import mil.nga.giat.geowave.store.adapter.IndexedAdapterPersistenceEncoding;
 import mil.nga.giat.geowave.store.data.visibility.GlobalVisibilityHandler;
+import mil.nga.giat.geowave.store.dimension.GeometryWrapper;
 import mil.nga.giat.geowave.store.index.CommonIndexValue;
+import mil.nga.giat.geowave.store.index.Index;
+import mil.nga.giat.geowave.store.index.IndexType;
 import mil.nga.giat.geowave.vector.utils.DateUtilities;
 
 import org.apache.accumulo.core.client.AccumuloException;
@@ -361,4 +371,117 @@ public class FeatureDataAdapterTest
 		assertTrue(found);
 	}
 
+	@Test
+	public void testGeometryEncoding() {
+		final FeatureDataAdapter dataAdapter = new FeatureDataAdapter(
+				schema);
+		dataAdapter.setGeometryEncoding(new CompactGeometryEncoding(
+				5));
+		final byte[] binary = dataAdapter.toBinary();
+
+		final FeatureDataAdapter dataAdapterCopy = new FeatureDataAdapter();
+		dataAdapterCopy.fromBinary(binary);
+		assertTrue(dataAdapterCopy.getGeometryEncoding() instanceof CompactGeometryEncoding);
+		assertEquals(
+				5,
+				((CompactGeometryEncoding) dataAdapterCopy.getGeometryEncoding()).getXYPrecision());
+
+		// the index geometry is written with the encoding of the adapter
+		final List<IndexFieldHandler<SimpleFeature, ? extends CommonIndexValue, Object>> handlers = dataAdapterCopy.getDefaultTypeMatchingHandlers(schema);
+		boolean found = false;
+		for (final IndexFieldHandler<SimpleFeature, ? extends CommonIndexValue, Object> handler : handlers) {
+			if (handler instanceof FeatureGeometryHandler) {
+				final GeometryWrapper wrapper = ((FeatureGeometryHandler) handler).toIndexValue(newFeature);
+				final byte[] geometryBinary = wrapper.toBinary();
+				assertTrue(CompactGeometryEncoding.isCompact(geometryBinary));
+				assertEquals(
+						newFeature.getDefaultGeometry(),
+						GeometryUtils.geometryFromBinary(geometryBinary));
+				found = true;
+			}
+		}
+		assertTrue(found);
+	}
+
+	@Test
+	public void testLazyDecode() {
+		final FeatureDataAdapter dataAdapter = new FeatureDataAdapter(
+				schema);
+		final Index index = IndexType.SPATIAL_VECTOR.createDefaultIndex();
+		final AdapterPersistenceEncoding encoding = dataAdapter.encode(
+				newFeature,
+				index.getIndexModel());
+		final SimpleFeature decoded = dataAdapter.decode(
+				new IndexedAdapterPersistenceEncoding(
+						dataAdapter.getAdapterId(),
+						encoding.getDataId(),
+						index.getId(),
+						0,
+						encoding.getCommonData(),
+						encoding.getAdapterExtendedData()),
+				index);
+		assertTrue(decoded instanceof LazySimpleFeature);
+		assertEquals(
+				newFeature.getID(),
+				decoded.getID());
+		assertEquals(
+				newFeature.getDefaultGeometry(),
+				decoded.getDefaultGeometry());
+		assertEquals(
+				newFeature.getAttribute("pop"),
+				decoded.getAttribute("pop"));
+		assertEquals(
+				newFeature.getAttributes(),
+				decoded.getAttributes());
+
+		// setting an attribute fully decodes the feature
+		decoded.setAttribute(
+				"pop",
+				Long.valueOf(200));
+		assertEquals(
+				Long.valueOf(200),
+				decoded.getAttribute("pop"));
+		assertEquals(
+				newFeature.getAttribute("pid"),
+				decoded.getAttribute("pid"));
+		assertEquals(
+				newFeature.getID(),
+				decoded.getIdentifier().getID());
+	}
+
+	@Test
+	public void testAdapterWithoutGeometryEncoding() {
+		final FeatureDataAdapter dataAdapter = new FeatureDataAdapter(
+				schema);
+		// the type data of an adapter stored before the geometry encoding was
+		// added
+		final byte[] typeNameBytes = StringUtils.stringToBinary(schema.getTypeName());
+		final byte[] namespaceBytes = StringUtils.stringToBinary(schema.getName().getNamespaceURI());
+		final byte[] visibilityAttributeNameBytes = StringUtils.stringToBinary(dataAdapter.getVisibilityAttributeName());
+		final byte[] visibilityManagementClassNameBytes = StringUtils.stringToBinary(dataAdapter.getFieldVisibilityManagement().getClass().getCanonicalName());
+		final byte[] timeAndRangeBytes = dataAdapter.getTimeDescriptors().toBinary();
+		final byte[] encodedTypeBytes = StringUtils.stringToBinary(DataUtilities.encodeType(schema));
+		final ByteBuffer buf = ByteBuffer.allocate(typeNameBytes.length + namespaceBytes.length + visibilityAttributeNameBytes.length + visibilityManagementClassNameBytes.length + timeAndRangeBytes.length + encodedTypeBytes.length + 20);
+		buf.putInt(typeNameBytes.length);
+		buf.putInt(namespaceBytes.length);
+		buf.putInt(visibilityAttributeNameBytes.length);
+		buf.putInt(visibilityManagementClassNameBytes.length);
+		buf.putInt(timeAndRangeBytes.length);
+		buf.put(typeNameBytes);
+		buf.put(namespaceBytes);
+		buf.put(visibilityAttributeNameBytes);
+		buf.put(visibilityManagementClassNameBytes);
+		buf.put(timeAndRangeBytes);
+		buf.put(encodedTypeBytes);
+
+		final FeatureDataAdapter dataAdapterCopy = new FeatureDataAdapter();
+		final SimpleFeatureType type = (SimpleFeatureType) dataAdapterCopy.defaultTypeDataFromBinary(buf.array());
+		assertEquals(
+				DataUtilities.encodeType(schema),
+				DataUtilities.encodeType(type));
+		assertEquals(
+				schema.getName(),
+				type.getName());
+		assertTrue(dataAdapterCopy.getGeometryEncoding() instanceof WKBGeometryEncoding);
+	}
 }
@@ -26,6 +26,7 @@ import org.geotools.feature.visitor.MaxVisitor;
 import org.geotools.feature.visitor.MinVisitor;
 import org.geotools.filter.text.cql2.CQLException;
 import org.geotools.filter.text.ecql.ECQL;
+import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.junit.Before;
 import org.junit.Test;
 import org.opengis.feature.simple.SimpleFeature;
@@ -179,4 +180,87 @@ public class GeoWaveFeatureReaderTest
 				stime));
 
 	}
+
+	@Test
+	public void testFilteredMin()
+			throws CQLException,
+			IOException {
+		// only the second feature, which starts at the end time, matches
+		final GeoWaveFeatureReader reader = (GeoWaveFeatureReader) dataStore.getFeatureReader(
+				type.getTypeName(),
+				new Query(
+						"GeoWaveFeatureReaderTest",
+						ECQL.toFilter("BBOX(geometry,28,40,29,42) AND pop > 100")));
+		final MinVisitor visitor = new MinVisitor(
+				"start",
+				type);
+		reader.getFeatureCollection().accepts(
+				visitor,
+				null);
+		assertTrue(visitor.getMin().equals(
+				etime));
+	}
+
+	@Test
+	public void testFilteredCount()
+			throws CQLException,
+			IOException {
+		final Query bboxQuery = new Query(
+				"GeoWaveFeatureReaderTest",
+				ECQL.toFilter("BBOX(geometry,28,40,29,42) AND pop > 100"));
+		final GeoWaveFeatureReader reader = (GeoWaveFeatureReader) dataStore.getFeatureReader(
+				type.getTypeName(),
+				bboxQuery);
+		assertEquals(
+				1,
+				reader.getFeatureCollection().getCount());
+
+		// the estimate is bounded by the number of features
+		bboxQuery.getHints().put(
+				GeoWaveFeatureCollection.APPROXIMATE_STATISTICS,
+				Boolean.TRUE);
+		final GeoWaveFeatureReader approximateReader = (GeoWaveFeatureReader) dataStore.getFeatureReader(
+				type.getTypeName(),
+				bboxQuery);
+		assertTrue(approximateReader.getFeatureCollection().getCount() <= 2);
+	}
+
+	@Test
+	public void testFilteredBounds()
+			throws CQLException,
+			IOException {
+		final Query bboxQuery = new Query(
+				"GeoWaveFeatureReaderTest",
+				ECQL.toFilter("BBOX(geometry,28,40,29,42) AND pop > 100"));
+		final GeoWaveFeatureReader reader = (GeoWaveFeatureReader) dataStore.getFeatureReader(
+				type.getTypeName(),
+				bboxQuery);
+		final ReferencedEnvelope bounds = reader.getFeatureCollection().getBounds();
+		assertEquals(
+				28.25,
+				bounds.getMinX(),
+				0.0001);
+		assertEquals(
+				28.25,
+				bounds.getMaxX(),
+				0.0001);
+
+		// the estimate is the intersection of the bounds of the filter and
+		// the bounds of every feature
+		bboxQuery.getHints().put(
+				GeoWaveFeatureCollection.APPROXIMATE_STATISTICS,
+				Boolean.TRUE);
+		final GeoWaveFeatureReader approximateReader = (GeoWaveFeatureReader) dataStore.getFeatureReader(
+				type.getTypeName(),
+				bboxQuery);
+		final ReferencedEnvelope approximateBounds = approximateReader.getFeatureCollection().getBounds();
+		assertEquals(
+				28,
+				approximateBounds.getMinX(),
+				0.0001);
+		assertEquals(
+				28.25,
+				approximateBounds.getMaxX(),
+				0.0001);
+	}
 }